@@ -4,10 +4,12 @@ import cn.tannn.jdevelops.autoschema.scan.EnableAutoSchema;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableAutoSchema
 @EnableAsync
+@EnableScheduling
 public class LychnosApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,21 @@
+package cn.tannn.lychnos.ai.client;
+
+/**
+ * AI 调用用量回调（每次调用成功后触发一次）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/17
+ */
+@FunctionalInterface
+public interface AIUsageListener {
+
+    /**
+     * 记录用量
+     *
+     * @param promptTokens     输入 Token 数（图片调用为 0）
+     * @param completionTokens 输出 Token 数（图片调用为 0）
+     * @param images           生成的图片数（文本调用为 0）
+     */
+    void onUsage(long promptTokens, long completionTokens, int images);
+}
@@ -4,6 +4,7 @@ import cn.tannn.lychnos.ai.exception.AIException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
@@ -32,15 +33,28 @@ public class DefaultDynamicAIClient implements DynamicAIClient {
     private final ImageModel imageModel;
     private final OpenAiChatOptions defaultChatOptions;
     private final OpenAiImageOptions defaultImageOptions;
+    private final AIUsageListener usageListener;
 
     public DefaultDynamicAIClient(ChatModel chatModel,
                                   ImageModel imageModel,
                                   OpenAiChatOptions defaultChatOptions,
                                   OpenAiImageOptions defaultImageOptions) {
+        this(chatModel, imageModel, defaultChatOptions, defaultImageOptions, null);
+    }
+
+    /**
+     * @param usageListener 用量回调（可为 null），调用成功后按响应中的 usage 回报 Token 数和图片数
+     */
+    public DefaultDynamicAIClient(ChatModel chatModel,
+                                  ImageModel imageModel,
+                                  OpenAiChatOptions defaultChatOptions,
+                                  OpenAiImageOptions defaultImageOptions,
+                                  AIUsageListener usageListener) {
         this.chatModel = chatModel;
         this.imageModel = imageModel;
         this.defaultChatOptions = defaultChatOptions;
         this.defaultImageOptions = defaultImageOptions;
+        this.usageListener = usageListener;
     }
 
     @Override
@@ -146,13 +160,35 @@ public class DefaultDynamicAIClient implements DynamicAIClient {
 
                 // 创建 Prompt 并调用
                 Prompt prompt = new Prompt(messages, optionsBuilder.build());
-                return chatModel.call(prompt);
+                ChatResponse response = chatModel.call(prompt);
+                reportUsage(response);
+                return response;
             } catch (Exception e) {
                 log.error("AI 文本生成失败: {}", e.getMessage(), e);
                 throw new AIException.ModelCallFailedException("文本生成失败: " + e.getMessage(), e);
             }
         }
 
+        /**
+         * 回报 Token 用量，厂商未返回 usage 时按字符数估算（约 2 字符 / Token）
+         */
+        private void reportUsage(ChatResponse response) {
+            if (usageListener == null || response == null) {
+                return;
+            }
+            Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+            long promptTokens = usage != null && usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+            long completionTokens = usage != null && usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+            if (promptTokens + completionTokens == 0) {
+                long promptChars = userMessage.length() + (systemMessage != null ? systemMessage.length() : 0);
+                long completionChars = response.getResults().isEmpty() || response.getResult().getOutput().getText() == null
+                        ? 0 : response.getResult().getOutput().getText().length();
+                promptTokens = (promptChars + 1) / 2;
+                completionTokens = (completionChars + 1) / 2;
+            }
+            usageListener.onUsage(promptTokens, completionTokens, 0);
+        }
+
         @Override
         public String content() {
             ChatResponse response = call();
@@ -216,7 +252,11 @@ public class DefaultDynamicAIClient implements DynamicAIClient {
 
                 // 创建 ImagePrompt 并调用
                 ImagePrompt imagePrompt = new ImagePrompt(promptText, optionsBuilder.build());
-                return imageModel.call(imagePrompt);
+                ImageResponse response = imageModel.call(imagePrompt);
+                if (usageListener != null && response != null && !response.getResults().isEmpty()) {
+                    usageListener.onUsage(0, 0, response.getResults().size());
+                }
+                return response;
             } catch (Exception e) {
                 log.error("AI 图片生成失败: {}", e.getMessage(), e);
                 throw new AIException.ModelCallFailedException("图片生成失败: " + e.getMessage(), e);
@@ -1,5 +1,6 @@
 package cn.tannn.lychnos.ai.factory;
 
+import cn.tannn.lychnos.ai.client.AIUsageListener;
 import cn.tannn.lychnos.ai.client.DefaultDynamicAIClient;
 import cn.tannn.lychnos.ai.client.DynamicAIClient;
 import cn.tannn.lychnos.ai.config.CustomRetryConfig;
@@ -212,6 +213,17 @@ public class DynamicAIClientFactory {
      * @return DynamicAIClient 客户端实例
      */
     public DynamicAIClient createClient(AIModel aiModel) {
+        return createClient(aiModel, null);
+    }
+
+    /**
+     * 创建动态 AI 客户端，调用成功后通过回调回报用量（Token 数 / 图片数）
+     *
+     * @param aiModel       AI 模型配置
+     * @param usageListener 用量回调（可为 null）
+     * @return DynamicAIClient 客户端实例
+     */
+    public DynamicAIClient createClient(AIModel aiModel, AIUsageListener usageListener) {
         DynamicAIModelConfig config = DynamicAIModelConfig.buildAiClientConfig(aiModel);
 
         ChatModel chatModel = null;
@@ -223,29 +235,43 @@ public class DynamicAIClientFactory {
         if (aiModel.getType() == ModelType.TEXT) {
             log.info("创建文本模型客户端，modelId: {}, model: {}", aiModel.getId(), config.getModel());
             chatModel = createChatModel(config);
-            TextGenerationConfig textConfig = config.getTextConfig();
-            defaultChatOptions = OpenAiChatOptions.builder()
-                    .model(config.getModel())
-                    .temperature(textConfig.getTemperature())
-                    .maxTokens(textConfig.getMaxTokens())
-                    .topP(textConfig.getTopP())
-                    .frequencyPenalty(textConfig.getFrequencyPenalty())
-                    .presencePenalty(textConfig.getPresencePenalty())
-                    .build();
+            defaultChatOptions = buildDefaultChatOptions(config);
         } else if (aiModel.getType() == ModelType.IMAGE) {
             log.info("创建图片模型客户端，modelId: {}, model: {}", aiModel.getId(), config.getModel());
             imageModel = createImageModel(config, aiModel.getFactory());
-            ImageGenerationConfig imageConfig = config.getImageConfig();
-            defaultImageOptions = OpenAiImageOptions.builder()
-                    .model(config.getModel())
-                    .width(imageConfig.getDefaultWidth())
-                    .height(imageConfig.getDefaultHeight())
-                    .N(imageConfig.getCount())
-                    .quality(imageConfig.getQuality())
-                    .style(imageConfig.getStyle())
-                    .build();
+            defaultImageOptions = buildDefaultImageOptions(config);
         }
 
-        return new DefaultDynamicAIClient(chatModel, imageModel, defaultChatOptions, defaultImageOptions);
+        return new DefaultDynamicAIClient(chatModel, imageModel, defaultChatOptions, defaultImageOptions, usageListener);
+    }
+
+    /**
+     * 文本模型默认选项
+     */
+    private OpenAiChatOptions buildDefaultChatOptions(DynamicAIModelConfig config) {
+        TextGenerationConfig textConfig = config.getTextConfig();
+        return OpenAiChatOptions.builder()
+                .model(config.getModel())
+                .temperature(textConfig.getTemperature())
+                .maxTokens(textConfig.getMaxTokens())
+                .topP(textConfig.getTopP())
+                .frequencyPenalty(textConfig.getFrequencyPenalty())
+                .presencePenalty(textConfig.getPresencePenalty())
+                .build();
+    }
+
+    /**
+     * 图片模型默认选项
+     */
+    private OpenAiImageOptions buildDefaultImageOptions(DynamicAIModelConfig config) {
+        ImageGenerationConfig imageConfig = config.getImageConfig();
+        return OpenAiImageOptions.builder()
+                .model(config.getModel())
+                .width(imageConfig.getDefaultWidth())
+                .height(imageConfig.getDefaultHeight())
+                .N(imageConfig.getCount())
+                .quality(imageConfig.getQuality())
+                .style(imageConfig.getStyle())
+                .build();
     }
 }
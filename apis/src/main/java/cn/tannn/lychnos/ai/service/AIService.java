@@ -1,5 +1,7 @@
 package cn.tannn.lychnos.ai.service;
 
+import cn.tannn.lychnos.entity.AIModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.image.ImageResponse;
 
 import java.io.InputStream;
@@ -133,4 +135,24 @@ public interface AIService {
      * @return 图片输入流
      */
     InputStream generateImageStreamWithContentAndModel(Long modelId, Long userId, String contentPrompt);
+
+    /**
+     * 系统任务文本生成（如书籍预热，只能使用官方模型，用量记在系统账户下，不占用户限流）
+     *
+     * @param aiModel       官方文本模型
+     * @param systemMessage 系统提示词
+     * @param userMessage   用户消息
+     * @return 完整响应（含 Token 用量）
+     */
+    ChatResponse generateChatAsSystem(AIModel aiModel, String systemMessage, String userMessage);
+
+    /**
+     * 系统任务图片生成（如书籍预热，只能使用官方模型，用量记在系统账户下，不占用户限流）
+     * 内容提示词会与默认风格提示词拼接
+     *
+     * @param aiModel       官方图片模型
+     * @param contentPrompt 内容提示词（描述图片的具体内容）
+     * @return 图片输入流
+     */
+    InputStream generateImageStreamWithContentAsSystem(AIModel aiModel, String contentPrompt);
 }
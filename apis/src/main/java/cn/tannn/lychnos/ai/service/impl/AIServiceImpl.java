@@ -6,15 +6,24 @@ import cn.tannn.lychnos.ai.factory.DynamicAIClientFactory;
 import cn.tannn.lychnos.ai.service.AIService;
 import cn.tannn.lychnos.common.constant.BusinessErrorCode;
 import cn.tannn.lychnos.common.constant.ModelType;
+import cn.tannn.lychnos.common.util.TempFileInputStream;
 import cn.tannn.lychnos.entity.AIModel;
+import cn.tannn.lychnos.service.AICallScheduler;
 import cn.tannn.lychnos.service.AIModelService;
+import cn.tannn.lychnos.service.AIUsageService;
+import cn.tannn.lychnos.service.ImageDownloadService;
+import cn.tannn.lychnos.service.ImagePathResolver;
+import cn.tannn.lychnos.service.RateLimitService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.image.ImageResponse;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Objects;
 
 import static cn.tannn.lychnos.ai.prompt.ImagePrompt.DEFAULT_IMAGE_STYLE_PROMPT;
@@ -33,6 +42,11 @@ public class AIServiceImpl implements AIService {
 
     private final DynamicAIClientFactory clientFactory;
     private final AIModelService aiModelService;
+    private final ImageDownloadService imageDownloadService;
+    private final ImagePathResolver imagePathResolver;
+    private final RateLimitService rateLimitService;
+    private final AIUsageService aiUsageService;
+    private final AICallScheduler aiCallScheduler;
 
 
     @Override
@@ -42,7 +56,7 @@ public class AIServiceImpl implements AIService {
         // 获取用户启用的默认模型
         AIModel aiModel = getEnabledModel(userId, ModelType.TEXT);
         // 直接使用已查询的模型进行生成
-        return doGenerateText(aiModel, prompt);
+        return doGenerateText(aiModel, userId, prompt);
     }
 
     @Override
@@ -55,7 +69,7 @@ public class AIServiceImpl implements AIService {
         AIModel aiModel = findAndVerifyModel(modelId, userId, ModelType.TEXT);
 
         // 使用指定模型进行生成
-        return doGenerateText(aiModel, prompt);
+        return doGenerateText(aiModel, userId, prompt);
     }
 
     @Override
@@ -65,7 +79,7 @@ public class AIServiceImpl implements AIService {
         // 获取用户启用的默认模型
         AIModel aiModel = getEnabledModel(userId, ModelType.TEXT);
         // 使用系统提示词和用户消息进行生成
-        return doGenerateTextWithSystem(aiModel, systemMessage, userMessage);
+        return doGenerateTextWithSystem(aiModel, userId, systemMessage, userMessage);
     }
 
     @Override
@@ -78,7 +92,7 @@ public class AIServiceImpl implements AIService {
         AIModel aiModel = findAndVerifyModel(modelId, userId, ModelType.TEXT);
 
         // 使用指定模型和系统提示词进行生成
-        return doGenerateTextWithSystem(aiModel, systemMessage, userMessage);
+        return doGenerateTextWithSystem(aiModel, userId, systemMessage, userMessage);
     }
 
     @Override
@@ -90,7 +104,7 @@ public class AIServiceImpl implements AIService {
         AIModel aiModel = getEnabledModel(userId, ModelType.IMAGE);
 
         // 直接使用已查询的模型进行生成
-        return doGenerateImage(aiModel, prompt);
+        return doGenerateImage(aiModel, userId, prompt);
     }
 
     @Override
@@ -103,7 +117,7 @@ public class AIServiceImpl implements AIService {
         AIModel aiModel = findAndVerifyModel(modelId, userId, ModelType.IMAGE);
 
         // 使用指定模型进行生成
-        return doGenerateImage(aiModel, prompt);
+        return doGenerateImage(aiModel, userId, prompt);
     }
 
     @Override
@@ -118,7 +132,7 @@ public class AIServiceImpl implements AIService {
         String fullPrompt = buildFullImagePrompt(contentPrompt);
 
         // 生成图片
-        return doGenerateImage(aiModel, fullPrompt);
+        return doGenerateImage(aiModel, userId, fullPrompt);
     }
 
     @Override
@@ -134,7 +148,7 @@ public class AIServiceImpl implements AIService {
         String fullPrompt = buildFullImagePrompt(contentPrompt);
 
         // 使用指定模型进行生成
-        return doGenerateImage(aiModel, fullPrompt);
+        return doGenerateImage(aiModel, userId, fullPrompt);
     }
 
     @Override
@@ -146,7 +160,7 @@ public class AIServiceImpl implements AIService {
         AIModel aiModel = getEnabledModel(userId, ModelType.IMAGE);
 
         // 生成图片并返回流
-        return doGenerateImageStream(aiModel, prompt);
+        return doGenerateImageStream(aiModel, userId, prompt);
     }
 
     @Override
@@ -159,7 +173,7 @@ public class AIServiceImpl implements AIService {
         AIModel aiModel = findAndVerifyModel(modelId, userId, ModelType.IMAGE);
 
         // 使用指定模型生成图片并返回流
-        return doGenerateImageStream(aiModel, prompt);
+        return doGenerateImageStream(aiModel, userId, prompt);
     }
 
     @Override
@@ -174,7 +188,7 @@ public class AIServiceImpl implements AIService {
         String fullPrompt = buildFullImagePrompt(contentPrompt);
 
         // 生成图片并返回流
-        return doGenerateImageStream(aiModel, fullPrompt);
+        return doGenerateImageStream(aiModel, userId, fullPrompt);
     }
 
     @Override
@@ -190,20 +204,50 @@ public class AIServiceImpl implements AIService {
         String fullPrompt = buildFullImagePrompt(contentPrompt);
 
         // 使用指定模型生成图片并返回流
-        return doGenerateImageStream(aiModel, fullPrompt);
+        return doGenerateImageStream(aiModel, userId, fullPrompt);
+    }
+
+    @Override
+    public ChatResponse generateChatAsSystem(AIModel aiModel, String systemMessage, String userMessage) {
+        verifySystemModel(aiModel, ModelType.TEXT);
+        validatePrompt(userMessage);
+
+        long userId = AIUsageService.SYSTEM_USER_ID;
+        try {
+            log.info("调用AI文本生成（系统任务），modelId: {}, model: {}", aiModel.getId(), aiModel.getModel());
+            return aiCallScheduler.call(aiModel, userId, () ->
+                    clientFactory.createClient(aiModel, aiUsageService.listener(aiModel, userId)).prompt()
+                            .system(systemMessage)
+                            .user(userMessage)
+                            .call());
+        } catch (Exception e) {
+            log.error("AI文本生成失败（系统任务），modelId: {}, error: {}", aiModel.getId(), e.getMessage(), e);
+            throw new AIException.ModelCallFailedException("文本生成失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream generateImageStreamWithContentAsSystem(AIModel aiModel, String contentPrompt) {
+        verifySystemModel(aiModel, ModelType.IMAGE);
+        validatePrompt(contentPrompt);
+
+        // 拼接默认风格提示词和内容提示词，用量记在系统账户下
+        String fullPrompt = buildFullImagePrompt(contentPrompt);
+        return doGenerateImageStream(aiModel, AIUsageService.SYSTEM_USER_ID, fullPrompt);
     }
 
     /**
      * 执行文本生成（内部方法，避免重复查询）
      */
-    private String doGenerateText(AIModel aiModel, String prompt) {
+    private String doGenerateText(AIModel aiModel, Long userId, String prompt) {
         try {
             log.info("调用AI文本生成，modelId: {}, userId: {}, model: {}",
                     aiModel.getId(), aiModel.getUserId(), aiModel.getModel());
 
-            return  clientFactory.createClient(aiModel).prompt()
-                    .user(prompt)
-                    .content();
+            return aiCallScheduler.call(aiModel, userId, () ->
+                    clientFactory.createClient(aiModel, aiUsageService.listener(aiModel, userId)).prompt()
+                            .user(prompt)
+                            .content());
         } catch (Exception e) {
             log.error("AI文本生成失败，modelId: {}, userId: {}, error: {}",
                     aiModel.getId(), aiModel.getUserId(), e.getMessage(), e);
@@ -214,12 +258,12 @@ public class AIServiceImpl implements AIService {
     /**
      * 执行文本生成（支持系统提示词和用户消息，内部方法）
      */
-    private String doGenerateTextWithSystem(AIModel aiModel, String systemMessage, String userMessage) {
+    private String doGenerateTextWithSystem(AIModel aiModel, Long userId, String systemMessage, String userMessage) {
         try {
             log.info("调用AI文本生成（带系统提示词），modelId: {}, userId: {}, model: {}",
                     aiModel.getId(), aiModel.getUserId(), aiModel.getModel());
 
-            var promptBuilder = clientFactory.createClient(aiModel).prompt()
+            var promptBuilder = clientFactory.createClient(aiModel, aiUsageService.listener(aiModel, userId)).prompt()
                     .user(userMessage);
 
             // 如果系统提示词不为空，则添加
@@ -227,7 +271,7 @@ public class AIServiceImpl implements AIService {
                 promptBuilder.system(systemMessage);
             }
 
-            return promptBuilder.content();
+            return aiCallScheduler.call(aiModel, userId, promptBuilder::content);
         } catch (Exception e) {
             log.error("AI文本生成失败（带系统提示词），modelId: {}, userId: {}, error: {}",
                     aiModel.getId(), aiModel.getUserId(), e.getMessage(), e);
@@ -238,16 +282,17 @@ public class AIServiceImpl implements AIService {
     /**
      * 执行图片生成（内部方法，避免重复查询）
      */
-    private ImageResponse doGenerateImage(AIModel aiModel, String prompt) {
+    private ImageResponse doGenerateImage(AIModel aiModel, Long userId, String prompt) {
         try {
             log.info("调用AI图片生成，modelId: {}, userId: {}, model: {}",
                     aiModel.getId(), aiModel.getUserId(), aiModel.getModel());
 
-            ImageResponse response = clientFactory.createClient(aiModel).imagePrompt()
-                    .prompt(prompt)
-                    .width(1920)
-                    .height(1080)
-                    .call();
+            ImageResponse response = aiCallScheduler.call(aiModel, userId, () ->
+                    clientFactory.createClient(aiModel, aiUsageService.listener(aiModel, userId)).imagePrompt()
+                            .prompt(prompt)
+                            .width(1920)
+                            .height(1080)
+                            .call());
             log.info("AI图片生成成功，modelId: {}", aiModel.getId());
             return response;
         } catch (Exception e) {
@@ -260,7 +305,7 @@ public class AIServiceImpl implements AIService {
     /**
      * 执行图片生成并返回流（内部方法，避免重复查询）
      */
-    private InputStream doGenerateImageStream(AIModel aiModel, String prompt) {
+    private InputStream doGenerateImageStream(AIModel aiModel, Long userId, String prompt) {
         int maxRetries = 3;
         int retryDelay = 2000;
 
@@ -269,18 +314,25 @@ public class AIServiceImpl implements AIService {
                 log.info("调用AI图片生成（流），modelId: {}, userId: {}, model: {}, 尝试: {}/{}",
                         aiModel.getId(), aiModel.getUserId(), aiModel.getModel(), attempt, maxRetries);
 
-                ImageResponse response = doGenerateImage(aiModel, prompt);
+                ImageResponse response = doGenerateImage(aiModel, userId, prompt);
                 String imageUrl = response.getResult().getOutput().getUrl();
                 if (imageUrl == null || imageUrl.isEmpty()) {
                     throw new AIException.ModelCallFailedException("图片URL为空", null);
                 }
 
                 log.info("从URL下载图片流，url: {}", imageUrl);
-                URL url = new URL(imageUrl);
-                InputStream inputStream = url.openStream();
+                // 先下载到存储目录下的临时文件（带超时和大小上限），流关闭时删除，异常退出遗留的文件启动时清理；
+                // 交给 ImageStorageService.saveImage 时直接重命名入库
+                Path tempFile = imagePathResolver.createTempFile("ai-");
+                try {
+                    imageDownloadService.download(imageUrl, tempFile);
+                } catch (IOException e) {
+                    Files.deleteIfExists(tempFile);
+                    throw e;
+                }
 
                 log.info("AI图片流生成成功，modelId: {}", aiModel.getId());
-                return inputStream;
+                return new TempFileInputStream(tempFile);
             } catch (javax.net.ssl.SSLHandshakeException e) {
                 log.warn("SSL握手失败（尝试 {}/{}），modelId: {}, error: {}",
                         attempt, maxRetries, aiModel.getId(), e.getMessage());
@@ -303,7 +355,7 @@ public class AIServiceImpl implements AIService {
     }
 
     /**
-     * 查找并验证模型权限和类型
+     * 查找并验证模型权限和类型，通过后按模型类型限流
      */
     private AIModel findAndVerifyModel(Long modelId, Long userId, ModelType expectedType) {
         AIModel aiModel = aiModelService.findById(modelId);
@@ -326,6 +378,7 @@ public class AIServiceImpl implements AIService {
 //                    String.format("模型已禁用，modelId: %s", modelId));
 //        }
 
+        rateLimitService.acquireModel(userId, aiModel);
         return aiModel;
     }
 
@@ -334,13 +387,13 @@ public class AIServiceImpl implements AIService {
      * <p>查询逻辑：</p>
      * <ol>
      *     <li>优先使用用户自己启用的模型</li>
-     *     <li>如果用户未配置，则回退到官方模型（share=0）</li>
+     *     <li>如果用户未配置，则回退到官方模型（share=0），当日额度用完时由 AIModelService 抛出 OFFICIAL_BUDGET_EXHAUSTED</li>
      *     <li>如果官方模型也不存在，则抛出异常</li>
      * </ol>
-     * <p>注意：此方法调用 AIModelService.getEnabledModel() 获取模型，然后进行 API Key 验证</p>
+     * <p>注意：此方法调用 AIModelService.getEnabledModel() 获取模型，然后进行 API Key 验证和按模型类型限流</p>
      */
     private AIModel getEnabledModel(Long userId, ModelType type) {
-        // 调用 AIModelService 获取模型（包含官方模型回退逻辑）
+        // 调用 AIModelService 获取模型（包含官方模型回退和额度检查）
         AIModel model = aiModelService.getEnabledModel(userId, type);
 
         // 如果没有找到任何可用模型，抛出异常
@@ -355,6 +408,7 @@ public class AIServiceImpl implements AIService {
         // 验证 API Key 是否有效
         validateApiKey(model, userId, type);
 
+        rateLimitService.acquireModel(userId, model);
         return model;
     }
 
@@ -379,6 +433,20 @@ public class AIServiceImpl implements AIService {
 
 
 
+    /**
+     * 验证系统任务使用的模型：只允许官方模型，且类型匹配
+     */
+    private void verifySystemModel(AIModel aiModel, ModelType expectedType) {
+        if (aiModel == null || !aiModel.isOfficial()) {
+            throw new BusinessException("系统任务只能使用官方模型");
+        }
+        if (aiModel.getType() != expectedType) {
+            throw new BusinessException(
+                    String.format("模型类型不匹配，期望 %s 类型，实际 %s 类型",
+                            expectedType, aiModel.getType()));
+        }
+    }
+
     /**
      * 构建完整的图片提示词（默认风格 + 内容描述）
      *
@@ -11,7 +11,11 @@ import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.ProxySelector;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 智能代理配置 - 自动检测系统代理
@@ -38,6 +42,18 @@ public class SmartProxyConfig {
     @Value("${app.proxy.connect-timeout:600000}")
     private int connectTimeout;
 
+    /**
+     * 图片下载连接超时（毫秒）
+     */
+    @Value("${app.image.download.connect-timeout-ms:10000}")
+    private int imageConnectTimeout;
+
+    /**
+     * 图片下载 IO 线程数
+     */
+    @Value("${app.image.download.io-threads:2}")
+    private int imageIoThreads;
+
 
     @Bean
     public RestTemplate restTemplate() {
@@ -48,16 +64,7 @@ public class SmartProxyConfig {
         factory.setConnectTimeout(connectTimeout);
         factory.setReadTimeout(readTimeout);
 
-        Proxy proxy = null;
-        // 优先使用手动配置
-        if (manualProxyEnabled && manualProxyHost != null && !manualProxyHost.isEmpty()) {
-            proxy = new Proxy(Proxy.Type.HTTP,
-                    new InetSocketAddress(manualProxyHost, manualProxyPort));
-            log.info("✓ 使用手动配置代理: {}:{}", manualProxyHost, manualProxyPort);
-        } else {
-            // 自动检测
-            proxy = detectProxy();
-        }
+        Proxy proxy = resolveProxy();
         if (proxy != null && proxy.type() != Proxy.Type.DIRECT) {
             factory.setProxy(proxy);
         } else {
@@ -66,6 +73,43 @@ public class SmartProxyConfig {
         return new RestTemplate(factory);
     }
 
+    /**
+     * 图片下载使用的 HttpClient
+     * <p>JDK HttpClient 自带连接池，多次下载复用同一对象存储域名的连接；
+     * 连接超时单独配置，整体下载超时由 {@link cn.tannn.lychnos.service.ImageDownloadService} 控制</p>
+     */
+    @Bean
+    public HttpClient imageHttpClient() {
+        AtomicInteger counter = new AtomicInteger();
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(imageConnectTimeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newFixedThreadPool(imageIoThreads, r -> {
+                    Thread thread = new Thread(r, "image-download-io-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+
+        Proxy proxy = resolveProxy();
+        if (proxy != null && proxy.type() != Proxy.Type.DIRECT
+                && proxy.address() instanceof InetSocketAddress address) {
+            builder.proxy(ProxySelector.of(address));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 解析代理：优先使用手动配置，否则自动检测
+     */
+    private Proxy resolveProxy() {
+        if (manualProxyEnabled && manualProxyHost != null && !manualProxyHost.isEmpty()) {
+            log.info("✓ 使用手动配置代理: {}:{}", manualProxyHost, manualProxyPort);
+            return new Proxy(Proxy.Type.HTTP,
+                    new InetSocketAddress(manualProxyHost, manualProxyPort));
+        }
+        return detectProxy();
+    }
+
     private Proxy detectProxy() {
         try {
             // 使用 ProxySelector 自动检测
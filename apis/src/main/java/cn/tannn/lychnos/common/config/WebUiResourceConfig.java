@@ -0,0 +1,97 @@
+package cn.tannn.lychnos.common.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 前端静态资源配置
+ * <p>webui 构建产物打包在 classpath:/static 下，按文件是否带内容哈希区分缓存策略：</p>
+ * <ul>
+ *     <li>/assets/**：Vite 输出的文件名带内容哈希，一年强缓存 + immutable</li>
+ *     <li>其余文件（index.html、favicon 等）：每次协商，ETag 按文件内容计算，发版后不会命中旧页面</li>
+ *     <li>构建时生成的 .br / .gz 同名文件按 Accept-Encoding 优先返回（附带 Vary: Accept-Encoding）</li>
+ * </ul>
+ * <p>注册了 /** 后 Spring Boot 不再注册默认的静态资源映射，资源目录沿用 spring.web.resources.static-locations</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/12
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class WebUiResourceConfig implements WebMvcConfigurer {
+
+    private static final String ASSETS_DIR = "assets/";
+
+    private final WebProperties webProperties;
+
+    /**
+     * 带哈希文件的强缓存天数
+     */
+    @Value("${app.webui.assets-max-age-days:365}")
+    private long assetsMaxAgeDays;
+
+    /**
+     * 文件内容 ETag 缓存：资源描述 + 修改时间 + 长度 -> ETag（jar 内资源不会变化，文件目录部署时修改后自动失效）
+     */
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        String[] staticLocations = webProperties.getResources().getStaticLocations();
+        String[] locations = new String[staticLocations.length];
+        String[] assetLocations = new String[staticLocations.length];
+        for (int i = 0; i < staticLocations.length; i++) {
+            locations[i] = staticLocations[i].endsWith("/") ? staticLocations[i] : staticLocations[i] + "/";
+            assetLocations[i] = locations[i] + ASSETS_DIR;
+        }
+
+        registry.addResourceHandler("/" + ASSETS_DIR + "**")
+                .addResourceLocations(assetLocations)
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(assetsMaxAgeDays)).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+
+        registry.addResourceHandler("/**")
+                .addResourceLocations(locations)
+                .setCacheControl(CacheControl.noCache().cachePublic())
+                .setEtagGenerator(this::etag)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+    }
+
+    /**
+     * 按实际输出内容（压缩版本各自计算）生成强 ETag
+     */
+    private String etag(Resource resource) {
+        try {
+            String key = resource.getDescription() + "@" + resource.lastModified() + "#" + resource.contentLength();
+            return etags.computeIfAbsent(key, k -> {
+                try (InputStream in = resource.getInputStream()) {
+                    return "\"" + DigestUtils.md5DigestAsHex(in) + "\"";
+                } catch (IOException e) {
+                    log.debug("计算静态资源 ETag 失败: {}", resource.getDescription());
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package cn.tannn.lychnos.common.constant;
+
+import lombok.Getter;
+
+/**
+ * 官方模型调用的调度优先级
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/18
+ */
+@Getter
+public enum AICallPriority {
+    /**
+     * 交互请求（请求线程中发起，用户在页面上等待结果）
+     */
+    INTERACTIVE("交互"),
+
+    /**
+     * 后台任务（批量分析、书籍预热等）
+     */
+    BACKGROUND("后台");
+
+    private final String description;
+
+    AICallPriority(String description) {
+        this.description = description;
+    }
+}
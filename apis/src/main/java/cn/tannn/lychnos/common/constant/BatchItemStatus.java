@@ -0,0 +1,51 @@
+package cn.tannn.lychnos.common.constant;
+
+import lombok.Getter;
+
+/**
+ * 批量分析条目状态枚举
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/3
+ */
+@Getter
+public enum BatchItemStatus {
+    /**
+     * 已在排队等待 AI 分析
+     */
+    QUEUED("排队中"),
+
+    /**
+     * 正在进行 AI 分析
+     */
+    ANALYZING("分析中"),
+
+    /**
+     * 书籍已分析过，直接返回已有数据（未调用 AI）
+     */
+    EXISTING("已分析过"),
+
+    /**
+     * AI 分析完成
+     */
+    DONE("分析完成"),
+
+    /**
+     * 分析失败
+     */
+    FAILED("分析失败");
+
+    private final String label;
+
+    BatchItemStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * 是否为终态
+     */
+    public boolean isFinished() {
+        return this == EXISTING || this == DONE || this == FAILED;
+    }
+}
@@ -41,7 +41,22 @@ public enum BusinessErrorCode {
     /**
      * 1006: 账户已被封禁（需要前端强制退出登录）
      */
-    USER_BANNED(1006, "账户已被封禁，请联系管理员");
+    USER_BANNED(1006, "账户已被封禁，请联系管理员"),
+
+    /**
+     * 1007: 请求过于频繁（响应头 Retry-After 给出等待秒数）
+     */
+    RATE_LIMITED(1007, "%s请求过于频繁，请 %d 秒后再试"),
+
+    /**
+     * 1008: 官方模型当日额度已用完（前端引导用户配置自己的模型）
+     */
+    OFFICIAL_BUDGET_EXHAUSTED(1008, "今日官方 %s 模型额度已用完，请在模型设置中配置自己的 API Key 后继续使用"),
+
+    /**
+     * 1009: 同一个 Idempotency-Key 被用于不同的请求内容
+     */
+    IDEMPOTENCY_KEY_REUSED(1009, "Idempotency-Key 已用于其他请求，请重新生成");
 
     /**
      * 错误码
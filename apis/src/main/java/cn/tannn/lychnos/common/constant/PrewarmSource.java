@@ -0,0 +1,34 @@
+package cn.tannn.lychnos.common.constant;
+
+import lombok.Getter;
+
+/**
+ * 预热候选书籍来源枚举
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@Getter
+public enum PrewarmSource {
+    /**
+     * 管理员维护的预热书单
+     */
+    ADMIN("管理员书单"),
+
+    /**
+     * 用户书籍提取（AI 从用户输入中识别出的书籍，BookSourceType.USER_INPUT）
+     */
+    EXTRACT_LOG("提取日志"),
+
+    /**
+     * AI 高频推荐的相似书籍（BookSourceType.SIMILAR）
+     */
+    SIMILAR("相似推荐");
+
+    private final String label;
+
+    PrewarmSource(String label) {
+        this.label = label;
+    }
+}
@@ -0,0 +1,68 @@
+package cn.tannn.lychnos.common.constant;
+
+import lombok.Getter;
+
+/**
+ * 限流规则（按用户分别计数）
+ * <p>接口类规则在控制器入口检查；模型类规则在实际调用 AI 前检查，使用官方模型时规则更严格</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/16
+ */
+@Getter
+public enum RateLimitRule {
+    /**
+     * 书籍提取接口
+     */
+    EXTRACT("书籍提取"),
+
+    /**
+     * 书籍分析接口（含批量分析）
+     */
+    ANALYZE("书籍分析"),
+
+    /**
+     * AI 测试接口
+     */
+    AI_TEST("AI测试"),
+
+    /**
+     * 文本模型调用（自有模型）
+     */
+    TEXT("文本模型"),
+
+    /**
+     * 文本模型调用（官方模型）
+     */
+    TEXT_OFFICIAL("官方文本模型"),
+
+    /**
+     * 图片模型调用（自有模型）
+     */
+    IMAGE("图片模型"),
+
+    /**
+     * 图片模型调用（官方模型）
+     */
+    IMAGE_OFFICIAL("官方图片模型");
+
+    private final String description;
+
+    RateLimitRule(String description) {
+        this.description = description;
+    }
+
+    /**
+     * 模型调用对应的规则
+     *
+     * @param type     模型类型
+     * @param official 是否使用他人提供的官方模型
+     */
+    public static RateLimitRule ofModel(ModelType type, boolean official) {
+        if (type == ModelType.IMAGE) {
+            return official ? IMAGE_OFFICIAL : IMAGE;
+        }
+        return official ? TEXT_OFFICIAL : TEXT;
+    }
+}
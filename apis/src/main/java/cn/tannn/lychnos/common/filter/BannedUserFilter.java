@@ -0,0 +1,90 @@
+package cn.tannn.lychnos.common.filter;
+
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.jdevelops.jwt.standalone.util.JwtWebUtil;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
+import cn.tannn.lychnos.common.util.UserUtil;
+import cn.tannn.lychnos.service.BannedUserCacheService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * 封禁用户过滤器
+ * 携带有效 token 的请求在进入控制器前检查封禁名单，被封禁的用户直接拒绝
+ * <p>token 缺失或无效时放行，交给后续的登录拦截器处理；验签结果缓存在请求中，控制器里不再重复验签</p>
+ * <p>拒绝时交给全局异常处理输出，响应格式与控制器中抛出 BusinessException 一致</p>
+ * <p>前端静态资源和图片接口不经过此过滤器：静态资源不读取登录态，图片接口自行验签或校验 URL 签名，
+ * 浏览器携带 token 请求这些资源时不为封禁检查额外验签</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/13
+ */
+@Component
+@Order(3)
+@Slf4j
+public class BannedUserFilter extends OncePerRequestFilter {
+
+    /**
+     * 前端构建产物（带内容哈希的 /assets/** 及根目录下的 index.html、favicon 等）
+     */
+    private static final Pattern STATIC_FILE = Pattern.compile(
+            ".*\\.(html|ico|js|css|map|png|jpe?g|gif|svg|webp|woff2?|ttf|txt)$", Pattern.CASE_INSENSITIVE);
+
+    private final BannedUserCacheService bannedUserCacheService;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    public BannedUserFilter(BannedUserCacheService bannedUserCacheService,
+                            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) {
+        this.bannedUserCacheService = bannedUserCacheService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return path.startsWith("/assets/") || path.equals("/image") || path.startsWith("/image/")
+                || STATIC_FILE.matcher(path).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long userId = userId(request);
+        if (userId != null && bannedUserCacheService.isBanned(userId)) {
+            log.debug("拒绝封禁用户的请求，userId: {}, uri: {}", userId, request.getRequestURI());
+            handlerExceptionResolver.resolveException(request, response, null, new BusinessException(
+                    BusinessErrorCode.USER_BANNED.getCode(),
+                    BusinessErrorCode.USER_BANNED.getMessage()
+            ));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * 从 token 中获取用户ID，未登录或 token 无效返回 null
+     */
+    private Long userId(HttpServletRequest request) {
+        try {
+            if (StringUtils.isBlank(JwtWebUtil.getToken(request))) {
+                return null;
+            }
+            return UserUtil.userId2(request);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cn.tannn.lychnos.common.filter;
 
+import cn.tannn.lychnos.common.util.ClientIpUtil;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -51,7 +52,7 @@ public class HttpMethodFilter implements Filter {
         // 检查是否为允许的方法
         if (!ALLOWED_METHODS.contains(method)) {
             String requestURI = request.getRequestURI();
-            String clientIP = getClientIP(request);
+            String clientIP = ClientIpUtil.clientIp(request);
 
             // 对于常见的扫描方法，使用 DEBUG 级别，避免日志污染
             if (SILENT_REJECT_METHODS.contains(method)) {
@@ -76,23 +77,4 @@ public class HttpMethodFilter implements Filter {
         // 继续执行过滤器链
         chain.doFilter(request, response);
     }
-
-    /**
-     * 获取客户端真实 IP 地址
-     * 考虑反向代理的情况
-     */
-    private String getClientIP(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-        }
-        // X-Forwarded-For 可能包含多个 IP，取第一个
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-        return ip;
-    }
 }
@@ -0,0 +1,46 @@
+package cn.tannn.lychnos.common.filter;
+
+import cn.tannn.lychnos.common.util.ClientIpUtil;
+import cn.tannn.lychnos.service.IpBlocklistService;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * IP 黑名单过滤器
+ * 排在其他业务过滤器之前，黑名单中的 IP 直接返回 403 空响应，不进入 token 校验和 Spring MVC 分发
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/14
+ */
+@Component
+@Order(0)
+@Slf4j
+@RequiredArgsConstructor
+public class IpBlockFilter implements Filter {
+
+    private final IpBlocklistService ipBlocklistService;
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        String clientIP = ClientIpUtil.clientIp(request);
+        if (ipBlocklistService.isBlocked(clientIP)) {
+            log.debug("Rejected blocked IP: {} for URI: {}", clientIP, request.getRequestURI());
+            HttpServletResponse response = (HttpServletResponse) servletResponse;
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.setContentLength(0);
+            response.setHeader("Connection", "close");
+            return;
+        }
+        chain.doFilter(servletRequest, servletResponse);
+    }
+}
@@ -0,0 +1,172 @@
+package cn.tannn.lychnos.common.filter;
+
+import cn.tannn.lychnos.common.util.ClientIpUtil;
+import cn.tannn.lychnos.common.util.ProbePathMatcher;
+import cn.tannn.lychnos.service.AttackStatsCacheService;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 恶意扫描路径过滤器
+ * 命中 probe-rules.txt 中规则的请求直接返回 404 空响应并计入攻击统计，不进入 token 校验和 Spring MVC 分发
+ * <p>规则编译为按路径段构建的前缀树，每个请求只遍历一次路径；配置外部规则文件时按修改时间定时重新加载</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/15
+ */
+@Component
+@Order(2)
+@Slf4j
+@RequiredArgsConstructor
+public class ProbePathFilter implements Filter {
+
+    private static final String DEFAULT_RULES = "probe-rules.txt";
+
+    private final AttackStatsCacheService attackStatsService;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.probe.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 外部规则文件，为空时使用 classpath 中的 probe-rules.txt
+     */
+    @Value("${app.probe.rules-file:}")
+    private String rulesFile;
+
+    /**
+     * 当前规则（只读，重新加载时整体替换）
+     */
+    private volatile ProbePathMatcher matcher = ProbePathMatcher.builder().build();
+
+    /**
+     * 外部规则文件最后一次加载时的修改时间
+     */
+    private volatile long rulesModified = -1;
+
+    @PostConstruct
+    public void init() {
+        if (StringUtils.isBlank(rulesFile)) {
+            try (InputStream in = new ClassPathResource(DEFAULT_RULES).getInputStream()) {
+                matcher = parse(in, DEFAULT_RULES);
+                log.info("加载恶意扫描路径规则 {} 条: classpath:{}", matcher.size(), DEFAULT_RULES);
+            } catch (IOException e) {
+                log.error("加载恶意扫描路径规则失败: classpath:{}", DEFAULT_RULES, e);
+            }
+        } else {
+            reload();
+        }
+    }
+
+    /**
+     * 外部规则文件修改后重新加载，加载失败时保留原有规则
+     */
+    @Scheduled(fixedDelayString = "${app.probe.reload-ms:10000}")
+    public void reload() {
+        if (StringUtils.isBlank(rulesFile)) {
+            return;
+        }
+        Path path = Paths.get(rulesFile);
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified == rulesModified) {
+                return;
+            }
+            try (InputStream in = Files.newInputStream(path)) {
+                matcher = parse(in, rulesFile);
+            }
+            rulesModified = modified;
+            log.info("加载恶意扫描路径规则 {} 条: {}", matcher.size(), rulesFile);
+        } catch (IOException e) {
+            log.warn("加载恶意扫描路径规则失败: {}, {}", rulesFile, e.getMessage());
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        if (enabled) {
+            String path = pathWithinApplication(request);
+            String method = request.getMethod();
+            if (matcher.matches(ProbePathMatcher.methodMask(method), path)) {
+                attackStatsService.recordAttack(ClientIpUtil.clientIp(request), request.getRequestURI(),
+                        "HEAD".equals(method) ? "GET" : method, request.getHeader("User-Agent"));
+                HttpServletResponse response = (HttpServletResponse) servletResponse;
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.setContentLength(0);
+                return;
+            }
+        }
+        chain.doFilter(servletRequest, servletResponse);
+    }
+
+    /**
+     * 容器解码并规范化后的应用内路径（servletPath + pathInfo）
+     * <p>getRequestURI() 是未解码的原始值，/%2e%2e/、/wp-%61dmin 这类编码过的探测路径会绕过规则；
+     * servletPath 和 pathInfo 已由容器完成百分号解码、去除 ;参数 和 ./.. 规范化，与实际分发使用的路径一致</p>
+     */
+    private static String pathWithinApplication(HttpServletRequest request) {
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        String path = pathInfo == null ? servletPath : servletPath + pathInfo;
+        return path.isEmpty() ? "/" : path;
+    }
+
+    /**
+     * 解析规则文件，格式：METHOD 路径规则，# 开头为注释；不支持的规则跳过并打印警告
+     */
+    private static ProbePathMatcher parse(InputStream in, String source) throws IOException {
+        ProbePathMatcher.Builder builder = ProbePathMatcher.builder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                int method = switch (parts[0].toUpperCase()) {
+                    case "GET" -> ProbePathMatcher.GET;
+                    case "POST" -> ProbePathMatcher.POST;
+                    case "*" -> ProbePathMatcher.ANY;
+                    default -> 0;
+                };
+                if (parts.length != 2 || method == 0) {
+                    log.warn("忽略无法识别的恶意扫描路径规则 {}:{} -> {}", source, lineNo, line);
+                    continue;
+                }
+                try {
+                    builder.add(method, parts[1]);
+                } catch (IllegalArgumentException e) {
+                    log.warn("忽略不支持的恶意扫描路径规则 {}:{} -> {}", source, lineNo, e.getMessage());
+                }
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,120 @@
+package cn.tannn.lychnos.common.pojo;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 本地图片文件
+ * <p>图片可能是单独的文件，也可能已打包到 pack 数据文件中（此时 file 为数据文件，content 为映射切片）</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/6
+ */
+@Getter
+@ToString(exclude = "content")
+public class LocalImage {
+
+    /**
+     * 本地文件（已打包时为 pack 数据文件）
+     */
+    private final Path file;
+
+    /**
+     * 内容 SHA-256（内容寻址文件才有，旧版路径为 null）
+     */
+    private final String hash;
+
+    /**
+     * 内容在文件中的偏移（单独文件为 0）
+     */
+    private final long offset;
+
+    /**
+     * 打包内容的只读映射切片（单独文件为 null）
+     */
+    private final ByteBuffer content;
+
+    public LocalImage(Path file, String hash) {
+        this(file, hash, 0, null);
+    }
+
+    public LocalImage(Path file, String hash, long offset, ByteBuffer content) {
+        this.file = file;
+        this.hash = hash;
+        this.offset = offset;
+        this.content = content;
+    }
+
+    /**
+     * 内容是否不可变（内容寻址文件路径即内容哈希，可长期缓存）
+     */
+    public boolean isImmutable() {
+        return hash != null;
+    }
+
+    /**
+     * 是否已打包
+     */
+    public boolean isPacked() {
+        return content != null;
+    }
+
+    /**
+     * 图片字节数
+     */
+    public long size() throws IOException {
+        return content == null ? Files.size(file) : content.remaining();
+    }
+
+    /**
+     * 图片类型
+     * <p>单独文件按写入时确定的扩展名（.jpg / .png）；打包内容取映射切片的前几个字节，不产生磁盘读取</p>
+     */
+    public String contentType() {
+        if (content == null) {
+            return file.getFileName().toString().endsWith(".jpg") ? "image/jpeg" : "image/png";
+        }
+        boolean jpeg = content.remaining() >= 3 && (content.get(content.position()) & 0xFF) == 0xFF
+                && (content.get(content.position() + 1) & 0xFF) == 0xD8
+                && (content.get(content.position() + 2) & 0xFF) == 0xFF;
+        return jpeg ? "image/jpeg" : "image/png";
+    }
+
+    /**
+     * 打开图片内容
+     */
+    public InputStream openStream() throws IOException {
+        if (content == null) {
+            return Files.newInputStream(file);
+        }
+        ByteBuffer buffer = content.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int off, int len) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, buffer.remaining());
+                buffer.get(bytes, off, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+}
@@ -1,27 +1,23 @@
 package cn.tannn.lychnos.common.pojo;
 
 import lombok.Getter;
-import lombok.Setter;
 import lombok.ToString;
 
 /**
+ * 用户请求信息（不可变，同一请求内复用，也会传给异步任务）
+ *
  * @author <a href="https://t.tannn.cn/">tan</a>
  * @version V1.0
  * @date 2026/1/20 22:45
  */
 @Getter
-@Setter
 @ToString
 public class UserRequestInfo {
-    String ip;
-    String username;
-    String nickname;
-    String loginName;
-    String userId;
-
-
-    public UserRequestInfo() {
-    }
+    private final String ip;
+    private final String username;
+    private final String nickname;
+    private final String loginName;
+    private final String userId;
 
     public UserRequestInfo(String ip, String username, String nickname, String loginName, String userId) {
         this.ip = ip;
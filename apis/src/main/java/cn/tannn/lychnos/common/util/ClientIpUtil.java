@@ -0,0 +1,30 @@
+package cn.tannn.lychnos.common.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 客户端 IP
+ * <p>X-Forwarded-For、X-Real-IP 等请求头客户端可以随意伪造，不能直接用于拉黑、统计等安全判断。
+ * 代理头只由 Tomcat RemoteIpValve 处理（server.forward-headers-strategy=native）：
+ * 仅当直连的对端在 server.tomcat.remoteip.internal-proxies 中时才采信 X-Forwarded-For，
+ * 并把结果写回 getRemoteAddr()，因此这里只读取 getRemoteAddr()</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/23
+ */
+public final class ClientIpUtil {
+
+    private ClientIpUtil() {
+    }
+
+    /**
+     * 获取客户端 IP（经可信代理解析后的对端地址）
+     *
+     * @param request 请求
+     * @return 客户端 IP
+     */
+    public static String clientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,256 @@
+package cn.tannn.lychnos.common.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 本地文件输出工具
+ * <p>支持 ETag / Last-Modified 协商缓存（304）和单段 Range 请求（206）；
+ * 容器支持 sendfile 时交给 Tomcat 直接从文件发送，否则使用 {@link FileChannel#transferTo} 输出；
+ * 也可以直接输出内存中的 ByteBuffer</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/6
+ */
+@Slf4j
+public class FileServeUtil {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 输出本地文件
+     *
+     * @param request      请求
+     * @param response     响应
+     * @param file         本地文件
+     * @param contentType  内容类型
+     * @param etag         强 ETag（含双引号），为 null 时按文件大小和修改时间生成
+     * @param cacheControl Cache-Control 头
+     */
+    public static void serve(HttpServletRequest request, HttpServletResponse response,
+                             Path file, String contentType, String etag, String cacheControl) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long[] range = prepare(request, response, length, attributes.lastModifiedTime().toMillis(),
+                contentType, etag, cacheControl);
+        if (range == null) {
+            return;
+        }
+        long start = range[0];
+        long end = range[1];
+
+        // 容器支持 sendfile 时由 Tomcat 直接从文件发送
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    /**
+     * 输出内存中的内容（热点缓存）
+     *
+     * @param request      请求
+     * @param response     响应
+     * @param content      内容（从 position 到 limit）
+     * @param lastModified 最后修改时间（毫秒）
+     * @param contentType  内容类型
+     * @param etag         强 ETag（含双引号）
+     * @param cacheControl Cache-Control 头
+     */
+    public static void serve(HttpServletRequest request, HttpServletResponse response, ByteBuffer content,
+                             long lastModified, String contentType, String etag, String cacheControl) throws IOException {
+        long[] range = prepare(request, response, content.remaining(), lastModified, contentType, etag, cacheControl);
+        if (range != null) {
+            write(response, content, range);
+        }
+    }
+
+    /**
+     * 输出文件中的一段（打包存储）：支持 sendfile 时按文件区间发送，否则输出映射的内存切片
+     *
+     * @param request      请求
+     * @param response     响应
+     * @param file         数据文件
+     * @param offset       内容在文件中的偏移
+     * @param content      内容的内存映射切片
+     * @param lastModified 最后修改时间（毫秒）
+     * @param contentType  内容类型
+     * @param etag         强 ETag（含双引号）
+     * @param cacheControl Cache-Control 头
+     */
+    public static void serve(HttpServletRequest request, HttpServletResponse response, Path file, long offset,
+                             ByteBuffer content, long lastModified, String contentType, String etag,
+                             String cacheControl) throws IOException {
+        long[] range = prepare(request, response, content.remaining(), lastModified, contentType, etag, cacheControl);
+        if (range == null) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, offset + range[0]);
+            request.setAttribute(SENDFILE_END, offset + range[1] + 1);
+            return;
+        }
+        write(response, content, range);
+    }
+
+    private static void write(HttpServletResponse response, ByteBuffer content, long[] range) throws IOException {
+        ByteBuffer slice = content.duplicate();
+        slice.position(content.position() + (int) range[0]);
+        slice.limit(content.position() + (int) range[1] + 1);
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while (slice.hasRemaining()) {
+            out.write(slice);
+        }
+    }
+
+    /**
+     * 写入缓存相关响应头，处理 304 / 416 / Range
+     *
+     * @return 需要输出的 [start, end]，无需输出内容时返回 null
+     */
+    private static long[] prepare(HttpServletRequest request, HttpServletResponse response, long length,
+                                  long lastModifiedMillis, String contentType, String etag, String cacheControl) {
+        long lastModified = lastModifiedMillis / 1000 * 1000;
+        if (etag == null) {
+            etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        }
+
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Cache-Control", cacheControl);
+        response.setHeader("Accept-Ranges", "bytes");
+
+        // 1. 协商缓存
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+
+        // 2. Range 请求（If-Range 不匹配时返回完整内容）
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return null;
+            }
+            if (parsed.length == 2) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count <= 0) {
+            return null;
+        }
+        return new long[]{start, end};
+    }
+
+    /**
+     * 是否命中协商缓存（If-None-Match 优先于 If-Modified-Since）
+     */
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if ("*".equals(ifNoneMatch.trim())) {
+                return true;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析单段 Range
+     *
+     * @return [start, end]；多段或格式不支持时返回空数组（按完整内容处理）；无法满足返回 null
+     */
+    static long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return new long[0];
+        }
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // bytes=-n：最后 n 个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package cn.tannn.lychnos.common.util;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * IPv4 / IPv6 网段前缀树（二叉字典树，按地址位逐位匹配）
+ * <p>查询最多走 32 / 128 层，与名单大小无关；节点用平行数组存放，不产生对象</p>
+ * <p>构建后只读，可被多线程并发查询；名单变化时重新构建整体替换。每个网段带过期时间，过期的网段查询时直接忽略</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/14
+ */
+public final class IpCidrTrie {
+
+    /**
+     * 永不过期
+     */
+    public static final long PERMANENT = Long.MAX_VALUE;
+
+    private static final IpCidrTrie EMPTY = new Builder().build();
+
+    private final int[] zero;
+    private final int[] one;
+    /**
+     * 节点对应网段的过期时间（毫秒），0 表示该节点不是网段终点
+     */
+    private final long[] expireAt;
+    private final int size;
+
+    private IpCidrTrie(int[] zero, int[] one, long[] expireAt, int size) {
+        this.zero = zero;
+        this.one = one;
+        this.expireAt = expireAt;
+        this.size = size;
+    }
+
+    public static IpCidrTrie empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 网段数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * IP 是否落在未过期的网段内
+     *
+     * @param ip  IP 字面量（非法地址返回 false，不做 DNS 解析）
+     * @param now 当前时间（毫秒）
+     */
+    public boolean contains(String ip, long now) {
+        if (size == 0 || ip == null || ip.isEmpty()) {
+            return false;
+        }
+        byte[] address;
+        try {
+            address = InetAddresses.forString(ip.trim()).getAddress();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        int node = root(address);
+        int bits = address.length * 8;
+        for (int i = 0; ; i++) {
+            if (expireAt[node] > now) {
+                return true;
+            }
+            if (i == bits) {
+                return false;
+            }
+            node = bit(address, i) == 0 ? zero[node] : one[node];
+            if (node == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 规范化网段写法（单个 IP 补全前缀长度，主机位清零）
+     *
+     * @param cidr 网段，如 1.2.3.0/24、2001:db8::/32 或单个 IP
+     * @return 规范化后的网段
+     * @throws IllegalArgumentException 格式非法
+     */
+    public static String normalize(String cidr) {
+        Parsed parsed = parse(cidr);
+        byte[] masked = parsed.address.clone();
+        for (int i = parsed.prefix; i < masked.length * 8; i++) {
+            masked[i >> 3] &= (byte) ~(0x80 >>> (i & 7));
+        }
+        try {
+            return InetAddresses.toAddrString(InetAddress.getByAddress(masked)) + "/" + parsed.prefix;
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("非法网段: " + cidr, e);
+        }
+    }
+
+    private static Parsed parse(String cidr) {
+        if (cidr == null || cidr.isBlank()) {
+            throw new IllegalArgumentException("网段不能为空");
+        }
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        String ip = slash < 0 ? value : value.substring(0, slash);
+        InetAddress address;
+        try {
+            address = InetAddresses.forString(ip);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("非法网段: " + cidr, e);
+        }
+        int bits = address instanceof Inet4Address ? 32 : 128;
+        int prefix = bits;
+        if (slash >= 0) {
+            try {
+                prefix = Integer.parseInt(value.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("非法网段: " + cidr, e);
+            }
+            if (prefix < 0 || prefix > bits) {
+                throw new IllegalArgumentException("非法前缀长度: " + cidr);
+            }
+        }
+        return new Parsed(address.getAddress(), prefix);
+    }
+
+    private static int root(byte[] address) {
+        // 节点 0 为 IPv4 根，节点 1 为 IPv6 根
+        return address.length == 4 ? 0 : 1;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static final class Parsed {
+        private final byte[] address;
+        private final int prefix;
+
+        Parsed(byte[] address, int prefix) {
+            this.address = address;
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * 构建器
+     */
+    public static final class Builder {
+        private int[] zero = new int[64];
+        private int[] one = new int[64];
+        private long[] expireAt = new long[64];
+        private int nodes = 2;
+        private int size;
+
+        /**
+         * 添加网段
+         *
+         * @param cidr     网段或单个 IP
+         * @param expireAt 过期时间（毫秒），永久用 {@link #PERMANENT}
+         * @throws IllegalArgumentException 格式非法
+         */
+        public Builder add(String cidr, long expireAt) {
+            Parsed parsed = parse(cidr);
+            int node = root(parsed.address);
+            for (int i = 0; i < parsed.prefix; i++) {
+                int[] children = bit(parsed.address, i) == 0 ? zero : one;
+                if (children[node] == 0) {
+                    int child = allocate();
+                    // allocate 可能扩容，重新取数组
+                    children = bit(parsed.address, i) == 0 ? zero : one;
+                    children[node] = child;
+                }
+                node = children[node];
+            }
+            if (this.expireAt[node] == 0) {
+                size++;
+            }
+            this.expireAt[node] = Math.max(this.expireAt[node], expireAt);
+            return this;
+        }
+
+        public IpCidrTrie build() {
+            return new IpCidrTrie(Arrays.copyOf(zero, nodes), Arrays.copyOf(one, nodes),
+                    Arrays.copyOf(expireAt, nodes), size);
+        }
+
+        private int allocate() {
+            if (nodes == zero.length) {
+                int capacity = zero.length * 2;
+                zero = Arrays.copyOf(zero, capacity);
+                one = Arrays.copyOf(one, capacity);
+                expireAt = Arrays.copyOf(expireAt, capacity);
+            }
+            return nodes++;
+        }
+    }
+}
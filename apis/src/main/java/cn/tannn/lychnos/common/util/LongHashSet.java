@@ -0,0 +1,124 @@
+package cn.tannn.lychnos.common.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 开放寻址的 long 集合（每个元素 8 字节，不装箱）
+ * <p>非线程安全：构建完成后只读可被多线程并发查询，需要更新时由调用方复制后整体替换</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/13
+ */
+public final class LongHashSet {
+
+    /**
+     * 空槽标记，0 本身用 containsZero 单独记录
+     */
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int size;
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(1 << 12);
+    }
+
+    /**
+     * @param expected 预计元素数量（装载因子不超过 0.5）
+     */
+    public LongHashSet(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+    /**
+     * 添加元素
+     *
+     * @return 是否新增
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+        if ((size + 1) * 2 > table.length) {
+            resize();
+        }
+        if (insert(table, value)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(EMPTY);
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * 底层数组占用的字节数
+     */
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private void resize() {
+        long[] larger = new long[table.length * 2];
+        for (long value : table) {
+            if (value != EMPTY) {
+                insert(larger, value);
+            }
+        }
+        table = larger;
+    }
+
+    private static boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        return true;
+    }
+
+    private static int mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+}
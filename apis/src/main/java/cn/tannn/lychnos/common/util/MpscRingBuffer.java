@@ -0,0 +1,128 @@
+package cn.tannn.lychnos.common.util;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（多生产者、单消费者）
+ * <p>每个槽位带一个序号：序号等于写入位置时可写，等于写入位置 + 1 时可读，
+ * 读出后置为下一圈的写入位置。生产者只 CAS 竞争写指针，消费者独占读指针，满时 offer 直接返回 false 由调用方决定等待或丢弃</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/20
+ */
+public final class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+
+    /**
+     * 写指针（生产者竞争）
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 读指针（只有消费者线程写入，volatile 供 size 读取）
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be >= 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入（任意线程）
+     *
+     * @return false-队列已满
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(index, element);
+                    // 发布：消费者看到序号后才读取元素
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // 上一圈的元素还未被读走
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 读出一个元素（仅消费者线程）
+     *
+     * @return null-队列为空（或下一个槽位的生产者尚未发布）
+     */
+    public E poll() {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, pos + mask + 1);
+        head = pos + 1;
+        return element;
+    }
+
+    /**
+     * 批量读出（仅消费者线程）
+     *
+     * @param target 目标集合
+     * @param max    最多读出的数量
+     * @return 实际读出的数量
+     */
+    public int drainTo(Collection<? super E> target, int max) {
+        int count = 0;
+        while (count < max) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 当前元素数（近似值）
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
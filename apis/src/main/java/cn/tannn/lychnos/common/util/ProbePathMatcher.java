@@ -0,0 +1,194 @@
+package cn.tannn.lychnos.common.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 恶意扫描路径匹配器（按路径段构建的前缀树，一次遍历完成匹配）
+ * <p>支持的规则：</p>
+ * <ul>
+ *     <li>/a/b：精确匹配</li>
+ *     <li>/a/**：/a 及其下所有路径</li>
+ *     <li>/a/x*.y：最后一段前缀 + 后缀通配（* 可以匹配空串，不跨越 /），如 /*.bak、/backup.*、/spring-*.xml</li>
+ * </ul>
+ * <p>匹配代价只与请求路径的段数有关，与规则数量无关（同一目录下的通配规则逐条比较前后缀）；构建后只读，可并发匹配</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/15
+ */
+public final class ProbePathMatcher {
+
+    /**
+     * 请求方法掩码
+     */
+    public static final int GET = 1;
+    public static final int POST = 2;
+    public static final int ANY = GET | POST;
+
+    private final Node root;
+    private final int size;
+
+    private ProbePathMatcher(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 规则数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 请求方法对应的掩码（HEAD 按 GET 处理，其他方法不匹配）
+     */
+    public static int methodMask(String method) {
+        return switch (method) {
+            case "GET", "HEAD" -> GET;
+            case "POST" -> POST;
+            default -> 0;
+        };
+    }
+
+    /**
+     * 路径是否命中规则
+     *
+     * @param method 请求方法掩码
+     * @param path   请求路径（不含 context path 和查询参数）
+     */
+    public boolean matches(int method, String path) {
+        if (method == 0 || path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+        Node node = root;
+        int start = 1;
+        while (true) {
+            if ((node.anyDepth & method) != 0) {
+                return true;
+            }
+            int end = path.indexOf('/', start);
+            String segment = end < 0 ? path.substring(start) : path.substring(start, end);
+            Node child = node.children == null ? null : node.children.get(segment);
+            if (end < 0) {
+                if (child != null && ((child.exact | child.anyDepth) & method) != 0) {
+                    return true;
+                }
+                return node.matchesGlob(method, segment);
+            }
+            if (child == null) {
+                return false;
+            }
+            node = child;
+            start = end + 1;
+        }
+    }
+
+    private static final class Node {
+        private Map<String, Node> children;
+        /**
+         * 路径恰好到此节点时命中的方法
+         */
+        private int exact;
+        /**
+         * 此节点及其下所有路径命中的方法（/**）
+         */
+        private int anyDepth;
+        /**
+         * 下一段（最后一段）的通配规则
+         */
+        private List<Glob> globs;
+
+        Node child(String segment) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(segment, k -> new Node());
+        }
+
+        boolean matchesGlob(int method, String segment) {
+            if (globs == null) {
+                return false;
+            }
+            for (Glob glob : globs) {
+                if ((glob.method & method) != 0 && glob.matches(segment)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Glob {
+        private final String prefix;
+        private final String suffix;
+        private final int method;
+
+        Glob(String prefix, String suffix, int method) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.method = method;
+        }
+
+        boolean matches(String segment) {
+            return segment.length() >= prefix.length() + suffix.length()
+                    && segment.startsWith(prefix) && segment.endsWith(suffix);
+        }
+    }
+
+    /**
+     * 构建器
+     */
+    public static final class Builder {
+        private final Node root = new Node();
+        private int size;
+
+        /**
+         * 添加规则
+         *
+         * @param method  方法掩码
+         * @param pattern 路径规则
+         * @throws IllegalArgumentException 不支持的规则
+         */
+        public Builder add(int method, String pattern) {
+            if (pattern == null || !pattern.startsWith("/")) {
+                throw new IllegalArgumentException("规则必须以 / 开头: " + pattern);
+            }
+            String[] segments = pattern.substring(1).split("/", -1);
+            Node node = root;
+            for (int i = 0; i < segments.length - 1; i++) {
+                if (segments[i].indexOf('*') >= 0) {
+                    throw new IllegalArgumentException("通配符只能出现在最后一段: " + pattern);
+                }
+                node = node.child(segments[i]);
+            }
+            String last = segments[segments.length - 1];
+            int star = last.indexOf('*');
+            if ("**".equals(last)) {
+                node.anyDepth |= method;
+            } else if (star < 0) {
+                node.child(last).exact |= method;
+            } else if (last.indexOf('*', star + 1) < 0) {
+                if (node.globs == null) {
+                    node.globs = new ArrayList<>();
+                }
+                node.globs.add(new Glob(last.substring(0, star), last.substring(star + 1), method));
+            } else {
+                throw new IllegalArgumentException("最后一段只支持一个 *: " + pattern);
+            }
+            size++;
+            return this;
+        }
+
+        public ProbePathMatcher build() {
+            return new ProbePathMatcher(root, size);
+        }
+    }
+}
@@ -55,8 +55,10 @@ public class SignedUrlUtil {
      */
     public static String generateSignature(String path, String secretKey, long expiryMs) {
         try {
-            // 计算过期时间戳（秒）
-            long expiresAt = (System.currentTimeMillis() + expiryMs) / 1000;
+            // 计算过期时间戳（秒），向上对齐到半个有效期的窗口：
+            // 同一窗口内生成的签名 URL 完全相同，浏览器缓存可以复用，实际有效期在 [expiryMs, 1.5 * expiryMs) 之间
+            long window = Math.max(1, expiryMs / 2000);
+            long expiresAt = ((System.currentTimeMillis() + expiryMs) / 1000 + window - 1) / window * window;
 
             // 生成签名内容：path + expires
             String signatureContent = path + ":" + expiresAt;
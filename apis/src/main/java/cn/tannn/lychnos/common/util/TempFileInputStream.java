@@ -0,0 +1,55 @@
+package cn.tannn.lychnos.common.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 临时文件输入流
+ * <p>关闭时删除临时文件；存储服务可以通过 {@link #detach()} 接管文件直接重命名入库，省去一次复制</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/23
+ */
+public class TempFileInputStream extends FilterInputStream {
+
+    private final Path file;
+    private boolean detached;
+    private boolean closed;
+
+    public TempFileInputStream(Path file) throws IOException {
+        super(Files.newInputStream(file));
+        this.file = file;
+    }
+
+    /**
+     * 关闭流并交出临时文件，之后由调用方负责删除
+     *
+     * @return 临时文件
+     */
+    public synchronized Path detach() throws IOException {
+        if (closed) {
+            throw new IOException("临时文件流已关闭: " + file);
+        }
+        detached = true;
+        close();
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            if (!detached) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package cn.tannn.lychnos.common.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶表（同一规则下按 key 分桶，如用户ID）
+ * <p>每个桶的状态压缩在一个 long 中：高 42 位为上次补充时间（相对创建时间的毫秒数），
+ * 低 22 位为令牌数（1/1024 精度），取令牌、补充令牌都是一次 CAS，不加锁</p>
+ * <p>桶在第一次使用时按满桶创建，补满后闲置的桶由 {@link #evictIdle(long)} 清理；
+ * 清理与取令牌并发时最多多放行一次（被清理的本来就是满桶）</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/16
+ */
+public final class TokenBucketTable {
+
+    private static final int TOKEN_BITS = 22;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    /**
+     * 一个令牌对应的计数
+     */
+    private static final long UNIT = 1024;
+
+    /**
+     * 桶容量（计数）
+     */
+    private final long capacity;
+    /**
+     * 每毫秒补充的计数
+     */
+    private final double refillPerMs;
+    /**
+     * 时间基准
+     */
+    private final long base;
+
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity        桶容量（允许的突发请求数，1-4095）
+     * @param refillPerMinute 每分钟补充的令牌数（大于 0）
+     * @param now             当前时间（毫秒）
+     */
+    public TokenBucketTable(int capacity, double refillPerMinute, long now) {
+        if (capacity < 1 || capacity * UNIT > TOKEN_MASK) {
+            throw new IllegalArgumentException("令牌桶容量超出范围: " + capacity);
+        }
+        if (!(refillPerMinute > 0)) {
+            throw new IllegalArgumentException("令牌补充速率必须大于 0: " + refillPerMinute);
+        }
+        this.capacity = capacity * UNIT;
+        this.refillPerMs = refillPerMinute * UNIT / 60_000d;
+        this.base = now;
+    }
+
+    /**
+     * 取一个令牌
+     *
+     * @return 0 表示成功；否则为下一个令牌可用前需要等待的毫秒数
+     */
+    public long tryAcquire(long key, long now) {
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(pack(now - base, capacity)));
+        while (true) {
+            long state = bucket.get();
+            long next = refill(state, now - base);
+            long tokens = next & TOKEN_MASK;
+            if (tokens < UNIT) {
+                return Math.max(1, (long) Math.ceil((UNIT - tokens) / refillPerMs));
+            }
+            if (bucket.compareAndSet(state, next - UNIT)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 扣除令牌（集群其他节点的消耗），不足时扣到 0
+     */
+    public void debit(long key, long permits, long now) {
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(pack(now - base, capacity)));
+        while (true) {
+            long state = bucket.get();
+            long next = refill(state, now - base);
+            long tokens = Math.max(0, (next & TOKEN_MASK) - permits * UNIT);
+            if (bucket.compareAndSet(state, pack(next >>> TOKEN_BITS, tokens))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 退还令牌（预留后未使用的令牌），最多补到桶容量
+     */
+    public void refund(long key, long permits, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            // 桶已被清理，说明已补满
+            return;
+        }
+        while (true) {
+            long state = bucket.get();
+            long next = refill(state, now - base);
+            long tokens = Math.min(capacity, (next & TOKEN_MASK) + permits * UNIT);
+            if (bucket.compareAndSet(state, pack(next >>> TOKEN_BITS, tokens))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 清理已补满的桶
+     *
+     * @return 清理数量
+     */
+    public int evictIdle(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> (refill(bucket.get(), now - base) & TOKEN_MASK) >= capacity);
+        return before - buckets.size();
+    }
+
+    /**
+     * 当前桶数量
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * 按经过的时间补充令牌；未补满时只把时间推进到已折算成令牌的部分，零头留到下次
+     */
+    private long refill(long state, long time) {
+        long last = state >>> TOKEN_BITS;
+        long elapsed = time - last;
+        if (elapsed <= 0) {
+            return state;
+        }
+        long tokens = state & TOKEN_MASK;
+        long added = (long) (elapsed * refillPerMs);
+        if (tokens + added >= capacity) {
+            return pack(time, capacity);
+        }
+        if (added == 0) {
+            return state;
+        }
+        return pack(last + (long) (added / refillPerMs), tokens + added);
+    }
+
+    private static long pack(long time, long tokens) {
+        return time << TOKEN_BITS | tokens;
+    }
+}
@@ -2,7 +2,6 @@ package cn.tannn.lychnos.common.util;
 
 import cn.tannn.jdevelops.jwt.standalone.service.LoginService;
 import cn.tannn.jdevelops.jwt.standalone.util.JwtWebUtil;
-import cn.tannn.jdevelops.utils.http.IpUtil;
 import cn.tannn.jdevelops.utils.jwt.core.JwtService;
 import cn.tannn.jdevelops.utils.jwt.module.LoginJwtExtendInfo;
 import cn.tannn.jdevelops.utils.jwt.module.SignEntity;
@@ -15,6 +14,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * 用户相关
  *
@@ -24,19 +27,50 @@ import org.springframework.web.context.request.ServletRequestAttributes;
  */
 @Slf4j
 public class UserUtil extends cn.tannn.jdevelops.jwt.standalone.util.UserUtil {
+
+    /**
+     * 请求属性：已验签解析的 JWT 扩展信息（同一请求只验签一次）
+     */
+    public static final String JWT_INFO_ATTRIBUTE = UserUtil.class.getName() + ".JWT_INFO";
+
+    /**
+     * 请求属性：用户请求信息
+     */
+    public static final String REQUEST_INFO_ATTRIBUTE = UserUtil.class.getName() + ".REQUEST_INFO";
+
+    /**
+     * JWT 验签解析次数、耗时（纳秒）和命中请求内缓存的次数
+     */
+    private static final LongAdder JWT_PARSES = new LongAdder();
+    private static final LongAdder JWT_PARSE_NANOS = new LongAdder();
+    private static final LongAdder JWT_MEMO_HITS = new LongAdder();
+
     /**
      * 获得 LoginJwtExtendInfo
+     * <p>首次调用时验签解析并存入请求属性，同一请求内后续调用直接复用；验签失败不缓存，每次照常抛出异常</p>
      *
      * @param request HttpServletRequest
      * @return LoginJwtExtendInfo
      */
+    @SuppressWarnings("unchecked")
     public static LoginJwtExtendInfo<String> getLoginJwtExtendInfoExpires(HttpServletRequest request) {
+        Object cached = request.getAttribute(JWT_INFO_ATTRIBUTE);
+        if (cached != null) {
+            JWT_MEMO_HITS.increment();
+            return (LoginJwtExtendInfo<String>) cached;
+        }
+        long start = System.nanoTime();
         String token = JwtWebUtil.getToken(request);
-        return JwtService.getLoginJwtExtendInfoExpires(token);
+        LoginJwtExtendInfo<String> jwtInfo = JwtService.getLoginJwtExtendInfoExpires(token);
+        JWT_PARSE_NANOS.add(System.nanoTime() - start);
+        JWT_PARSES.increment();
+        request.setAttribute(JWT_INFO_ATTRIBUTE, jwtInfo);
+        return jwtInfo;
     }
 
     /**
      * 获取用户请求信息（从JWT中获取，避免数据库查询）
+     * <p>同一请求内只构建一次，返回的对象不可变，可以直接传给异步任务</p>
      */
     public static UserRequestInfo userRequestInfo() {
         try {
@@ -45,15 +79,37 @@ public class UserUtil extends cn.tannn.jdevelops.jwt.standalone.util.UserUtil {
                 return null;
             }
             var request = ((ServletRequestAttributes) attributes).getRequest();
+            if (request.getAttribute(REQUEST_INFO_ATTRIBUTE) instanceof UserRequestInfo cached) {
+                return cached;
+            }
             var jwtInfo = UserUtil.getLoginJwtExtendInfoExpires(request);
-            return new UserRequestInfo(IpUtil.getPoxyIpEnhance(request), jwtInfo.getUserName(), jwtInfo.getLoginName(),
-                    jwtInfo.getUserId());
+            UserRequestInfo info = new UserRequestInfo(ClientIpUtil.clientIp(request), jwtInfo.getUserName(),
+                    jwtInfo.getLoginName(), jwtInfo.getUserId());
+            request.setAttribute(REQUEST_INFO_ATTRIBUTE, info);
+            return info;
         } catch (Exception e) {
             log.warn("从JWT获取用户信息失败", e);
             return null;
         }
     }
 
+    /**
+     * JWT 请求内缓存统计（节省耗时按平均验签耗时 × 命中次数估算）
+     */
+    public static Map<String, Object> jwtMemoStats() {
+        long parses = JWT_PARSES.sum();
+        long nanos = JWT_PARSE_NANOS.sum();
+        long hits = JWT_MEMO_HITS.sum();
+        long avgNanos = parses == 0 ? 0 : nanos / parses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parses", parses);
+        stats.put("memoHits", hits);
+        stats.put("avgParseMicros", avgNanos / 1000);
+        stats.put("parseMillis", nanos / 1_000_000);
+        stats.put("savedMillis", hits * avgNanos / 1_000_000);
+        return stats;
+    }
+
     /**
      * 获得 userId
      *
@@ -85,7 +141,8 @@ public class UserUtil extends cn.tannn.jdevelops.jwt.standalone.util.UserUtil {
      * @return loginName
      */
     public static String loginName(HttpServletRequest request) {
-        return JwtWebUtil.getTokenSubjectExpires(request);
+        String loginName = getLoginJwtExtendInfoExpires(request).getLoginName();
+        return loginName != null ? loginName : JwtWebUtil.getTokenSubjectExpires(request);
     }
 
     /**
@@ -3,9 +3,11 @@ package cn.tannn.lychnos.controller;
 import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
 import cn.tannn.jdevelops.result.response.ResultVO;
 import cn.tannn.lychnos.ai.service.AIService;
+import cn.tannn.lychnos.common.constant.RateLimitRule;
 import cn.tannn.lychnos.common.util.UserUtil;
 import cn.tannn.lychnos.controller.dto.AIPromptDTO;
 import cn.tannn.lychnos.controller.dto.AIPromptWithModelDTO;
+import cn.tannn.lychnos.service.RateLimitService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -39,6 +41,7 @@ import java.io.InputStream;
 public class AITestController {
 
     private final AIService aiService;
+    private final RateLimitService rateLimitService;
 
     @Operation(summary = "文本生成测试", description = "使用用户配置的默认文本模型生成内容")
     @PostMapping("text")
@@ -47,6 +50,7 @@ public class AITestController {
             HttpServletRequest request) {
 
         Long userId = UserUtil.userId2(request);
+        rateLimitService.acquire(userId, RateLimitRule.AI_TEST);
         log.info("AI文本生成测试，userId: {}, prompt: {}", userId, dto.getPrompt());
 
         String result = aiService.generateText(userId, dto.getPrompt());
@@ -60,6 +64,7 @@ public class AITestController {
             HttpServletRequest request) {
 
         Long userId = UserUtil.userId2(request);
+        rateLimitService.acquire(userId, RateLimitRule.AI_TEST);
         log.info("AI文本生成测试（指定模型），userId: {}, modelId: {}, prompt: {}", userId, dto.getModelId(), dto.getPrompt());
 
         String result = aiService.generateTextWithModel(dto.getModelId(), userId, dto.getPrompt());
@@ -74,6 +79,7 @@ public class AITestController {
             HttpServletResponse response) throws Exception {
 
         Long userId = UserUtil.userId2(request);
+        rateLimitService.acquire(userId, RateLimitRule.AI_TEST);
         log.info("AI图片生成测试，userId: {}, prompt: {}", userId, dto.getPrompt());
 
         try (InputStream inputStream = aiService.generateImageStream(userId, dto.getPrompt())) {
@@ -90,6 +96,7 @@ public class AITestController {
             HttpServletResponse response) throws Exception {
 
         Long userId = UserUtil.userId2(request);
+        rateLimitService.acquire(userId, RateLimitRule.AI_TEST);
         log.info("AI图片生成测试（指定模型），userId: {}, modelId: {}, prompt: {}", userId, dto.getModelId(), dto.getPrompt());
 
         try (InputStream inputStream = aiService.generateImageStreamWithModel(dto.getModelId(), userId, dto.getPrompt())) {
@@ -110,6 +117,7 @@ public class AITestController {
             HttpServletResponse response) throws Exception {
 
         Long userId = UserUtil.userId2(request);
+        rateLimitService.acquire(userId, RateLimitRule.AI_TEST);
         log.info("书籍封面生成测试，userId: {}, title: {}", userId, title);
 
         String contentPrompt = buildBookCoverContentPrompt(title, genre, tone, themes, keyElements);
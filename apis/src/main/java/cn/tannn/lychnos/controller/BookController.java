@@ -5,14 +5,18 @@ import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
 import cn.tannn.jdevelops.exception.built.BusinessException;
 import cn.tannn.jdevelops.result.response.ResultVO;
 import cn.tannn.lychnos.common.constant.BusinessErrorCode;
+import cn.tannn.lychnos.common.constant.RateLimitRule;
 import cn.tannn.lychnos.common.util.SignedUrlUtil;
 import cn.tannn.lychnos.common.util.UserUtil;
+import cn.tannn.lychnos.controller.dto.BookBatchAnalyseDTO;
 import cn.tannn.lychnos.controller.dto.BookExtractDTO;
 import cn.tannn.lychnos.controller.vo.BookExtractVO;
 import cn.tannn.lychnos.controller.vo.BookRecommend;
 import cn.tannn.lychnos.entity.BookAnalyse;
-import cn.tannn.lychnos.service.BannedUserCacheService;
 import cn.tannn.lychnos.service.BookAnalyseService;
+import cn.tannn.lychnos.service.BookBatchAnalyseService;
+import cn.tannn.lychnos.service.IdempotencyService;
+import cn.tannn.lychnos.service.RateLimitService;
 import cn.tannn.lychnos.service.UserInterestService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -20,7 +24,9 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -42,8 +48,10 @@ import java.util.stream.IntStream;
 public class BookController {
 
     private final BookAnalyseService bookAnalyseService;
+    private final BookBatchAnalyseService bookBatchAnalyseService;
     private final UserInterestService userInterestService;
-    private final BannedUserCacheService bannedUserCacheService;
+    private final RateLimitService rateLimitService;
+    private final IdempotencyService idempotencyService;
 
     @Value("${app.security.aes-secret-key}")
     private String secretKey;
@@ -140,18 +148,27 @@ public class BookController {
     }
 
 
-    @Operation(summary = "分析图书", description = "根据书名和作者进行分析图书")
+    @Operation(summary = "分析图书", description = "根据书名和作者进行分析图书，" +
+            "携带相同 Idempotency-Key 的重试请求等待或直接返回首次请求的结果")
     @PutMapping(value = "analyze")
     public ResultVO<BookAnalyse> analyze(@RequestBody BookExtractVO bookInfo,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
                                          HttpServletRequest request) {
 
         Long userId = UserUtil.userId2(request);
 
-        checkUserStatus(userId);
-
         String bookTitle = bookInfo.getTitle().trim();
         String author = bookInfo.getAuthor();
 
+        return ResultVO.success(idempotencyService.execute(userId, "book.analyze", idempotencyKey,
+                bookTitle + "\n" + author, () -> doAnalyze(userId, bookTitle, author)));
+    }
+
+    /**
+     * 分析图书（已分析检查 + 限流 + AI 分析）
+     */
+    private BookAnalyse doAnalyze(Long userId, String bookTitle, String author) {
+
         // 检查是否已分析过，且图片是否完整
         var existingInterest = userInterestService.checkAnalyzed(userId, bookTitle);
         if (existingInterest.isPresent()) {
@@ -170,15 +187,31 @@ public class BookController {
             log.info("书籍已分析但缺少图片，允许重新分析，书名: {}", bookTitle);
         }
 
+        rateLimitService.acquire(userId, RateLimitRule.ANALYZE);
+
         // 使用 AI 进行书籍分析（首次分析或补充图片）
-        return ResultVO.success(bookAnalyseService.analyse(bookTitle, author, userId));
+        return bookAnalyseService.analyse(bookTitle, author, userId);
     }
 
 
 
-    @Operation(summary = "提取书籍信息", description = "从用户输入中提取书名和作者信息")
+    @Operation(summary = "批量分析图书", description = "导入书单批量分析，已分析的书籍立即返回，" +
+            "其余书籍排队调用 AI；以 SSE 推送每本书的进度（progress）和结果（result），全部结束后推送 complete")
+    @PostMapping(value = "analyze/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter analyzeBatch(@RequestBody BookBatchAnalyseDTO dto,
+                                   HttpServletRequest request) {
+        Long userId = UserUtil.userId2(request);
+        rateLimitService.acquire(userId, RateLimitRule.ANALYZE);
+
+        return bookBatchAnalyseService.analyseBatch(dto.getBooks(), userId, UserUtil.userRequestInfo());
+    }
+
+
+    @Operation(summary = "提取书籍信息", description = "从用户输入中提取书名和作者信息，" +
+            "携带相同 Idempotency-Key 的重试请求等待或直接返回首次请求的结果")
     @PostMapping(value = "extract")
     public ResultVO<List<BookExtractVO>> extractBooks(@RequestBody BookExtractDTO dto,
+                                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
                                                       HttpServletRequest request) {
         Long userId = null;
         try {
@@ -192,8 +225,6 @@ public class BookController {
             );
         }
 
-        checkUserStatus(userId);
-
         if (dto.getInput() == null || dto.getInput().trim().isEmpty()) {
             throw new BusinessException(
                     BusinessErrorCode.PARAM_ERROR.getCode(),
@@ -201,8 +232,19 @@ public class BookController {
             );
         }
 
+        Long extractUserId = userId;
+        return ResultVO.success(idempotencyService.execute(userId, "book.extract", idempotencyKey,
+                dto.getInput(), () -> doExtractBooks(extractUserId, dto.getInput())));
+    }
+
+    /**
+     * 提取书籍信息（限流 + AI 提取 + 标记已分析）
+     */
+    private List<BookExtractVO> doExtractBooks(Long userId, String input) {
+        rateLimitService.acquire(userId, RateLimitRule.EXTRACT);
+
         // 使用AI提取书籍信息
-        List<BookExtractVO> books = bookAnalyseService.extractBooks(dto.getInput(), userId);
+        List<BookExtractVO> books = bookAnalyseService.extractBooks(input, userId);
 
         // 检查每本书是否已分析过
         for (BookExtractVO book : books) {
@@ -218,7 +260,7 @@ public class BookController {
         }
 
         log.info("提取到{}本书籍信息", books.size());
-        return ResultVO.success(books);
+        return books;
     }
 
 
@@ -300,20 +342,4 @@ public class BookController {
                     );
                 });
     }
-
-
-
-    /**
-     * 检查用户状态
-     * @param userId userId
-     */
-    private void checkUserStatus(Long userId) {
-        // 检查用户是否被封禁
-        if (bannedUserCacheService.isBanned(userId)) {
-            throw new BusinessException(
-                    BusinessErrorCode.USER_BANNED.getCode(),
-                    BusinessErrorCode.USER_BANNED.getMessage()
-            );
-        }
-    }
 }
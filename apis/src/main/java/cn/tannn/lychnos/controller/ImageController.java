@@ -2,9 +2,12 @@ package cn.tannn.lychnos.controller;
 
 import cn.tannn.jdevelops.annotations.web.authentication.ApiMapping;
 import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
+import cn.tannn.lychnos.common.pojo.LocalImage;
+import cn.tannn.lychnos.common.util.FileServeUtil;
 import cn.tannn.lychnos.common.util.SignedUrlUtil;
 import cn.tannn.lychnos.common.util.UserUtil;
 import cn.tannn.lychnos.service.ImageStorageService;
+import cn.tannn.lychnos.service.ImageVariantService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -18,7 +21,11 @@ import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * 图片访问接口
@@ -28,6 +35,11 @@ import java.io.InputStream;
  * - 鉴权: 0(无需鉴权，不应通过此接口访问) / 1(需要鉴权，通过此接口代理访问)
  * <p>
  * 访问示例：GET /api/image?path=l:1:/20240115/三体.png
+ * <p>
+ * 本地图片支持 ETag/Last-Modified 协商缓存和 Range 请求，内容寻址图片（/cas/...）可永久缓存；
+ * 可通过 w / fmt 参数获取缩小后的 JPEG / PNG 变体（宽度对齐白名单，按需生成并缓存）；
+ * 对象存储图片开启预签名时重定向到存储直连地址，否则经本地读穿缓存输出；
+ * 签名校验在缓存协商之前执行，签名参数按时间窗口对齐，同一窗口内 URL 不变，不影响浏览器缓存
  *
  * @author <a href="https://t.tannn.cn/">tan</a>
  * @version V1.0
@@ -39,7 +51,23 @@ import java.io.InputStream;
 @Slf4j
 public class ImageController {
 
+    /**
+     * 内容寻址图片：路径即内容哈希，浏览器可永久缓存（需登录或签名，使用 private）
+     */
+    private static final String CACHE_IMMUTABLE = "private, max-age=31536000, immutable";
+
+    /**
+     * 旧版路径图片：每次通过 ETag 协商，未变化返回 304
+     */
+    private static final String CACHE_REVALIDATE = "private, no-cache";
+
+    /**
+     * 预签名重定向：地址按时间窗口对齐，短时间缓存重定向本身
+     */
+    private static final String CACHE_REDIRECT = "private, max-age=60";
+
     private final ImageStorageService imageStorageService;
+    private final ImageVariantService imageVariantService;
 
     @Value("${app.security.aes-secret-key}")
     private String secretKey;
@@ -62,10 +90,14 @@ public class ImageController {
             @RequestParam(required = false) Long expires,
             @Parameter(description = "URL 签名", example = "abc123...")
             @RequestParam(required = false) String signature,
+            @Parameter(description = "目标宽度（向上对齐到白名单，如 320/640/960/1280）", example = "640")
+            @RequestParam(required = false) Integer w,
+            @Parameter(description = "输出格式：jpeg / png，指定宽度时默认 jpeg", example = "jpeg")
+            @RequestParam(required = false) String fmt,
             HttpServletRequest request,
             HttpServletResponse response) throws Exception {
 
-        log.info("获取图片，posterUrl: {}", path);
+        log.debug("获取图片，posterUrl: {}", path);
 
         // 检查用户是否已登录
         Long userId = null;
@@ -93,7 +125,55 @@ public class ImageController {
                 return;
             }
 
-            log.info("未登录用户签名验证成功，path: {}", path);
+            log.debug("未登录用户签名验证成功，path: {}", path);
+        }
+
+        // 对象存储开启预签名时重定向到直连地址，图片字节不经过本服务（缩略图仍由本服务生成）
+        if (w == null && fmt == null) {
+            String direct = imageStorageService.getPresignedUrl(path);
+            if (direct != null) {
+                response.setHeader("Cache-Control", CACHE_REDIRECT);
+                response.sendRedirect(direct);
+                return;
+            }
+        }
+
+        // 本地图片（含对象存储的本地缓存）：协商缓存 + Range + 零拷贝输出
+        LocalImage localImage = imageStorageService.getLocalImage(path);
+        if (localImage != null) {
+            // 内容寻址文件内容不可变，长期缓存；旧版路径内容可能被覆盖，每次协商
+            String cacheControl = localImage.isImmutable() ? CACHE_IMMUTABLE : CACHE_REVALIDATE;
+            if (w != null || fmt != null) {
+                String format = normalizeFormat(fmt);
+                if (format == null) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported format: " + fmt);
+                    return;
+                }
+                Integer width = imageVariantService.snapWidth(w == null ? Integer.MAX_VALUE : w);
+                if (width != null) {
+                    try {
+                        Path variant = imageVariantService.getVariant(localImage, width, format);
+                        String etag = localImage.isImmutable()
+                                ? "\"" + localImage.getHash() + "-" + width + "-" + format + "\"" : null;
+                        String contentType = "jpeg".equals(format) ? MediaType.IMAGE_JPEG_VALUE : MediaType.IMAGE_PNG_VALUE;
+                        serveLocal(request, response, variant, contentType, etag, cacheControl);
+                        return;
+                    } catch (IOException e) {
+                        // 变体生成失败时退回原图
+                        log.warn("生成图片变体失败，path: {}, w: {}, fmt: {}, 错误: {}", path, width, format, e.getMessage());
+                    }
+                }
+            }
+            String etag = localImage.isImmutable() ? "\"" + localImage.getHash() + "\"" : null;
+            if (localImage.isPacked()) {
+                // 冷数据已打包：按数据文件区间输出，pack 写完即不再修改，修改时间即打包时间
+                long lastModified = Files.getLastModifiedTime(localImage.getFile()).toMillis();
+                FileServeUtil.serve(request, response, localImage.getFile(), localImage.getOffset(),
+                        localImage.getContent(), lastModified, localImage.contentType(), etag, cacheControl);
+                return;
+            }
+            serveLocal(request, response, localImage.getFile(), localImage.contentType(), etag, cacheControl);
+            return;
         }
 
         // 获取并返回图片
@@ -107,4 +187,38 @@ public class ImageController {
             StreamUtils.copy(inputStream, response.getOutputStream());
         }
     }
+
+    /**
+     * 输出本地图片：内容不可变（有强 ETag）的优先走热点内存缓存，其余直接从文件输出
+     */
+    private void serveLocal(HttpServletRequest request, HttpServletResponse response, Path file,
+                            String contentType, String etag, String cacheControl) throws IOException {
+        if (etag != null) {
+            // 缓存键：原图为内容哈希，变体为 哈希-宽度-格式
+            ByteBuffer hot = imageStorageService.getHotImage(etag.substring(1, etag.length() - 1), file);
+            if (hot != null) {
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                FileServeUtil.serve(request, response, hot, lastModified, contentType, etag, cacheControl);
+                return;
+            }
+        }
+        FileServeUtil.serve(request, response, file, contentType, etag, cacheControl);
+    }
+
+    /**
+     * 规范化输出格式
+     *
+     * @param fmt 请求格式
+     * @return jpeg / png，不支持返回 null
+     */
+    private String normalizeFormat(String fmt) {
+        if (fmt == null || fmt.isBlank()) {
+            return "jpeg";
+        }
+        return switch (fmt.trim().toLowerCase()) {
+            case "jpg", "jpeg" -> "jpeg";
+            case "png" -> "png";
+            default -> null;
+        };
+    }
 }
@@ -13,7 +13,10 @@ import cn.tannn.lychnos.common.constant.ShareType;
 import cn.tannn.lychnos.controller.dto.AIModelPageDTO;
 import cn.tannn.lychnos.controller.vo.AIModelWithUserVO;
 import cn.tannn.lychnos.entity.AIModel;
+import cn.tannn.lychnos.entity.AIUsageDaily;
+import cn.tannn.lychnos.service.AICallScheduler;
 import cn.tannn.lychnos.service.AIModelService;
+import cn.tannn.lychnos.service.AIUsageService;
 import cn.tannn.lychnos.service.UserInfoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -25,8 +28,12 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 管理员-AI模型管理
@@ -42,6 +49,8 @@ import java.util.List;
 public class AdminAIModelController {
 
     private final AIModelService aiModelService;
+    private final AIUsageService aiUsageService;
+    private final AICallScheduler aiCallScheduler;
     private final UserInfoService userInfoService;
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
@@ -133,4 +142,29 @@ public class AdminAIModelController {
         return ResultVO.successMessage("已设置为私人模型");
     }
 
+    /**
+     * AI 用量（官方模型当日用量与预算、指定日期按用户和模型的明细）
+     */
+    @Operation(summary = "AI 用量统计")
+    @ApiMapping(value = "/usage", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> usage(@RequestParam(required = false) String date, HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        LocalDate day = date == null || date.isBlank() ? LocalDate.now() : LocalDate.parse(date);
+        List<AIUsageDaily> rows = aiUsageService.daily(day);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("budget", aiUsageService.stats());
+        result.put("rows", rows);
+        return ResultVO.success(result);
+    }
+
+    /**
+     * 官方模型调用调度统计（各优先级的排队等待与调用耗时、各模型的占用与排队数）
+     */
+    @Operation(summary = "官方模型调用调度统计")
+    @ApiMapping(value = "/scheduler-stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> schedulerStats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(aiCallScheduler.stats());
+    }
+
 }
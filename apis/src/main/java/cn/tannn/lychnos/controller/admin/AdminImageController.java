@@ -0,0 +1,108 @@
+package cn.tannn.lychnos.controller.admin;
+
+import cn.tannn.jdevelops.annotations.web.authentication.ApiMapping;
+import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
+import cn.tannn.jdevelops.result.response.ResultVO;
+import cn.tannn.lychnos.controller.vo.ImageGcReportVO;
+import cn.tannn.lychnos.controller.vo.ImageMigrationReportVO;
+import cn.tannn.lychnos.service.ImageDownloadService;
+import cn.tannn.lychnos.service.ImageGcService;
+import cn.tannn.lychnos.service.ImageMigrationService;
+import cn.tannn.lychnos.service.ImageOptimizeService;
+import cn.tannn.lychnos.service.ImagePackService;
+import cn.tannn.lychnos.service.ImageStorageService;
+import cn.tannn.lychnos.service.ImageVariantService;
+import cn.tannn.lychnos.service.UserInfoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 管理员-图片存储
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+@PathRestController("sys-manage/image")
+@Tag(name = "系统管理-图片存储")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminImageController {
+
+    private final ImageMigrationService imageMigrationService;
+    private final ImageDownloadService imageDownloadService;
+    private final ImageVariantService imageVariantService;
+    private final ImageStorageService imageStorageService;
+    private final ImagePackService imagePackService;
+    private final ImageGcService imageGcService;
+    private final ImageOptimizeService imageOptimizeService;
+    private final UserInfoService userInfoService;
+
+    @Operation(summary = "迁移旧版图片到内容寻址存储", description = "后台并行执行，可重复触发，已迁移的文件会被跳过")
+    @ApiMapping(value = "/migrate", method = RequestMethod.POST)
+    public ResultVO<String> migrate(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        if (!imageMigrationService.trigger()) {
+            return ResultVO.fail("迁移正在执行中");
+        }
+        log.info("管理员触发图片存储迁移");
+        return ResultVO.successMessage("已触发");
+    }
+
+    @Operation(summary = "图片存储迁移进度")
+    @ApiMapping(value = "/migrate", method = RequestMethod.GET)
+    public ResultVO<ImageMigrationReportVO> migrateReport(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(imageMigrationService.report());
+    }
+
+    @Operation(summary = "打包冷图片", description = "后台执行，将长时间未修改的图片合并到 pack 文件")
+    @ApiMapping(value = "/pack", method = RequestMethod.POST)
+    public ResultVO<String> pack(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        if (!imagePackService.trigger()) {
+            return ResultVO.fail("打包正在执行中");
+        }
+        log.info("管理员触发冷图片打包");
+        return ResultVO.successMessage("已触发");
+    }
+
+    @Operation(summary = "回收未引用的图片", description = "后台执行，未被海报地址引用的文件先隔离，超过隔离期后删除")
+    @ApiMapping(value = "/gc", method = RequestMethod.POST)
+    public ResultVO<String> gc(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        if (!imageGcService.trigger()) {
+            return ResultVO.fail("回收正在执行中");
+        }
+        log.info("管理员触发图片回收");
+        return ResultVO.successMessage("已触发");
+    }
+
+    @Operation(summary = "图片回收报告", description = "包含按日期和大小区间统计的存储用量")
+    @ApiMapping(value = "/gc", method = RequestMethod.GET)
+    public ResultVO<ImageGcReportVO> gcReport(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(imageGcService.report());
+    }
+
+    @Operation(summary = "图片存储统计", description = "下载统计、变体缓存与热点内存缓存的命中率、占用及淘汰情况，冷数据打包及对象存储读写情况")
+    @ApiMapping(value = "/stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> stats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("download", imageDownloadService.stats());
+        stats.put("variant", imageVariantService.stats());
+        stats.put("hotCache", imageStorageService.hotCacheStats());
+        stats.put("pack", imagePackService.stats());
+        stats.put("remote", imageStorageService.remoteStats());
+        stats.put("optimize", imageOptimizeService.stats());
+        return ResultVO.success(stats);
+    }
+}
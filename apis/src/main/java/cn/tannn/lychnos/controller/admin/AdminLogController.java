@@ -4,10 +4,14 @@ import cn.tannn.jdevelops.annotations.web.authentication.ApiMapping;
 import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
 import cn.tannn.jdevelops.result.response.ResultVO;
 import cn.tannn.lychnos.controller.dto.AttackStatsDTO;
+import cn.tannn.lychnos.controller.dto.IpBlockDTO;
 import cn.tannn.lychnos.controller.dto.UserAnalysisLogQueryDTO;
-import cn.tannn.lychnos.controller.vo.UserAnalysisLogVO;
+import cn.tannn.lychnos.controller.vo.UserAnalysisLogPageVO;
+import cn.tannn.lychnos.entity.IpBlock;
 import cn.tannn.lychnos.service.AttackStatsCacheService;
+import cn.tannn.lychnos.service.IpBlocklistService;
 import cn.tannn.lychnos.service.UserAnalysisLogService;
+import cn.tannn.lychnos.service.UserAnalysisLogWriter;
 import cn.tannn.lychnos.service.UserInfoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,9 +24,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 管理员-日志查询
@@ -40,24 +44,24 @@ public class AdminLogController {
     private final UserAnalysisLogService userAnalysisLogService;
     private final UserInfoService userInfoService;
     private final AttackStatsCacheService attackStatsService;
+    private final IpBlocklistService ipBlocklistService;
+    private final UserAnalysisLogWriter userAnalysisLogWriter;
 
     /**
      * 查询用户分析日志
-     * 默认查询最近20条，支持时间范围和用户名查询，最多返回200条
-     * 直接返回JPA Projection接口，无需手动转换
+     * 按调用时间倒序的游标分页，默认每页20条，最多200条；查询下一页时传回上一页的 nextCursor
      */
     @Operation(summary = "查询用户分析日志")
     @ApiMapping(value = "/query", method = RequestMethod.POST)
-    public ResultVO<List<UserAnalysisLogVO>> queryLogs(@RequestBody UserAnalysisLogQueryDTO queryDTO,
-                                                       HttpServletRequest request) {
+    public ResultVO<UserAnalysisLogPageVO> queryLogs(@RequestBody UserAnalysisLogQueryDTO queryDTO,
+                                                     HttpServletRequest request) {
         // 鉴权：仅管理员可访问
         userInfoService.checkAdmin(request);
 
-        // 查询日志 - 直接返回JPA Projection接口
-        List<UserAnalysisLogVO> vos = userAnalysisLogService.queryLogs(queryDTO);
+        UserAnalysisLogPageVO page = userAnalysisLogService.queryLogs(queryDTO);
 
-        log.info("管理员查询日志，查询条件: {}, 结果数量: {}", queryDTO, vos.size());
-        return ResultVO.success(vos);
+        log.info("管理员查询日志，查询条件: {}, 结果数量: {}", queryDTO, page.getRows().size());
+        return ResultVO.success(page);
     }
 
 
@@ -76,16 +80,13 @@ public class AdminLogController {
         // 鉴权：仅管理员可访问
         userInfoService.checkAdmin(request);
         // 获取统计数据
-        Map<String, Long> stats = attackStatsService.getAttackStats(limit);
-
-        // 转换为DTO
-        List<AttackStatsDTO.AttackRecord> topAttackers = stats.entrySet().stream()
-                .map(entry -> new AttackStatsDTO.AttackRecord(entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
-
+        List<AttackStatsDTO.AttackRecord> topAttackers = attackStatsService.getTopAttackers(limit);
         AttackStatsDTO result = new AttackStatsDTO(
                 attackStatsService.getAttackerCount(),
                 attackStatsService.getTotalAttackCount(),
+                attackStatsService.getLastHourAttackCount(),
+                attackStatsService.getRecentAttackCount(1),
+                attackStatsService.getRecentAttackCount(10),
                 topAttackers
         );
 
@@ -164,13 +165,75 @@ public class AdminLogController {
             @RequestParam(defaultValue = "20") Integer threshold
             , HttpServletRequest request) {
         userInfoService.checkAdmin(request);
-        Map<String, Long> allStats = attackStatsService.getAttackStats(0);
-
-        List<AttackStatsDTO.AttackRecord> highFrequencyAttackers = allStats.entrySet().stream()
-                .filter(entry -> entry.getValue() >= threshold)
-                .map(entry -> new AttackStatsDTO.AttackRecord(entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
+        List<AttackStatsDTO.AttackRecord> highFrequencyAttackers = attackStatsService.getAttackersAbove(threshold);
 
         return ResultVO.success(highFrequencyAttackers);
     }
+
+    /**
+     * 查询IP黑名单
+     */
+    @Operation(summary = "查询IP黑名单")
+    @ApiMapping(value = "/ip-blocks", method = RequestMethod.GET)
+    public ResultVO<List<IpBlock>> listIpBlocks(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(ipBlocklistService.list());
+    }
+
+    /**
+     * 添加IP黑名单（单个IP或网段，已存在时延长有效期）
+     */
+    @Operation(summary = "添加IP黑名单", description = "支持单个IP或CIDR网段，有效期为空表示永久")
+    @ApiMapping(value = "/ip-blocks", method = RequestMethod.POST)
+    public ResultVO<IpBlock> addIpBlock(@RequestBody IpBlockDTO dto, HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        try {
+            Duration ttl = dto.getTtlMinutes() == null ? null : Duration.ofMinutes(dto.getTtlMinutes());
+            IpBlock block = ipBlocklistService.block(dto.getCidr(), IpBlocklistService.SOURCE_ADMIN, dto.getReason(), ttl);
+            log.info("管理员添加IP黑名单: {}", block.getCidr());
+            return ResultVO.success(block);
+        } catch (IllegalArgumentException e) {
+            return ResultVO.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * 移除IP黑名单
+     */
+    @Operation(summary = "移除IP黑名单")
+    @ApiMapping(value = "/ip-blocks", method = RequestMethod.DELETE)
+    public ResultVO<String> removeIpBlock(
+            @Parameter(description = "网段或单个IP")
+            @RequestParam String cidr, HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        try {
+            if (!ipBlocklistService.unblock(cidr)) {
+                return ResultVO.fail("黑名单中没有该记录");
+            }
+            log.info("管理员移除IP黑名单: {}", cidr);
+            return ResultVO.successMessage("已移除 " + cidr);
+        } catch (IllegalArgumentException e) {
+            return ResultVO.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * IP黑名单统计
+     */
+    @Operation(summary = "IP黑名单统计")
+    @ApiMapping(value = "/ip-blocks/stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> ipBlockStats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(ipBlocklistService.stats());
+    }
+
+    /**
+     * 用户分析日志批量写入统计（队列积压、已写入、等待、丢弃、失败条数）
+     */
+    @Operation(summary = "用户分析日志写入统计")
+    @ApiMapping(value = "/writer-stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> writerStats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(userAnalysisLogWriter.stats());
+    }
 }
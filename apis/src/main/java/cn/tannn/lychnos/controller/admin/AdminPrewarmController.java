@@ -0,0 +1,85 @@
+package cn.tannn.lychnos.controller.admin;
+
+import cn.tannn.jdevelops.annotations.web.authentication.ApiMapping;
+import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
+import cn.tannn.jdevelops.result.response.ResultVO;
+import cn.tannn.lychnos.controller.dto.PrewarmSeedDTO;
+import cn.tannn.lychnos.controller.vo.PrewarmReportVO;
+import cn.tannn.lychnos.entity.PrewarmSeed;
+import cn.tannn.lychnos.service.BookPrewarmService;
+import cn.tannn.lychnos.service.UserInfoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+/**
+ * 管理员-书籍预热
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@PathRestController("sys-manage/prewarm")
+@Tag(name = "系统管理-书籍预热")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminPrewarmController {
+
+    private final BookPrewarmService bookPrewarmService;
+    private final UserInfoService userInfoService;
+
+    @Operation(summary = "预热书单列表")
+    @ApiMapping(value = "/seeds", method = RequestMethod.GET)
+    public ResultVO<List<PrewarmSeed>> listSeeds(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(bookPrewarmService.listSeeds());
+    }
+
+    @Operation(summary = "新增预热书籍")
+    @ApiMapping(value = "/seeds", method = RequestMethod.POST)
+    public ResultVO<PrewarmSeed> addSeed(@RequestBody @Valid PrewarmSeedDTO dto, HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        PrewarmSeed seed = bookPrewarmService.addSeed(dto.getTitle(), dto.getAuthor());
+        log.info("管理员新增预热书籍: {}", seed.getTitle());
+        return ResultVO.success(seed);
+    }
+
+    @Operation(summary = "删除预热书籍")
+    @ApiMapping(value = "/seeds/{id}", method = RequestMethod.DELETE)
+    public ResultVO<String> removeSeed(@PathVariable("id") Long id, HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        bookPrewarmService.removeSeed(id);
+        return ResultVO.successMessage("删除成功");
+    }
+
+    @Operation(summary = "立即执行一轮预热", description = "不受空闲时段限制，仍受每日预算限制")
+    @ApiMapping(value = "/run", method = RequestMethod.POST)
+    public ResultVO<String> run(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        if (!bookPrewarmService.trigger(false)) {
+            return ResultVO.fail("预热正在执行中");
+        }
+        log.info("管理员手动触发书籍预热");
+        return ResultVO.successMessage("已触发");
+    }
+
+    @Operation(summary = "预热报告", description = "预热数量、预算消耗及预热后的缓存命中情况")
+    @ApiMapping(value = "/report", method = RequestMethod.GET)
+    public ResultVO<PrewarmReportVO> report(
+            @Parameter(description = "统计最近天数")
+            @RequestParam(defaultValue = "7") Integer days,
+            HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(bookPrewarmService.report(days));
+    }
+}
@@ -0,0 +1,115 @@
+package cn.tannn.lychnos.controller.admin;
+
+import cn.tannn.jdevelops.annotations.web.authentication.ApiMapping;
+import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.jdevelops.result.response.ResultVO;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
+import cn.tannn.lychnos.entity.UsageRollupDaily;
+import cn.tannn.lychnos.entity.UsageRollupHourly;
+import cn.tannn.lychnos.service.UsageRollupService;
+import cn.tannn.lychnos.service.UserInfoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理员-AI 调用汇总（只读小时/日汇总表，不扫描日志表）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/22
+ */
+@PathRestController("sys-manage/usage-rollup")
+@Tag(name = "系统管理-AI调用汇总")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminUsageRollupController {
+
+    private final UsageRollupService usageRollupService;
+    private final UserInfoService userInfoService;
+
+    @Operation(summary = "某天按小时的调用汇总", description = "默认当天")
+    @ApiMapping(value = "/hourly", method = RequestMethod.GET)
+    public ResultVO<List<UsageRollupHourly>> hourly(
+            @Parameter(description = "日期，yyyy-MM-dd")
+            @RequestParam(required = false) String date,
+            HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(usageRollupService.hourly(parseDate(date, LocalDate.now())));
+    }
+
+    @Operation(summary = "按天的调用汇总", description = "默认最近7天")
+    @ApiMapping(value = "/daily", method = RequestMethod.GET)
+    public ResultVO<List<UsageRollupDaily>> daily(
+            @Parameter(description = "开始日期，yyyy-MM-dd")
+            @RequestParam(required = false) String from,
+            @Parameter(description = "结束日期，yyyy-MM-dd")
+            @RequestParam(required = false) String to,
+            HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        LocalDate end = parseDate(to, LocalDate.now());
+        return ResultVO.success(usageRollupService.daily(parseDate(from, end.minusDays(6)), end));
+    }
+
+    @Operation(summary = "按维度合计", description = "调用次数、失败率、平均耗时与耗时分布，默认最近7天按模型合计")
+    @ApiMapping(value = "/summary", method = RequestMethod.GET)
+    public ResultVO<List<Map<String, Object>>> summary(
+            @Parameter(description = "开始日期，yyyy-MM-dd")
+            @RequestParam(required = false) String from,
+            @Parameter(description = "结束日期，yyyy-MM-dd")
+            @RequestParam(required = false) String to,
+            @Parameter(description = "合计维度：model / vendor / usageType / modelSource")
+            @RequestParam(defaultValue = "model") String groupBy,
+            HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        LocalDate end = parseDate(to, LocalDate.now());
+        return ResultVO.success(usageRollupService.summary(parseDate(from, end.minusDays(6)), end, groupBy));
+    }
+
+    @Operation(summary = "从日志重建某天的汇总", description = "仅限已结束的日期，用于节点异常退出后修正")
+    @ApiMapping(value = "/rebuild", method = RequestMethod.POST)
+    public ResultVO<String> rebuild(
+            @Parameter(description = "日期，yyyy-MM-dd")
+            @RequestParam String date,
+            HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        int[] rows = usageRollupService.rebuild(parseDate(date, null));
+        log.info("管理员重建 AI 调用汇总，日期: {}", date);
+        return ResultVO.successMessage("已重建 " + date + "：小时汇总 " + rows[0] + " 条，日汇总 " + rows[1] + " 条");
+    }
+
+    @Operation(summary = "本节点汇总状态")
+    @ApiMapping(value = "/stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> stats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(usageRollupService.stats());
+    }
+
+    /**
+     * 解析日期，为空时返回默认值（默认值为 null 表示必填），格式错误返回参数错误而不是 500
+     */
+    private static LocalDate parseDate(String date, LocalDate defaultDate) {
+        if (date == null || date.isBlank()) {
+            if (defaultDate == null) {
+                throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(), "日期不能为空");
+            }
+            return defaultDate;
+        }
+        try {
+            return LocalDate.parse(date.trim());
+        } catch (DateTimeParseException e) {
+            throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(), "日期格式错误，应为 yyyy-MM-dd: " + date);
+        }
+    }
+}
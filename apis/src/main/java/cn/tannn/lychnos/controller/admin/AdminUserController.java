@@ -5,12 +5,16 @@ import cn.tannn.jdevelops.annotations.web.mapping.PathRestController;
 import cn.tannn.jdevelops.jpa.result.JpaPageResult;
 import cn.tannn.jdevelops.result.response.ResultPageVO;
 import cn.tannn.jdevelops.result.response.ResultVO;
+import cn.tannn.lychnos.common.util.UserUtil;
 import cn.tannn.lychnos.common.views.Views;
 import cn.tannn.lychnos.controller.dto.UserPageDTO;
 import cn.tannn.lychnos.controller.vo.UserDetailVO;
 import cn.tannn.lychnos.dao.UserThirdPartyBindDao;
 import cn.tannn.lychnos.entity.UserInfo;
 import cn.tannn.lychnos.entity.UserThirdPartyBind;
+import cn.tannn.lychnos.service.BannedUserCacheService;
+import cn.tannn.lychnos.service.IdempotencyService;
+import cn.tannn.lychnos.service.RateLimitService;
 import cn.tannn.lychnos.service.UserInfoService;
 import com.fasterxml.jackson.annotation.JsonView;
 import io.swagger.v3.oas.annotations.Operation;
@@ -24,6 +28,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 管理员-用户管理
@@ -39,6 +44,9 @@ import java.util.List;
 public class AdminUserController {
 
     private final UserInfoService userInfoService;
+    private final BannedUserCacheService bannedUserCacheService;
+    private final RateLimitService rateLimitService;
+    private final IdempotencyService idempotencyService;
     private final UserThirdPartyBindDao userThirdPartyBindDao;
 
     /**
@@ -95,4 +103,43 @@ public class AdminUserController {
         }
     }
 
+    /**
+     * JWT 请求内缓存统计（验签次数、复用次数、估算节省的耗时）
+     */
+    @Operation(summary = "JWT 请求内缓存统计")
+    @ApiMapping(value = "/jwt-memo-stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> jwtMemoStats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(UserUtil.jwtMemoStats());
+    }
+
+    /**
+     * 封禁名单统计（封禁人数、内存占用、集群同步版本号、拦截次数）
+     */
+    @Operation(summary = "封禁名单统计")
+    @ApiMapping(value = "/banned-stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> bannedStats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(bannedUserCacheService.stats());
+    }
+
+    /**
+     * AI 调用限流统计（各规则的令牌桶数量、放行与拒绝次数、集群同步状态）
+     */
+    @Operation(summary = "AI 调用限流统计")
+    @ApiMapping(value = "/rate-limit-stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> rateLimitStats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(rateLimitService.stats());
+    }
+
+    /**
+     * 幂等请求统计（记录数、执行、等待进行中的结果、直接返回缓存结果、Key 冲突次数）
+     */
+    @Operation(summary = "幂等请求统计")
+    @ApiMapping(value = "/idempotency-stats", method = RequestMethod.GET)
+    public ResultVO<Map<String, Object>> idempotencyStats(HttpServletRequest request) {
+        userInfoService.checkAdmin(request);
+        return ResultVO.success(idempotencyService.stats());
+    }
 }
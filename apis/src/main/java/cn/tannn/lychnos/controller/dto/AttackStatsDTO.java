@@ -22,9 +22,18 @@ public class AttackStatsDTO {
     @Schema(description = "总攻击IP数")
     private Long totalIpCount;
 
-    @Schema(description = "总攻击次数")
+    @Schema(description = "总攻击次数（启动或清空以来累计）")
     private Long totalAttackCount;
 
+    @Schema(description = "近1小时攻击次数")
+    private Long lastHourCount;
+
+    @Schema(description = "近1分钟攻击次数")
+    private Long lastMinuteCount;
+
+    @Schema(description = "近10分钟攻击次数")
+    private Long last10MinutesCount;
+
     @Schema(description = "TOP攻击者列表")
     private List<AttackRecord> topAttackers;
 
@@ -38,5 +47,14 @@ public class AttackStatsDTO {
 
         @Schema(description = "攻击次数")
         private Long count;
+
+        @Schema(description = "近1分钟攻击次数")
+        private Long lastMinute;
+
+        @Schema(description = "近10分钟攻击次数")
+        private Long last10Minutes;
+
+        @Schema(description = "近1小时攻击次数")
+        private Long lastHour;
     }
 }
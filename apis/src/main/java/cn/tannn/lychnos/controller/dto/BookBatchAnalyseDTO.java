@@ -0,0 +1,28 @@
+package cn.tannn.lychnos.controller.dto;
+
+import cn.tannn.lychnos.controller.vo.BookExtractVO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 批量分析书籍请求
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/3
+ */
+@Getter
+@Setter
+@ToString
+@Schema(description = "批量分析书籍请求")
+public class BookBatchAnalyseDTO {
+    /**
+     * 书单（书名 + 作者），重复书名只分析一次
+     */
+    @Schema(description = "书单（书名 + 作者），重复书名只分析一次", requiredMode = Schema.RequiredMode.REQUIRED)
+    private List<BookExtractVO> books;
+}
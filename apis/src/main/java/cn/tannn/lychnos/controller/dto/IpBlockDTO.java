@@ -0,0 +1,34 @@
+package cn.tannn.lychnos.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * IP 黑名单添加DTO
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/14
+ */
+@Data
+@Schema(description = "IP黑名单添加DTO")
+public class IpBlockDTO {
+
+    /**
+     * 网段或单个 IP
+     */
+    @Schema(description = "网段或单个IP，如 1.2.3.4、10.0.0.0/8、2001:db8::/32", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String cidr;
+
+    /**
+     * 原因
+     */
+    @Schema(description = "原因")
+    private String reason;
+
+    /**
+     * 有效期（分钟），为空表示永久
+     */
+    @Schema(description = "有效期（分钟），为空表示永久")
+    private Long ttlMinutes;
+}
@@ -0,0 +1,28 @@
+package cn.tannn.lychnos.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 预热书单新增
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@Getter
+@Setter
+@ToString
+@Schema(description = "预热书单新增")
+public class PrewarmSeedDTO {
+
+    @Schema(description = "书名", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotBlank(message = "书名不能为空")
+    private String title;
+
+    @Schema(description = "作者")
+    private String author;
+}
@@ -29,15 +29,15 @@ public class UserAnalysisLogQueryDTO {
     private LocalDateTime endTime;
 
     /**
-     * 用户名（支持模糊查询和精确查询）
+     * 用户名（支持前缀匹配和精确匹配）
      */
     @Schema(description = "用户名")
     private String userName;
 
     /**
-     * 是否精确匹配用户名（true-精确匹配，false-模糊匹配）
+     * 是否精确匹配用户名（true-精确匹配，false-前缀匹配）
      */
-    @Schema(description = "是否精确匹配用户名")
+    @Schema(description = "是否精确匹配用户名（true-精确匹配，false-前缀匹配）")
     private Boolean exactMatch;
 
     /**
@@ -45,4 +45,16 @@ public class UserAnalysisLogQueryDTO {
      */
     @Schema(description = "模型来源：0-官方/1-私人/2-公开")
     private Integer modelSource;
+
+    /**
+     * 游标（上一页返回的 nextCursor，为空时查询第一页）
+     */
+    @Schema(description = "游标（上一页返回的 nextCursor，为空时查询第一页）")
+    private String cursor;
+
+    /**
+     * 每页条数，默认20，最大200
+     */
+    @Schema(description = "每页条数，默认20，最大200")
+    private Integer size;
 }
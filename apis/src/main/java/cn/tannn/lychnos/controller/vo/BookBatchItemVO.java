@@ -0,0 +1,72 @@
+package cn.tannn.lychnos.controller.vo;
+
+import cn.tannn.lychnos.common.constant.BatchItemStatus;
+import cn.tannn.lychnos.entity.BookAnalyse;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 批量分析条目进度/结果
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/3
+ */
+@Getter
+@Setter
+@ToString
+@Schema(description = "批量分析条目进度/结果")
+public class BookBatchItemVO {
+    /**
+     * 条目在（去重后）书单中的序号，从 0 开始
+     */
+    @Schema(description = "条目在（去重后）书单中的序号，从 0 开始")
+    private Integer index;
+
+    /**
+     * 书名
+     */
+    @Schema(description = "书名")
+    private String title;
+
+    /**
+     * 状态
+     */
+    @Schema(description = "状态")
+    private BatchItemStatus status;
+
+    /**
+     * 失败原因
+     */
+    @Schema(description = "失败原因")
+    private String message;
+
+    /**
+     * 分析结果（EXISTING / DONE 时有值）
+     */
+    @Schema(description = "分析结果（EXISTING / DONE 时有值）")
+    private BookAnalyse data;
+
+    /**
+     * 已完成条目数
+     */
+    @Schema(description = "已完成条目数")
+    private Integer completed;
+
+    /**
+     * 条目总数
+     */
+    @Schema(description = "条目总数")
+    private Integer total;
+
+    public BookBatchItemVO() {
+    }
+
+    public BookBatchItemVO(Integer index, String title, BatchItemStatus status) {
+        this.index = index;
+        this.title = title;
+        this.status = status;
+    }
+}
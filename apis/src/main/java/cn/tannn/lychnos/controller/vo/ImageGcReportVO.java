@@ -0,0 +1,95 @@
+package cn.tannn.lychnos.controller.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 图片回收报告（含存储用量统计）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/10
+ */
+@Getter
+@Setter
+@ToString
+@Schema(description = "图片回收报告")
+public class ImageGcReportVO {
+
+    @Schema(description = "是否正在执行")
+    private Boolean running;
+
+    @Schema(description = "是否只统计不隔离")
+    private Boolean dryRun;
+
+    @Schema(description = "开始时间")
+    private LocalDateTime startTime;
+
+    @Schema(description = "结束时间")
+    private LocalDateTime endTime;
+
+    @Schema(description = "被引用的海报地址数")
+    private Long referenced;
+
+    @Schema(description = "扫描的文件数")
+    private Long scannedFiles;
+
+    @Schema(description = "扫描的字节数")
+    private Long scannedBytes;
+
+    @Schema(description = "未被引用的文件数")
+    private Long orphanFiles;
+
+    @Schema(description = "未被引用的字节数")
+    private Long orphanBytes;
+
+    @Schema(description = "本轮隔离的文件数")
+    private Long quarantinedFiles;
+
+    @Schema(description = "隔离期内重新被引用而恢复的文件数")
+    private Long restoredFiles;
+
+    @Schema(description = "超过隔离期被删除的文件数")
+    private Long deletedFiles;
+
+    @Schema(description = "删除释放的字节数")
+    private Long deletedBytes;
+
+    @Schema(description = "处理失败数")
+    private Long failed;
+
+    @Schema(description = "打包存储中未被引用的字节数（pack 不可修改，仅统计）")
+    private Long packedOrphanBytes;
+
+    @Schema(description = "按文件修改日期统计的用量（yyyy-MM-dd -> 用量）")
+    private Map<String, Usage> usageByDay;
+
+    @Schema(description = "按文件大小区间统计的用量")
+    private Map<String, Usage> usageBySize;
+
+    /**
+     * 用量
+     */
+    @Getter
+    @Setter
+    @ToString
+    @Schema(description = "用量")
+    public static class Usage {
+
+        @Schema(description = "文件数")
+        private Long files;
+
+        @Schema(description = "字节数")
+        private Long bytes;
+
+        public Usage(Long files, Long bytes) {
+            this.files = files;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package cn.tannn.lychnos.controller.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图片存储迁移报告
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+@Getter
+@Setter
+@ToString
+@Schema(description = "图片存储迁移报告")
+public class ImageMigrationReportVO {
+
+    @Schema(description = "是否正在执行")
+    private Boolean running;
+
+    @Schema(description = "开始时间")
+    private LocalDateTime startTime;
+
+    @Schema(description = "结束时间")
+    private LocalDateTime endTime;
+
+    @Schema(description = "扫描到的旧版文件数")
+    private Long scanned;
+
+    @Schema(description = "迁移成功数")
+    private Long migrated;
+
+    @Schema(description = "内容重复（已存在相同文件）数")
+    private Long duplicates;
+
+    @Schema(description = "迁移失败数")
+    private Long failed;
+
+    @Schema(description = "更新的书籍海报地址数")
+    private Long updatedPosters;
+
+    @Schema(description = "去重节省的字节数")
+    private Long savedBytes;
+}
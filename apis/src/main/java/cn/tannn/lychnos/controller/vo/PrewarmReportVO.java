@@ -0,0 +1,56 @@
+package cn.tannn.lychnos.controller.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * 书籍预热报告
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@Getter
+@Setter
+@ToString
+@Schema(description = "书籍预热报告")
+public class PrewarmReportVO {
+
+    @Schema(description = "统计天数")
+    private Integer days;
+
+    @Schema(description = "预热成功书籍数")
+    private Long prewarmed;
+
+    @Schema(description = "预热失败书籍数")
+    private Long failed;
+
+    @Schema(description = "消耗的Token数")
+    private Long tokensUsed;
+
+    @Schema(description = "生成的图片数")
+    private Long imagesUsed;
+
+    @Schema(description = "命中请求数（预热后用户请求直接使用已有数据的次数）")
+    private Long hitRequests;
+
+    @Schema(description = "命中书籍数（预热后至少被请求过一次的书籍数）")
+    private Long hitBooks;
+
+    @Schema(description = "今日已消耗Token数")
+    private Long todayTokensUsed;
+
+    @Schema(description = "今日已生成图片数")
+    private Long todayImagesUsed;
+
+    @Schema(description = "每日Token预算")
+    private Long dailyTokenBudget;
+
+    @Schema(description = "每日图片预算")
+    private Long dailyImageBudget;
+
+    @Schema(description = "是否正在执行")
+    private Boolean running;
+}
@@ -0,0 +1,35 @@
+package cn.tannn.lychnos.controller.vo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 用户分析日志游标分页结果
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/21
+ */
+@ToString
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "用户分析日志游标分页结果")
+public class UserAnalysisLogPageVO {
+
+    @Schema(description = "日志记录（按调用时间倒序）")
+    private List<UserAnalysisLogVO> rows;
+
+    @Schema(description = "下一页游标，查询下一页时原样传回；没有更多数据时为空")
+    private String nextCursor;
+
+    @Schema(description = "是否还有更多数据")
+    private boolean hasMore;
+}
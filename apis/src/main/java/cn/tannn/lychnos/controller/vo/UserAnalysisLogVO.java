@@ -4,93 +4,87 @@ import cn.tannn.lychnos.common.constant.ModelType;
 import cn.tannn.lychnos.common.constant.UsageType;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 /**
- * 用户分析日志VO - JPA Projection接口
+ * 用户分析日志VO
  *
  * @author <a href="https://t.tannn.cn/">tan</a>
  * @version V1.0
  * @date 2026/1/23
  */
-public interface UserAnalysisLogVO {
+@ToString
+@Getter
+@Setter
+@Schema(description = "用户分析日志VO")
+public class UserAnalysisLogVO {
 
-    /**
-     * 调用时间（createTime）
-     */
-    LocalDateTime getCreateTime();
+    @Schema(description = "日志ID")
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long id;
 
-    /**
-     * 用户名
-     */
-    String getUserName();
+    @Schema(description = "调用时间")
+    private LocalDateTime createTime;
 
-    /**
-     * 调用IP
-     */
-    String getCallIp();
+    @Schema(description = "用户名")
+    private String userName;
+
+    @Schema(description = "调用IP")
+    private String callIp;
 
     /**
      * 模型ID（作为tip显示）
      */
+    @Schema(description = "模型ID")
     @JsonSerialize(using = ToStringSerializer.class)
-    Long getModelId();
+    private Long modelId;
 
-    /**
-     * 模型名称
-     */
-    String getModelName();
+    @Schema(description = "模型名称")
+    private String modelName;
 
-    /**
-     * 模型类型
-     */
-    ModelType getModelType();
+    @Schema(description = "模型类型")
+    private ModelType modelType;
 
-    /**
-     * 模型来源：0-官方/1-私人/2-公开
-     */
-    Integer getModelSource();
+    @Schema(description = "模型来源：0-官方/1-私人/2-公开")
+    private Integer modelSource;
 
-    /**
-     * 用途类型
-     */
-    UsageType getUsageType();
+    @Schema(description = "用途类型")
+    private UsageType usageType;
 
-    /**
-     * 书籍标题
-     */
-    String getBookTitle();
+    @Schema(description = "书籍标题")
+    private String bookTitle;
 
-    /**
-     * 书籍分析ID
-     */
+    @Schema(description = "书籍分析ID")
     @JsonSerialize(using = ToStringSerializer.class)
-    Long getBookAnalyseId();
+    private Long bookAnalyseId;
 
-    /**
-     * 是否成功
-     */
-    Boolean getSuccess();
+    @Schema(description = "是否成功")
+    private Boolean success;
 
-    /**
-     * 错误信息
-     */
-    String getErrorMessage();
+    @Schema(description = "错误信息")
+    private String errorMessage;
 
-    /**
-     * 是否使用已有数据
-     */
-    Boolean getUseExistingData();
+    @Schema(description = "是否使用已有数据")
+    private Boolean useExistingData;
+
+    @Schema(description = "耗时（毫秒）")
+    private Long latencyMs;
 
     /**
      * 用户ID（作为tip显示）
      */
+    @Schema(description = "用户ID")
     @JsonSerialize(using = ToStringSerializer.class)
-    Long getUserId();
+    private Long userId;
 
     /**
      * 模型厂商（作为tip显示）
      */
-    String getModelVendor();
+    @Schema(description = "模型厂商")
+    private String modelVendor;
 }
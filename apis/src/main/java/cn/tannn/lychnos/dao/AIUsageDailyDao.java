@@ -0,0 +1,65 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.AIUsageDaily;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * AI 用量日汇总
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/17
+ */
+public interface AIUsageDailyDao extends JpaBasicsRepository<AIUsageDaily, Long> {
+
+    /**
+     * 累加用量（不存在时插入），多节点并发写入同一行时由数据库保证累加正确
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query(nativeQuery = true, value = """
+            insert into tb_ai_usage_daily (usage_date, user_id, model_id, model_type, official,
+                                           calls, prompt_tokens, completion_tokens, images, update_time)
+            values (:usageDate, :userId, :modelId, :modelType, :official,
+                    :calls, :promptTokens, :completionTokens, :images, now())
+            on duplicate key update calls = calls + values(calls),
+                                    prompt_tokens = prompt_tokens + values(prompt_tokens),
+                                    completion_tokens = completion_tokens + values(completion_tokens),
+                                    images = images + values(images),
+                                    update_time = now()
+            """)
+    int accumulate(@Param("usageDate") LocalDate usageDate,
+                   @Param("userId") Long userId,
+                   @Param("modelId") Long modelId,
+                   @Param("modelType") String modelType,
+                   @Param("official") boolean official,
+                   @Param("calls") long calls,
+                   @Param("promptTokens") long promptTokens,
+                   @Param("completionTokens") long completionTokens,
+                   @Param("images") long images);
+
+    /**
+     * 当日官方模型按用户汇总的用量
+     *
+     * @param usageDate 日期
+     * @return [userId, tokens, images]
+     */
+    @Query("select u.userId, sum(u.promptTokens + u.completionTokens), sum(u.images) from AIUsageDaily u " +
+           "where u.usageDate = :usageDate and u.official = true group by u.userId")
+    List<Object[]> sumOfficialByUser(@Param("usageDate") LocalDate usageDate);
+
+    /**
+     * 查询某天的用量
+     *
+     * @param usageDate 日期
+     * @return 用量记录
+     */
+    List<AIUsageDaily> findByUsageDateOrderByUserIdAsc(LocalDate usageDate);
+}
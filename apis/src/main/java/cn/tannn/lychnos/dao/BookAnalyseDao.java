@@ -2,7 +2,13 @@ package cn.tannn.lychnos.dao;
 
 import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
 import cn.tannn.lychnos.entity.BookAnalyse;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -22,5 +28,29 @@ public interface BookAnalyseDao  extends JpaBasicsRepository<BookAnalyse, Long>
      */
     Optional<BookAnalyse> findByTitle(String bookTitle);
 
+    /**
+     * 根据书名批量查询书籍分析（单条 IN 查询，走 idx_title）
+     * @param titles 书名集合
+     * @return 已经分析的书籍
+     */
+    List<BookAnalyse> findByTitleIn(Collection<String> titles);
+
+    /**
+     * 替换海报地址（图片存储迁移使用）
+     * @param oldUrl 原 posterUrl
+     * @param newUrl 新 posterUrl
+     * @return 更新行数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("update BookAnalyse b set b.posterUrl = :newUrl where b.posterUrl = :oldUrl")
+    int replacePosterUrl(@Param("oldUrl") String oldUrl, @Param("newUrl") String newUrl);
+
+    /**
+     * 海报地址是否被引用（图片回收复核使用）
+     * @param posterUrls 候选 posterUrl（带协议和不带协议的写法）
+     * @return 是否存在
+     */
+    boolean existsByPosterUrlIn(Collection<String> posterUrls);
 
 }
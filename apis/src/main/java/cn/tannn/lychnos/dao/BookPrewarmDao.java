@@ -0,0 +1,77 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.BookPrewarm;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 书籍预热记录
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+public interface BookPrewarmDao extends JpaBasicsRepository<BookPrewarm, Long> {
+
+    /**
+     * 统计指定时间之后消耗的 Token 数（预算控制）
+     * @param since 开始时间
+     * @return Token 数
+     */
+    @Query("SELECT COALESCE(SUM(p.tokens), 0) FROM BookPrewarm p WHERE p.createTime >= :since")
+    long sumTokensSince(@Param("since") LocalDateTime since);
+
+    /**
+     * 统计指定时间之后生成的图片数（预算控制）
+     * @param since 开始时间
+     * @return 图片数
+     */
+    @Query("SELECT COALESCE(SUM(p.images), 0) FROM BookPrewarm p WHERE p.createTime >= :since")
+    long sumImagesSince(@Param("since") LocalDateTime since);
+
+    /**
+     * 指定时间之后已尝试过的书名（失败的书籍不在同一窗口反复重试）
+     * @param titles 书名
+     * @param since 开始时间
+     * @return 书名
+     */
+    @Query("SELECT DISTINCT p.title FROM BookPrewarm p WHERE p.title IN :titles AND p.createTime >= :since")
+    List<String> findAttemptedTitles(@Param("titles") Collection<String> titles,
+                                     @Param("since") LocalDateTime since);
+
+    /**
+     * 预热汇总：[成功数, 失败数, Token 数, 图片数]
+     * @param since 开始时间
+     * @return 汇总
+     */
+    @Query("""
+        SELECT SUM(CASE WHEN p.success = true THEN 1 ELSE 0 END),
+               SUM(CASE WHEN p.success = true THEN 0 ELSE 1 END),
+               COALESCE(SUM(p.tokens), 0),
+               COALESCE(SUM(p.images), 0)
+          FROM BookPrewarm p
+         WHERE p.createTime >= :since
+                """)
+    List<Object[]> summarySince(@Param("since") LocalDateTime since);
+
+    /**
+     * 预热命中：预热成功之后，用户请求直接使用了已有数据的次数和书籍数 [请求数, 书籍数]
+     * @param since 预热开始时间
+     * @return 命中统计
+     */
+    @Query("""
+        SELECT COUNT(l.id), COUNT(DISTINCT l.bookTitle)
+          FROM UserAnalysisLog l, BookPrewarm p
+         WHERE p.success = true
+           AND p.createTime >= :since
+           AND l.bookTitle = p.title
+           AND l.useExistingData = true
+           AND l.createTime > p.createTime
+                """)
+    List<Object[]> cacheHitsSince(@Param("since") LocalDateTime since);
+}
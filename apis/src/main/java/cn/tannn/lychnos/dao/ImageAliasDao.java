@@ -0,0 +1,31 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.ImageAlias;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 旧版图片路径别名
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+public interface ImageAliasDao extends JpaBasicsRepository<ImageAlias, Long> {
+
+    /**
+     * 根据旧版路径查询
+     * @param legacyPath 旧版路径（/yyyyMMdd/书名.png）
+     * @return ImageAlias
+     */
+    Optional<ImageAlias> findByLegacyPath(String legacyPath);
+
+    /**
+     * 查询指向某个内容的全部旧版路径
+     * @param hash SHA-256
+     * @return ImageAlias
+     */
+    List<ImageAlias> findByHash(String hash);
+}
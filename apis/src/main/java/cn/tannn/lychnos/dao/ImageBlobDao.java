@@ -0,0 +1,78 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.ImageBlob;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * 图片内容
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+public interface ImageBlobDao extends JpaBasicsRepository<ImageBlob, Long> {
+
+    /**
+     * 根据内容哈希查询
+     * @param hash SHA-256
+     * @return ImageBlob
+     */
+    Optional<ImageBlob> findByHash(String hash);
+
+    /**
+     * 调整引用次数（单条 UPDATE，并发安全）
+     * @param hash  SHA-256
+     * @param delta 增量（可为负）
+     * @return 更新行数，0 表示记录不存在
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("""
+            update ImageBlob b set b.refCount = b.refCount + :delta
+            where b.hash = :hash
+            """)
+    int addRefCount(@Param("hash") String hash, @Param("delta") int delta);
+
+    /**
+     * 增加引用次数并刷新最近引用时间
+     * @param hash  SHA-256
+     * @param count 增加的引用数
+     * @param now   当前时间
+     * @return 更新行数，0 表示记录不存在
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("""
+            update ImageBlob b set b.refCount = b.refCount + :count, b.lastReferencedAt = :now
+            where b.hash = :hash
+            """)
+    int addReference(@Param("hash") String hash, @Param("count") int count, @Param("now") LocalDateTime now);
+
+    /**
+     * 刷新最近引用时间（相同内容再次保存时调用）
+     * @param hash SHA-256
+     * @param now  当前时间
+     * @return 更新行数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("update ImageBlob b set b.lastReferencedAt = :now where b.hash = :hash")
+    int touch(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    /**
+     * 删除内容记录（文件被回收后调用）
+     * @param hash SHA-256
+     * @return 删除行数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("delete from ImageBlob b where b.hash = :hash")
+    int deleteByHash(@Param("hash") String hash);
+}
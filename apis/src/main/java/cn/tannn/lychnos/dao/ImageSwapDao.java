@@ -0,0 +1,23 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.ImageSwap;
+
+import java.util.Optional;
+
+/**
+ * 待切换的海报地址
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/23
+ */
+public interface ImageSwapDao extends JpaBasicsRepository<ImageSwap, Long> {
+
+    /**
+     * 根据原海报地址查询
+     * @param posterUrl 原海报地址
+     * @return ImageSwap
+     */
+    Optional<ImageSwap> findByPosterUrl(String posterUrl);
+}
@@ -0,0 +1,51 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.IpBlock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * IP 黑名单
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/14
+ */
+public interface IpBlockDao extends JpaBasicsRepository<IpBlock, Long> {
+
+    /**
+     * 根据网段查询
+     *
+     * @param cidr 规范化后的网段
+     * @return 黑名单记录
+     */
+    Optional<IpBlock> findByCidr(String cidr);
+
+    /**
+     * 删除网段
+     *
+     * @param cidr 规范化后的网段
+     * @return 删除条数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("delete from IpBlock b where b.cidr = :cidr")
+    int deleteByCidr(@Param("cidr") String cidr);
+
+    /**
+     * 删除已过期的记录
+     *
+     * @param time 当前时间
+     * @return 删除条数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("delete from IpBlock b where b.expireTime is not null and b.expireTime < :time")
+    int deleteExpired(@Param("time") LocalDateTime time);
+}
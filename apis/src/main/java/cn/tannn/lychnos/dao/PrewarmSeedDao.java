@@ -0,0 +1,31 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.PrewarmSeed;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 预热书单
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+public interface PrewarmSeedDao extends JpaBasicsRepository<PrewarmSeed, Long> {
+
+    /**
+     * 根据书名查询
+     * @param title 书名
+     * @return PrewarmSeed
+     */
+    Optional<PrewarmSeed> findByTitle(String title);
+
+    /**
+     * 查询启用的预热书单（先加入的优先）
+     * @param enabled 是否启用
+     * @return PrewarmSeed
+     */
+    List<PrewarmSeed> findByEnabledOrderByCreateTimeAsc(Boolean enabled);
+}
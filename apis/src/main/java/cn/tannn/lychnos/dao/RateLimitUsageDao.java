@@ -0,0 +1,49 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.RateLimitUsage;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 限流令牌消耗记录
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/16
+ */
+public interface RateLimitUsageDao extends JpaBasicsRepository<RateLimitUsage, Long> {
+
+    /**
+     * 当前最大版本号
+     *
+     * @return 没有记录时返回 0
+     */
+    @Query("select coalesce(max(u.version), 0) from RateLimitUsage u")
+    long maxVersion();
+
+    /**
+     * 查询指定版本号之后其他节点的消耗（按版本号升序）
+     *
+     * @param version 版本号
+     * @param nodeId  本节点标识
+     * @return 消耗记录
+     */
+    List<RateLimitUsage> findByVersionGreaterThanAndNodeIdNotOrderByVersionAsc(Long version, String nodeId);
+
+    /**
+     * 删除过期的消耗记录
+     *
+     * @param time 截止时间
+     * @return 删除条数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("delete from RateLimitUsage u where u.createTime < :time")
+    int deleteByCreateTimeBefore(@Param("time") LocalDateTime time);
+}
@@ -0,0 +1,63 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.UsageRollupFlush;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * AI 调用汇总写入记录
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/23
+ */
+public interface UsageRollupFlushDao extends JpaBasicsRepository<UsageRollupFlush, Long> {
+
+    /**
+     * 写入记录，已存在时忽略
+     *
+     * @param nodeId     节点标识
+     * @param flushSeq   批次序号
+     * @param bucketDate 日期
+     * @return 1 表示新写入，0 表示已存在
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query(nativeQuery = true, value = """
+            insert ignore into tb_usage_rollup_flush (node_id, flush_seq, bucket_date, create_time)
+            values (:nodeId, :flushSeq, :bucketDate, now())
+            """)
+    int insertIgnore(@Param("nodeId") String nodeId, @Param("flushSeq") long flushSeq,
+                     @Param("bucketDate") LocalDate bucketDate);
+
+    /**
+     * 加共享锁查询记录是否存在（在写入增量的事务中调用，与重建时写入记录的事务互斥）
+     *
+     * @param nodeId   节点标识
+     * @param flushSeq 批次序号
+     * @return 记录数
+     */
+    @Query(nativeQuery = true, value = """
+            select count(*) from tb_usage_rollup_flush
+            where node_id = :nodeId and flush_seq = :flushSeq lock in share mode
+            """)
+    long countForShare(@Param("nodeId") String nodeId, @Param("flushSeq") long flushSeq);
+
+    /**
+     * 删除过期的节点写入记录（保留重建记录）
+     *
+     * @param rebuildNodeId 重建记录的节点标识
+     * @param time          截止时间
+     * @return 删除条数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("delete from UsageRollupFlush f where f.nodeId <> :rebuildNodeId and f.createTime < :time")
+    int deleteNodeRecordsBefore(@Param("rebuildNodeId") String rebuildNodeId, @Param("time") LocalDateTime time);
+}
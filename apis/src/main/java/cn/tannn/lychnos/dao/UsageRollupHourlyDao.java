@@ -0,0 +1,120 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.UsageRollupHourly;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * AI 调用小时汇总
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/22
+ */
+public interface UsageRollupHourlyDao extends JpaBasicsRepository<UsageRollupHourly, Long> {
+
+    /**
+     * 累加增量（不存在时插入），多节点并发写入同一行时由数据库保证累加正确
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query(nativeQuery = true, value = """
+            insert into tb_usage_rollup_hourly (bucket_time, model_id, model_name, model_vendor, usage_type, model_source,
+                   calls, successes, failures, latency_count, latency_sum_ms, latency_max_ms,
+                   latency_le1s, latency_le5s, latency_le15s, latency_le30s, latency_le60s, latency_gt60s, update_time)
+            values (:bucket, :modelId, :modelName, :modelVendor, :usageType, :modelSource,
+                    :calls, :successes, :failures, :latencyCount, :latencySumMs, :latencyMaxMs,
+                    :le1s, :le5s, :le15s, :le30s, :le60s, :gt60s, now())
+            on duplicate key update model_name = values(model_name),
+                                    model_vendor = values(model_vendor),
+                                    calls = calls + values(calls),
+                                    successes = successes + values(successes),
+                                    failures = failures + values(failures),
+                                    latency_count = latency_count + values(latency_count),
+                                    latency_sum_ms = latency_sum_ms + values(latency_sum_ms),
+                                    latency_max_ms = greatest(latency_max_ms, values(latency_max_ms)),
+                                    latency_le1s = latency_le1s + values(latency_le1s),
+                                    latency_le5s = latency_le5s + values(latency_le5s),
+                                    latency_le15s = latency_le15s + values(latency_le15s),
+                                    latency_le30s = latency_le30s + values(latency_le30s),
+                                    latency_le60s = latency_le60s + values(latency_le60s),
+                                    latency_gt60s = latency_gt60s + values(latency_gt60s),
+                                    update_time = now()
+            """)
+    int accumulate(@Param("bucket") LocalDateTime bucket,
+                   @Param("modelId") Long modelId,
+                   @Param("modelName") String modelName,
+                   @Param("modelVendor") String modelVendor,
+                   @Param("usageType") String usageType,
+                   @Param("modelSource") int modelSource,
+                   @Param("calls") long calls,
+                   @Param("successes") long successes,
+                   @Param("failures") long failures,
+                   @Param("latencyCount") long latencyCount,
+                   @Param("latencySumMs") long latencySumMs,
+                   @Param("latencyMaxMs") long latencyMaxMs,
+                   @Param("le1s") long le1s,
+                   @Param("le5s") long le5s,
+                   @Param("le15s") long le15s,
+                   @Param("le30s") long le30s,
+                   @Param("le60s") long le60s,
+                   @Param("gt60s") long gt60s);
+
+    /**
+     * 查询时间范围内的汇总
+     *
+     * @param from 开始（包含）
+     * @param to   结束（包含）
+     * @return 汇总记录
+     */
+    List<UsageRollupHourly> findByBucketTimeBetweenOrderByBucketTimeAscModelIdAsc(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * 删除时间范围内的汇总（从日志重建前调用）
+     *
+     * @param from 开始（包含）
+     * @param to   结束（包含）
+     * @return 删除条数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("delete from UsageRollupHourly r where r.bucketTime between :from and :to")
+    int deleteByBucket(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 从用户分析日志重建 [from, to) 时间段内的汇总（不含直接使用已有数据、没有模型的记录）
+     * <p>空值的处理与实时汇总一致：use_existing_data 为空计入，success 为空算成功，latency_ms 为空或负数不计入耗时</p>
+     *
+     * @param from 开始时间（包含）
+     * @param to   结束时间（不包含）
+     * @return 写入条数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query(nativeQuery = true, value = """
+            insert into tb_usage_rollup_hourly (bucket_time, model_id, model_name, model_vendor, usage_type, model_source,
+                   calls, successes, failures, latency_count, latency_sum_ms, latency_max_ms,
+                   latency_le1s, latency_le5s, latency_le15s, latency_le30s, latency_le60s, latency_gt60s, update_time)
+            select date_format(create_time, '%Y-%m-%d %H:00:00'), model_id, max(model_name), max(model_vendor), usage_type, coalesce(model_source, -1),
+                   count(*), coalesce(sum(coalesce(success, true) = true), 0), coalesce(sum(success = false), 0),
+                   coalesce(sum(latency_ms >= 0), 0), coalesce(sum(if(latency_ms >= 0, latency_ms, 0)), 0),
+                   coalesce(max(if(latency_ms >= 0, latency_ms, null)), 0),
+                   coalesce(sum(latency_ms >= 0 and latency_ms <= 1000), 0),
+                   coalesce(sum(latency_ms > 1000 and latency_ms <= 5000), 0),
+                   coalesce(sum(latency_ms > 5000 and latency_ms <= 15000), 0),
+                   coalesce(sum(latency_ms > 15000 and latency_ms <= 30000), 0),
+                   coalesce(sum(latency_ms > 30000 and latency_ms <= 60000), 0),
+                   coalesce(sum(latency_ms > 60000), 0), now()
+            from tb_user_analysis_log
+            where create_time >= :from and create_time < :to
+              and model_id is not null and usage_type is not null and coalesce(use_existing_data, false) = false
+            group by date_format(create_time, '%Y-%m-%d %H:00:00'), model_id, usage_type, coalesce(model_source, -1)
+            """)
+    int rebuildFromLogs(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -3,6 +3,7 @@ package cn.tannn.lychnos.dao;
 import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
 import cn.tannn.lychnos.entity.UserInfo;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -37,4 +38,12 @@ public interface UserInfoDao extends JpaBasicsRepository<UserInfo,Long> {
      * @return 用户列表
      */
     List<UserInfo> findByStatus(Integer status);
+
+    /**
+     * 根据用户状态只查询用户ID（不加载实体）
+     * @param status 用户状态
+     * @return 用户ID列表
+     */
+    @Query("select u.id from UserInfo u where u.status = :status")
+    List<Long> findIdsByStatus(Integer status);
 }
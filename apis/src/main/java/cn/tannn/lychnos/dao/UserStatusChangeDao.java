@@ -0,0 +1,48 @@
+package cn.tannn.lychnos.dao;
+
+import cn.tannn.jdevelops.jpa.repository.JpaBasicsRepository;
+import cn.tannn.lychnos.entity.UserStatusChange;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 用户状态变更记录
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/13
+ */
+public interface UserStatusChangeDao extends JpaBasicsRepository<UserStatusChange, Long> {
+
+    /**
+     * 当前最大版本号
+     *
+     * @return 没有记录时返回 0
+     */
+    @Query("select coalesce(max(c.version), 0) from UserStatusChange c")
+    long maxVersion();
+
+    /**
+     * 查询指定版本号之后的变更（按版本号升序）
+     *
+     * @param version 版本号
+     * @return 变更记录
+     */
+    List<UserStatusChange> findByVersionGreaterThanOrderByVersionAsc(Long version);
+
+    /**
+     * 删除过期的变更记录
+     *
+     * @param time 截止时间
+     * @return 删除条数
+     */
+    @Modifying
+    @Transactional(rollbackFor = Exception.class)
+    @Query("delete from UserStatusChange c where c.createTime < :time")
+    int deleteByCreateTimeBefore(@Param("time") LocalDateTime time);
+}
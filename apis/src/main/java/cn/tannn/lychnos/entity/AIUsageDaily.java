@@ -0,0 +1,109 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.constant.ModelType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * AI 用量日汇总（按 日期 + 用户 + 模型 累加，各节点定时把内存中的增量写入）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/17
+ */
+@Entity
+@Table(name = "tb_ai_usage_daily",
+        indexes = {
+                @Index(name = "uk_date_user_model", columnList = "usageDate,userId,modelId", unique = true),
+                @Index(name = "idx_date_official", columnList = "usageDate,official")
+        }
+)
+@Comment("AI用量日汇总")
+@Getter
+@Setter
+@ToString
+@Schema(description = "AI用量日汇总")
+public class AIUsageDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "bigint")
+    @Comment("主键")
+    @Schema(description = "主键")
+    private Long id;
+
+    /**
+     * 日期
+     */
+    @Column(columnDefinition = " date not null ")
+    @Comment("日期")
+    @Schema(description = "日期")
+    private LocalDate usageDate;
+
+    /**
+     * 调用者，系统任务（如书籍预热）为 0
+     */
+    @Column(columnDefinition = " bigint not null ")
+    @Comment("用户ID")
+    @Schema(description = "用户ID，系统任务为 0")
+    private Long userId;
+
+    /**
+     * 模型ID
+     */
+    @Column(columnDefinition = " bigint not null ")
+    @Comment("模型ID")
+    @Schema(description = "模型ID")
+    private Long modelId;
+
+    /**
+     * 模型类型
+     */
+    @Column(columnDefinition = " varchar(20) not null ")
+    @Enumerated(EnumType.STRING)
+    @Comment("模型类型")
+    @Schema(description = "模型类型")
+    private ModelType modelType;
+
+    /**
+     * 是否官方模型（由平台付费）
+     */
+    @Column(columnDefinition = " bit not null ")
+    @Comment("是否官方模型")
+    @Schema(description = "是否官方模型")
+    private Boolean official;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("调用次数")
+    @Schema(description = "调用次数")
+    private Long calls;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("输入Token数")
+    @Schema(description = "输入Token数")
+    private Long promptTokens;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("输出Token数")
+    @Schema(description = "输出Token数")
+    private Long completionTokens;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("生成图片数")
+    @Schema(description = "生成图片数")
+    private Long images;
+
+    @Column(columnDefinition = "timestamp")
+    @Comment("更新时间")
+    @Schema(description = "更新时间")
+    private LocalDateTime updateTime;
+}
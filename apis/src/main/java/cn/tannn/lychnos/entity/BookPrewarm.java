@@ -0,0 +1,102 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.constant.PrewarmSource;
+import cn.tannn.lychnos.common.pojo.JpaCommonBean;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Comment;
+import org.hibernate.annotations.DynamicInsert;
+import org.hibernate.annotations.DynamicUpdate;
+
+/**
+ * 书籍预热记录（每次预分析一条，用于预算控制和命中统计）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@Entity
+@Table(name = "tb_book_prewarm",
+        indexes = {
+                @Index(name = "idx_title", columnList = "title"),
+                @Index(name = "idx_create_time", columnList = "createTime")
+        }
+)
+@Comment("书籍预热记录")
+@Getter
+@Setter
+@ToString
+@DynamicUpdate
+@DynamicInsert
+@Schema(description = "书籍预热记录")
+public class BookPrewarm extends JpaCommonBean<BookPrewarm> {
+
+    /**
+     * 书名
+     */
+    @Column(columnDefinition = " varchar(500) not null ")
+    @Comment("书名")
+    @Schema(description = "书名")
+    private String title;
+
+    /**
+     * 作者
+     */
+    @Column(columnDefinition = " varchar(200) ")
+    @Comment("作者")
+    @Schema(description = "作者")
+    private String author;
+
+    /**
+     * 候选来源
+     */
+    @Column(columnDefinition = "varchar(20) not null")
+    @Comment("候选来源：ADMIN/EXTRACT_LOG/SIMILAR")
+    @Schema(description = "候选来源")
+    @Enumerated(EnumType.STRING)
+    private PrewarmSource source;
+
+    /**
+     * 书籍分析ID
+     */
+    @Column(columnDefinition = "bigint")
+    @Comment("书籍分析ID")
+    @Schema(description = "书籍分析ID")
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long bookAnalyseId;
+
+    /**
+     * 消耗的 Token 数
+     */
+    @Column(columnDefinition = "int")
+    @Comment("消耗的Token数")
+    @Schema(description = "消耗的Token数")
+    @ColumnDefault("0")
+    private Integer tokens;
+
+    /**
+     * 生成的图片数
+     */
+    @Column(columnDefinition = "int")
+    @Comment("生成的图片数")
+    @Schema(description = "生成的图片数")
+    @ColumnDefault("0")
+    private Integer images;
+
+    @Column(columnDefinition = "boolean")
+    @Comment("是否成功")
+    @Schema(description = "是否成功")
+    @ColumnDefault("true")
+    private Boolean success;
+
+    @Column(columnDefinition = "text")
+    @Comment("错误信息")
+    @Schema(description = "错误信息")
+    private String errorMessage;
+}
@@ -0,0 +1,51 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.pojo.JpaCommonBean;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+import org.hibernate.annotations.DynamicInsert;
+import org.hibernate.annotations.DynamicUpdate;
+
+/**
+ * 旧版图片路径别名（/yyyyMMdd/书名.png 迁移到内容寻址后的映射）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+@Entity
+@Table(name = "tb_image_alias",
+        indexes = {
+                @Index(name = "idx_legacy_path", columnList = "legacyPath", unique = true),
+                @Index(name = "idx_hash", columnList = "hash")
+        }
+)
+@Comment("旧版图片路径别名")
+@Getter
+@Setter
+@ToString
+@DynamicUpdate
+@DynamicInsert
+@Schema(description = "旧版图片路径别名")
+public class ImageAlias extends JpaCommonBean<ImageAlias> {
+
+    /**
+     * 旧版路径（/yyyyMMdd/书名.png）
+     */
+    @Column(columnDefinition = " varchar(500) not null ")
+    @Comment("旧版路径")
+    @Schema(description = "旧版路径")
+    private String legacyPath;
+
+    /**
+     * 内容 SHA-256
+     */
+    @Column(columnDefinition = " char(64) not null ")
+    @Comment("内容SHA-256")
+    @Schema(description = "内容SHA-256")
+    private String hash;
+}
@@ -0,0 +1,94 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.pojo.JpaCommonBean;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Comment;
+import org.hibernate.annotations.DynamicInsert;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图片内容（按 SHA-256 内容寻址，相同内容只存一份）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+@Entity
+@Table(name = "tb_image_blob",
+        indexes = {
+                @Index(name = "idx_hash", columnList = "hash", unique = true)
+        }
+)
+@Comment("图片内容")
+@Getter
+@Setter
+@ToString
+@DynamicUpdate
+@DynamicInsert
+@Schema(description = "图片内容")
+public class ImageBlob extends JpaCommonBean<ImageBlob> {
+
+    /**
+     * 内容 SHA-256（小写十六进制）
+     */
+    @Column(columnDefinition = " char(64) not null ")
+    @Comment("内容SHA-256")
+    @Schema(description = "内容SHA-256")
+    private String hash;
+
+    /**
+     * 文件大小（字节）
+     */
+    @Column(columnDefinition = "bigint")
+    @Comment("文件大小（字节）")
+    @Schema(description = "文件大小（字节）")
+    private Long size;
+
+    /**
+     * 引用次数（引用该内容的 posterUrl 数）
+     */
+    @Column(columnDefinition = "int")
+    @Comment("引用次数")
+    @Schema(description = "引用次数")
+    @ColumnDefault("0")
+    private Integer refCount;
+
+    /**
+     * 最近一次被引用或复用的时间（图片回收复核时，近期被引用的内容不回收）
+     */
+    @Column(columnDefinition = " datetime ")
+    @Comment("最近引用时间")
+    @Schema(description = "最近引用时间")
+    private LocalDateTime lastReferencedAt;
+
+    /**
+     * 优化前的大小（重新编码生成的内容才有）
+     */
+    @Column(columnDefinition = "bigint")
+    @Comment("优化前大小（字节）")
+    @Schema(description = "优化前大小（字节）")
+    private Long originalSize;
+
+    /**
+     * 由哪个内容重新编码而来
+     */
+    @Column(columnDefinition = " char(64) ")
+    @Comment("优化来源SHA-256")
+    @Schema(description = "优化来源SHA-256")
+    private String sourceHash;
+
+    /**
+     * 重新编码后的内容（已优化过的原图再次保存时直接复用）
+     */
+    @Column(columnDefinition = " char(64) ")
+    @Comment("优化结果SHA-256")
+    @Schema(description = "优化结果SHA-256")
+    private String optimizedHash;
+}
@@ -0,0 +1,66 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.pojo.JpaCommonBean;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+import org.hibernate.annotations.DynamicInsert;
+import org.hibernate.annotations.DynamicUpdate;
+
+/**
+ * 待切换的海报地址（重新编码完成后，海报地址落库再切换到优化后的内容；持久化保证重启后继续切换）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/23
+ */
+@Entity
+@Table(name = "tb_image_swap",
+        indexes = {
+                @Index(name = "idx_poster_url", columnList = "posterUrl", unique = true)
+        }
+)
+@Comment("待切换的海报地址")
+@Getter
+@Setter
+@ToString
+@DynamicUpdate
+@DynamicInsert
+@Schema(description = "待切换的海报地址")
+public class ImageSwap extends JpaCommonBean<ImageSwap> {
+
+    /**
+     * 原海报地址
+     */
+    @Column(columnDefinition = " varchar(500) not null ")
+    @Comment("原海报地址")
+    @Schema(description = "原海报地址")
+    private String posterUrl;
+
+    /**
+     * 优化后的海报地址
+     */
+    @Column(columnDefinition = " varchar(500) not null ")
+    @Comment("优化后的海报地址")
+    @Schema(description = "优化后的海报地址")
+    private String targetUrl;
+
+    /**
+     * 原图 SHA-256
+     */
+    @Column(columnDefinition = " char(64) not null ")
+    @Comment("原图SHA-256")
+    @Schema(description = "原图SHA-256")
+    private String sourceHash;
+
+    /**
+     * 优化后内容 SHA-256
+     */
+    @Column(columnDefinition = " char(64) not null ")
+    @Comment("优化后SHA-256")
+    @Schema(description = "优化后SHA-256")
+    private String hash;
+}
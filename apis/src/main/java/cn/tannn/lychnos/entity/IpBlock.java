@@ -0,0 +1,71 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.pojo.JpaCommonBean;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+import org.hibernate.annotations.DynamicInsert;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.time.LocalDateTime;
+
+/**
+ * IP 黑名单（单个 IP 或网段）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/14
+ */
+@Entity
+@Table(name = "tb_ip_block",
+        indexes = {
+                @Index(name = "idx_cidr", columnList = "cidr", unique = true),
+                @Index(name = "idx_expire_time", columnList = "expireTime")
+        }
+)
+@Comment("IP黑名单")
+@Getter
+@Setter
+@ToString
+@DynamicUpdate
+@DynamicInsert
+@Schema(description = "IP黑名单")
+public class IpBlock extends JpaCommonBean<IpBlock> {
+
+    /**
+     * 网段（规范化后，如 1.2.3.4/32、10.0.0.0/8、2001:db8::/32）
+     */
+    @Column(columnDefinition = " varchar(64) not null ")
+    @Comment("网段")
+    @Schema(description = "网段")
+    private String cidr;
+
+    /**
+     * 来源：AUTO（攻击统计自动加入）/ ADMIN（管理员添加）
+     */
+    @Column(columnDefinition = " varchar(20) not null ")
+    @Comment("来源")
+    @Schema(description = "来源：AUTO/ADMIN")
+    private String source;
+
+    /**
+     * 原因
+     */
+    @Column(columnDefinition = " varchar(255) ")
+    @Comment("原因")
+    @Schema(description = "原因")
+    private String reason;
+
+    /**
+     * 过期时间，为空表示永久
+     */
+    @Column(columnDefinition = " datetime ")
+    @Comment("过期时间")
+    @Schema(description = "过期时间，为空表示永久")
+    @JsonFormat(locale = "zh", timezone = "GMT+8", pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime expireTime;
+}
@@ -0,0 +1,63 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.pojo.JpaCommonBean;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Comment;
+import org.hibernate.annotations.DynamicInsert;
+import org.hibernate.annotations.DynamicUpdate;
+
+/**
+ * 预热书单（管理员维护，空闲时段优先预分析）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@Entity
+@Table(name = "tb_prewarm_seed",
+        indexes = {
+                @Index(name = "idx_title", columnList = "title", unique = true)
+        }
+)
+@Comment("预热书单")
+@Getter
+@Setter
+@ToString
+@DynamicUpdate
+@DynamicInsert
+@Schema(description = "预热书单")
+public class PrewarmSeed extends JpaCommonBean<PrewarmSeed> {
+
+    /**
+     * 书名
+     */
+    @Column(columnDefinition = " varchar(500) not null ")
+    @Comment("书名")
+    @Schema(description = "书名")
+    private String title;
+
+    /**
+     * 作者
+     */
+    @Column(columnDefinition = " varchar(200) ")
+    @Comment("作者")
+    @Schema(description = "作者")
+    private String author;
+
+    /**
+     * 是否启用
+     */
+    @Column(columnDefinition = "boolean")
+    @Comment("是否启用")
+    @Schema(description = "是否启用")
+    @ColumnDefault("true")
+    private Boolean enabled;
+}
@@ -0,0 +1,80 @@
+package cn.tannn.lychnos.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDateTime;
+
+/**
+ * 限流令牌消耗记录（集群模式下各节点定时写入本节点的消耗，并按版本号轮询扣除其他节点的消耗）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/16
+ */
+@Entity
+@Table(name = "tb_rate_limit_usage",
+        indexes = {
+                @Index(name = "idx_create_time", columnList = "createTime")
+        }
+)
+@Comment("限流令牌消耗记录")
+@Getter
+@Setter
+@ToString
+@Schema(description = "限流令牌消耗记录")
+public class RateLimitUsage {
+
+    /**
+     * 版本号（自增，轮询游标）
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "bigint")
+    @Comment("版本号")
+    @Schema(description = "版本号")
+    private Long version;
+
+    /**
+     * 写入记录的节点
+     */
+    @Column(columnDefinition = " varchar(32) not null ")
+    @Comment("节点标识")
+    @Schema(description = "节点标识")
+    private String nodeId;
+
+    /**
+     * 限流规则，参考 RateLimitRule
+     */
+    @Column(columnDefinition = " varchar(32) not null ")
+    @Comment("限流规则")
+    @Schema(description = "限流规则")
+    private String rule;
+
+    /**
+     * 用户ID
+     */
+    @Column(columnDefinition = " bigint not null ")
+    @Comment("用户ID")
+    @Schema(description = "用户ID")
+    private Long userId;
+
+    /**
+     * 消耗的令牌数
+     */
+    @Column(columnDefinition = " int not null ")
+    @Comment("消耗的令牌数")
+    @Schema(description = "消耗的令牌数")
+    private Integer permits;
+
+    @Column(columnDefinition = "timestamp", updatable = false)
+    @Comment("创建日期")
+    @Schema(description = "创建日期")
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,147 @@
+package cn.tannn.lychnos.entity;
+
+import cn.tannn.lychnos.common.constant.UsageType;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * AI 调用日汇总（按 日期 + 模型 + 用途 + 模型来源 累加，各节点按分钟聚合后定时写入增量）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/22
+ */
+@Entity
+@Table(name = "tb_usage_rollup_daily",
+        indexes = {
+                @Index(name = "uk_bucket_model_usage_source", columnList = "bucketDate,modelId,usageType,modelSource", unique = true)
+        }
+)
+@Comment("AI调用日汇总")
+@Getter
+@Setter
+@ToString
+@Schema(description = "AI调用日汇总")
+public class UsageRollupDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "bigint")
+    @Comment("主键")
+    @Schema(description = "主键")
+    private Long id;
+
+    /**
+     * 日期
+     */
+    @Column(columnDefinition = " date not null ")
+    @Comment("日期")
+    @Schema(description = "日期")
+    private LocalDate bucketDate;
+
+    /**
+     * 模型ID
+     */
+    @Column(columnDefinition = " bigint not null ")
+    @Comment("模型ID")
+    @Schema(description = "模型ID")
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long modelId;
+
+    @Column(columnDefinition = " varchar(200) ")
+    @Comment("模型名称")
+    @Schema(description = "模型名称")
+    private String modelName;
+
+    @Column(columnDefinition = " varchar(100) ")
+    @Comment("模型厂商")
+    @Schema(description = "模型厂商")
+    private String modelVendor;
+
+    @Column(columnDefinition = " varchar(20) not null ")
+    @Enumerated(EnumType.STRING)
+    @Comment("用途：BOOK_PARSE/BOOK_IMAGE/BOOK_EXTRACT")
+    @Schema(description = "用途")
+    private UsageType usageType;
+
+    @Column(columnDefinition = " int not null ")
+    @Comment("模型来源：0-官方/1-私人/2-公开/-1-未知")
+    @Schema(description = "模型来源：0-官方/1-私人/2-公开/-1-未知")
+    private Integer modelSource;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("调用次数")
+    @Schema(description = "调用次数")
+    private Long calls;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("成功次数")
+    @Schema(description = "成功次数")
+    private Long successes;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("失败次数")
+    @Schema(description = "失败次数")
+    private Long failures;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("有耗时记录的次数")
+    @Schema(description = "有耗时记录的次数")
+    private Long latencyCount;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("总耗时（毫秒）")
+    @Schema(description = "总耗时（毫秒）")
+    private Long latencySumMs;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("最大耗时（毫秒）")
+    @Schema(description = "最大耗时（毫秒）")
+    private Long latencyMaxMs;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("耗时 <= 1s 的次数")
+    @Schema(description = "耗时 <= 1s 的次数")
+    private Long latencyLe1s;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("耗时 (1s, 5s] 的次数")
+    @Schema(description = "耗时 (1s, 5s] 的次数")
+    private Long latencyLe5s;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("耗时 (5s, 15s] 的次数")
+    @Schema(description = "耗时 (5s, 15s] 的次数")
+    private Long latencyLe15s;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("耗时 (15s, 30s] 的次数")
+    @Schema(description = "耗时 (15s, 30s] 的次数")
+    private Long latencyLe30s;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("耗时 (30s, 60s] 的次数")
+    @Schema(description = "耗时 (30s, 60s] 的次数")
+    private Long latencyLe60s;
+
+    @Column(columnDefinition = " bigint not null default 0 ")
+    @Comment("耗时 > 60s 的次数")
+    @Schema(description = "耗时 > 60s 的次数")
+    private Long latencyGt60s;
+
+    @Column(columnDefinition = "timestamp")
+    @Comment("更新时间")
+    @Schema(description = "更新时间")
+    private LocalDateTime updateTime;
+}
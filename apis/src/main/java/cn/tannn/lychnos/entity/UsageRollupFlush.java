@@ -0,0 +1,76 @@
+package cn.tannn.lychnos.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * AI 调用汇总写入记录
+ * <ul>
+ *     <li>各节点每批增量（某一天的小时/日增量）与一条 节点 + 批次序号 的记录在同一事务中写入，
+ *     重试时记录已存在说明上次实际已提交，不再重复累加</li>
+ *     <li>从日志重建某天时写入 节点=rebuild、序号=日期 的记录，之后到达的该天增量直接丢弃（已包含在重建结果中）</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/23
+ */
+@Entity
+@Table(name = "tb_usage_rollup_flush",
+        indexes = {
+                @Index(name = "uk_node_seq", columnList = "nodeId,flushSeq", unique = true),
+                @Index(name = "idx_create_time", columnList = "createTime")
+        }
+)
+@Comment("AI调用汇总写入记录")
+@Getter
+@Setter
+@ToString
+@Schema(description = "AI调用汇总写入记录")
+public class UsageRollupFlush {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "bigint")
+    @Comment("主键")
+    @Schema(description = "主键")
+    private Long id;
+
+    /**
+     * 写入增量的节点，重建记录为 rebuild
+     */
+    @Column(columnDefinition = " varchar(32) not null ")
+    @Comment("节点标识")
+    @Schema(description = "节点标识")
+    private String nodeId;
+
+    /**
+     * 节点内的批次序号，重建记录为日期的 epochDay
+     */
+    @Column(columnDefinition = " bigint not null ")
+    @Comment("批次序号")
+    @Schema(description = "批次序号")
+    private Long flushSeq;
+
+    /**
+     * 增量所属日期
+     */
+    @Column(columnDefinition = " date not null ")
+    @Comment("日期")
+    @Schema(description = "日期")
+    private LocalDate bucketDate;
+
+    @Column(columnDefinition = "timestamp", updatable = false)
+    @Comment("创建日期")
+    @Schema(description = "创建日期")
+    private LocalDateTime createTime;
+}
@@ -28,7 +28,9 @@ import org.hibernate.annotations.DynamicUpdate;
                 @Index(name = "idx_user_id", columnList = "userId"),
                 @Index(name = "idx_usage_type", columnList = "usageType"),
                 @Index(name = "idx_create_time", columnList = "createTime"),
-                @Index(name = "idx_book_analyse_id", columnList = "bookAnalyseId")
+                @Index(name = "idx_book_analyse_id", columnList = "bookAnalyseId"),
+                @Index(name = "idx_model_source_time", columnList = "modelSource, createTime"),
+                @Index(name = "idx_user_name_time", columnList = "userName, createTime")
         }
 )
 @Comment("用户分析日志")
@@ -115,4 +117,9 @@ public class UserAnalysisLog extends JpaCommonBean<UserAnalysisLog> {
     @Schema(description = "是否直接使用已有数据")
     @ColumnDefault("false")
     private Boolean useExistingData;
+
+    @Column(columnDefinition = "bigint")
+    @Comment("耗时（毫秒）")
+    @Schema(description = "耗时（毫秒）")
+    private Long latencyMs;
 }
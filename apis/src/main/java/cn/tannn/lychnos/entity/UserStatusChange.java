@@ -0,0 +1,64 @@
+package cn.tannn.lychnos.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Comment;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户状态变更记录（集群各节点按版本号轮询，同步封禁名单）
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/13
+ */
+@Entity
+@Table(name = "tb_user_status_change",
+        indexes = {
+                @Index(name = "idx_create_time", columnList = "createTime")
+        }
+)
+@Comment("用户状态变更记录")
+@Getter
+@Setter
+@ToString
+@Schema(description = "用户状态变更记录")
+public class UserStatusChange {
+
+    /**
+     * 版本号（自增，轮询游标）
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(columnDefinition = "bigint")
+    @Comment("版本号")
+    @Schema(description = "版本号")
+    private Long version;
+
+    /**
+     * 用户ID
+     */
+    @Column(columnDefinition = " bigint not null ")
+    @Comment("用户ID")
+    @Schema(description = "用户ID")
+    private Long userId;
+
+    /**
+     * 变更后的状态，参考 UserStatus
+     */
+    @Column(columnDefinition = " int not null ")
+    @Comment("变更后的状态")
+    @Schema(description = "变更后的状态")
+    private Integer status;
+
+    @Column(columnDefinition = "timestamp", updatable = false)
+    @Comment("创建日期")
+    @Schema(description = "创建日期")
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,288 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.lychnos.common.constant.AICallPriority;
+import cn.tannn.lychnos.entity.AIModel;
+import jakarta.annotation.PostConstruct;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 官方模型调用调度（按用户的差额轮询 DRR）
+ * <p>每个官方模型有固定数量的并发许可，拿不到许可的调用进入 (优先级, 用户) 队列，许可释放时按差额轮询分配：</p>
+ * <ul>
+ *     <li>每轮每个队列获得与优先级权重相同的额度，交互请求的权重高于后台任务，后台任务不会被饿死</li>
+ *     <li>同一优先级内按用户轮询，一个用户排队再多也只占自己的份额</li>
+ *     <li>调用在发起线程中执行（请求上下文、日志上下文不变），调度器只负责分配许可</li>
+ * </ul>
+ * <p>排队等待时间与模型调用耗时分别统计</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/18
+ */
+@Service
+@Slf4j
+public class AICallScheduler {
+
+    /**
+     * 是否启用调度（关闭时直接调用）
+     */
+    @Value("${app.ai.scheduler.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 单个官方模型的并发调用数
+     */
+    @Value("${app.ai.scheduler.concurrency-per-model:4}")
+    private int concurrency;
+
+    /**
+     * 交互请求每轮的额度
+     */
+    @Value("${app.ai.scheduler.interactive-weight:4}")
+    private int interactiveWeight;
+
+    /**
+     * 后台任务每轮的额度
+     */
+    @Value("${app.ai.scheduler.background-weight:1}")
+    private int backgroundWeight;
+
+    /**
+     * 最长排队时间（毫秒），超过后放弃调用
+     */
+    @Value("${app.ai.scheduler.max-wait-ms:120000}")
+    private long maxWaitMs;
+
+    /**
+     * 模型ID -> 调度通道
+     */
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final Map<AICallPriority, Metrics> metrics = new EnumMap<>(AICallPriority.class);
+
+    @PostConstruct
+    public void init() {
+        for (AICallPriority priority : AICallPriority.values()) {
+            metrics.put(priority, new Metrics());
+        }
+        log.info("官方模型调用调度{}，单模型并发: {}，权重 交互/后台: {}/{}，最长排队: {}ms",
+                enabled ? "已启用" : "未启用", concurrency, interactiveWeight, backgroundWeight, maxWaitMs);
+    }
+
+    /**
+     * 调用模型：官方模型经过调度，其他模型直接调用
+     * <p>请求线程中发起的调用为交互请求，其他线程（批量分析、预热）为后台任务</p>
+     *
+     * @param model  实际调用的模型
+     * @param userId 调用者，为空表示系统任务
+     * @param call   模型调用
+     */
+    public <T> T call(AIModel model, Long userId, Supplier<T> call) {
+        if (!enabled || model == null || model.getId() == null || !model.isOfficial()) {
+            return call.get();
+        }
+        AICallPriority priority = RequestContextHolder.getRequestAttributes() != null
+                ? AICallPriority.INTERACTIVE : AICallPriority.BACKGROUND;
+        Lane lane = lanes.computeIfAbsent(model.getId(), id -> new Lane(concurrency));
+        Metrics m = metrics.get(priority);
+
+        long queuedAt = System.nanoTime();
+        lane.acquire(new QueueKey(priority, userId == null ? AIUsageService.SYSTEM_USER_ID : userId),
+                priority == AICallPriority.INTERACTIVE ? interactiveWeight : backgroundWeight, maxWaitMs);
+        long startedAt = System.nanoTime();
+        m.record(m.waits, m.waitNanos, m.maxWaitNanos, startedAt - queuedAt);
+        try {
+            return call.get();
+        } finally {
+            m.record(m.calls, m.callNanos, m.maxCallNanos, System.nanoTime() - startedAt);
+            lane.release();
+        }
+    }
+
+    /**
+     * 调度统计：各优先级的排队等待与模型调用耗时，各模型当前的占用与排队数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> byPriority = new LinkedHashMap<>();
+        metrics.forEach((priority, m) -> {
+            long waits = m.waits.sum();
+            long calls = m.calls.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("waits", waits);
+            item.put("avgWaitMs", waits == 0 ? 0 : m.waitNanos.sum() / waits / 1_000_000);
+            item.put("maxWaitMs", m.maxWaitNanos.get() / 1_000_000);
+            item.put("timeouts", m.timeouts.sum());
+            item.put("calls", calls);
+            item.put("avgCallMs", calls == 0 ? 0 : m.callNanos.sum() / calls / 1_000_000);
+            item.put("maxCallMs", m.maxCallNanos.get() / 1_000_000);
+            byPriority.put(priority.name(), item);
+        });
+        Map<String, Object> byModel = new LinkedHashMap<>();
+        lanes.forEach((modelId, lane) -> byModel.put(String.valueOf(modelId), lane.snapshot()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("concurrencyPerModel", concurrency);
+        stats.put("priorities", byPriority);
+        stats.put("models", byModel);
+        return stats;
+    }
+
+    /**
+     * 单个模型的调度通道
+     */
+    private final class Lane {
+        private int available;
+        private final Map<QueueKey, UserQueue> queues = new HashMap<>();
+        /**
+         * 轮询顺序（只包含非空队列）
+         */
+        private final ArrayDeque<UserQueue> ring = new ArrayDeque<>();
+
+        Lane(int permits) {
+            this.available = permits;
+        }
+
+        void acquire(QueueKey key, int weight, long timeoutMs) {
+            synchronized (this) {
+                if (available > 0 && ring.isEmpty()) {
+                    available--;
+                    return;
+                }
+                UserQueue queue = queues.computeIfAbsent(key, k -> new UserQueue(weight));
+                if (queue.tickets.isEmpty()) {
+                    ring.addLast(queue);
+                }
+                Ticket ticket = new Ticket();
+                queue.tickets.addLast(ticket);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+                long remaining;
+                while (!ticket.granted && (remaining = deadline - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                if (ticket.granted) {
+                    return;
+                }
+                // 超时或被中断：作废排队，分配时跳过
+                ticket.cancelled = true;
+            }
+            metrics.get(key.priority).timeouts.increment();
+            log.warn("官方模型调用排队超时，userId: {}, priority: {}", key.userId, key.priority);
+            throw new BusinessException("AI 服务繁忙，请稍后再试");
+        }
+
+        synchronized void release() {
+            available++;
+            dispatch();
+        }
+
+        /**
+         * 差额轮询：队首队列每轮获得一次额度，额度用完或队列为空后轮到下一个队列
+         */
+        private void dispatch() {
+            boolean granted = false;
+            while (available > 0 && !ring.isEmpty()) {
+                UserQueue queue = ring.peekFirst();
+                if (!queue.inTurn) {
+                    queue.deficit += queue.quantum;
+                    queue.inTurn = true;
+                }
+                Ticket ticket = queue.tickets.pollFirst();
+                if (ticket != null && !ticket.cancelled) {
+                    ticket.granted = true;
+                    available--;
+                    queue.deficit--;
+                    granted = true;
+                }
+                if (queue.tickets.isEmpty()) {
+                    ring.pollFirst();
+                    queue.deficit = 0;
+                    queue.inTurn = false;
+                } else if (queue.deficit <= 0) {
+                    ring.pollFirst();
+                    queue.inTurn = false;
+                    ring.addLast(queue);
+                }
+            }
+            // 空队列对象保留在 queues 中复用，数量超过阈值时清理
+            if (queues.size() > 1024) {
+                queues.values().removeIf(queue -> queue.tickets.isEmpty());
+            }
+            if (granted) {
+                notifyAll();
+            }
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            int queued = 0;
+            for (UserQueue queue : ring) {
+                queued += queue.tickets.size();
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("available", available);
+            item.put("queuedUsers", ring.size());
+            item.put("queued", queued);
+            return item;
+        }
+    }
+
+    private static final class UserQueue {
+        private final int quantum;
+        private final ArrayDeque<Ticket> tickets = new ArrayDeque<>();
+        private int deficit;
+        private boolean inTurn;
+
+        UserQueue(int quantum) {
+            this.quantum = Math.max(1, quantum);
+        }
+    }
+
+    private static final class Ticket {
+        private boolean granted;
+        private boolean cancelled;
+    }
+
+    @EqualsAndHashCode
+    private static final class QueueKey {
+        private final AICallPriority priority;
+        private final long userId;
+
+        QueueKey(AICallPriority priority, long userId) {
+            this.priority = priority;
+            this.userId = userId;
+        }
+    }
+
+    private static final class Metrics {
+        private final LongAdder waits = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder callNanos = new LongAdder();
+        private final AtomicLong maxCallNanos = new AtomicLong();
+
+        void record(LongAdder count, LongAdder total, AtomicLong max, long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package cn.tannn.lychnos.service;
 
 import cn.tannn.jdevelops.exception.built.BusinessException;
 import cn.tannn.jdevelops.jpa.service.J2ServiceImpl;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
 import cn.tannn.lychnos.common.constant.ModelType;
 import cn.tannn.lychnos.common.constant.ShareType;
 import cn.tannn.lychnos.common.util.AESUtil;
@@ -24,8 +25,12 @@ import java.util.Objects;
 @Service
 @Slf4j
 public class AIModelService extends J2ServiceImpl<AIModelDao, AIModel, Long> {
-    public AIModelService() {
+
+    private final AIUsageService aiUsageService;
+
+    public AIModelService(AIUsageService aiUsageService) {
         super(AIModel.class);
+        this.aiUsageService = aiUsageService;
     }
 
     /**
@@ -150,15 +155,29 @@ public class AIModelService extends J2ServiceImpl<AIModelDao, AIModel, Long> {
      * <p>查询逻辑：</p>
      * <ol>
      *     <li>优先使用用户自己启用的模型</li>
-     *     <li>如果用户未配置，则回退到官方模型（share=0）</li>
+     *     <li>如果用户未配置，则回退到官方模型（share=0），官方模型当日额度用完时抛出 OFFICIAL_BUDGET_EXHAUSTED</li>
      *     <li>如果都不存在，返回null</li>
      * </ol>
      *
      * @param userId 用户ID
      * @param type 模型类型
      * @return 启用的模型，如果都不存在则返回null
+     * @throws BusinessException 官方模型当日额度已用完
      */
     public AIModel getEnabledModel(Long userId, ModelType type) {
+        return getEnabledModel(userId, type, true);
+    }
+
+    /**
+     * 获取用户启用的模型（支持官方模型回退）
+     *
+     * @param userId 用户ID
+     * @param type 模型类型
+     * @param checkBudget 是否检查官方模型当日额度（调用前选择模型时检查；调用后记录日志时不检查）
+     * @return 启用的模型，如果都不存在则返回null
+     * @throws BusinessException 检查额度且官方模型当日额度已用完（只在存在官方模型时判断，额度只查询一次）
+     */
+    public AIModel getEnabledModel(Long userId, ModelType type, boolean checkBudget) {
         // 1. 优先查询用户自己启用的模型
         List<AIModel> userModels = getJpaBasicsDao().findByUserIdAndTypeAndEnabled(userId, type, true);
 
@@ -175,6 +194,13 @@ public class AIModelService extends J2ServiceImpl<AIModelDao, AIModel, Long> {
                 ShareType.OFFICIAL.getCode(), type, true);
 
         if (!officialModels.isEmpty()) {
+            // 官方模型当日额度用完，提示用户配置自己的模型
+            if (checkBudget && !aiUsageService.hasOfficialBudget(userId, type)) {
+                throw new BusinessException(
+                        BusinessErrorCode.OFFICIAL_BUDGET_EXHAUSTED.getCode(),
+                        BusinessErrorCode.OFFICIAL_BUDGET_EXHAUSTED.formatMessage(type.name())
+                );
+            }
             // 使用官方模型（取第一个）
             AIModel officialModel = officialModels.get(0);
             log.info("使用官方模型作为回退，userId: {}, type: {}, officialModelId: {}",
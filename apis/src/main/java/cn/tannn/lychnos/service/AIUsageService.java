@@ -0,0 +1,325 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.ai.client.AIUsageListener;
+import cn.tannn.lychnos.common.constant.ModelType;
+import cn.tannn.lychnos.dao.AIUsageDailyDao;
+import cn.tannn.lychnos.entity.AIModel;
+import cn.tannn.lychnos.entity.AIUsageDaily;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI 用量统计与官方模型每日预算
+ * <ul>
+ *     <li>每次调用成功后由 DynamicAIClient 回报 Token 数 / 图片数，先累加到内存计数器（LongAdder，按 日期+用户+模型 分组）</li>
+ *     <li>定时把增量累加到 tb_ai_usage_daily（insert ... on duplicate key update），并重新读取当日官方模型的用量汇总，
+ *     多节点、重启后预算依然准确，节点间误差为一个刷新间隔内的用量</li>
+ *     <li>AIModelService 回退到官方模型前检查预算：用户当日额度或全站当日额度用完后不再分配官方模型，
+ *     提示用户配置自己的模型</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/17
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AIUsageService {
+
+    /**
+     * 系统任务（如书籍预热）记录的用户ID
+     */
+    public static final long SYSTEM_USER_ID = 0L;
+
+    private final AIUsageDailyDao aiUsageDailyDao;
+
+    /**
+     * 是否启用官方模型预算
+     */
+    @Value("${app.ai.budget.enabled:true}")
+    private boolean budgetEnabled;
+
+    /**
+     * 单个用户每日官方文本模型 Token 额度，0 表示不限
+     */
+    @Value("${app.ai.budget.user-daily-tokens:100000}")
+    private long userDailyTokens;
+
+    /**
+     * 单个用户每日官方图片模型图片额度，0 表示不限
+     */
+    @Value("${app.ai.budget.user-daily-images:10}")
+    private long userDailyImages;
+
+    /**
+     * 全站每日官方文本模型 Token 额度，0 表示不限
+     */
+    @Value("${app.ai.budget.global-daily-tokens:5000000}")
+    private long globalDailyTokens;
+
+    /**
+     * 全站每日官方图片模型图片额度，0 表示不限
+     */
+    @Value("${app.ai.budget.global-daily-images:300}")
+    private long globalDailyImages;
+
+    /**
+     * 尚未写入数据库的用量
+     */
+    private final Map<UsageKey, Counter> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 数据库中当日官方模型的用量（刷新时整体替换）
+     */
+    private volatile Committed committed = new Committed(LocalDate.now(), Map.of(), 0, 0);
+
+    private final LongAdder exhaustedFallbacks = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        reload();
+        log.info("AI 用量统计初始化完成，官方模型预算: {}，用户每日 {} tokens / {} 张图片，全站每日 {} tokens / {} 张图片",
+                budgetEnabled ? "已启用" : "未启用", userDailyTokens, userDailyImages, globalDailyTokens, globalDailyImages);
+    }
+
+    /**
+     * 创建用量回调
+     *
+     * @param model  实际调用的模型
+     * @param userId 调用者，为空表示系统任务
+     */
+    public AIUsageListener listener(AIModel model, Long userId) {
+        return (promptTokens, completionTokens, images) -> record(model, userId, promptTokens, completionTokens, images);
+    }
+
+    /**
+     * 记录一次调用的用量
+     */
+    public void record(AIModel model, Long userId, long promptTokens, long completionTokens, int images) {
+        if (model == null || model.getId() == null) {
+            return;
+        }
+        UsageKey key = new UsageKey(LocalDate.now(), userId == null ? SYSTEM_USER_ID : userId, model.getId());
+        Counter counter = pending.computeIfAbsent(key, k -> new Counter(model.getType(), model.isOfficial()));
+        counter.calls.increment();
+        counter.promptTokens.add(promptTokens);
+        counter.completionTokens.add(completionTokens);
+        counter.images.add(images);
+    }
+
+    /**
+     * 用户当日是否还能使用官方模型
+     *
+     * @param userId 用户ID
+     * @param type   模型类型
+     * @return false 表示用户或全站的当日额度已用完
+     */
+    public boolean hasOfficialBudget(Long userId, ModelType type) {
+        if (!budgetEnabled) {
+            return true;
+        }
+        Committed snapshot = committed;
+        LocalDate today = LocalDate.now();
+        boolean sameDay = snapshot.day.equals(today);
+        long userUsed;
+        long globalUsed;
+        long userLimit;
+        long globalLimit;
+        boolean image = type == ModelType.IMAGE;
+        long[] userCommitted = sameDay ? snapshot.users.get(userId) : null;
+        if (image) {
+            userUsed = (userCommitted != null ? userCommitted[1] : 0) + pendingOfficial(today, userId, true);
+            globalUsed = (sameDay ? snapshot.images : 0) + pendingOfficial(today, null, true);
+            userLimit = userDailyImages;
+            globalLimit = globalDailyImages;
+        } else {
+            userUsed = (userCommitted != null ? userCommitted[0] : 0) + pendingOfficial(today, userId, false);
+            globalUsed = (sameDay ? snapshot.tokens : 0) + pendingOfficial(today, null, false);
+            userLimit = userDailyTokens;
+            globalLimit = globalDailyTokens;
+        }
+        boolean allowed = (userLimit <= 0 || userUsed < userLimit) && (globalLimit <= 0 || globalUsed < globalLimit);
+        if (!allowed) {
+            exhaustedFallbacks.increment();
+            log.info("官方模型当日额度已用完，userId: {}, type: {}, 用户已用: {}/{}, 全站已用: {}/{}",
+                    userId, type, userUsed, userLimit, globalUsed, globalLimit);
+        }
+        return allowed;
+    }
+
+    /**
+     * 定时写入增量，并重新读取当日官方模型用量
+     */
+    @Scheduled(fixedDelayString = "${app.ai.budget.flush-ms:10000}")
+    public synchronized void flush() {
+        for (Map.Entry<UsageKey, Counter> entry : pending.entrySet()) {
+            UsageKey key = entry.getKey();
+            Counter counter = entry.getValue();
+            long calls = counter.calls.sumThenReset();
+            long promptTokens = counter.promptTokens.sumThenReset();
+            long completionTokens = counter.completionTokens.sumThenReset();
+            long images = counter.images.sumThenReset();
+            if (calls == 0) {
+                // 跨天后旧日期的计数器不会再增加，写完即可移除
+                if (!key.day.equals(LocalDate.now())) {
+                    pending.remove(key, counter);
+                }
+                continue;
+            }
+            try {
+                aiUsageDailyDao.accumulate(key.day, key.userId, key.modelId, counter.type.name(), counter.official,
+                        calls, promptTokens, completionTokens, images);
+            } catch (Exception e) {
+                // 写入失败时放回计数器，下次重试
+                counter.calls.add(calls);
+                counter.promptTokens.add(promptTokens);
+                counter.completionTokens.add(completionTokens);
+                counter.images.add(images);
+                log.warn("写入 AI 用量失败: {}", e.getMessage());
+                return;
+            }
+        }
+        reload();
+    }
+
+    /**
+     * 停机前写入内存中的用量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 某天的用量明细
+     */
+    public List<AIUsageDaily> daily(LocalDate day) {
+        if (day.equals(LocalDate.now())) {
+            flush();
+        }
+        return aiUsageDailyDao.findByUsageDateOrderByUserIdAsc(day);
+    }
+
+    /**
+     * 当日官方模型用量与预算
+     */
+    public Map<String, Object> stats() {
+        Committed snapshot = committed;
+        LocalDate today = LocalDate.now();
+        boolean sameDay = snapshot.day.equals(today);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("budgetEnabled", budgetEnabled);
+        stats.put("date", today.toString());
+        stats.put("officialTokens", (sameDay ? snapshot.tokens : 0) + pendingOfficial(today, null, false));
+        stats.put("officialImages", (sameDay ? snapshot.images : 0) + pendingOfficial(today, null, true));
+        stats.put("globalDailyTokens", globalDailyTokens);
+        stats.put("globalDailyImages", globalDailyImages);
+        stats.put("userDailyTokens", userDailyTokens);
+        stats.put("userDailyImages", userDailyImages);
+        stats.put("officialUsers", sameDay ? snapshot.users.size() : 0);
+        stats.put("pendingKeys", pending.size());
+        stats.put("exhaustedFallbacks", exhaustedFallbacks.sum());
+        return stats;
+    }
+
+    /**
+     * 读取当日官方模型按用户汇总的用量
+     */
+    private void reload() {
+        try {
+            LocalDate today = LocalDate.now();
+            Map<Long, long[]> users = new HashMap<>();
+            long tokens = 0;
+            long images = 0;
+            for (Object[] row : aiUsageDailyDao.sumOfficialByUser(today)) {
+                long userTokens = toLong(row[1]);
+                long userImages = toLong(row[2]);
+                users.put(toLong(row[0]), new long[]{userTokens, userImages});
+                tokens += userTokens;
+                images += userImages;
+            }
+            committed = new Committed(today, users, tokens, images);
+        } catch (Exception e) {
+            log.warn("读取 AI 用量汇总失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 尚未写入数据库的官方模型用量
+     *
+     * @param userId 为 null 时统计所有用户
+     * @param image  true 统计图片数，false 统计 Token 数
+     */
+    private long pendingOfficial(LocalDate day, Long userId, boolean image) {
+        long total = 0;
+        for (Map.Entry<UsageKey, Counter> entry : pending.entrySet()) {
+            UsageKey key = entry.getKey();
+            Counter counter = entry.getValue();
+            if (!counter.official || !key.day.equals(day) || (userId != null && key.userId != userId)) {
+                continue;
+            }
+            total += image ? counter.images.sum() : counter.promptTokens.sum() + counter.completionTokens.sum();
+        }
+        return total;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    @EqualsAndHashCode
+    private static final class UsageKey {
+        private final LocalDate day;
+        private final long userId;
+        private final long modelId;
+
+        UsageKey(LocalDate day, long userId, long modelId) {
+            this.day = day;
+            this.userId = userId;
+            this.modelId = modelId;
+        }
+    }
+
+    private static final class Counter {
+        private final ModelType type;
+        private final boolean official;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder images = new LongAdder();
+
+        Counter(ModelType type, boolean official) {
+            this.type = type;
+            this.official = official;
+        }
+    }
+
+    private static final class Committed {
+        private final LocalDate day;
+        /**
+         * userId -> [tokens, images]
+         */
+        private final Map<Long, long[]> users;
+        private final long tokens;
+        private final long images;
+
+        Committed(LocalDate day, Map<Long, long[]> users, long tokens, long images) {
+            this.day = day;
+            this.users = users;
+            this.tokens = tokens;
+            this.images = images;
+        }
+    }
+}
@@ -1,20 +1,30 @@
 package cn.tannn.lychnos.service;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import cn.tannn.lychnos.controller.dto.AttackStatsDTO;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
  * 恶意攻击统计缓存服务
- * <p>使用 Guava Cache 管理攻击统计数据，1小时自动过期</p>
+ * <p>扫描洪峰下的计数全部无锁：</p>
+ * <ul>
+ *     <li>每个 IP 一个 LongAdder 累计次数，外加 60 个一分钟槽的滑动窗口（分钟号与次数打包在一个 long 里 CAS 更新，跨分钟不丢计数）</li>
+ *     <li>全局同样维护滑动窗口，近 1 分钟 / 10 分钟 / 1 小时的攻击次数直接按槽求和；累计总次数单独用 LongAdder 计数</li>
+ *     <li>后台定时用大小为 K 的小顶堆重建 TOP 攻击者快照，管理查询只读快照，代价 O(K)</li>
+ *     <li>不再逐条打印告警日志，按固定间隔输出一行汇总；单个 IP 达到高频阈值时只告警一次，并自动加入 IP 黑名单</li>
+ *     <li>超过空闲时长（默认 1 小时）没有新攻击的 IP 自动清理</li>
+ * </ul>
  *
  * @author <a href="https://t.tannn.cn/">tan</a>
  * @version V1.0
@@ -22,27 +32,80 @@ import java.util.stream.Collectors;
  */
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class AttackStatsCacheService {
 
     /**
-     * 攻击统计缓存
-     * Key: 攻击者IP
-     * Value: 攻击次数
-     * 有效期: 1小时（自动清理）
+     * 滑动窗口槽数（每槽 1 分钟）
      */
-    private Cache<String, Long> attackStatsCache;
+    private static final int SLOTS = 60;
+
+    private static final long SLOT_MILLIS = 60_000L;
+
+    /**
+     * 汇总日志中列出的 IP 数
+     */
+    private static final int SUMMARY_TOP = 5;
+
+    private final IpBlocklistService ipBlocklistService;
+
+    /**
+     * 最多跟踪的 IP 数，超过后新 IP 只计入全局统计
+     */
+    @Value("${app.attack-stats.max-ips:10000}")
+    private int maxIps;
+
+    /**
+     * TOP 快照大小
+     */
+    @Value("${app.attack-stats.top-k:100}")
+    private int topK;
+
+    /**
+     * IP 空闲多少分钟后清除统计
+     */
+    @Value("${app.attack-stats.idle-minutes:60}")
+    private long idleMinutes;
+
+    /**
+     * 单个 IP 累计达到多少次时告警
+     */
+    @Value("${app.attack-stats.alert-threshold:50}")
+    private long alertThreshold;
+
+    /**
+     * 攻击统计：攻击者IP -> 计数器
+     */
+    private final Map<String, IpCounter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 全局滑动窗口
+     */
+    private final SlidingWindow global = new SlidingWindow();
+
+    /**
+     * 累计攻击次数（启动或清空以来）
+     */
+    private final LongAdder cumulative = new LongAdder();
+
+    /**
+     * 上次汇总以来的攻击次数、GET/POST 次数，以及超过 IP 上限未被单独跟踪的次数
+     */
+    private final LongAdder sinceSummary = new LongAdder();
+    private final LongAdder postSinceSummary = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    /**
+     * TOP 攻击者快照（按累计次数降序）
+     */
+    private volatile List<AttackStatsDTO.AttackRecord> topSnapshot = List.of();
 
     /**
      * 初始化缓存
      */
     @PostConstruct
     public void init() {
-        log.info("初始化攻击统计缓存，数据保留时长: 1小时");
-
-        attackStatsCache = CacheBuilder.newBuilder()
-                .expireAfterWrite(1, TimeUnit.HOURS)  // 1小时后自动过期
-                .maximumSize(1000)  // 最多缓存1000个IP
-                .build();
+        log.info("初始化攻击统计，最多跟踪 {} 个IP，空闲 {} 分钟后清除，TOP 快照大小: {}", maxIps, idleMinutes, topK);
     }
 
     /**
@@ -55,65 +118,148 @@ public class AttackStatsCacheService {
      */
     public void recordAttack(String ip, String uri, String method, String userAgent) {
         if (ip == null || ip.isEmpty()) {
-            log.warn("尝试记录空IP的攻击");
+            log.debug("尝试记录空IP的攻击");
             return;
         }
+        long now = System.currentTimeMillis();
+        global.increment(now);
+        cumulative.increment();
+        sinceSummary.increment();
+        if ("POST".equals(method)) {
+            postSinceSummary.increment();
+        }
 
-        // 获取当前攻击次数并+1
-        Long currentCount = attackStatsCache.getIfPresent(ip);
-        long newCount = (currentCount == null ? 0 : currentCount) + 1;
-        attackStatsCache.put(ip, newCount);
-
-        // 记录警告日志
-        log.warn("🚨 恶意{}请求已拦截 | Method: {} | URI: {} | IP: {} | 累计: {} 次 | UA: {}",
-                method.equals("POST") ? "攻击" : "扫描",
-                method, uri, ip, newCount, userAgent);
+        IpCounter counter = counters.get(ip);
+        if (counter == null) {
+            if (counters.size() >= maxIps) {
+                untracked.increment();
+                return;
+            }
+            counter = counters.computeIfAbsent(ip, k -> new IpCounter());
+        }
+        counter.increment(now);
+        log.debug("恶意{}请求已拦截 | Method: {} | URI: {} | IP: {} | UA: {}",
+                "POST".equals(method) ? "攻击" : "扫描", method, uri, ip, userAgent);
 
-        // 高频攻击告警
-        if (newCount >= 50) {
-            log.error("⚠️ 检测到高频攻击者! IP: {} | 累计: {} 次 | 建议加入黑名单", ip, newCount);
+        // 高频攻击告警（每个IP只告警一次）
+        if (!counter.alerted.get() && counter.total.sum() >= alertThreshold && counter.alerted.compareAndSet(false, true)) {
+            long count = counter.total.sum();
+            log.error("⚠️ 检测到高频攻击者! IP: {} | 累计: {} 次 | 最近URI: {} | 自动加入黑名单", ip, count, uri);
+            ipBlocklistService.autoBlock(ip, "累计 " + count + " 次恶意请求，最近: " + method + " " + uri);
         }
     }
 
     /**
-     * 获取攻击统计数据（按攻击次数降序）
-     *
-     * @param limit 返回数量限制，0表示返回全部
-     * @return 攻击统计 Map (IP -> 攻击次数)，已按次数降序排序
+     * 重建 TOP 攻击者快照，清除空闲 IP
      */
-    public Map<String, Long> getAttackStats(int limit) {
-        Map<String, Long> stats = attackStatsCache.asMap();
-
-        if (stats.isEmpty()) {
-            return new LinkedHashMap<>();
+    @Scheduled(fixedDelayString = "${app.attack-stats.refresh-ms:5000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        long idleMillis = idleMinutes * SLOT_MILLIS;
+        int k = Math.max(1, topK);
+        PriorityQueue<AttackStatsDTO.AttackRecord> heap =
+                new PriorityQueue<>(k + 1, Comparator.comparingLong(AttackStatsDTO.AttackRecord::getCount));
+        Iterator<Map.Entry<String, IpCounter>> iterator = counters.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, IpCounter> entry = iterator.next();
+            IpCounter counter = entry.getValue();
+            if (now - counter.lastSeen > idleMillis) {
+                iterator.remove();
+                continue;
+            }
+            long count = counter.total.sum();
+            if (heap.size() < k || count > heap.peek().getCount()) {
+                heap.offer(record(entry.getKey(), counter, count, now));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
         }
+        List<AttackStatsDTO.AttackRecord> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingLong(AttackStatsDTO.AttackRecord::getCount).reversed());
+        topSnapshot = Collections.unmodifiableList(top);
+    }
 
-        // 按攻击次数降序排序
-        var sortedStream = stats.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+    /**
+     * 按固定间隔输出一行攻击汇总日志（代替逐条日志，扫描洪峰不会变成日志 IO 洪峰）
+     */
+    @Scheduled(fixedDelayString = "${app.attack-stats.summary-interval-ms:60000}")
+    public void logSummary() {
+        long total = sinceSummary.sumThenReset();
+        long post = postSinceSummary.sumThenReset();
+        long overflow = untracked.sumThenReset();
+        if (total == 0) {
+            return;
+        }
+        String top = topSnapshot.stream()
+                .limit(SUMMARY_TOP)
+                .map(r -> r.getIp() + "(" + r.getCount() + ")")
+                .collect(Collectors.joining(", "));
+        log.warn("🚨 恶意请求已拦截 {} 次（扫描 {} / 攻击 {}），近1小时 {} 次，跟踪IP {} 个{}，TOP: {}",
+                total, total - post, post, global.sum(SLOTS, System.currentTimeMillis()), counters.size(),
+                overflow > 0 ? "（超出上限未跟踪 " + overflow + " 次）" : "", top);
+    }
 
-        // 如果有限制，取前N个
-        if (limit > 0) {
-            sortedStream = sortedStream.limit(limit);
+    /**
+     * 获取 TOP 攻击者（按累计次数降序，来自定时重建的快照）
+     *
+     * @param limit 返回数量限制，0表示返回全部（超过快照大小时遍历全部IP）
+     * @return 攻击者列表
+     */
+    public List<AttackStatsDTO.AttackRecord> getTopAttackers(int limit) {
+        List<AttackStatsDTO.AttackRecord> snapshot = topSnapshot;
+        if (limit > 0 && (limit <= snapshot.size() || counters.size() <= snapshot.size())) {
+            return snapshot.subList(0, Math.min(limit, snapshot.size()));
+        }
+        if (limit <= 0 && counters.size() <= snapshot.size()) {
+            return snapshot;
         }
+        return scan(limit, 0);
+    }
 
-        return sortedStream.collect(Collectors.toMap(
-                Map.Entry::getKey,
-                Map.Entry::getValue,
-                (e1, e2) -> e1,
-                LinkedHashMap::new
-        ));
+    /**
+     * 获取累计次数不低于阈值的攻击者
+     *
+     * @param threshold 阈值
+     * @return 攻击者列表（降序）
+     */
+    public List<AttackStatsDTO.AttackRecord> getAttackersAbove(long threshold) {
+        List<AttackStatsDTO.AttackRecord> snapshot = topSnapshot;
+        // 快照已包含全部 IP，或者快照最后一名仍低于阈值，说明快照之外不会有更多满足条件的 IP
+        boolean complete = counters.size() <= snapshot.size()
+                || (!snapshot.isEmpty() && snapshot.get(snapshot.size() - 1).getCount() < threshold);
+        if (complete) {
+            return snapshot.stream().filter(r -> r.getCount() >= threshold).collect(Collectors.toList());
+        }
+        return scan(0, threshold);
     }
 
     /**
-     * 获取总攻击次数
+     * 获取总攻击次数（启动或清空以来累计）
      *
      * @return 总攻击次数
      */
     public long getTotalAttackCount() {
-        return attackStatsCache.asMap().values().stream()
-                .mapToLong(Long::longValue)
-                .sum();
+        return cumulative.sum();
+    }
+
+    /**
+     * 近 1 小时的总攻击次数
+     *
+     * @return 攻击次数
+     */
+    public long getLastHourAttackCount() {
+        return global.sum(SLOTS, System.currentTimeMillis());
+    }
+
+    /**
+     * 近 n 分钟的总攻击次数
+     *
+     * @param minutes 分钟数（1-60）
+     * @return 攻击次数
+     */
+    public long getRecentAttackCount(int minutes) {
+        return global.sum(minutes, System.currentTimeMillis());
     }
 
     /**
@@ -122,7 +268,7 @@ public class AttackStatsCacheService {
      * @return IP数量
      */
     public long getAttackerCount() {
-        return attackStatsCache.size();
+        return counters.size();
     }
 
     /**
@@ -135,8 +281,8 @@ public class AttackStatsCacheService {
         if (ip == null || ip.isEmpty()) {
             return 0;
         }
-        Long count = attackStatsCache.getIfPresent(ip);
-        return count == null ? 0 : count;
+        IpCounter counter = counters.get(ip);
+        return counter == null ? 0 : counter.total.sum();
     }
 
     /**
@@ -154,8 +300,11 @@ public class AttackStatsCacheService {
      * 清空所有统计数据（管理员操作）
      */
     public void clearAll() {
-        long beforeSize = attackStatsCache.size();
-        attackStatsCache.invalidateAll();
+        long beforeSize = counters.size();
+        counters.clear();
+        global.clear();
+        cumulative.reset();
+        topSnapshot = List.of();
         log.warn("所有攻击统计数据已清空，共清除 {} 条记录", beforeSize);
     }
 
@@ -165,10 +314,87 @@ public class AttackStatsCacheService {
      * @param ip 攻击者IP
      */
     public void removeIp(String ip) {
-        Long count = attackStatsCache.getIfPresent(ip);
-        if (count != null) {
-            attackStatsCache.invalidate(ip);
-            log.info("已移除IP {} 的攻击统计，原攻击次数: {}", ip, count);
+        IpCounter counter = counters.remove(ip);
+        if (counter != null) {
+            topSnapshot = topSnapshot.stream().filter(r -> !r.getIp().equals(ip)).toList();
+            log.info("已移除IP {} 的攻击统计，原攻击次数: {}", ip, counter.total.sum());
+        }
+    }
+
+    /**
+     * 遍历全部 IP（快照不够用时的兜底，管理员查询全部时才会走到）
+     */
+    private List<AttackStatsDTO.AttackRecord> scan(int limit, long threshold) {
+        long now = System.currentTimeMillis();
+        var stream = counters.entrySet().stream()
+                .map(entry -> record(entry.getKey(), entry.getValue(), entry.getValue().total.sum(), now))
+                .filter(r -> r.getCount() >= threshold)
+                .sorted(Comparator.comparingLong(AttackStatsDTO.AttackRecord::getCount).reversed());
+        if (limit > 0) {
+            stream = stream.limit(limit);
+        }
+        return stream.collect(Collectors.toList());
+    }
+
+    private static AttackStatsDTO.AttackRecord record(String ip, IpCounter counter, long count, long now) {
+        return new AttackStatsDTO.AttackRecord(ip, count,
+                counter.window.sum(1, now), counter.window.sum(10, now), counter.window.sum(SLOTS, now));
+    }
+
+    /**
+     * 单个 IP 的计数器
+     */
+    private static final class IpCounter {
+        private final LongAdder total = new LongAdder();
+        private final SlidingWindow window = new SlidingWindow();
+        private final AtomicBoolean alerted = new AtomicBoolean();
+        private volatile long lastSeen;
+
+        void increment(long now) {
+            total.increment();
+            window.increment(now);
+            lastSeen = now;
+        }
+    }
+
+    /**
+     * 一分钟一槽的滑动窗口，每个槽的高 32 位是分钟号、低 32 位是次数，CAS 更新
+     */
+    private static final class SlidingWindow {
+        private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+
+        void increment(long now) {
+            long minute = now / SLOT_MILLIS;
+            int index = (int) (minute % SLOTS);
+            while (true) {
+                long value = slots.get(index);
+                long next = (value >>> 32) == minute ? value + 1 : (minute << 32) | 1;
+                if (slots.compareAndSet(index, value, next)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 近 n 分钟（含当前分钟）的次数
+         */
+        long sum(int minutes, long now) {
+            long minute = now / SLOT_MILLIS;
+            long sum = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                long value = slots.get(i);
+                long age = minute - (value >>> 32);
+                if (age >= 0 && age < minutes) {
+                    sum += value & 0xFFFFFFFFL;
+                }
+            }
+            return sum;
+        }
+
+        void clear() {
+            for (int i = 0; i < SLOTS; i++) {
+                slots.set(i, 0);
+            }
         }
     }
 }
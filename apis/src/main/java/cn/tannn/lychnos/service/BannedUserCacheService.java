@@ -1,23 +1,31 @@
 package cn.tannn.lychnos.service;
 
-import cn.tannn.jdevelops.utils.jwt.config.JwtConfig;
 import cn.tannn.lychnos.common.constant.UserStatus;
+import cn.tannn.lychnos.common.util.LongHashSet;
 import cn.tannn.lychnos.dao.UserInfoDao;
-import cn.tannn.lychnos.entity.UserInfo;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import cn.tannn.lychnos.dao.UserStatusChangeDao;
+import cn.tannn.lychnos.entity.UserStatusChange;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 封禁用户缓存服务
- * <p>使用Guava Cache管理封禁用户ID，有效期与JWT过期时间一致</p>
- * <p>由于JWT无状态，需要通过缓存来实时控制封禁用户的访问权限</p>
+ * <p>由于JWT无状态，需要在内存中维护封禁用户ID，由 BannedUserFilter 在进入控制器前拦截</p>
+ * <ul>
+ *     <li>封禁名单存放在开放寻址的 long 集合中（不装箱），读多写极少，更新时复制后整体替换，查询无锁</li>
+ *     <li>封禁/解封写入 tb_user_status_change，各节点按自增版本号定时轮询同步；封禁状态不会随时间失效</li>
+ *     <li>定时全量重新加载兜底（只查询用户ID），并清理过期的变更记录</li>
+ * </ul>
  *
  * @author <a href="https://t.tannn.cn/">tan</a>
  * @version V1.0
@@ -28,16 +36,33 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class BannedUserCacheService {
 
-    private final JwtConfig jwtConfig;
+    /**
+     * 轮询时回看的版本数：自增版本号按分配顺序而非提交顺序可见，回看一段避免漏掉晚提交的变更（重复应用是幂等的）
+     */
+    private static final long LOOKBACK_VERSIONS = 32;
+
     private final UserInfoDao userInfoDao;
+    private final UserStatusChangeDao userStatusChangeDao;
+
+    /**
+     * 变更记录保留天数
+     */
+    @Value("${app.user.ban-sync.retention-days:7}")
+    private int retentionDays;
 
     /**
-     * 封禁用户缓存
-     * Key: 用户ID
-     * Value: 封禁时间戳（用于日志记录）
-     * 有效期: 与JWT过期时间一致（自动过期兜底）
+     * 封禁用户ID（只读快照，更新时整体替换）
      */
-    private Cache<Long, Long> bannedUserCache;
+    private volatile LongHashSet bannedUsers = new LongHashSet(16);
+
+    /**
+     * 已同步的最大版本号
+     */
+    private volatile long syncedVersion;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder syncedChanges = new LongAdder();
 
     /**
      * 初始化缓存并加载所有被封禁的用户
@@ -45,41 +70,68 @@ public class BannedUserCacheService {
      */
     @PostConstruct
     public void init() {
-        // 获取JWT过期时间（单位：小时，默认24小时）
-        long expireTimeHours = jwtConfig.getExpireTime();
-        log.info("初始化封禁用户缓存，过期时间: {}小时", expireTimeHours);
-
-        // 初始化缓存
-        bannedUserCache = CacheBuilder.newBuilder()
-                .expireAfterWrite(expireTimeHours, TimeUnit.HOURS)
-                .maximumSize(10000)
-                .build();
-
-        // 从数据库加载所有被封禁的用户
-        loadBannedUsersFromDatabase();
+        reload();
     }
 
     /**
-     * 从数据库加载所有被封禁的用户到缓存
-     * 防止项目重启后封禁状态丢失
+     * 从数据库加载所有被封禁的用户ID
+     * 先读版本号再读名单，期间发生的变更在下一次轮询时重新应用
      */
-    private void loadBannedUsersFromDatabase() {
+    private void reload() {
         try {
-            List<UserInfo> bannedUsers = userInfoDao.findByStatus(UserStatus.BANNED.getCode());
-            long currentTime = System.currentTimeMillis();
+            long version = userStatusChangeDao.maxVersion();
+            List<Long> ids = userInfoDao.findIdsByStatus(UserStatus.BANNED.getCode());
+            LongHashSet loaded = new LongHashSet(ids.size());
+            ids.forEach(loaded::add);
+            synchronized (this) {
+                bannedUsers = loaded;
+                syncedVersion = Math.max(syncedVersion, version);
+            }
+            log.info("从数据库加载了 {} 个被封禁用户，版本号: {}", ids.size(), version);
+        } catch (Exception e) {
+            log.error("从数据库加载封禁用户失败", e);
+        }
+    }
 
-            for (UserInfo user : bannedUsers) {
-                bannedUserCache.put(user.getId(), currentTime);
+    /**
+     * 轮询其他节点的封禁/解封
+     */
+    @Scheduled(fixedDelayString = "${app.user.ban-sync.interval-ms:5000}")
+    public void sync() {
+        try {
+            List<UserStatusChange> changes = userStatusChangeDao
+                    .findByVersionGreaterThanOrderByVersionAsc(Math.max(0, syncedVersion - LOOKBACK_VERSIONS));
+            for (UserStatusChange change : changes) {
+                if (apply(change.getUserId(), UserStatus.BANNED.getCode().equals(change.getStatus()))) {
+                    syncedChanges.increment();
+                    log.info("同步用户状态变更，userId: {}, status: {}, version: {}",
+                            change.getUserId(), change.getStatus(), change.getVersion());
+                }
+                syncedVersion = Math.max(syncedVersion, change.getVersion());
             }
+        } catch (Exception e) {
+            log.warn("同步封禁用户失败: {}", e.getMessage());
+        }
+    }
 
-            log.info("从数据库加载了 {} 个被封禁用户到缓存", bannedUsers.size());
+    /**
+     * 定时全量重新加载，并清理过期的变更记录
+     */
+    @Scheduled(cron = "${app.user.ban-sync.reload-cron:0 17 * * * *}")
+    public void scheduledReload() {
+        reload();
+        try {
+            int deleted = userStatusChangeDao.deleteByCreateTimeBefore(LocalDateTime.now().minusDays(retentionDays));
+            if (deleted > 0) {
+                log.info("清理过期的用户状态变更记录: {} 条", deleted);
+            }
         } catch (Exception e) {
-            log.error("从数据库加载封禁用户失败", e);
+            log.warn("清理用户状态变更记录失败: {}", e.getMessage());
         }
     }
 
     /**
-     * 添加封禁用户到缓存
+     * 封禁用户（用户状态保存后调用），同步到集群其他节点
      *
      * @param userId 用户ID
      */
@@ -88,12 +140,13 @@ public class BannedUserCacheService {
             log.warn("尝试添加空用户ID到封禁缓存");
             return;
         }
-        bannedUserCache.put(userId, System.currentTimeMillis());
+        publish(userId, UserStatus.BANNED.getCode());
+        apply(userId, true);
         log.info("用户已添加到封禁缓存，userId: {}", userId);
     }
 
     /**
-     * 从缓存中移除封禁用户
+     * 解封用户（用户状态保存后调用），同步到集群其他节点
      *
      * @param userId 用户ID
      */
@@ -102,7 +155,8 @@ public class BannedUserCacheService {
             log.warn("尝试移除空用户ID从封禁缓存");
             return;
         }
-        bannedUserCache.invalidate(userId);
+        publish(userId, UserStatus.NORMAL.getCode());
+        apply(userId, false);
         log.info("用户已从封禁缓存中移除，userId: {}", userId);
     }
 
@@ -116,16 +170,23 @@ public class BannedUserCacheService {
         if (userId == null) {
             return false;
         }
-        Long bannedTime = bannedUserCache.getIfPresent(userId);
-        return bannedTime != null;
+        checks.increment();
+        boolean banned = bannedUsers.contains(userId);
+        if (banned) {
+            rejected.increment();
+        }
+        return banned;
     }
 
     /**
-     * 清空所有封禁缓存（仅用于测试或管理维护）
+     * 清空本节点的封禁缓存后从数据库重新加载（仅用于管理维护）
      */
     public void clearAll() {
-        bannedUserCache.invalidateAll();
-        log.warn("所有封禁用户缓存已清空");
+        synchronized (this) {
+            bannedUsers = new LongHashSet(16);
+        }
+        reload();
+        log.warn("封禁用户缓存已重新加载");
     }
 
     /**
@@ -134,6 +195,55 @@ public class BannedUserCacheService {
      * @return 封禁用户数量
      */
     public long getBannedUserCount() {
-        return bannedUserCache.size();
+        return bannedUsers.size();
+    }
+
+    /**
+     * 封禁缓存统计
+     */
+    public Map<String, Object> stats() {
+        LongHashSet snapshot = bannedUsers;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("banned", snapshot.size());
+        stats.put("memoryBytes", snapshot.memoryBytes());
+        stats.put("syncedVersion", syncedVersion);
+        stats.put("syncedChanges", syncedChanges.sum());
+        stats.put("checks", checks.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    /**
+     * 写入变更记录
+     */
+    private void publish(Long userId, Integer status) {
+        UserStatusChange change = new UserStatusChange();
+        change.setUserId(userId);
+        change.setStatus(status);
+        change.setCreateTime(LocalDateTime.now());
+        userStatusChangeDao.save(change);
+    }
+
+    /**
+     * 更新本节点名单（复制后整体替换）
+     *
+     * @return 名单是否发生变化
+     */
+    private synchronized boolean apply(long userId, boolean banned) {
+        LongHashSet current = bannedUsers;
+        if (current.contains(userId) == banned) {
+            return false;
+        }
+        LongHashSet next = new LongHashSet(current.size() + 1);
+        current.forEach(id -> {
+            if (id != userId) {
+                next.add(id);
+            }
+        });
+        if (banned) {
+            next.add(userId);
+        }
+        bannedUsers = next;
+        return true;
     }
 }
@@ -6,6 +6,7 @@ import cn.tannn.lychnos.ai.prompt.ImagePrompt;
 import cn.tannn.lychnos.ai.service.AIService;
 import cn.tannn.lychnos.common.constant.BookSourceType;
 import cn.tannn.lychnos.common.constant.ModelType;
+import cn.tannn.lychnos.common.pojo.UserRequestInfo;
 import cn.tannn.lychnos.common.util.UserUtil;
 import cn.tannn.lychnos.controller.vo.BookExtractVO;
 import cn.tannn.lychnos.dao.BookAnalyseDao;
@@ -18,6 +19,7 @@ import com.alibaba.fastjson2.JSONObject;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,16 +41,21 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
     private final UserInterestDao userInterestDao;
     private final UserAnalysisLogService userAnalysisLogService;
     private final AIModelService aiModelService;
+    private final SimilarBookStatsCacheService similarBookStatsCacheService;
+    private final RateLimitService rateLimitService;
 
     public BookAnalyseService(AIService aiService, ImageStorageService imageStorageService,
                               UserInterestDao userInterestDao, UserAnalysisLogService userAnalysisLogService,
-                              AIModelService aiModelService) {
+                              AIModelService aiModelService, SimilarBookStatsCacheService similarBookStatsCacheService,
+                              RateLimitService rateLimitService) {
         super(BookAnalyse.class);
         this.aiService = aiService;
         this.imageStorageService = imageStorageService;
         this.userInterestDao = userInterestDao;
         this.userAnalysisLogService = userAnalysisLogService;
         this.aiModelService = aiModelService;
+        this.similarBookStatsCacheService = similarBookStatsCacheService;
+        this.rateLimitService = rateLimitService;
     }
 
     /**
@@ -90,14 +97,16 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
                 ));
 
                 // 尝试调用AI获取相似推荐
+                long startedAt = System.currentTimeMillis();
                 try {
                     String userMessage = BookPrompt.buildExtractUserMessageWithFound(found.getTitle(), found.getAuthor());
                     String aiResponse = aiService.generateTextWithSystem(userId, BookPrompt.EXTRACT_EXPERT, userMessage);
 
                     // 记录AI提取日志（成功）
-                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, true, null);
+                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, true, null, System.currentTimeMillis() - startedAt);
 
                     List<BookExtractVO> aiBooks = parseExtractResponse(aiResponse);
+                    similarBookStatsCacheService.recordSuggestions(aiBooks);
 
                     // 将AI推荐的书籍添加到结果中（排除已找到的书籍）
                     for (BookExtractVO book : aiBooks) {
@@ -110,7 +119,7 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
                 } catch (Exception e) {
                     log.warn("AI推荐失败，仅返回数据库中的书籍，书名: {}, 错误: {}", found.getTitle(), e.getMessage());
                     // 记录AI提取日志（失败）
-                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, false, e.getMessage());
+                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, false, e.getMessage(), System.currentTimeMillis() - startedAt);
                 }
 
                 // 无论AI是否成功，都返回至少包含数据库书籍的结果
@@ -119,19 +128,22 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
                 // 书籍已分析但用户未反馈，尝试使用AI获取推荐，失败则返回数据库书籍
                 log.info("书籍已分析但用户未反馈，尝试AI提取: {}", found.getTitle());
 
+                long startedAt = System.currentTimeMillis();
                 try {
                     String userMessage = BookPrompt.buildExtractUserMessage(userInput);
                     String aiResponse = aiService.generateTextWithSystem(userId, BookPrompt.EXTRACT_EXPERT, userMessage);
 
                     // 记录AI提取日志（成功）
-                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, true, null);
+                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, true, null, System.currentTimeMillis() - startedAt);
 
-                    return parseExtractResponse(aiResponse);
+                    List<BookExtractVO> aiBooks = parseExtractResponse(aiResponse);
+                    similarBookStatsCacheService.recordSuggestions(aiBooks);
+                    return aiBooks;
                 } catch (Exception e) {
                     log.warn("AI提取失败，返回数据库中的书籍，书名: {}, 错误: {}", found.getTitle(), e.getMessage());
 
                     // 记录AI提取日志（失败）
-                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, false, e.getMessage());
+                    userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, false, e.getMessage(), System.currentTimeMillis() - startedAt);
 
                     // AI失败，返回数据库中的书籍
                     List<BookExtractVO> fallbackResult = new ArrayList<>();
@@ -147,18 +159,21 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
         }
 
         // 3. 数据库中未找到，使用正常的AI提取流程（这里失败就真的失败了，因为没有备选数据）
+        long startedAt = System.currentTimeMillis();
         try {
             String userMessage = BookPrompt.buildExtractUserMessage(userInput);
             String aiResponse = aiService.generateTextWithSystem(userId, BookPrompt.EXTRACT_EXPERT, userMessage);
 
             // 记录AI提取日志（成功）
-            userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, true, null);
+            userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, true, null, System.currentTimeMillis() - startedAt);
 
             // 解析AI响应
-            return parseExtractResponse(aiResponse);
+            List<BookExtractVO> aiBooks = parseExtractResponse(aiResponse);
+            similarBookStatsCacheService.recordSuggestions(aiBooks);
+            return aiBooks;
         } catch (Exception e) {
             // 记录AI提取日志（失败）
-            userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, false, e.getMessage());
+            userAnalysisLogService.saveExtractLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), userInput, null, false, e.getMessage(), System.currentTimeMillis() - startedAt);
             throw e;
         }
     }
@@ -171,6 +186,18 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
      * @return 书籍分析
      */
     public BookAnalyse analyse(String bookTitle, String author, Long userId){
+        return analyse(bookTitle, author, userId, UserUtil.userRequestInfo());
+    }
+
+    /**
+     * 根据书名和作者分析书籍（显式传入请求信息，供非请求线程调用，如批量分析）
+     * @param bookTitle 书名
+     * @param author 作者
+     * @param userId 用户ID
+     * @param userInfo 用户请求信息（可为 null）
+     * @return 书籍分析
+     */
+    public BookAnalyse analyse(String bookTitle, String author, Long userId, UserRequestInfo userInfo){
         // 先查询是否已经分析过
         Optional<BookAnalyse> existingAnalyse = getJpaBasicsDao().findByTitle(bookTitle);
         if (existingAnalyse.isPresent()) {
@@ -181,7 +208,7 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
                 log.info("书籍已分析过且有图片，延时1秒后返回，书名: {}", bookTitle);
 
                 // 记录使用已有数据日志
-                userAnalysisLogService.saveUseExistingDataLog(userId, UserUtil.userRequestInfo(), bookTitle, existing.getId());
+                userAnalysisLogService.saveUseExistingDataLog(userId, userInfo, bookTitle, existing.getId());
 
                 try {
                     Thread.sleep(1000); // 延时1秒，提供视觉差
@@ -194,38 +221,56 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
 
             // 如果没有图片，尝试生成图片
             log.info("书籍已分析过但缺少图片，尝试生成图片，书名: {}", bookTitle);
-            generateAndSavePoster(existing, userId, bookTitle);
-            return getJpaBasicsDao().save(existing);
+            generateAndSavePoster(existing, userId, bookTitle, userInfo);
+            return saveWithPoster(existing);
         }
 
         // 使用AI进行分析
         log.info("开始AI分析书籍，书名: {}, 作者: {}, 用户ID: {}", bookTitle, author, userId);
 
-        try {
-            String userMessage = BookPrompt.buildAnalysisUserMessage(bookTitle, author);
-            String aiResponse = aiService.generateTextWithSystem(userId, BookPrompt.ANALYSIS_EXPERT, userMessage);
-
-            // 记录AI解析日志（成功）
-            userAnalysisLogService.saveParseLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), bookTitle, null, true, null);
-
-            // 解析AI响应并保存
-            BookAnalyse bookAnalyse = parseAIResponse(bookTitle, author, aiResponse);
-
-            // 生成书籍分析信息图
-            log.info("开始生成书籍分析信息图，书名: {}", bookTitle);
-            generateAndSavePoster(bookAnalyse, userId, bookTitle);
-
-            BookAnalyse saved = getJpaBasicsDao().save(bookAnalyse);
-
-            log.info("书籍分析完成并保存，书名: {}", bookTitle);
-            return saved;
-        } catch (Exception e) {
-            // 记录AI解析日志（失败）
-            userAnalysisLogService.saveParseLog(userId, UserUtil.userRequestInfo(), getTextModel(userId), bookTitle, null, false, e.getMessage());
-            throw e;
+        // 入口一次性预留文本和图片模型的令牌，避免文本分析消耗令牌后海报因图片限流生成失败；
+        // 预留在记录解析日志的 try 之外，被限流拒绝的请求不会记成失败的模型调用
+        try (RateLimitService.Reservation ignored = rateLimitService.reserveModels(userId,
+                aiModelService.getEnabledModel(userId, ModelType.TEXT),
+                aiModelService.getEnabledModel(userId, ModelType.IMAGE))) {
+            long startedAt = System.currentTimeMillis();
+            try {
+                String userMessage = BookPrompt.buildAnalysisUserMessage(bookTitle, author);
+                String aiResponse = aiService.generateTextWithSystem(userId, BookPrompt.ANALYSIS_EXPERT, userMessage);
+
+                // 记录AI解析日志（成功）
+                userAnalysisLogService.saveParseLog(userId, userInfo, getTextModel(userId), bookTitle, null, true, null, System.currentTimeMillis() - startedAt);
+
+                // 解析AI响应并保存
+                BookAnalyse bookAnalyse = parseAIResponse(bookTitle, author, aiResponse);
+
+                // 生成书籍分析信息图
+                log.info("开始生成书籍分析信息图，书名: {}", bookTitle);
+                generateAndSavePoster(bookAnalyse, userId, bookTitle, userInfo);
+
+                BookAnalyse saved = saveWithPoster(bookAnalyse);
+
+                log.info("书籍分析完成并保存，书名: {}", bookTitle);
+                return saved;
+            } catch (Exception e) {
+                // 记录AI解析日志（失败）
+                userAnalysisLogService.saveParseLog(userId, userInfo, getTextModel(userId), bookTitle, null, false, e.getMessage(), System.currentTimeMillis() - startedAt);
+                throw e;
+            }
         }
     }
 
+    /**
+     * 保存书籍分析，保存成功后再计入海报对图片内容的引用
+     * @param bookAnalyse 书籍分析（海报为本次新生成）
+     * @return 保存后的书籍分析
+     */
+    BookAnalyse saveWithPoster(BookAnalyse bookAnalyse) {
+        BookAnalyse saved = getJpaBasicsDao().save(bookAnalyse);
+        imageStorageService.retain(saved.getPosterUrl());
+        return saved;
+    }
+
     /**
      * 根据id查询书籍分析
      * @param bookAnalyseId BookAnalyse
@@ -240,31 +285,41 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
      * @param bookAnalyse 书籍分析对象
      * @param userId 用户ID
      * @param bookTitle 书名
+     * @param userInfo 用户请求信息
      */
-    private void generateAndSavePoster(BookAnalyse bookAnalyse, Long userId, String bookTitle) {
-        var userInfo = UserUtil.userRequestInfo();
+    private void generateAndSavePoster(BookAnalyse bookAnalyse, Long userId, String bookTitle, UserRequestInfo userInfo) {
+        long startedAt = System.currentTimeMillis();
         try {
             String imageContentPrompt = ImagePrompt.buildBookInfographicPrompt(bookAnalyse);
-            try (InputStream imageStream = aiService.generateImageStreamWithContent(userId, imageContentPrompt)) {
-                if (imageStream == null) {
-                    log.warn("AI 返回的图片流为 null，书名: {}", bookTitle);
-                    userAnalysisLogService.saveImageLog(userId, userInfo, getImageModel(userId), bookTitle, bookAnalyse.getId(), false, "AI返回的图片流为null");
-                    return;
-                }
-                String posterUrl = imageStorageService.saveImage(imageStream, bookTitle);
-                bookAnalyse.setPosterUrl(posterUrl);
-                log.info("书籍分析信息图生成并保存成功，posterUrl: {}", posterUrl);
-
-                userAnalysisLogService.saveImageLog(userId, userInfo, getImageModel(userId), bookTitle, bookAnalyse.getId(), true, null);
+            // 流式接口带重试，图片下载到存储临时目录，saveImage 直接接管临时文件入库
+            String posterUrl;
+            try (InputStream image = aiService.generateImageStreamWithContent(userId, imageContentPrompt)) {
+                posterUrl = imageStorageService.saveImage(image, bookTitle);
             }
+            bookAnalyse.setPosterUrl(posterUrl);
+            log.info("书籍分析信息图生成并保存成功，posterUrl: {}", posterUrl);
+
+            userAnalysisLogService.saveImageLog(userId, userInfo, getImageModel(userId), bookTitle, bookAnalyse.getId(), true, null, System.currentTimeMillis() - startedAt);
         } catch (Exception e) {
             log.warn("书籍分析信息图生成失败，书名: {}, 错误: {}", bookTitle, e.getMessage());
-            userAnalysisLogService.saveImageLog(userId, userInfo, getImageModel(userId), bookTitle, bookAnalyse.getId(), false, e.getMessage());
+            userAnalysisLogService.saveImageLog(userId, userInfo, getImageModel(userId), bookTitle, bookAnalyse.getId(), false, e.getMessage(), System.currentTimeMillis() - startedAt);
         }
     }
 
 
 
+    /**
+     * 使用指定官方图片模型生成并保存海报（书籍预热使用，用量记在系统账户下，不记录用户日志）
+     * @param bookAnalyse 书籍分析对象
+     * @param imageModel 官方图片模型
+     */
+    void generatePosterWithModel(BookAnalyse bookAnalyse, AIModel imageModel) throws IOException {
+        String imageContentPrompt = ImagePrompt.buildBookInfographicPrompt(bookAnalyse);
+        try (InputStream image = aiService.generateImageStreamWithContentAsSystem(imageModel, imageContentPrompt)) {
+            bookAnalyse.setPosterUrl(imageStorageService.saveImage(image, bookAnalyse.getTitle()));
+        }
+    }
+
     /**
      * 解析书籍提取响应（增强版：包含来源标注）
      */
@@ -312,24 +367,24 @@ public class BookAnalyseService extends J2ServiceImpl<BookAnalyseDao, BookAnalys
 
     /**
      * 获取文本模型（支持官方模型回退）
-     * 使用 AIModelService.getEnabledModel 确保与 AIService 的模型选择逻辑一致
+     * 使用 AIModelService.getEnabledModel 确保与 AIService 的模型选择逻辑一致（用于记录日志，调用已完成，不再检查官方模型额度）
      */
     private AIModel getTextModel(Long userId) {
-        return aiModelService.getEnabledModel(userId, ModelType.TEXT);
+        return aiModelService.getEnabledModel(userId, ModelType.TEXT, false);
     }
 
     /**
      * 获取图片模型（支持官方模型回退）
-     * 使用 AIModelService.getEnabledModel 确保与 AIService 的模型选择逻辑一致
+     * 使用 AIModelService.getEnabledModel 确保与 AIService 的模型选择逻辑一致（用于记录日志，调用已完成，不再检查官方模型额度）
      */
     private AIModel getImageModel(Long userId) {
-        return aiModelService.getEnabledModel(userId, ModelType.IMAGE);
+        return aiModelService.getEnabledModel(userId, ModelType.IMAGE, false);
     }
 
     /**
      * 解析AI响应
      */
-    private BookAnalyse parseAIResponse(String bookTitle, String author, String aiResponse) {
+    BookAnalyse parseAIResponse(String bookTitle, String author, String aiResponse) {
         try {
             // 移除可能的markdown代码块标记
             String jsonStr = aiResponse.trim();
@@ -0,0 +1,330 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.lychnos.common.constant.BatchItemStatus;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
+import cn.tannn.lychnos.common.pojo.UserRequestInfo;
+import cn.tannn.lychnos.controller.vo.BookBatchItemVO;
+import cn.tannn.lychnos.controller.vo.BookExtractVO;
+import cn.tannn.lychnos.entity.BookAnalyse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 书籍批量分析
+ * <p>处理流程：</p>
+ * <ol>
+ *     <li>书单按书名去重，一次 IN 查询找出已分析（且有图片）的书籍，立即返回，不调用 AI</li>
+ *     <li>其余书籍进入按用户分组的队列，由固定数量的工作线程轮询各用户队列执行，
+ *     单个用户同时在跑的数量有上限，一个用户的大书单不会占满全部线程</li>
+ *     <li>每个条目的状态变化（排队/分析中/完成/失败）通过 SSE 实时推送</li>
+ * </ol>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/3
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookBatchAnalyseService {
+
+    private final BookAnalyseService bookAnalyseService;
+
+    /**
+     * 批量分析全局并发数（同时调用 AI 的书籍数）
+     */
+    @Value("${app.book.batch.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 单个用户同时进行的分析数上限
+     */
+    @Value("${app.book.batch.per-user-parallelism:2}")
+    private int perUserParallelism;
+
+    /**
+     * 单次批量分析的最大书籍数
+     */
+    @Value("${app.book.batch.max-items:50}")
+    private int maxItems;
+
+    /**
+     * SSE 连接超时（毫秒）
+     */
+    @Value("${app.book.batch.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    /**
+     * 工作线程池，并发度由 {@link #dispatch()} 控制
+     */
+    private ExecutorService workers;
+
+    /**
+     * 按用户分组的待执行任务（LinkedHashMap 保证轮询顺序）
+     */
+    private final Map<Long, Deque<Runnable>> pending = new LinkedHashMap<>();
+
+    /**
+     * 各用户正在执行的任务数
+     */
+    private final Map<Long, Integer> running = new HashMap<>();
+
+    /**
+     * 正在执行的任务总数
+     */
+    private int runningTotal;
+
+    /**
+     * 同一本书正在进行的分析，跨请求/跨用户合并，避免重复调用 AI 及 idx_title 唯一键冲突
+     */
+    private final Map<String, CompletableFuture<BookAnalyse>> inflight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "book-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("书籍批量分析初始化完成，全局并发: {}, 单用户并发: {}, 单次上限: {}",
+                parallelism, perUserParallelism, maxItems);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 批量分析书籍
+     *
+     * @param books    书单
+     * @param userId   用户ID
+     * @param userInfo 用户请求信息（工作线程中无法从请求上下文获取，需提前取出）
+     * @return SseEmitter（事件：progress 进度、result 单本结果、complete 全部结束）
+     */
+    public SseEmitter analyseBatch(List<BookExtractVO> books, Long userId, UserRequestInfo userInfo) {
+        List<BookExtractVO> items = distinct(books);
+        if (items.isEmpty()) {
+            throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(), "书单不能为空");
+        }
+        if (items.size() > maxItems) {
+            throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(),
+                    "单次最多分析 " + maxItems + " 本书籍");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        BatchContext ctx = new BatchContext(emitter, items.size());
+        emitter.onCompletion(() -> ctx.cancelled.set(true));
+        emitter.onTimeout(() -> ctx.cancelled.set(true));
+        emitter.onError(e -> ctx.cancelled.set(true));
+
+        // 1. 一次 IN 查询找出已分析的书籍
+        Map<String, BookAnalyse> existing = new HashMap<>();
+        for (BookAnalyse analyse : bookAnalyseService.getJpaBasicsDao()
+                .findByTitleIn(items.stream().map(BookExtractVO::getTitle).toList())) {
+            if (analyse.getPosterUrl() != null && !analyse.getPosterUrl().isEmpty()) {
+                existing.put(analyse.getTitle(), analyse);
+            }
+        }
+        log.info("批量分析开始，userId: {}, 共 {} 本，已分析 {} 本", userId, items.size(), existing.size());
+
+        // 2. 已分析的立即返回，其余进入队列
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            BookExtractVO book = items.get(i);
+            BookAnalyse found = existing.get(book.getTitle());
+            if (found != null) {
+                BookBatchItemVO item = new BookBatchItemVO(i, book.getTitle(), BatchItemStatus.EXISTING);
+                item.setData(found);
+                ctx.finish("result", item);
+            } else {
+                ctx.send("progress", new BookBatchItemVO(i, book.getTitle(), BatchItemStatus.QUEUED));
+                int index = i;
+                tasks.add(() -> analyseOne(ctx, index, book, userId, userInfo));
+            }
+        }
+        if (!tasks.isEmpty()) {
+            submit(userId, tasks);
+        }
+        return emitter;
+    }
+
+    /**
+     * 分析单本书籍并推送结果
+     */
+    private void analyseOne(BatchContext ctx, int index, BookExtractVO book, Long userId, UserRequestInfo userInfo) {
+        String title = book.getTitle();
+        if (ctx.cancelled.get()) {
+            log.debug("批量分析已断开，跳过书籍: {}", title);
+            return;
+        }
+        ctx.send("progress", new BookBatchItemVO(index, title, BatchItemStatus.ANALYZING));
+
+        CompletableFuture<BookAnalyse> mine = new CompletableFuture<>();
+        CompletableFuture<BookAnalyse> other = inflight.putIfAbsent(title, mine);
+        BookBatchItemVO item;
+        try {
+            BookAnalyse result;
+            if (other != null) {
+                // 同一本书正在被分析，等待其结果即可
+                result = other.join();
+            } else {
+                try {
+                    result = bookAnalyseService.analyse(title, book.getAuthor(), userId, userInfo);
+                    mine.complete(result);
+                } catch (RuntimeException e) {
+                    mine.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inflight.remove(title, mine);
+                }
+            }
+            item = new BookBatchItemVO(index, title, BatchItemStatus.DONE);
+            item.setData(result);
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null
+                    ? e.getCause() : e;
+            log.warn("批量分析单本失败，userId: {}, 书名: {}, 错误: {}", userId, title, cause.getMessage());
+            item = new BookBatchItemVO(index, title, BatchItemStatus.FAILED);
+            item.setMessage(cause.getMessage());
+        }
+        ctx.finish("result", item);
+    }
+
+    /**
+     * 提交一个用户的任务
+     */
+    private void submit(Long userId, List<Runnable> tasks) {
+        synchronized (pending) {
+            pending.computeIfAbsent(userId, k -> new ArrayDeque<>()).addAll(tasks);
+            dispatch();
+        }
+    }
+
+    /**
+     * 轮询各用户队列，在全局/单用户并发上限内派发任务（调用方需持有 pending 锁）
+     */
+    private void dispatch() {
+        while (runningTotal < parallelism && !pending.isEmpty()) {
+            Long picked = null;
+            for (Long userId : pending.keySet()) {
+                if (running.getOrDefault(userId, 0) < perUserParallelism) {
+                    picked = userId;
+                    break;
+                }
+            }
+            if (picked == null) {
+                return;
+            }
+            // 取出后将该用户移到队尾，实现轮询
+            Deque<Runnable> queue = pending.remove(picked);
+            Runnable task = queue.poll();
+            if (!queue.isEmpty()) {
+                pending.put(picked, queue);
+            }
+            running.merge(picked, 1, Integer::sum);
+            runningTotal++;
+
+            Long userId = picked;
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("批量分析任务异常，userId: {}", userId, e);
+                } finally {
+                    synchronized (pending) {
+                        running.computeIfPresent(userId, (k, v) -> v > 1 ? v - 1 : null);
+                        runningTotal--;
+                        dispatch();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 书单按书名去重（保持原顺序），忽略空书名
+     */
+    private List<BookExtractVO> distinct(List<BookExtractVO> books) {
+        if (books == null) {
+            return List.of();
+        }
+        Map<String, BookExtractVO> unique = new LinkedHashMap<>();
+        for (BookExtractVO book : books) {
+            if (book == null || book.getTitle() == null || book.getTitle().trim().isEmpty()) {
+                continue;
+            }
+            String title = book.getTitle().trim();
+            unique.putIfAbsent(title, new BookExtractVO(title, book.getAuthor()));
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    /**
+     * 单次批量请求的上下文
+     */
+    private static class BatchContext {
+        private final SseEmitter emitter;
+        private final int total;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        BatchContext(SseEmitter emitter, int total) {
+            this.emitter = emitter;
+            this.total = total;
+        }
+
+        /**
+         * 推送终态条目，全部完成后结束连接
+         */
+        void finish(String event, BookBatchItemVO item) {
+            int done = completed.incrementAndGet();
+            send(event, item, done);
+            if (done == total) {
+                try {
+                    emitter.send(SseEmitter.event().name("complete").data(Map.of("total", total)));
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("批量分析完成事件推送失败: {}", e.getMessage());
+                }
+                emitter.complete();
+            }
+        }
+
+        void send(String event, BookBatchItemVO item) {
+            send(event, item, completed.get());
+        }
+
+        private void send(String event, BookBatchItemVO item, int done) {
+            if (cancelled.get()) {
+                return;
+            }
+            item.setCompleted(done);
+            item.setTotal(total);
+            try {
+                emitter.send(SseEmitter.event().name(event).data(item));
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开，剩余排队任务将被跳过
+                log.debug("批量分析推送失败，客户端可能已断开: {}", e.getMessage());
+                cancelled.set(true);
+            }
+        }
+    }
+}
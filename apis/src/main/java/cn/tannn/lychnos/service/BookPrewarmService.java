@@ -0,0 +1,414 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.lychnos.ai.prompt.BookPrompt;
+import cn.tannn.lychnos.ai.service.AIService;
+import cn.tannn.lychnos.common.constant.ModelType;
+import cn.tannn.lychnos.common.constant.PrewarmSource;
+import cn.tannn.lychnos.controller.vo.BookExtractVO;
+import cn.tannn.lychnos.controller.vo.PrewarmReportVO;
+import cn.tannn.lychnos.dao.BookPrewarmDao;
+import cn.tannn.lychnos.dao.PrewarmSeedDao;
+import cn.tannn.lychnos.entity.AIModel;
+import cn.tannn.lychnos.entity.BookAnalyse;
+import cn.tannn.lychnos.entity.BookPrewarm;
+import cn.tannn.lychnos.entity.PrewarmSeed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 书籍预热（空闲时段预分析热门书籍）
+ * <p>候选来源（按优先级）：</p>
+ * <ol>
+ *     <li>管理员维护的预热书单 {@link PrewarmSeed}</li>
+ *     <li>AI 提取时高频推荐的相似书籍 {@link SimilarBookStatsCacheService}</li>
+ *     <li>近期用户提取最多的书籍（AI 识别出的书名，而不是用户原始输入）</li>
+ * </ol>
+ * <p>只使用官方模型，通过 AIService 的系统调用入口执行，用量记在系统账户下；只在配置的空闲时段运行，每本书之间留出间隔；
+ * 每日 Token / 图片预算按 tb_book_prewarm 当日累计值控制，重启后依然有效</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookPrewarmService {
+
+    private final BookAnalyseService bookAnalyseService;
+    private final BookPrewarmDao bookPrewarmDao;
+    private final PrewarmSeedDao prewarmSeedDao;
+    private final SimilarBookStatsCacheService similarBookStatsCacheService;
+    private final AIModelService aiModelService;
+    private final AIService aiService;
+
+    /**
+     * 是否启用定时预热
+     */
+    @Value("${app.prewarm.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 空闲时段，多个用逗号分隔，支持跨零点，如 23:00-07:00
+     */
+    @Value("${app.prewarm.windows:01:00-07:00}")
+    private String windows;
+
+    /**
+     * 每轮最多预热的书籍数
+     */
+    @Value("${app.prewarm.batch-size:5}")
+    private int batchSize;
+
+    /**
+     * 两本书之间的间隔（毫秒）
+     */
+    @Value("${app.prewarm.interval-ms:30000}")
+    private long intervalMs;
+
+    /**
+     * 每日 Token 预算
+     */
+    @Value("${app.prewarm.daily-token-budget:200000}")
+    private long dailyTokenBudget;
+
+    /**
+     * 每日图片预算
+     */
+    @Value("${app.prewarm.daily-image-budget:20}")
+    private long dailyImageBudget;
+
+    /**
+     * 相似推荐最少被推荐次数
+     */
+    @Value("${app.prewarm.similar-min-count:3}")
+    private long similarMinCount;
+
+    /**
+     * 失败书籍的重试间隔（天）
+     */
+    @Value("${app.prewarm.retry-after-days:1}")
+    private int retryAfterDays;
+
+    /**
+     * 解析后的空闲时段 [开始, 结束]
+     */
+    private final List<LocalTime[]> windowRanges = new ArrayList<>();
+
+    /**
+     * 预热执行线程（单线程，天然串行）
+     */
+    private ExecutorService executor;
+
+    /**
+     * 是否正在执行
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        for (String window : windows.split(",")) {
+            String[] range = window.trim().split("-");
+            if (range.length == 2) {
+                windowRanges.add(new LocalTime[]{LocalTime.parse(range[0].trim()), LocalTime.parse(range[1].trim())});
+            }
+        }
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "book-prewarm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("书籍预热初始化完成，启用: {}, 空闲时段: {}, 每日预算: {} tokens / {} 张图片",
+                enabled, windows, dailyTokenBudget, dailyImageBudget);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 定时检查，处于空闲时段则执行一轮预热
+     */
+    @Scheduled(cron = "${app.prewarm.cron:0 */10 * * * *}")
+    public void scheduledPrewarm() {
+        if (!enabled || !inWindow(LocalTime.now())) {
+            return;
+        }
+        trigger(true);
+    }
+
+    /**
+     * 触发一轮预热（异步执行）
+     *
+     * @param respectWindow 是否遵守空闲时段（管理员手动触发时不限制时段，但仍受预算限制）
+     * @return 是否成功触发（已有一轮在执行时返回 false）
+     */
+    public boolean trigger(boolean respectWindow) {
+        if (!running.compareAndSet(false, true)) {
+            log.debug("书籍预热正在执行，跳过本次触发");
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                runOnce(respectWindow);
+            } catch (Exception e) {
+                log.error("书籍预热执行异常", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 执行一轮预热
+     */
+    private void runOnce(boolean respectWindow) throws InterruptedException {
+        AIModel textModel = firstOfficialModel(ModelType.TEXT);
+        AIModel imageModel = firstOfficialModel(ModelType.IMAGE);
+        if (textModel == null || imageModel == null) {
+            log.warn("未配置可用的官方文本/图片模型，跳过书籍预热");
+            return;
+        }
+
+        List<BookPrewarm> candidates = collectCandidates();
+        log.info("书籍预热开始，候选 {} 本", candidates.size());
+
+        int done = 0;
+        for (BookPrewarm candidate : candidates) {
+            if (done >= batchSize) {
+                break;
+            }
+            if (respectWindow && !inWindow(LocalTime.now())) {
+                log.info("已离开空闲时段，停止书籍预热");
+                break;
+            }
+            LocalDateTime today = LocalDate.now().atStartOfDay();
+            if (bookPrewarmDao.sumTokensSince(today) >= dailyTokenBudget
+                    || bookPrewarmDao.sumImagesSince(today) >= dailyImageBudget) {
+                log.info("书籍预热今日预算已用完，停止");
+                break;
+            }
+            if (done > 0) {
+                TimeUnit.MILLISECONDS.sleep(intervalMs);
+            }
+            prewarmOne(candidate, textModel, imageModel);
+            done++;
+        }
+        log.info("书籍预热结束，本轮处理 {} 本", done);
+    }
+
+    /**
+     * 预分析一本书并记录
+     */
+    private void prewarmOne(BookPrewarm record, AIModel textModel, AIModel imageModel) {
+        String title = record.getTitle();
+        String userMessage = BookPrompt.buildAnalysisUserMessage(title, record.getAuthor());
+        record.setTokens(0);
+        record.setImages(0);
+        try {
+            ChatResponse response = aiService.generateChatAsSystem(textModel, BookPrompt.ANALYSIS_EXPERT, userMessage);
+            String content = response.getResult().getOutput().getText();
+            record.setTokens(countTokens(response, userMessage, content));
+
+            BookAnalyse bookAnalyse = bookAnalyseService.parseAIResponse(title, record.getAuthor(), content);
+            try {
+                bookAnalyseService.generatePosterWithModel(bookAnalyse, imageModel);
+                record.setImages(1);
+            } catch (Exception e) {
+                log.warn("书籍预热图片生成失败，书名: {}, 错误: {}", title, e.getMessage());
+            }
+            BookAnalyse saved = bookAnalyseService.saveWithPoster(bookAnalyse);
+            record.setBookAnalyseId(saved.getId());
+            record.setSuccess(bookAnalyse.getPosterUrl() != null);
+            if (bookAnalyse.getPosterUrl() == null) {
+                record.setErrorMessage("图片生成失败");
+            }
+            log.info("书籍预热完成，书名: {}, 来源: {}, tokens: {}", title, record.getSource(), record.getTokens());
+        } catch (Exception e) {
+            // 可能是用户在预热期间刚好分析了同一本书（idx_title 唯一键冲突）
+            log.warn("书籍预热失败，书名: {}, 错误: {}", title, e.getMessage());
+            record.setSuccess(false);
+            record.setErrorMessage(e.getMessage());
+        }
+        bookPrewarmDao.save(record);
+    }
+
+    /**
+     * 收集候选书籍：按来源优先级合并去重，排除已分析和近期已尝试的书籍
+     */
+    private List<BookPrewarm> collectCandidates() {
+        int limit = batchSize * 4;
+        Map<String, BookPrewarm> candidates = new LinkedHashMap<>();
+
+        for (PrewarmSeed seed : prewarmSeedDao.findByEnabledOrderByCreateTimeAsc(true)) {
+            addCandidate(candidates, seed.getTitle(), seed.getAuthor(), PrewarmSource.ADMIN);
+        }
+        for (BookExtractVO book : similarBookStatsCacheService.getTopSuggestions(similarMinCount, limit)) {
+            addCandidate(candidates, book.getTitle(), book.getAuthor(), PrewarmSource.SIMILAR);
+        }
+        for (BookExtractVO book : similarBookStatsCacheService.getTopExtracted(limit)) {
+            addCandidate(candidates, book.getTitle(), book.getAuthor(), PrewarmSource.EXTRACT_LOG);
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // 排除已分析（有图片）的书籍
+        for (BookAnalyse analysed : bookAnalyseService.getJpaBasicsDao().findByTitleIn(candidates.keySet())) {
+            if (analysed.getPosterUrl() != null && !analysed.getPosterUrl().isEmpty()) {
+                candidates.remove(analysed.getTitle());
+            }
+        }
+        // 排除近期已尝试过的书籍（失败的不反复重试）
+        if (!candidates.isEmpty()) {
+            bookPrewarmDao.findAttemptedTitles(candidates.keySet(), LocalDateTime.now().minusDays(retryAfterDays))
+                    .forEach(candidates::remove);
+        }
+        return new ArrayList<>(candidates.values());
+    }
+
+    private void addCandidate(Map<String, BookPrewarm> candidates, String title, String author, PrewarmSource source) {
+        if (title == null || title.trim().isEmpty()) {
+            return;
+        }
+        String trimmed = title.trim();
+        if (!candidates.containsKey(trimmed)) {
+            BookPrewarm record = new BookPrewarm();
+            record.setTitle(trimmed);
+            record.setAuthor(author);
+            record.setSource(source);
+            candidates.put(trimmed, record);
+        }
+    }
+
+    /**
+     * 统计 Token 消耗，厂商未返回 usage 时按字符数估算
+     */
+    private int countTokens(ChatResponse response, String userMessage, String content) {
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+            return usage.getTotalTokens();
+        }
+        int chars = BookPrompt.ANALYSIS_EXPERT.length() + userMessage.length()
+                + (content != null ? content.length() : 0);
+        return (chars + 1) / 2;
+    }
+
+    /**
+     * 第一个启用的官方模型
+     */
+    private AIModel firstOfficialModel(ModelType type) {
+        List<AIModel> models = aiModelService.findOfficialModels(type);
+        return models.isEmpty() ? null : models.get(0);
+    }
+
+    /**
+     * 是否处于空闲时段
+     */
+    boolean inWindow(LocalTime now) {
+        for (LocalTime[] range : windowRanges) {
+            LocalTime start = range[0];
+            LocalTime end = range[1];
+            boolean in = start.isBefore(end)
+                    ? !now.isBefore(start) && now.isBefore(end)
+                    // 跨零点，如 23:00-07:00
+                    : !now.isBefore(start) || now.isBefore(end);
+            if (in) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 预热报告
+     *
+     * @param days 统计最近天数
+     * @return PrewarmReportVO
+     */
+    public PrewarmReportVO report(int days) {
+        LocalDateTime since = LocalDate.now().minusDays(Math.max(days, 1) - 1L).atStartOfDay();
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+
+        PrewarmReportVO report = new PrewarmReportVO();
+        report.setDays(days);
+        Object[] summary = firstRow(bookPrewarmDao.summarySince(since), 4);
+        report.setPrewarmed(toLong(summary[0]));
+        report.setFailed(toLong(summary[1]));
+        report.setTokensUsed(toLong(summary[2]));
+        report.setImagesUsed(toLong(summary[3]));
+        Object[] hits = firstRow(bookPrewarmDao.cacheHitsSince(since), 2);
+        report.setHitRequests(toLong(hits[0]));
+        report.setHitBooks(toLong(hits[1]));
+        report.setTodayTokensUsed(bookPrewarmDao.sumTokensSince(today));
+        report.setTodayImagesUsed(bookPrewarmDao.sumImagesSince(today));
+        report.setDailyTokenBudget(dailyTokenBudget);
+        report.setDailyImageBudget(dailyImageBudget);
+        report.setRunning(running.get());
+        return report;
+    }
+
+    /**
+     * 管理员书单：新增
+     *
+     * @param title  书名
+     * @param author 作者
+     * @return PrewarmSeed
+     */
+    public PrewarmSeed addSeed(String title, String author) {
+        String trimmed = title.trim();
+        if (prewarmSeedDao.findByTitle(trimmed).isPresent()) {
+            throw new BusinessException("该书籍已在预热书单中");
+        }
+        PrewarmSeed seed = new PrewarmSeed();
+        seed.setTitle(trimmed);
+        seed.setAuthor(author);
+        seed.setEnabled(true);
+        return prewarmSeedDao.save(seed);
+    }
+
+    /**
+     * 管理员书单：全部
+     *
+     * @return PrewarmSeed
+     */
+    public List<PrewarmSeed> listSeeds() {
+        return prewarmSeedDao.findAll();
+    }
+
+    /**
+     * 管理员书单：删除
+     *
+     * @param id id
+     */
+    public void removeSeed(Long id) {
+        prewarmSeedDao.deleteById(id);
+    }
+
+    private static Object[] firstRow(List<Object[]> rows, int width) {
+        return rows.isEmpty() || rows.get(0) == null ? new Object[width] : rows.get(0);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -0,0 +1,315 @@
+package cn.tannn.lychnos.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点图片字节缓存
+ * <p>图片内容放在堆外 DirectByteBuffer 中，不占用堆内存也不增加 GC 扫描负担；
+ * 按总字节数限制容量，淘汰顺序为 LRU，准入使用 TinyLFU：</p>
+ * <ul>
+ *     <li>所有访问（包括未缓存的）都计入 Count-Min Sketch 频率估计，计数达到采样上限后整体减半（老化）</li>
+ *     <li>缓存已满时，只有候选的访问频率高于将被淘汰的条目时才准入，偶发的大量冷门访问无法冲掉热点</li>
+ * </ul>
+ * <p>只缓存内容不可变的图片（内容寻址原图及其变体），无需处理失效</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/7
+ */
+@Component
+@Slf4j
+public class HotImageCache {
+
+    /**
+     * Count-Min Sketch 行数
+     */
+    private static final int SKETCH_DEPTH = 4;
+
+    /**
+     * 单个计数器上限（4 位计数器，足够区分冷热）
+     */
+    private static final int MAX_FREQUENCY = 15;
+
+    /**
+     * 缓存总字节数上限，默认 64MB（堆外内存，受 -XX:MaxDirectMemorySize 限制）
+     */
+    @Value("${app.image.hot-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    /**
+     * 单张图片最大字节数，超过不缓存
+     */
+    @Value("${app.image.hot-cache.max-entry-bytes:8388608}")
+    private long maxEntryBytes;
+
+    /**
+     * 频率估计的宽度（每行计数器数量，取 2 的幂）
+     */
+    @Value("${app.image.hot-cache.sketch-width:4096}")
+    private int sketchWidth;
+
+    /**
+     * 频率计数器 [行][列]
+     */
+    private byte[][] sketch;
+
+    /**
+     * 每行的哈希种子
+     */
+    private int[] seeds;
+
+    /**
+     * 累计计数次数，达到 sampleSize 时全部减半
+     */
+    private int additions;
+
+    /**
+     * 老化采样数（宽度的 10 倍）
+     */
+    private int sampleSize;
+
+    /**
+     * 缓存内容（访问顺序，头部为最久未访问）
+     */
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * 当前占用字节数（受 entries 锁保护）
+     */
+    private long residentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int width = Integer.highestOneBit(Math.max(64, sketchWidth));
+        sketch = new byte[SKETCH_DEPTH][width];
+        seeds = new int[SKETCH_DEPTH];
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            seeds[i] = ThreadLocalRandom.current().nextInt() | 1;
+        }
+        sampleSize = width * 10;
+        log.info("热点图片缓存初始化完成，容量: {} 字节，单张上限: {} 字节", maxBytes, maxEntryBytes);
+    }
+
+    /**
+     * 获取图片内容，未缓存时按 TinyLFU 决定是否读入
+     *
+     * @param key  缓存键（不可变内容的标识，如内容哈希）
+     * @param file 图片文件
+     * @return 只读缓冲区（独立的读写位置），未缓存且未准入返回 null
+     */
+    public ByteBuffer get(String key, Path file) {
+        ByteBuffer cached;
+        synchronized (entries) {
+            increment(key);
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached.duplicate();
+        }
+        misses.increment();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxEntryBytes || size > maxBytes || !shouldAdmit(key, size)) {
+                rejections.increment();
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // 读满为止
+            }
+            buffer.flip();
+            ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+            put(key, readOnly, false);
+            return readOnly.duplicate();
+        } catch (IOException e) {
+            log.debug("读取热点图片失败: {}, {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 预热：直接读入缓存（跳过准入判断，并提升频率）
+     *
+     * @param key  缓存键
+     * @param file 图片文件
+     */
+    public void warm(String key, Path file) {
+        synchronized (entries) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+            for (int i = 0; i < MAX_FREQUENCY / 3; i++) {
+                increment(key);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxEntryBytes || size > maxBytes) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // 读满为止
+            }
+            buffer.flip();
+            put(key, buffer.asReadOnlyBuffer(), true);
+        } catch (IOException e) {
+            log.debug("预热图片失败: {}, {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("residentBytes", residentBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", total == 0 ? 0 : (double) hitCount / total);
+        stats.put("admissions", admissions.sum());
+        stats.put("rejections", rejections.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * 准入判断（加锁）
+     */
+    private boolean shouldAdmit(String key, long size) {
+        synchronized (entries) {
+            return admissible(key, size);
+        }
+    }
+
+    /**
+     * TinyLFU 准入：空间足够直接准入，否则候选频率需高于所有将被淘汰条目的频率（调用方持有 entries 锁）
+     */
+    private boolean admissible(String key, long size) {
+        long needed = residentBytes + size - maxBytes;
+        if (needed <= 0) {
+            return true;
+        }
+        int candidate = frequency(key);
+        long freed = 0;
+        // 遍历 entrySet 不会改变访问顺序
+        for (Map.Entry<String, ByteBuffer> entry : entries.entrySet()) {
+            if (freed >= needed) {
+                break;
+            }
+            if (frequency(entry.getKey()) >= candidate) {
+                return false;
+            }
+            freed += entry.getValue().capacity();
+        }
+        return freed >= needed;
+    }
+
+    /**
+     * 放入缓存并按 LRU 淘汰到容量以内
+     */
+    private void put(String key, ByteBuffer buffer, boolean force) {
+        synchronized (entries) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+            // 读取期间可能有其他条目进入，重新做一次准入判断
+            if (!force && !admissible(key, buffer.capacity())) {
+                rejections.increment();
+                return;
+            }
+            Iterator<Map.Entry<String, ByteBuffer>> iterator = entries.entrySet().iterator();
+            while (residentBytes + buffer.capacity() > maxBytes && iterator.hasNext()) {
+                residentBytes -= iterator.next().getValue().capacity();
+                iterator.remove();
+                evictions.increment();
+            }
+            entries.put(key, buffer);
+            residentBytes += buffer.capacity();
+            admissions.increment();
+        }
+    }
+
+    /**
+     * 频率计数 +1（调用方持有 entries 锁）
+     */
+    private void increment(String key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            int index = indexOf(hash, i);
+            if (sketch[i][index] < MAX_FREQUENCY) {
+                sketch[i][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 频率估计（各行最小值，调用方持有 entries 锁）
+     */
+    private int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int min = MAX_FREQUENCY;
+        for (int i = 0; i < SKETCH_DEPTH; i++) {
+            min = Math.min(min, sketch[i][indexOf(hash, i)]);
+        }
+        return min;
+    }
+
+    /**
+     * 老化：所有计数减半，让过去的热点逐渐让位
+     */
+    private void reset() {
+        for (byte[] row : sketch) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) (row[i] >>> 1);
+            }
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = hash * seeds[row];
+        h ^= h >>> 16;
+        return h & (sketch[row].length - 1);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        return hash;
+    }
+}
@@ -0,0 +1,232 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求服务（请求头 Idempotency-Key）
+ * <p>客户端网络不稳定时会重试书籍分析、书籍提取等耗时接口，每次重试都会重新调用 AI。
+ * 携带相同 Idempotency-Key 的重复请求不再执行业务：</p>
+ * <ul>
+ *     <li>首个请求仍在执行：挂到同一个 Future 上等待其结果</li>
+ *     <li>首个请求已成功：在有效期内直接返回缓存的结果</li>
+ *     <li>首个请求失败：移除记录并把异常传给等待中的请求，之后的重试重新执行</li>
+ *     <li>同一个 Key 携带不同的请求内容：拒绝</li>
+ * </ul>
+ * <p>Key 按用户和接口隔离，只保存在本节点内存中（重试一般落在同一节点；落到其他节点时由业务自身的已分析检查兜底）</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/19
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    /**
+     * 请求头名称
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    /**
+     * Key 的最大长度
+     */
+    private static final int MAX_KEY_LENGTH = 128;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.idempotency.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 成功结果的保留时间（毫秒）
+     */
+    @Value("${app.idempotency.ttl-ms:600000}")
+    private long ttlMs;
+
+    /**
+     * 重复请求等待首个请求完成的最长时间（毫秒）
+     */
+    @Value("${app.idempotency.max-wait-ms:600000}")
+    private long maxWaitMs;
+
+    /**
+     * 最多保存的 Key 数，超过后新请求不再记录（照常执行）
+     */
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    private final ConcurrentHashMap<EntryKey, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder attached = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder overflow = new LongAdder();
+
+    /**
+     * 按幂等 Key 执行
+     *
+     * @param userId      用户ID
+     * @param scope       接口标识（如 book.analyze）
+     * @param key         请求头中的 Idempotency-Key，为空时直接执行
+     * @param fingerprint 请求内容（用于识别同一个 Key 被用于不同请求）
+     * @param work        业务逻辑
+     * @return 业务结果（重复请求返回首个请求的结果）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Long userId, String scope, String key, String fingerprint, Supplier<T> work) {
+        if (!enabled || key == null || key.isBlank()) {
+            return work.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(),
+                    HEADER + " 长度不能超过 " + MAX_KEY_LENGTH);
+        }
+        if (entries.size() >= maxEntries) {
+            overflow.increment();
+            log.debug("幂等记录已满，直接执行，scope: {}, userId: {}", scope, userId);
+            return work.get();
+        }
+
+        EntryKey entryKey = new EntryKey(userId, scope, key);
+        String digest = DigestUtils.md5DigestAsHex(
+                (fingerprint == null ? "" : fingerprint).getBytes(StandardCharsets.UTF_8));
+        Entry fresh = new Entry(digest);
+        while (true) {
+            Entry existing = entries.putIfAbsent(entryKey, fresh);
+            if (existing == null) {
+                break;
+            }
+            if (existing.isExpired(System.currentTimeMillis())) {
+                entries.remove(entryKey, existing);
+                continue;
+            }
+            if (!existing.digest.equals(digest)) {
+                conflicts.increment();
+                throw new BusinessException(BusinessErrorCode.IDEMPOTENCY_KEY_REUSED.getCode(),
+                        BusinessErrorCode.IDEMPOTENCY_KEY_REUSED.getMessage());
+            }
+            if (existing.future.isDone()) {
+                replayed.increment();
+            } else {
+                attached.increment();
+                log.info("重复请求等待进行中的结果，scope: {}, userId: {}, key: {}", scope, userId, key);
+            }
+            return (T) await(existing);
+        }
+
+        executed.increment();
+        try {
+            T result = work.get();
+            fresh.expireAt = System.currentTimeMillis() + ttlMs;
+            fresh.future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            // 失败不缓存，之后的重试重新执行
+            entries.remove(entryKey, fresh);
+            fresh.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 等待首个请求的结果，首个请求的异常原样抛出
+     */
+    private Object await(Entry entry) {
+        try {
+            return entry.future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BusinessException("相同请求仍在处理中，请稍后再试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("请求被中断");
+        }
+    }
+
+    /**
+     * 清理过期的结果
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-ms:60000}")
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        int removed = before - entries.size();
+        if (removed > 0) {
+            log.debug("清理过期的幂等记录: {} 条", removed);
+        }
+    }
+
+    /**
+     * 幂等统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("executed", executed.sum());
+        stats.put("attached", attached.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("conflicts", conflicts.sum());
+        stats.put("overflow", overflow.sum());
+        return stats;
+    }
+
+    /**
+     * 幂等记录的键：用户 + 接口 + Key
+     */
+    @EqualsAndHashCode
+    private static final class EntryKey {
+        private final Long userId;
+        private final String scope;
+        private final String key;
+
+        private EntryKey(Long userId, String scope, String key) {
+            this.userId = userId;
+            this.scope = scope;
+            this.key = key;
+        }
+    }
+
+    /**
+     * 幂等记录：请求内容摘要 + 执行中或已完成的结果
+     */
+    private static final class Entry {
+        private final String digest;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        /**
+         * 过期时间，执行中的记录不过期
+         */
+        private volatile long expireAt = Long.MAX_VALUE;
+
+        private Entry(String digest) {
+            this.digest = digest;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package cn.tannn.lychnos.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 图片下载服务
+ * <p>通过共享连接池的 HttpClient 下载 AI 生成的图片，响应体以 NIO 通道直接写入目标文件：</p>
+ * <ul>
+ *     <li>连接超时 + 整体下载超时，网络卡住时不会一直占用线程</li>
+ *     <li>校验 Content-Type 与大小上限（Content-Length 预检 + 实际写入字节计数）</li>
+ *     <li>写完后 fsync，调用方再原子重命名到正式路径</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+@Service
+@Slf4j
+public class ImageDownloadService {
+
+    private final HttpClient httpClient;
+
+    /**
+     * 单张图片下载的整体超时（毫秒），包含等待响应头和读取响应体
+     */
+    @Value("${app.image.download.timeout-ms:60000}")
+    private long timeoutMs;
+
+    /**
+     * 单张图片最大字节数
+     */
+    @Value("${app.image.download.max-bytes:20971520}")
+    private long maxBytes;
+
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalBytes = new LongAdder();
+    private final LongAdder totalDurationMs = new LongAdder();
+
+    public ImageDownloadService(@Qualifier("imageHttpClient") HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * 下载图片到指定文件（文件内容已 fsync）
+     *
+     * @param imageUrl 图片地址
+     * @param file     目标文件（通常是临时文件，存在则覆盖）
+     * @return 写入的字节数
+     * @throws IOException 下载失败、超时、类型不符或超过大小上限
+     */
+    public long download(String imageUrl, Path file) throws IOException {
+        long start = System.currentTimeMillis();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(imageUrl))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Accept", "image/*")
+                .GET()
+                .build();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CompletableFuture<HttpResponse<Long>> future =
+                    httpClient.sendAsync(request, info -> new FileBodySubscriber(channel, maxBytes, validate(info)));
+            HttpResponse<Long> response;
+            try {
+                response = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                throw new IOException("图片下载超时（" + timeoutMs + "ms）: " + imageUrl);
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("图片下载被中断: " + imageUrl);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+            }
+            channel.force(true);
+
+            long bytes = response.body();
+            long duration = System.currentTimeMillis() - start;
+            downloads.increment();
+            totalBytes.add(bytes);
+            totalDurationMs.add(duration);
+            log.info("图片下载完成，大小: {} 字节，耗时: {}ms，url: {}", bytes, duration, imageUrl);
+            return bytes;
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("图片下载失败，耗时: {}ms，url: {}，错误: {}",
+                    System.currentTimeMillis() - start, imageUrl, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 下载统计
+     *
+     * @return 成功次数、失败次数、总字节数、平均耗时、平均大小
+     */
+    public Map<String, Object> stats() {
+        long count = downloads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("downloads", count);
+        stats.put("failures", failures.sum());
+        stats.put("totalBytes", totalBytes.sum());
+        stats.put("avgDurationMs", count == 0 ? 0 : totalDurationMs.sum() / count);
+        stats.put("avgBytes", count == 0 ? 0 : totalBytes.sum() / count);
+        return stats;
+    }
+
+    /**
+     * 根据响应头校验状态码、类型和大小
+     *
+     * @return 拒绝原因，校验通过返回 null
+     */
+    private String validate(HttpResponse.ResponseInfo info) {
+        if (info.statusCode() != 200) {
+            return "图片下载失败，HTTP 状态码: " + info.statusCode();
+        }
+        String contentType = info.headers().firstValue("Content-Type").orElse("")
+                .toLowerCase(Locale.ROOT);
+        // 部分对象存储不返回具体类型，按二进制流放行
+        if (!contentType.isEmpty() && !contentType.startsWith("image/")
+                && !contentType.startsWith("application/octet-stream")) {
+            return "下载内容不是图片，Content-Type: " + contentType;
+        }
+        long length = info.headers().firstValueAsLong("Content-Length").orElse(-1L);
+        if (length > maxBytes) {
+            return "图片大小超过上限: " + length + " > " + maxBytes + " 字节";
+        }
+        return null;
+    }
+
+    /**
+     * 将响应体写入文件通道，超过大小上限时取消订阅
+     */
+    private static final class FileBodySubscriber implements HttpResponse.BodySubscriber<Long> {
+        private final FileChannel channel;
+        private final long maxBytes;
+        private final String rejectReason;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private long written;
+
+        FileBodySubscriber(FileChannel channel, long maxBytes, String rejectReason) {
+            this.channel = channel;
+            this.maxBytes = maxBytes;
+            this.rejectReason = rejectReason;
+        }
+
+        @Override
+        public CompletionStage<Long> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (rejectReason != null) {
+                subscription.cancel();
+                result.completeExceptionally(new IOException(rejectReason));
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    written += buffer.remaining();
+                    if (written > maxBytes) {
+                        throw new IOException("图片大小超过上限: " + maxBytes + " 字节");
+                    }
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                subscription.request(1);
+            } catch (IOException e) {
+                subscription.cancel();
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(written);
+        }
+    }
+}
@@ -0,0 +1,613 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.common.util.LongHashSet;
+import cn.tannn.lychnos.controller.vo.ImageGcReportVO;
+import cn.tannn.lychnos.dao.BookAnalyseDao;
+import cn.tannn.lychnos.dao.ImageAliasDao;
+import cn.tannn.lychnos.dao.ImageBlobDao;
+import cn.tannn.lychnos.entity.ImageAlias;
+import cn.tannn.lychnos.entity.ImageBlob;
+import cn.tannn.lychnos.service.storage.ImageObjectStore;
+import com.google.common.util.concurrent.RateLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 未引用图片回收与存储用量统计
+ * <p>单轮执行顺序：</p>
+ * <ol>
+ *     <li>从数据库流式读取全部海报地址，放入紧凑的 long 哈希集合（内容哈希前 8 字节 / 旧版路径的摘要），
+ *     已迁移的旧版地址通过别名表把对应的内容哈希也加入集合</li>
+ *     <li>按 cas/xx 和旧版日期目录拆分，多线程 walkFileTree 扫描，边扫描边统计用量，不保存文件列表；
+ *     修改时间早于 min-age-hours 且未被引用的文件移入 .quarantine/{yyyyMMdd}/ 隔离</li>
+ *     <li>隔离超过 grace-days 的文件：期间重新被引用的移回原位置，其余删除</li>
+ * </ol>
+ * <p>隔离和删除前都会按当前数据库复核：内容哈希对应的任一写法的海报地址（本地、各对象存储协议、
+ * 指向该内容的旧版别名）被引用，或内容记录引用次数大于 0、在 min-age-hours 内被引用过，都视为仍在使用</p>
+ * <p>文件操作按 max-files-per-second 限速，避免和在线读取争抢磁盘；集合冲突只会让文件被误保留，不会误删</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/10
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageGcService {
+
+    /**
+     * 隔离目录（位于存储根目录下）
+     */
+    public static final String QUARANTINE_DIR = ".quarantine";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    /**
+     * 大小区间上界（字节）及名称
+     */
+    private static final long[] SIZE_BOUNDS = {64 * 1024, 256 * 1024, 1024 * 1024, 4 * 1024 * 1024};
+    private static final String[] SIZE_LABELS = {"<64KB", "64KB-256KB", "256KB-1MB", "1MB-4MB", ">=4MB"};
+
+    private final ImagePathResolver imagePathResolver;
+    private final ImagePackStore imagePackStore;
+    private final ImageVariantService imageVariantService;
+    private final ImageBlobDao imageBlobDao;
+    private final ImageAliasDao imageAliasDao;
+    private final BookAnalyseDao bookAnalyseDao;
+    private final List<ImageObjectStore> imageObjectStores;
+    private final DataSource dataSource;
+
+    /**
+     * 是否启用定时回收
+     */
+    @Value("${app.image.gc.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 只统计不隔离、不删除
+     */
+    @Value("${app.image.gc.dry-run:false}")
+    private boolean dryRun;
+
+    /**
+     * 修改时间在多少小时内的文件不回收（可能刚保存、海报地址还未写入）
+     */
+    @Value("${app.image.gc.min-age-hours:24}")
+    private long minAgeHours;
+
+    /**
+     * 隔离多少天后删除
+     */
+    @Value("${app.image.gc.grace-days:7}")
+    private long graceDays;
+
+    /**
+     * 扫描并行度
+     */
+    @Value("${app.image.gc.parallelism:2}")
+    private int parallelism;
+
+    /**
+     * 每秒最多处理的文件数
+     */
+    @Value("${app.image.gc.max-files-per-second:200}")
+    private double maxFilesPerSecond;
+
+    private ExecutorService executor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 最近一轮回收的统计
+     */
+    private volatile Progress progress = new Progress(false);
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "image-gc");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 定时回收（默认每天 04:00）
+     */
+    @Scheduled(cron = "${app.image.gc.cron:0 0 4 * * *}")
+    public void scheduledCollect() {
+        if (enabled) {
+            trigger();
+        }
+    }
+
+    /**
+     * 触发一轮回收
+     *
+     * @return 是否已触发（正在执行时返回 false）
+     */
+    public boolean trigger() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        progress = new Progress(dryRun);
+        executor.execute(() -> {
+            try {
+                collect(progress);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("图片回收异常", e);
+            } finally {
+                progress.endTime = LocalDateTime.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 回收报告
+     */
+    public ImageGcReportVO report() {
+        Progress current = progress;
+        ImageGcReportVO vo = new ImageGcReportVO();
+        vo.setRunning(running.get());
+        vo.setDryRun(current.dryRun);
+        vo.setStartTime(current.startTime);
+        vo.setEndTime(current.endTime);
+        vo.setReferenced(current.referenced.sum());
+        vo.setScannedFiles(current.scannedFiles.sum());
+        vo.setScannedBytes(current.scannedBytes.sum());
+        vo.setOrphanFiles(current.orphanFiles.sum());
+        vo.setOrphanBytes(current.orphanBytes.sum());
+        vo.setQuarantinedFiles(current.quarantinedFiles.sum());
+        vo.setRestoredFiles(current.restoredFiles.sum());
+        vo.setDeletedFiles(current.deletedFiles.sum());
+        vo.setDeletedBytes(current.deletedBytes.sum());
+        vo.setFailed(current.failed.sum());
+        vo.setPackedOrphanBytes(current.packedOrphanBytes.sum());
+
+        Map<String, ImageGcReportVO.Usage> byDay = new TreeMap<>();
+        current.usageByDay.forEach((day, usage) ->
+                byDay.put(day, new ImageGcReportVO.Usage(usage[0].sum(), usage[1].sum())));
+        vo.setUsageByDay(byDay);
+        Map<String, ImageGcReportVO.Usage> bySize = new LinkedHashMap<>();
+        for (String label : SIZE_LABELS) {
+            LongAdder[] usage = current.usageBySize.get(label);
+            if (usage != null) {
+                bySize.put(label, new ImageGcReportVO.Usage(usage[0].sum(), usage[1].sum()));
+            }
+        }
+        vo.setUsageBySize(bySize);
+        return vo;
+    }
+
+    private void collect(Progress progress) throws IOException, InterruptedException {
+        Path root = imagePathResolver.root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        LongHashSet referenced = loadReferenced(progress);
+        log.info("图片回收开始，被引用地址: {}，只统计: {}", progress.referenced.sum(), progress.dryRun);
+
+        RateLimiter limiter = RateLimiter.create(Math.max(1, maxFilesPerSecond));
+        Instant threshold = Instant.now().minus(Duration.ofHours(minAgeHours));
+        Path quarantine = root.resolve(QUARANTINE_DIR).resolve(LocalDate.now().format(DAY));
+
+        // 1. 并行扫描：每个 cas/xx 目录和旧版日期目录一个任务
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "image-gc-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Path dir : scanRoots(root)) {
+                futures.add(workers.submit(() -> {
+                    Files.walkFileTree(dir, new OrphanVisitor(root, quarantine, referenced, limiter, threshold, progress));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    progress.failed.increment();
+                    log.warn("扫描图片目录失败: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // 2. pack 不可修改，只统计其中未被引用的字节数
+        imagePackStore.forEachEntry((hash, length) -> {
+            if (!referenced.contains(casKey(hash))) {
+                progress.packedOrphanBytes.add(length);
+            }
+        });
+
+        // 3. 处理超过隔离期的文件
+        if (!progress.dryRun) {
+            purge(root, referenced, limiter, threshold, progress);
+        }
+        log.info("图片回收结束，扫描: {} 个 / {} 字节，未引用: {}，隔离: {}，恢复: {}，删除: {} 个 / {} 字节",
+                progress.scannedFiles.sum(), progress.scannedBytes.sum(), progress.orphanFiles.sum(),
+                progress.quarantinedFiles.sum(), progress.restoredFiles.sum(),
+                progress.deletedFiles.sum(), progress.deletedBytes.sum());
+    }
+
+    /**
+     * 流式读取被引用的海报地址（MySQL 按行返回，不在内存中保留结果集）
+     */
+    private LongHashSet loadReferenced(Progress progress) {
+        LongHashSet referenced = new LongHashSet();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        jdbcTemplate.query("select poster_url from tb_book_analyse where poster_url is not null and poster_url <> ''",
+                rs -> {
+                    referenced.add(key(pathOf(rs.getString(1))));
+                    progress.referenced.increment();
+                });
+        // 旧版地址对应的文件已迁移时，别名指向的内容同样被引用
+        jdbcTemplate.query("select legacy_path, hash from tb_image_alias", rs -> {
+            if (referenced.contains(legacyKey(rs.getString(1)))) {
+                referenced.add(casKey(rs.getString(2)));
+            }
+        });
+        return referenced;
+    }
+
+    /**
+     * 扫描入口：cas 下的一级分目录和旧版日期目录（缩略图、pack、缓存、隔离目录不扫描）
+     */
+    private List<Path> scanRoots(Path root) throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        Path cas = root.resolve(ImagePathResolver.CAS_DIR);
+        if (Files.isDirectory(cas)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(cas, Files::isDirectory)) {
+                stream.forEach(dirs::add);
+            }
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root,
+                path -> Files.isDirectory(path) && path.getFileName().toString().matches("\\d{8}"))) {
+            stream.forEach(dirs::add);
+        }
+        return dirs;
+    }
+
+    /**
+     * 处理隔离期已过的文件：重新被引用的移回原位置，其余删除
+     */
+    private void purge(Path root, LongHashSet referenced, RateLimiter limiter, Instant threshold, Progress progress)
+            throws IOException {
+        Path quarantine = root.resolve(QUARANTINE_DIR);
+        if (!Files.isDirectory(quarantine)) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(graceDays);
+        try (DirectoryStream<Path> days = Files.newDirectoryStream(quarantine, Files::isDirectory)) {
+            for (Path day : days) {
+                LocalDate date;
+                try {
+                    date = LocalDate.parse(day.getFileName().toString(), DAY);
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                if (date.isBefore(cutoff)) {
+                    Files.walkFileTree(day, new PurgeVisitor(root, day, referenced, limiter, threshold, progress));
+                }
+            }
+        }
+    }
+
+    /**
+     * 扫描：统计用量，隔离未引用的文件
+     */
+    private class OrphanVisitor extends SimpleFileVisitor<Path> {
+
+        private final Path root;
+        private final Path quarantine;
+        private final LongHashSet referenced;
+        private final RateLimiter limiter;
+        private final Instant threshold;
+        private final Progress progress;
+
+        OrphanVisitor(Path root, Path quarantine, LongHashSet referenced, RateLimiter limiter, Instant threshold,
+                      Progress progress) {
+            this.root = root;
+            this.quarantine = quarantine;
+            this.referenced = referenced;
+            this.limiter = limiter;
+            this.threshold = threshold;
+            this.progress = progress;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            if (!attributes.isRegularFile() || file.getFileName().toString().endsWith(".part")) {
+                return FileVisitResult.CONTINUE;
+            }
+            limiter.acquire();
+            long size = attributes.size();
+            Instant modified = attributes.lastModifiedTime().toInstant();
+            progress.scannedFiles.increment();
+            progress.scannedBytes.add(size);
+            progress.addUsage(LocalDate.ofInstant(modified, ZoneId.systemDefault()).toString(), sizeLabel(size), size);
+
+            String path = "/" + root.relativize(file).toString().replace('\\', '/');
+            if (!modified.isBefore(threshold) || referenced.contains(key(path))) {
+                return FileVisitResult.CONTINUE;
+            }
+            progress.orphanFiles.increment();
+            progress.orphanBytes.add(size);
+            if (!progress.dryRun) {
+                quarantine(file, path, size);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            progress.failed.increment();
+            log.debug("读取图片文件失败: {}, {}", file, e.getMessage());
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void quarantine(Path file, String path, long size) {
+            Path target = quarantine.resolve(path.substring(1));
+            try {
+                Files.createDirectories(target.getParent());
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                // 集合是开始时的快照，移走后再确认一次，期间刚被引用的立即移回
+                if (inUse(path, threshold)) {
+                    Files.move(target, file, StandardCopyOption.ATOMIC_MOVE);
+                    progress.orphanFiles.decrement();
+                    progress.orphanBytes.add(-size);
+                    return;
+                }
+                progress.quarantinedFiles.increment();
+                String hash = imagePathResolver.hashOf(path);
+                if (hash != null) {
+                    imageVariantService.removeVariants(hash);
+                }
+            } catch (IOException e) {
+                progress.failed.increment();
+                log.warn("隔离图片失败: {}, {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 清理：隔离期已过的文件恢复或删除
+     */
+    private class PurgeVisitor extends SimpleFileVisitor<Path> {
+
+        private final Path root;
+        private final Path day;
+        private final LongHashSet referenced;
+        private final RateLimiter limiter;
+        private final Instant threshold;
+        private final Progress progress;
+
+        PurgeVisitor(Path root, Path day, LongHashSet referenced, RateLimiter limiter, Instant threshold,
+                     Progress progress) {
+            this.root = root;
+            this.day = day;
+            this.referenced = referenced;
+            this.limiter = limiter;
+            this.threshold = threshold;
+            this.progress = progress;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            limiter.acquire();
+            String path = "/" + day.relativize(file).toString().replace('\\', '/');
+            try {
+                if (referenced.contains(key(path)) || inUse(path, threshold)) {
+                    Path original = root.resolve(path.substring(1));
+                    if (Files.exists(original)) {
+                        Files.delete(file);
+                    } else {
+                        Files.createDirectories(original.getParent());
+                        Files.move(file, original, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                    progress.restoredFiles.increment();
+                    return FileVisitResult.CONTINUE;
+                }
+                Files.delete(file);
+                progress.deletedFiles.increment();
+                progress.deletedBytes.add(attributes.size());
+                String hash = imagePathResolver.hashOf(path);
+                if (hash != null && !imagePathResolver.exists(hash)) {
+                    imageBlobDao.deleteByHash(hash);
+                }
+            } catch (IOException e) {
+                progress.failed.increment();
+                log.warn("清理隔离图片失败: {}, {}", path, e.getMessage());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+            try {
+                Files.deleteIfExists(dir);
+            } catch (IOException ignored) {
+                // 目录非空（有文件处理失败），下一轮再清理
+            }
+            return FileVisitResult.CONTINUE;
+        }
+    }
+
+    /**
+     * 按当前数据库复核文件是否仍在使用
+     *
+     * @param path      文件相对存储目录的路径（/cas/... 或 /yyyyMMdd/书名.png）
+     * @param threshold 在此之后被引用过的内容视为仍在使用
+     */
+    private boolean inUse(String path, Instant threshold) {
+        String hash = imagePathResolver.hashOf(path);
+        if (bookAnalyseDao.existsByPosterUrlIn(posterUrlsOf(path, hash))) {
+            return true;
+        }
+        if (hash == null) {
+            return false;
+        }
+        Optional<ImageBlob> blob = imageBlobDao.findByHash(hash);
+        if (blob.isEmpty()) {
+            return false;
+        }
+        Integer refCount = blob.get().getRefCount();
+        LocalDateTime lastReferencedAt = blob.get().getLastReferencedAt();
+        return (refCount != null && refCount > 0)
+                || (lastReferencedAt != null
+                && lastReferencedAt.isAfter(LocalDateTime.ofInstant(threshold, ZoneId.systemDefault())));
+    }
+
+    /**
+     * 可能引用该文件的全部海报地址写法
+     * <p>内容寻址文件：两种扩展名下的本地协议（带与不带前缀）、各对象存储协议，以及迁移前指向该内容的旧版地址；
+     * 旧版文件：本地协议两种写法</p>
+     */
+    private List<String> posterUrlsOf(String path, String hash) {
+        List<String> urls = new ArrayList<>();
+        urls.add(path);
+        urls.add("l:1:" + path);
+        if (hash == null) {
+            return urls;
+        }
+        for (String extension : List.of(ImagePathResolver.PNG, ImagePathResolver.JPG)) {
+            String casPath = imagePathResolver.casPath(hash, extension);
+            if (!casPath.equals(path)) {
+                urls.add(casPath);
+                urls.add("l:1:" + casPath);
+            }
+            for (ImageObjectStore store : imageObjectStores) {
+                urls.add(store.getProtocol() + ":1:" + casPath);
+            }
+        }
+        for (ImageAlias alias : imageAliasDao.findByHash(hash)) {
+            urls.add(alias.getLegacyPath());
+            urls.add("l:1:" + alias.getLegacyPath());
+        }
+        return urls;
+    }
+
+    /**
+     * posterUrl 转为路径部分
+     */
+    private static String pathOf(String posterUrl) {
+        String[] parts = posterUrl.split(":", 3);
+        return parts.length < 3 ? posterUrl : parts[2];
+    }
+
+    /**
+     * 引用集合的键：内容寻址路径取哈希前 8 字节，其余路径取路径摘要的前 8 字节
+     */
+    private long key(String path) {
+        String hash = imagePathResolver.hashOf(path);
+        return hash != null ? casKey(hash) : legacyKey(path);
+    }
+
+    private static long casKey(String hash) {
+        return Long.parseUnsignedLong(hash.substring(0, 16), 16);
+    }
+
+    private static long legacyKey(String path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(ImagePathResolver.normalize(path).getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sizeLabel(long size) {
+        for (int i = 0; i < SIZE_BOUNDS.length; i++) {
+            if (size < SIZE_BOUNDS[i]) {
+                return SIZE_LABELS[i];
+            }
+        }
+        return SIZE_LABELS[SIZE_LABELS.length - 1];
+    }
+
+    /**
+     * 单轮回收统计
+     */
+    private static class Progress {
+        private final boolean dryRun;
+        private final LocalDateTime startTime = LocalDateTime.now();
+        private volatile LocalDateTime endTime;
+        private final LongAdder referenced = new LongAdder();
+        private final LongAdder scannedFiles = new LongAdder();
+        private final LongAdder scannedBytes = new LongAdder();
+        private final LongAdder orphanFiles = new LongAdder();
+        private final LongAdder orphanBytes = new LongAdder();
+        private final LongAdder quarantinedFiles = new LongAdder();
+        private final LongAdder restoredFiles = new LongAdder();
+        private final LongAdder deletedFiles = new LongAdder();
+        private final LongAdder deletedBytes = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder packedOrphanBytes = new LongAdder();
+        /**
+         * 用量：键 -> [文件数, 字节数]
+         */
+        private final Map<String, LongAdder[]> usageByDay = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder[]> usageBySize = new ConcurrentHashMap<>();
+
+        Progress(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        void addUsage(String day, String sizeLabel, long size) {
+            LongAdder[] dayUsage = usageByDay.computeIfAbsent(day, k -> new LongAdder[]{new LongAdder(), new LongAdder()});
+            dayUsage[0].increment();
+            dayUsage[1].add(size);
+            LongAdder[] sizeUsage = usageBySize.computeIfAbsent(sizeLabel,
+                    k -> new LongAdder[]{new LongAdder(), new LongAdder()});
+            sizeUsage[0].increment();
+            sizeUsage[1].add(size);
+        }
+    }
+}
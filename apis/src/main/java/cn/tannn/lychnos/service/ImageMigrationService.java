@@ -0,0 +1,256 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.controller.vo.ImageMigrationReportVO;
+import cn.tannn.lychnos.dao.BookAnalyseDao;
+import cn.tannn.lychnos.dao.ImageAliasDao;
+import cn.tannn.lychnos.entity.ImageAlias;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 图片存储迁移：旧版 /yyyyMMdd/书名.png 重新计算哈希，迁移到内容寻址目录
+ * <p>单个文件的处理顺序：</p>
+ * <ol>
+ *     <li>计算 SHA-256，先写入别名（此时旧文件仍在，读取不受影响）</li>
+ *     <li>内容已存在则删除旧文件，否则原子移动到 /cas/ab/cd/{sha256}.png</li>
+ *     <li>将书籍海报地址替换为内容寻址地址，并累加引用次数</li>
+ * </ol>
+ * <p>多个文件并行处理，可重复执行（已迁移的文件不会再被扫描到）</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageMigrationService {
+
+    private final ImagePathResolver imagePathResolver;
+    private final ImageStorageService imageStorageService;
+    private final ImageAliasDao imageAliasDao;
+    private final BookAnalyseDao bookAnalyseDao;
+
+    /**
+     * 迁移并行度
+     */
+    @Value("${app.image.migration.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 迁移调度线程（单线程，同一时间只有一轮迁移）
+     */
+    private ExecutorService executor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 最近一轮迁移的统计
+     */
+    private volatile Progress progress = new Progress();
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "image-migration");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 触发一轮迁移
+     *
+     * @return 是否已触发（正在执行时返回 false）
+     */
+    public boolean trigger() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        progress = new Progress();
+        executor.execute(() -> {
+            try {
+                migrate(progress);
+            } catch (Exception e) {
+                log.error("图片存储迁移异常", e);
+            } finally {
+                progress.endTime = LocalDateTime.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 迁移报告
+     */
+    public ImageMigrationReportVO report() {
+        Progress current = progress;
+        ImageMigrationReportVO vo = new ImageMigrationReportVO();
+        vo.setRunning(running.get());
+        vo.setStartTime(current.startTime);
+        vo.setEndTime(current.endTime);
+        vo.setScanned(current.scanned.sum());
+        vo.setMigrated(current.migrated.sum());
+        vo.setDuplicates(current.duplicates.sum());
+        vo.setFailed(current.failed.sum());
+        vo.setUpdatedPosters(current.updatedPosters.sum());
+        vo.setSavedBytes(current.savedBytes.sum());
+        return vo;
+    }
+
+    private void migrate(Progress progress) throws IOException, InterruptedException {
+        List<Path> files = scanLegacyFiles();
+        progress.scanned.add(files.size());
+        log.info("图片存储迁移开始，旧版文件: {}，并行度: {}", files.size(), parallelism);
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "image-migration-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(workers.submit(() -> migrateOne(file, progress)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // migrateOne 内部已记录失败
+                    log.debug("迁移任务异常: {}", e.getMessage());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        log.info("图片存储迁移结束，迁移: {}，重复: {}，失败: {}，节省: {} 字节",
+                progress.migrated.sum(), progress.duplicates.sum(), progress.failed.sum(), progress.savedBytes.sum());
+    }
+
+    /**
+     * 迁移单个文件
+     */
+    private void migrateOne(Path file, Progress progress) {
+        Path root = imagePathResolver.root();
+        String legacyPath = "/" + root.relativize(file).toString().replace('\\', '/');
+        try {
+            String hash = ImageStorageService.sha256(file);
+            long size = Files.size(file);
+
+            // 1. 先写别名，保证移动后旧地址依然可以解析
+            if (imageAliasDao.findByLegacyPath(legacyPath).isEmpty()) {
+                ImageAlias alias = new ImageAlias();
+                alias.setLegacyPath(legacyPath);
+                alias.setHash(hash);
+                imageAliasDao.save(alias);
+            }
+
+            // 2. 移动到内容寻址目录
+            String extension = ImagePathResolver.detectExtension(file);
+            Path target = imagePathResolver.casFile(hash, extension);
+            if (imagePathResolver.exists(hash) || !moveIfAbsent(file, target)) {
+                Files.delete(file);
+                progress.duplicates.increment();
+                progress.savedBytes.add(size);
+            } else {
+                progress.migrated.increment();
+            }
+
+            // 3. 替换书籍海报地址并累加引用
+            int updated = bookAnalyseDao.replacePosterUrl("l:1:" + legacyPath, "l:1:" + imagePathResolver.casPath(hash, extension));
+            imageStorageService.retain(hash, size, updated);
+            progress.updatedPosters.add(updated);
+        } catch (Exception e) {
+            progress.failed.increment();
+            log.warn("图片迁移失败: {}, 错误: {}", legacyPath, e.getMessage());
+        }
+    }
+
+    /**
+     * 移动到内容寻址目录（不覆盖）
+     * <p>先建硬链接再删除原文件：建链接在目标已存在时原子失败，而 ATOMIC_MOVE 在 Linux 上会直接覆盖目标</p>
+     *
+     * @return false 表示目标已存在：检查之后有相同内容被并发写入（新上传或另一个迁移任务），按重复处理
+     */
+    private static boolean moveIfAbsent(Path file, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, file);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (UnsupportedOperationException e) {
+            // 不支持硬链接的文件系统
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (FileAlreadyExistsException exists) {
+                return false;
+            }
+        }
+        Files.delete(file);
+        return true;
+    }
+
+    /**
+     * 扫描旧版日期目录（yyyyMMdd）下的图片
+     */
+    private List<Path> scanLegacyFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path root = imagePathResolver.root();
+        if (!Files.isDirectory(root)) {
+            return files;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root,
+                path -> Files.isDirectory(path) && path.getFileName().toString().matches("\\d{8}"))) {
+            for (Path dir : dirs) {
+                try (DirectoryStream<Path> images = Files.newDirectoryStream(dir, "*.png")) {
+                    images.forEach(files::add);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 单轮迁移统计
+     */
+    private static class Progress {
+        private final LocalDateTime startTime = LocalDateTime.now();
+        private volatile LocalDateTime endTime;
+        private final LongAdder scanned = new LongAdder();
+        private final LongAdder migrated = new LongAdder();
+        private final LongAdder duplicates = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder updatedPosters = new LongAdder();
+        private final LongAdder savedBytes = new LongAdder();
+    }
+}
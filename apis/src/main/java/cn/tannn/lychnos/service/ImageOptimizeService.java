@@ -0,0 +1,403 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.common.pojo.LocalImage;
+import cn.tannn.lychnos.dao.BookAnalyseDao;
+import cn.tannn.lychnos.dao.ImageBlobDao;
+import cn.tannn.lychnos.dao.ImageSwapDao;
+import cn.tannn.lychnos.entity.ImageBlob;
+import cn.tannn.lychnos.entity.ImageSwap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 海报重新编码优化
+ * <p>AI 生成的海报多为未优化的大 PNG，保存后在独立的有界线程池中重新编码：</p>
+ * <ol>
+ *     <li>没有透明像素的图片转为高质量渐进式 JPEG，有透明像素的用最高压缩级别重新写 PNG，不保留任何元数据</li>
+ *     <li>体积没有明显减小的放弃；校验通过（PNG 像素完全一致，JPEG 的 PSNR 达到阈值）才写入内容寻址目录</li>
+ *     <li>书籍海报地址写入后再切换到优化后的内容（地址可能稍后才落库，待切换记录存在 tb_image_swap，
+ *     定时重试，重启后继续），原图不做处理，不再被引用后由回收任务按隔离期删除</li>
+ * </ol>
+ * <p>ImageBlob 记录优化前后的大小和对应关系，相同的原图再次保存时直接复用优化结果；
+ * 输出文件按实际格式命名（JPEG 为 .jpg），海报地址随之切换</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/11
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageOptimizeService {
+
+    /**
+     * 临时文件目录（与 ImageStorageService 一致，启动时清理）
+     */
+    private static final String TEMP_DIR = ".tmp";
+
+    private final ImagePathResolver imagePathResolver;
+    private final ImageBlobDao imageBlobDao;
+    private final BookAnalyseDao bookAnalyseDao;
+    private final ImageSwapDao imageSwapDao;
+
+    /**
+     * 是否启用保存后重新编码
+     */
+    @Value("${app.image.optimize.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 重新编码线程数
+     */
+    @Value("${app.image.optimize.threads:1}")
+    private int threads;
+
+    /**
+     * 等待队列长度，队列满时放弃优化（不影响保存）
+     */
+    @Value("${app.image.optimize.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * JPEG 质量（0-1）
+     */
+    @Value("${app.image.optimize.jpeg-quality:0.9}")
+    private float jpegQuality;
+
+    /**
+     * 至少减小的比例，否则保留原图
+     */
+    @Value("${app.image.optimize.min-saving-ratio:0.05}")
+    private double minSavingRatio;
+
+    /**
+     * JPEG 校验的最低峰值信噪比（dB）
+     */
+    @Value("${app.image.optimize.min-psnr:35}")
+    private double minPsnr;
+
+    /**
+     * 地址切换的最长重试时间（毫秒）
+     */
+    @Value("${app.image.optimize.swap-ttl-ms:600000}")
+    private long swapTtlMs;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder optimized = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder verifyFailed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder swapped = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder originalBytes = new LongAdder();
+    private final LongAdder optimizedBytes = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        int size = Math.max(1, threads);
+        executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+            Thread thread = new Thread(r, "image-optimize-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, (r, pool) -> rejected.increment());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交优化任务（本地内容寻址图片保存后调用，立即返回）
+     *
+     * @param hash      原图 SHA-256
+     * @param posterUrl 原图 posterUrl
+     */
+    public void submit(String hash, String posterUrl) {
+        if (!enabled) {
+            return;
+        }
+        submitted.increment();
+        executor.execute(() -> {
+            try {
+                optimize(hash, posterUrl);
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("海报重新编码失败: {}, 错误: {}", hash, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 优化统计
+     */
+    public Map<String, Object> stats() {
+        long before = originalBytes.sum();
+        long after = optimizedBytes.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("queued", executor.getQueue().size());
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("optimized", optimized.sum());
+        stats.put("reused", reused.sum());
+        stats.put("skipped", skipped.sum());
+        stats.put("verifyFailed", verifyFailed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("pendingSwaps", imageSwapDao.count());
+        stats.put("swapped", swapped.sum());
+        stats.put("expired", expired.sum());
+        stats.put("originalBytes", before);
+        stats.put("optimizedBytes", after);
+        stats.put("savedBytes", before - after);
+        return stats;
+    }
+
+    /**
+     * 切换海报地址到优化后的内容，并转移引用次数
+     */
+    @Scheduled(fixedDelayString = "${app.image.optimize.swap-interval-ms:10000}")
+    public void applySwaps() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusNanos(swapTtlMs * 1_000_000);
+        for (ImageSwap swap : imageSwapDao.findAll()) {
+            try {
+                int updated = bookAnalyseDao.replacePosterUrl(swap.getPosterUrl(), swap.getTargetUrl());
+                if (updated > 0) {
+                    imageBlobDao.addReference(swap.getHash(), updated, LocalDateTime.now());
+                    imageBlobDao.addRefCount(swap.getSourceHash(), -updated);
+                    swapped.add(updated);
+                    imageSwapDao.delete(swap);
+                } else if (swap.getCreateTime() == null || swap.getCreateTime().isBefore(expireBefore)) {
+                    // 海报地址一直没有落库（生成失败或已被替换），优化结果由回收任务处理
+                    expired.increment();
+                    imageSwapDao.delete(swap);
+                }
+            } catch (Exception e) {
+                log.warn("切换优化后的海报地址失败: {}, 错误: {}", swap.getPosterUrl(), e.getMessage());
+            }
+        }
+    }
+
+    private void optimize(String hash, String posterUrl) throws IOException {
+        Optional<ImageBlob> blob = imageBlobDao.findByHash(hash);
+        if (blob.isPresent() && blob.get().getSourceHash() != null) {
+            // 本身就是优化结果
+            skipped.increment();
+            return;
+        }
+        String optimizedHash = blob.map(ImageBlob::getOptimizedHash).orElse(null);
+        if (optimizedHash != null) {
+            LocalImage optimizedImage = imagePathResolver.resolveImage(imagePathResolver.casPath(optimizedHash));
+            if (optimizedImage != null) {
+                reused.increment();
+                scheduleSwap(posterUrl, hash, optimizedHash,
+                        "image/jpeg".equals(optimizedImage.contentType()) ? ImagePathResolver.JPG : ImagePathResolver.PNG);
+                return;
+            }
+        }
+
+        LocalImage image = imagePathResolver.resolveImage(imagePathResolver.casPath(hash));
+        if (image == null) {
+            skipped.increment();
+            return;
+        }
+        long originalSize = image.size();
+        BufferedImage original;
+        try (InputStream in = image.openStream()) {
+            original = ImageIO.read(in);
+        }
+        if (original == null) {
+            skipped.increment();
+            return;
+        }
+
+        boolean transparent = hasTransparency(original);
+        String format = transparent ? "png" : "jpeg";
+        String extension = transparent ? ImagePathResolver.PNG : ImagePathResolver.JPG;
+        Path tempDir = imagePathResolver.root().resolve(TEMP_DIR);
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "opt-", ".part");
+        try {
+            BufferedImage source = transparent ? original : opaque(original);
+            ImageVariantService.write(source, format, jpegQuality, true, temp);
+            long size = Files.size(temp);
+            if (size > originalSize * (1 - minSavingRatio)) {
+                skipped.increment();
+                log.debug("重新编码体积没有明显减小，保留原图: {}, {} -> {}", hash, originalSize, size);
+                return;
+            }
+
+            // 校验：两个版本都在，校验通过后才写入内容寻址目录
+            if (!verify(source, temp, transparent)) {
+                verifyFailed.increment();
+                log.warn("重新编码校验失败，保留原图: {}", hash);
+                return;
+            }
+            String newHash = ImageStorageService.sha256(temp);
+            Path target = imagePathResolver.casFile(newHash, extension);
+            if (!imagePathResolver.exists(newHash)) {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            record(hash, newHash, originalSize, size);
+            optimized.increment();
+            originalBytes.add(originalSize);
+            optimizedBytes.add(size);
+            log.info("海报重新编码完成: {} -> {} ({}), {} -> {} 字节", hash, newHash, format, originalSize, size);
+            scheduleSwap(posterUrl, hash, newHash, extension);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 记录优化前后的对应关系和大小（新内容的引用次数在地址切换时增加）
+     */
+    private void record(String sourceHash, String newHash, long originalSize, long size) {
+        ImageBlob target = imageBlobDao.findByHash(newHash).orElseGet(() -> {
+            ImageBlob blob = new ImageBlob();
+            blob.setHash(newHash);
+            blob.setSize(size);
+            blob.setRefCount(0);
+            return blob;
+        });
+        target.setOriginalSize(originalSize);
+        target.setSourceHash(sourceHash);
+        try {
+            imageBlobDao.save(target);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("优化结果记录已存在: {}", newHash);
+        }
+        imageBlobDao.findByHash(sourceHash).ifPresent(source -> {
+            source.setOptimizedHash(newHash);
+            imageBlobDao.save(source);
+        });
+    }
+
+    /**
+     * 记录待切换的海报地址（持久化，重启后继续切换）
+     */
+    private void scheduleSwap(String posterUrl, String sourceHash, String newHash, String extension) {
+        String protocol = posterUrl.substring(0, posterUrl.indexOf(':') + 3);
+        ImageSwap swap = imageSwapDao.findByPosterUrl(posterUrl).orElseGet(ImageSwap::new);
+        swap.setPosterUrl(posterUrl);
+        swap.setTargetUrl(protocol + imagePathResolver.casPath(newHash, extension));
+        swap.setSourceHash(sourceHash);
+        swap.setHash(newHash);
+        try {
+            imageSwapDao.save(swap);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("待切换记录已存在: {}", posterUrl);
+        }
+    }
+
+    /**
+     * 校验：尺寸一致；PNG 逐像素一致，JPEG 峰值信噪比不低于阈值（隔行隔列采样）
+     */
+    private boolean verify(BufferedImage expected, Path file, boolean lossless) throws IOException {
+        BufferedImage actual = ImageIO.read(file.toFile());
+        if (actual == null || actual.getWidth() != expected.getWidth() || actual.getHeight() != expected.getHeight()) {
+            return false;
+        }
+        int step = lossless ? 1 : 2;
+        double squaredError = 0;
+        long samples = 0;
+        for (int y = 0; y < expected.getHeight(); y += step) {
+            for (int x = 0; x < expected.getWidth(); x += step) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                if (lossless) {
+                    if (a != b) {
+                        return false;
+                    }
+                    continue;
+                }
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int diff = ((a >> shift) & 0xFF) - ((b >> shift) & 0xFF);
+                    squaredError += diff * diff;
+                }
+                samples += 3;
+            }
+        }
+        if (lossless || squaredError == 0) {
+            return true;
+        }
+        double psnr = 10 * Math.log10(255.0 * 255.0 / (squaredError / samples));
+        return psnr >= minPsnr;
+    }
+
+    /**
+     * 是否有透明像素（有 alpha 通道但全部不透明的按不透明处理）
+     */
+    private static boolean hasTransparency(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return false;
+        }
+        WritableRaster alpha = image.getAlphaRaster();
+        if (alpha == null) {
+            return true;
+        }
+        int[] row = new int[alpha.getWidth()];
+        for (int y = 0; y < alpha.getHeight(); y++) {
+            alpha.getSamples(0, y, alpha.getWidth(), 1, 0, row);
+            for (int value : row) {
+                if (value < 255) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 转为不透明 RGB（JPEG 不支持透明通道）
+     */
+    private static BufferedImage opaque(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+}
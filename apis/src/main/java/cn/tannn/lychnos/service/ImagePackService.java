@@ -0,0 +1,232 @@
+package cn.tannn.lychnos.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 冷图片打包：长时间未修改的内容寻址图片合并到 pack 文件，减少小文件数量和 inode 占用
+ * <p>单轮执行顺序：</p>
+ * <ol>
+ *     <li>扫描 /cas 下修改时间早于 min-age-days 的图片，已打包的直接删除单独文件</li>
+ *     <li>按 max-pack-bytes 分批写入 pack，索引发布后即可从 pack 读取</li>
+ *     <li>等待 delete-delay-ms（让已解析到单独文件的请求输出完成），再删除已打包的单独文件</li>
+ * </ol>
+ * <p>任意一步中断都不会丢图：索引未发布的 pack 在启动时被清理，单独文件在 pack 发布前不会删除</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/8
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImagePackService {
+
+    /**
+     * 单个 pack 的上限（映射读取按 int 偏移，必须小于 2GB）
+     */
+    private static final long MAX_PACK_LIMIT = Integer.MAX_VALUE;
+
+    private final ImagePathResolver imagePathResolver;
+    private final ImagePackStore imagePackStore;
+
+    /**
+     * 是否启用定时打包
+     */
+    @Value("${app.image.pack.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 超过多少天未修改的图片视为冷数据
+     */
+    @Value("${app.image.pack.min-age-days:30}")
+    private int minAgeDays;
+
+    /**
+     * 单个 pack 的字节数上限，默认 256MB
+     */
+    @Value("${app.image.pack.max-pack-bytes:268435456}")
+    private long maxPackBytes;
+
+    /**
+     * 打包完成后延迟删除单独文件的时间（毫秒）
+     */
+    @Value("${app.image.pack.delete-delay-ms:60000}")
+    private long deleteDelayMs;
+
+    private ExecutorService executor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile LocalDateTime lastStartTime;
+    private volatile LocalDateTime lastEndTime;
+    private final LongAdder packedFiles = new LongAdder();
+    private final LongAdder packedBytes = new LongAdder();
+    private final LongAdder removedFiles = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "image-pack");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 定时打包（默认每天 03:30）
+     */
+    @Scheduled(cron = "${app.image.pack.cron:0 30 3 * * *}")
+    public void scheduledPack() {
+        if (enabled) {
+            trigger();
+        }
+    }
+
+    /**
+     * 触发一轮打包
+     *
+     * @return 是否已触发（正在执行时返回 false）
+     */
+    public boolean trigger() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            lastStartTime = LocalDateTime.now();
+            try {
+                pack();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("图片打包异常", e);
+            } finally {
+                lastEndTime = LocalDateTime.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 打包统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(imagePackStore.stats());
+        stats.put("running", running.get());
+        stats.put("lastStartTime", lastStartTime);
+        stats.put("lastEndTime", lastEndTime);
+        stats.put("packedFiles", packedFiles.sum());
+        stats.put("packedBytes", packedBytes.sum());
+        stats.put("removedFiles", removedFiles.sum());
+        return stats;
+    }
+
+    private void pack() throws IOException, InterruptedException {
+        Path casDir = imagePathResolver.root().resolve(ImagePathResolver.CAS_DIR);
+        if (!Files.isDirectory(casDir)) {
+            return;
+        }
+        long packLimit = Math.min(maxPackBytes, MAX_PACK_LIMIT);
+        Instant threshold = Instant.now().minus(Duration.ofDays(minAgeDays));
+
+        List<Path> packed = new ArrayList<>();
+        Map<String, Path> batch = new LinkedHashMap<>();
+        long batchBytes = 0;
+        try (Stream<Path> files = Files.find(casDir, 3, (file, attributes) -> attributes.isRegularFile()
+                && attributes.lastModifiedTime().toInstant().isBefore(threshold))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String hash = hashOf(file);
+                if (hash == null) {
+                    continue;
+                }
+                if (imagePackStore.contains(hash)) {
+                    // 上一轮已打包但未来得及删除
+                    delete(file);
+                    continue;
+                }
+                long size = Files.readAttributes(file, BasicFileAttributes.class).size();
+                if (size >= packLimit) {
+                    continue;
+                }
+                if (batchBytes + size > packLimit && !batch.isEmpty()) {
+                    writeBatch(batch, packed);
+                    batch.clear();
+                    batchBytes = 0;
+                }
+                batch.put(hash, file);
+                batchBytes += size;
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, packed);
+        }
+        if (packed.isEmpty()) {
+            log.info("图片打包完成，没有需要打包的冷数据");
+            return;
+        }
+
+        // 延迟删除：已解析到单独文件的请求可能还在输出
+        Thread.sleep(deleteDelayMs);
+        packed.forEach(this::delete);
+        log.info("图片打包完成，打包并删除单独文件: {}", packed.size());
+    }
+
+    private void writeBatch(Map<String, Path> batch, List<Path> packed) {
+        try {
+            for (String hash : imagePackStore.writePack(batch)) {
+                Path file = batch.get(hash);
+                packedFiles.increment();
+                packedBytes.add(Files.size(file));
+                packed.add(file);
+            }
+        } catch (IOException e) {
+            log.error("写入图片 pack 失败，本批 {} 张保留单独文件", batch.size(), e);
+        }
+    }
+
+    /**
+     * 从文件路径反查内容哈希（校验分目录）
+     */
+    private String hashOf(Path file) {
+        Path relative = imagePathResolver.root().relativize(file);
+        return imagePathResolver.hashOf(relative.toString().replace('\\', '/'));
+    }
+
+    private void delete(Path file) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                removedFiles.increment();
+            }
+        } catch (IOException e) {
+            log.warn("删除已打包的图片失败: {}, {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package cn.tannn.lychnos.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * 图片打包存储（冷数据层）
+ * <p>多张图片顺序追加到一个只读的数据文件 pack-N.dat，配套索引文件 pack-N.idx：</p>
+ * <pre>
+ * idx 格式：魔数 "LPIX"(4) + 版本(4) + 条目数(4) + 条目 * [SHA-256(32) + 偏移(8) + 长度(4)]
+ * </pre>
+ * <ul>
+ *     <li>pack 文件写完即不再修改；先 fsync 数据文件，再原子重命名索引文件，索引存在即代表 pack 完整</li>
+ *     <li>启动时加载全部索引，合并为按哈希排序的紧凑数组（每条约 48 字节），二分查找</li>
+ *     <li>数据文件按需只读映射（MappedByteBuffer），随机读取不经过堆内存</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/8
+ */
+@Component
+@Slf4j
+public class ImagePackStore {
+
+    /**
+     * 打包目录（位于存储根目录下）
+     */
+    public static final String PACK_DIR = "packs";
+
+    private static final int MAGIC = 0x4C504958;
+    private static final int VERSION = 1;
+    private static final int HASH_BYTES = 32;
+    private static final int HEADER_BYTES = 12;
+    private static final int RECORD_BYTES = HASH_BYTES + 8 + 4;
+
+    @Value("${app.image.storage-path}")
+    private String storagePath;
+
+    /**
+     * 当前索引快照（整体替换，读取无锁）
+     */
+    private volatile PackIndex index = PackIndex.EMPTY;
+
+    /**
+     * 已映射的数据文件
+     */
+    private final Map<Integer, MappedByteBuffer> mappings = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Path dir = packDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<PackIndex> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(".dat") && !Files.exists(indexFile(packId(name)))) {
+                    // 没有索引的数据文件是打包中断遗留的，其中的图片仍在原位置
+                    log.warn("删除未完成的图片打包文件: {}", name);
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(".idx")) {
+                    loaded.add(readIndex(packId(name), file));
+                }
+            }
+        } catch (IOException e) {
+            log.error("加载图片打包索引失败", e);
+        }
+        index = PackIndex.merge(loaded);
+        log.info("图片打包索引加载完成，pack 数: {}，图片数: {}", loaded.size(), index.size());
+    }
+
+    /**
+     * 查找图片所在的打包位置
+     *
+     * @param hash SHA-256（小写十六进制）
+     * @return 打包位置，不存在返回 null
+     */
+    public PackEntry find(String hash) {
+        return index.find(HexFormat.of().parseHex(hash));
+    }
+
+    /**
+     * 是否已打包
+     */
+    public boolean contains(String hash) {
+        return find(hash) != null;
+    }
+
+    /**
+     * 读取打包图片内容（只读映射切片，不复制）
+     *
+     * @param entry 打包位置
+     * @return 只读缓冲区
+     */
+    public ByteBuffer read(PackEntry entry) throws IOException {
+        MappedByteBuffer mapping = mappings.get(entry.getPackId());
+        if (mapping == null) {
+            mapping = map(entry.getPackId());
+        }
+        return mapping.duplicate().position((int) entry.getOffset()).limit((int) (entry.getOffset() + entry.getLength()))
+                .slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * 打包数据文件路径
+     */
+    public Path dataFile(int packId) {
+        return packDir().resolve(String.format("pack-%05d.dat", packId));
+    }
+
+    /**
+     * 写入一个新的 pack（数据 fsync 后原子发布索引）
+     *
+     * @param files 内容哈希 -> 源文件
+     * @return 实际写入的哈希（源文件读取失败的会被跳过）
+     */
+    public synchronized List<String> writePack(Map<String, Path> files) throws IOException {
+        Files.createDirectories(packDir());
+        int packId = index.maxPackId() + 1;
+        Path data = dataFile(packId);
+
+        Path temp = packDir().resolve(String.format("pack-%05d.idx.tmp", packId));
+        Path idx = indexFile(packId);
+        List<String> written = new ArrayList<>();
+        try {
+            List<byte[]> hashes = new ArrayList<>();
+            List<long[]> positions = new ArrayList<>();
+            try (FileChannel out = FileChannel.open(data, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long offset = 0;
+                for (Map.Entry<String, Path> entry : files.entrySet()) {
+                    try (FileChannel in = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                        long length = in.size();
+                        long copied = 0;
+                        while (copied < length) {
+                            long transferred = in.transferTo(copied, length - copied, out);
+                            if (transferred <= 0) {
+                                throw new IOException("源文件长度变化: " + entry.getValue());
+                            }
+                            copied += transferred;
+                        }
+                        hashes.add(HexFormat.of().parseHex(entry.getKey()));
+                        positions.add(new long[]{offset, length});
+                        written.add(entry.getKey());
+                        offset += length;
+                    } catch (IOException e) {
+                        log.warn("打包图片读取失败，跳过: {}, {}", entry.getValue(), e.getMessage());
+                        out.truncate(offset);
+                        out.position(offset);
+                    }
+                }
+                out.force(true);
+            }
+
+            // 索引按哈希排序后写入临时文件，fsync 后原子重命名
+            Integer[] order = new Integer[hashes.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(hashes.get(a), hashes.get(b)));
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + RECORD_BYTES * order.length);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(order.length);
+            for (int i : order) {
+                buffer.put(hashes.get(i)).putLong(positions.get(i)[0]).putInt((int) positions.get(i)[1]);
+            }
+            buffer.flip();
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(temp, idx, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // 索引未发布，删除不完整的 pack，源文件仍在原位置
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(data);
+            throw e;
+        }
+
+        List<PackIndex> all = new ArrayList<>(index.parts());
+        all.add(readIndex(packId, idx));
+        index = PackIndex.merge(all);
+        log.info("图片打包完成: pack-{}，图片数: {}", packId, written.size());
+        return written;
+    }
+
+    /**
+     * 遍历全部打包条目（用于存储用量统计）
+     *
+     * @param consumer 内容哈希, 长度
+     */
+    public void forEachEntry(BiConsumer<String, Integer> consumer) {
+        PackIndex current = index;
+        for (int i = 0; i < current.size(); i++) {
+            consumer.accept(HexFormat.of().formatHex(current.keys, i * HASH_BYTES, (i + 1) * HASH_BYTES),
+                    current.lengths[i]);
+        }
+    }
+
+    /**
+     * 打包统计
+     */
+    public Map<String, Object> stats() {
+        PackIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("packs", current.parts().size());
+        stats.put("entries", current.size());
+        stats.put("bytes", current.totalBytes());
+        stats.put("mapped", mappings.size());
+        return stats;
+    }
+
+    private MappedByteBuffer map(int packId) throws IOException {
+        synchronized (mappings) {
+            MappedByteBuffer mapping = mappings.get(packId);
+            if (mapping == null) {
+                try (FileChannel channel = FileChannel.open(dataFile(packId), StandardOpenOption.READ)) {
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                mappings.put(packId, mapping);
+            }
+            return mapping;
+        }
+    }
+
+    private PackIndex readIndex(int packId, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("图片打包索引格式错误: " + file.getFileName());
+        }
+        int count = buffer.getInt();
+        byte[] keys = new byte[count * HASH_BYTES];
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            buffer.get(keys, i * HASH_BYTES, HASH_BYTES);
+            offsets[i] = buffer.getLong();
+            lengths[i] = buffer.getInt();
+        }
+        int[] packIds = new int[count];
+        Arrays.fill(packIds, packId);
+        return new PackIndex(keys, packIds, offsets, lengths, List.of(), packId);
+    }
+
+    private Path packDir() {
+        return Paths.get(storagePath, PACK_DIR);
+    }
+
+    private Path indexFile(int packId) {
+        return packDir().resolve(String.format("pack-%05d.idx", packId));
+    }
+
+    private static int packId(String fileName) {
+        return Integer.parseInt(fileName.substring(5, fileName.indexOf('.')));
+    }
+
+    /**
+     * 打包位置
+     */
+    @Getter
+    @ToString
+    public static final class PackEntry {
+
+        /**
+         * pack 编号
+         */
+        private final int packId;
+
+        /**
+         * 数据文件内偏移
+         */
+        private final long offset;
+
+        /**
+         * 长度
+         */
+        private final int length;
+
+        PackEntry(int packId, long offset, int length) {
+            this.packId = packId;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 合并后的紧凑索引：按哈希排序的并列数组
+     */
+    private static final class PackIndex {
+
+        static final PackIndex EMPTY = new PackIndex(new byte[0], new int[0], new long[0], new int[0], List.of(), 0);
+
+        private final byte[] keys;
+        private final int[] packIds;
+        private final long[] offsets;
+        private final int[] lengths;
+        /**
+         * 合并前的单个 pack 索引（重建时使用）
+         */
+        private final List<PackIndex> parts;
+        private final int maxPackId;
+
+        PackIndex(byte[] keys, int[] packIds, long[] offsets, int[] lengths, List<PackIndex> parts, int maxPackId) {
+            this.keys = keys;
+            this.packIds = packIds;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.parts = parts;
+            this.maxPackId = maxPackId;
+        }
+
+        static PackIndex merge(List<PackIndex> parts) {
+            int total = parts.stream().mapToInt(PackIndex::size).sum();
+            Integer[][] refs = new Integer[total][];
+            int n = 0;
+            for (int p = 0; p < parts.size(); p++) {
+                for (int i = 0; i < parts.get(p).size(); i++) {
+                    refs[n++] = new Integer[]{p, i};
+                }
+            }
+            Arrays.sort(refs, (a, b) -> Arrays.compareUnsigned(
+                    parts.get(a[0]).keys, a[1] * HASH_BYTES, (a[1] + 1) * HASH_BYTES,
+                    parts.get(b[0]).keys, b[1] * HASH_BYTES, (b[1] + 1) * HASH_BYTES));
+
+            byte[] keys = new byte[total * HASH_BYTES];
+            int[] packIds = new int[total];
+            long[] offsets = new long[total];
+            int[] lengths = new int[total];
+            for (int i = 0; i < total; i++) {
+                PackIndex part = parts.get(refs[i][0]);
+                int j = refs[i][1];
+                System.arraycopy(part.keys, j * HASH_BYTES, keys, i * HASH_BYTES, HASH_BYTES);
+                packIds[i] = part.packIds[j];
+                offsets[i] = part.offsets[j];
+                lengths[i] = part.lengths[j];
+            }
+            int maxPackId = parts.stream().mapToInt(part -> part.maxPackId).max().orElse(0);
+            return new PackIndex(keys, packIds, offsets, lengths, List.copyOf(parts), maxPackId);
+        }
+
+        PackEntry find(byte[] hash) {
+            int low = 0;
+            int high = size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Arrays.compareUnsigned(keys, mid * HASH_BYTES, (mid + 1) * HASH_BYTES, hash, 0, HASH_BYTES);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return new PackEntry(packIds[mid], offsets[mid], lengths[mid]);
+                }
+            }
+            return null;
+        }
+
+        int size() {
+            return packIds.length;
+        }
+
+        long totalBytes() {
+            long total = 0;
+            for (int length : lengths) {
+                total += length;
+            }
+            return total;
+        }
+
+        List<PackIndex> parts() {
+            return parts;
+        }
+
+        int maxPackId() {
+            return maxPackId;
+        }
+    }
+}
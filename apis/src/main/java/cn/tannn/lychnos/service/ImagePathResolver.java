@@ -0,0 +1,276 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.common.pojo.LocalImage;
+import cn.tannn.lychnos.dao.ImageAliasDao;
+import cn.tannn.lychnos.entity.ImageAlias;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地图片路径解析
+ * <p>posterUrl 的路径部分有两种形式：</p>
+ * <ul>
+ *     <li>内容寻址：/cas/ab/cd/{sha256}.png（JPEG 为 .jpg），按哈希前两级分目录，内容不可变；
+ *     扩展名在写入时按实际格式确定，输出时据此给出 Content-Type，不再读取文件头</li>
+ *     <li>旧版：/yyyyMMdd/书名.png，文件已迁移时通过别名表找到对应的内容寻址文件</li>
+ * </ul>
+ * <p>内容寻址文件不在原位置时，再从冷数据打包存储中查找</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/5
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImagePathResolver {
+
+    /**
+     * 内容寻址目录
+     */
+    public static final String CAS_DIR = "cas";
+
+    /**
+     * 临时文件目录（位于存储根目录下）
+     */
+    public static final String TEMP_DIR = ".tmp";
+
+    /**
+     * 临时文件后缀（启动时按后缀清理上次异常退出遗留的文件）
+     */
+    public static final String TEMP_SUFFIX = ".part";
+
+    /**
+     * PNG 扩展名
+     */
+    public static final String PNG = "png";
+
+    /**
+     * JPEG 扩展名
+     */
+    public static final String JPG = "jpg";
+
+    /**
+     * 内容寻址路径：/cas/ab/cd/{sha256}.png 或 .jpg
+     */
+    private static final Pattern CAS_PATH = Pattern.compile(
+            "^/?" + CAS_DIR + "/([0-9a-f]{2})/([0-9a-f]{2})/([0-9a-f]{64})\\.(png|jpg)$");
+
+    private final ImageAliasDao imageAliasDao;
+    private final ImagePackStore imagePackStore;
+
+    @Value("${app.image.storage-path}")
+    private String storagePath;
+
+    /**
+     * 存储根目录
+     */
+    public Path root() {
+        return Paths.get(storagePath);
+    }
+
+    /**
+     * 临时文件目录
+     */
+    public Path tempDir() {
+        return root().resolve(TEMP_DIR);
+    }
+
+    /**
+     * 在存储目录下创建临时文件（与正式文件同一文件系统，保证可以原子重命名）
+     *
+     * @param prefix 文件名前缀
+     * @return 临时文件
+     */
+    public Path createTempFile(String prefix) throws IOException {
+        Path tempDir = tempDir();
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, prefix, TEMP_SUFFIX);
+    }
+
+    /**
+     * 内容哈希对应的 posterUrl 路径部分
+     *
+     * @param hash SHA-256（小写十六进制）
+     * @return /cas/ab/cd/{sha256}.png
+     */
+    public String casPath(String hash) {
+        return casPath(hash, PNG);
+    }
+
+    /**
+     * 内容哈希对应的 posterUrl 路径部分
+     *
+     * @param hash      SHA-256（小写十六进制）
+     * @param extension 扩展名（png / jpg）
+     * @return /cas/ab/cd/{sha256}.{extension}
+     */
+    public String casPath(String hash, String extension) {
+        return "/" + CAS_DIR + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extension;
+    }
+
+    /**
+     * 内容哈希对应的本地文件
+     *
+     * @param hash SHA-256（小写十六进制）
+     * @return 本地文件路径
+     */
+    public Path casFile(String hash) {
+        return casFile(hash, PNG);
+    }
+
+    /**
+     * 内容哈希对应的本地文件
+     *
+     * @param hash      SHA-256（小写十六进制）
+     * @param extension 扩展名（png / jpg）
+     * @return 本地文件路径
+     */
+    public Path casFile(String hash, String extension) {
+        return root().resolve(CAS_DIR).resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(hash + "." + extension);
+    }
+
+    /**
+     * 按文件头识别图片格式（只在写入时调用一次，结果体现在扩展名上）
+     *
+     * @param file 图片文件
+     * @return jpg / png（无法识别的按 png 处理）
+     */
+    public static String detectExtension(Path file) throws IOException {
+        byte[] head = new byte[3];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        boolean jpeg = read == head.length
+                && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF;
+        return jpeg ? JPG : PNG;
+    }
+
+    /**
+     * 从内容寻址路径中提取哈希
+     *
+     * @param path posterUrl 路径部分
+     * @return SHA-256，非内容寻址路径返回 null
+     */
+    public String hashOf(String path) {
+        if (path == null) {
+            return null;
+        }
+        Matcher matcher = CAS_PATH.matcher(path);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String hash = matcher.group(3);
+        // 校验分目录与哈希前缀一致，防止构造路径
+        return hash.startsWith(matcher.group(1) + matcher.group(2)) ? hash : null;
+    }
+
+    /**
+     * 是否为内容寻址路径（内容不可变，可长期缓存）
+     */
+    public boolean isContentAddressed(String path) {
+        return hashOf(path) != null;
+    }
+
+    /**
+     * 解析为本地文件
+     *
+     * @param path posterUrl 路径部分（/cas/... 或 /yyyyMMdd/书名.png）
+     * @return 本地文件，不存在返回 null
+     */
+    public Path resolve(String path) {
+        LocalImage image = resolveImage(path);
+        return image == null ? null : image.getFile();
+    }
+
+    /**
+     * 解析为本地图片（附带内容哈希）
+     *
+     * @param path posterUrl 路径部分（/cas/... 或 /yyyyMMdd/书名.png）
+     * @return 本地图片，不存在返回 null
+     */
+    public LocalImage resolveImage(String path) {
+        String hash = hashOf(path);
+        if (hash != null) {
+            return casImage(hash, path.endsWith("." + JPG) ? JPG : PNG);
+        }
+
+        Path legacy = legacyFile(path);
+        if (legacy == null) {
+            return null;
+        }
+        if (Files.exists(legacy)) {
+            return new LocalImage(legacy, null);
+        }
+
+        // 旧版文件已迁移，查别名
+        Optional<ImageAlias> alias = imageAliasDao.findByLegacyPath(normalize(path));
+        return alias.map(value -> casImage(value.getHash(), PNG)).orElse(null);
+    }
+
+    /**
+     * 内容是否存在（任一扩展名的单独文件或已打包）
+     */
+    public boolean exists(String hash) {
+        return Files.exists(casFile(hash, PNG)) || Files.exists(casFile(hash, JPG)) || imagePackStore.contains(hash);
+    }
+
+    /**
+     * 查找内容寻址文件：先按地址中的扩展名，再按另一种扩展名（同一内容只会有一种格式），最后查打包存储
+     */
+    private LocalImage casImage(String hash, String extension) {
+        Path file = casFile(hash, extension);
+        if (Files.exists(file)) {
+            return new LocalImage(file, hash);
+        }
+        Path other = casFile(hash, JPG.equals(extension) ? PNG : JPG);
+        if (Files.exists(other)) {
+            return new LocalImage(other, hash);
+        }
+        ImagePackStore.PackEntry entry = imagePackStore.find(hash);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return new LocalImage(imagePackStore.dataFile(entry.getPackId()), hash, entry.getOffset(),
+                    imagePackStore.read(entry));
+        } catch (IOException e) {
+            log.error("读取打包图片失败: {}, {}", hash, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 旧版路径对应的本地文件（拒绝越出存储目录的路径）
+     */
+    public Path legacyFile(String path) {
+        String relativePath = path.startsWith("/") ? path.substring(1) : path;
+        Path root = root().toAbsolutePath().normalize();
+        Path file = root.resolve(relativePath).normalize();
+        if (!file.startsWith(root)) {
+            log.warn("非法图片路径: {}", path);
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * 统一为以 / 开头的路径
+     */
+    public static String normalize(String path) {
+        return path.startsWith("/") ? path : "/" + path;
+    }
+}
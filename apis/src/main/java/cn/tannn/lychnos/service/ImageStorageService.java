@@ -1,18 +1,43 @@
 package cn.tannn.lychnos.service;
 
+import cn.tannn.lychnos.common.pojo.LocalImage;
+import cn.tannn.lychnos.common.util.TempFileInputStream;
+import cn.tannn.lychnos.dao.BookAnalyseDao;
+import cn.tannn.lychnos.dao.ImageBlobDao;
+import cn.tannn.lychnos.dao.UserInterestDao;
+import cn.tannn.lychnos.entity.BookAnalyse;
+import cn.tannn.lychnos.entity.ImageBlob;
+import cn.tannn.lychnos.service.storage.ImageObjectStore;
+import cn.tannn.lychnos.service.storage.RemoteImageCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 图片存储服务
@@ -20,61 +45,331 @@ import java.time.format.DateTimeFormatter;
  * 支持统一格式：协议:鉴权:路径
  * - 协议: h(HTTP/HTTPS) / ali(阿里云OSS) / qiniu(七牛云) / s3(AWS S3) / f(FTP) / l(本地)
  * - 鉴权: 0(无需鉴权) / 1(需要鉴权)
+ * <p>
+ * 新图片写入 app.image.storage-type 指定的位置：l 为本地磁盘，其他协议交给对应的 {@link ImageObjectStore}，
+ * 远程图片读取时经本地读穿缓存落盘后按本地文件输出
  *
  * @author <a href="https://t.tannn.cn/">tan</a>
  * @version V1.0
  * @date 2026/1/17
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class ImageStorageService {
 
-    @Value("${app.image.storage-path}")
-    private String storagePath;
+    /**
+     * 单次通道传输的最大字节数
+     */
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+
+    /**
+     * 本地存储协议
+     */
+    private static final String LOCAL = "l";
+
+    private final ImageDownloadService imageDownloadService;
+    private final ImagePathResolver imagePathResolver;
+    private final ImageBlobDao imageBlobDao;
+    private final HotImageCache hotImageCache;
+    private final UserInterestDao userInterestDao;
+    private final BookAnalyseDao bookAnalyseDao;
+    private final List<ImageObjectStore> imageObjectStores;
+    private final RemoteImageCache remoteImageCache;
+    private final ImageOptimizeService imageOptimizeService;
+
+    /**
+     * 新图片的存储位置：l（本地）或对象存储协议（如 s3）
+     */
+    @Value("${app.image.storage-type:l}")
+    private String storageType;
+
+    /**
+     * 预签名直连地址有效期（秒）
+     */
+    @Value("${app.image.presign-expiry-seconds:3600}")
+    private long presignExpirySeconds;
 
     /**
      * 存储图片到本地
-     * 存储路径格式：{storagePath}/年月日/书籍名.png
+     * 存储路径格式：{storagePath}/cas/ab/cd/{sha256}.png（按内容哈希前两级分目录，相同内容只存一份）
+     * <p>传入 {@link TempFileInputStream}（如 AI 生成的图片流）时直接接管其临时文件提交，不再复制</p>
      *
      * @param inputStream 图片输入流
      * @param bookTitle   书籍名称
-     * @return poster_url 格式（l:1:/年月日/书籍名.png）
+     * @return poster_url 格式（l:1:/cas/ab/cd/{sha256}.png）
      */
     public String saveImage(InputStream inputStream, String bookTitle) {
+        Path tempFile = null;
         try {
-            // 生成日期目录：yyyyMMdd
-            String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+            if (inputStream instanceof TempFileInputStream temp) {
+                tempFile = temp.detach();
+                return commit(tempFile, bookTitle);
+            }
+            tempFile = createTempFile();
+            try (ReadableByteChannel source = Channels.newChannel(inputStream);
+                 FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                }
+                target.force(true);
+            }
+            return commit(tempFile, bookTitle);
+        } catch (Exception e) {
+            deleteQuietly(tempFile);
+            log.error("保存图片失败，书籍: {}", bookTitle, e);
+            throw new RuntimeException("保存图片失败: " + e.getMessage(), e);
+        }
+    }
 
-            // 清理书籍名称，移除特殊字符
-            String sanitizedTitle = sanitizeFileName(bookTitle);
+    /**
+     * 下载图片并存储到本地
+     * <p>响应体直接写入存储目录下的临时文件，fsync 后原子重命名，不经过中间内存缓冲</p>
+     *
+     * @param imageUrl  图片地址
+     * @param bookTitle 书籍名称
+     * @return poster_url 格式（l:1:/cas/ab/cd/{sha256}.png）
+     */
+    public String saveImageFromUrl(String imageUrl, String bookTitle) {
+        Path tempFile = null;
+        try {
+            tempFile = createTempFile();
+            imageDownloadService.download(imageUrl, tempFile);
+            return commit(tempFile, bookTitle);
+        } catch (Exception e) {
+            deleteQuietly(tempFile);
+            log.error("下载保存图片失败，书籍: {}, url: {}", bookTitle, imageUrl, e);
+            throw new RuntimeException("下载保存图片失败: " + e.getMessage(), e);
+        }
+    }
 
-            // 生成文件名：书籍名.png
-            String fileName = sanitizedTitle + ".png";
+    /**
+     * 清理上次异常退出遗留的临时文件
+     */
+    @PostConstruct
+    public void cleanTempFiles() {
+        Path tempDir = imagePathResolver.tempDir();
+        if (!Files.isDirectory(tempDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(tempDir, "*" + ImagePathResolver.TEMP_SUFFIX)) {
+            for (Path file : stream) {
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            log.warn("清理图片临时文件失败: {}", e.getMessage());
+        }
+    }
 
-            // 构建完整存储路径
-            Path dirPath = Paths.get(storagePath, dateDir);
-            Path filePath = dirPath.resolve(fileName);
+    /**
+     * 在存储目录下创建临时文件（与正式文件同一文件系统，保证可以原子重命名）
+     */
+    private Path createTempFile() throws IOException {
+        return imagePathResolver.createTempFile("img-");
+    }
 
-            // 创建目录（如果不存在）
-            Files.createDirectories(dirPath);
+    /**
+     * 将已 fsync 的临时文件按内容哈希提交：内容已存在则丢弃临时文件，否则原子重命名到位
+     * <p>这里只登记内容，引用次数由调用方在海报地址落库后通过 {@link #retain(String)} 增加，
+     * 地址保存失败时不会多出一次引用</p>
+     *
+     * @return poster_url 格式（l:1:/cas/ab/cd/{sha256}.png）
+     */
+    private String commit(Path tempFile, String bookTitle) throws IOException {
+        String hash = sha256(tempFile);
+        long size = Files.size(tempFile);
+        // 按实际格式确定扩展名，输出时据此给出 Content-Type
+        String extension = ImagePathResolver.detectExtension(tempFile);
+        if (!LOCAL.equals(storageType)) {
+            return commitRemote(tempFile, hash, extension, size, bookTitle);
+        }
+        Path target = imagePathResolver.casFile(hash, extension);
 
-            // 保存文件
-            try (OutputStream outputStream = new FileOutputStream(filePath.toFile())) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
+        if (imagePathResolver.exists(hash)) {
+            // 相同内容已存在（包括已打包的），直接复用
+            Files.delete(tempFile);
+            touch(target);
+            log.info("图片内容已存在，复用: {}, 书籍: {}", hash, bookTitle);
+        } else {
+            Files.createDirectories(target.getParent());
+            // 原子重命名，读取方只会看到完整文件；并发写入同一内容时后者覆盖前者，内容一致
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            forceDirectory(target.getParent());
+        }
+        register(hash, size);
+
+        // 返回统一格式：l:1:/cas/ab/cd/{sha256}.png（JPEG 为 .jpg）
+        String posterUrl = "l:1:" + imagePathResolver.casPath(hash, extension);
+        log.info("图片保存成功，posterUrl: {}, 书籍: {}", posterUrl, bookTitle);
+        // 后台重新编码，完成后切换海报地址（对象存储不处理）
+        imageOptimizeService.submit(hash, posterUrl);
+        return posterUrl;
+    }
+
+    /**
+     * 上传到对象存储：对象已存在则跳过上传，上传后的临时文件直接移入本地读穿缓存
+     *
+     * @return poster_url 格式（s3:1:/cas/ab/cd/{sha256}.png）
+     */
+    private String commitRemote(Path tempFile, String hash, String extension, long size, String bookTitle)
+            throws IOException {
+        ImageObjectStore store = objectStore(storageType);
+        String path = imagePathResolver.casPath(hash, extension);
+        String key = path.substring(1);
+        if (store.exists(key)) {
+            log.info("图片内容已存在，复用: {}, 书籍: {}", hash, bookTitle);
+        } else {
+            store.upload(key, tempFile, ImagePathResolver.JPG.equals(extension) ? "image/jpeg" : "image/png");
+        }
+        if (remoteImageCache.isEnabled()) {
+            remoteImageCache.put(store.getProtocol(), key, tempFile);
+        } else {
+            Files.delete(tempFile);
+        }
+        register(hash, size);
+
+        String posterUrl = store.getProtocol() + ":1:" + path;
+        log.info("图片保存成功，posterUrl: {}, 书籍: {}", posterUrl, bookTitle);
+        return posterUrl;
+    }
+
+    /**
+     * 登记内容记录（已存在则不变，新记录引用次数为 0）
+     *
+     * @param hash SHA-256
+     * @param size 文件大小
+     */
+    private void register(String hash, long size) {
+        if (imageBlobDao.touch(hash, LocalDateTime.now()) > 0) {
+            return;
+        }
+        ImageBlob blob = new ImageBlob();
+        blob.setHash(hash);
+        blob.setSize(size);
+        blob.setRefCount(0);
+        blob.setLastReferencedAt(LocalDateTime.now());
+        try {
+            imageBlobDao.save(blob);
+        } catch (DataIntegrityViolationException e) {
+            // 并发插入同一内容，已有记录即可
+            log.debug("图片内容记录已存在: {}", hash);
+        }
+    }
+
+    /**
+     * posterUrl 落库后增加对内容的引用（在保存书籍分析之后调用）
+     *
+     * @param posterUrl poster_url 格式字符串
+     */
+    public void retain(String posterUrl) {
+        if (posterUrl == null) {
+            return;
+        }
+        String[] parts = posterUrl.split(":", 3);
+        String hash = imagePathResolver.hashOf(parts.length < 3 ? posterUrl : parts[2]);
+        if (hash != null && imageBlobDao.addReference(hash, 1, LocalDateTime.now()) == 0) {
+            log.warn("图片内容记录不存在，引用未计入: {}", posterUrl);
+        }
+    }
+
+    /**
+     * 增加内容引用次数（记录不存在则创建）
+     *
+     * @param hash  SHA-256
+     * @param size  文件大小
+     * @param count 增加的引用数
+     */
+    public void retain(String hash, long size, int count) {
+        if (imageBlobDao.addReference(hash, count, LocalDateTime.now()) > 0) {
+            return;
+        }
+        ImageBlob blob = new ImageBlob();
+        blob.setHash(hash);
+        blob.setSize(size);
+        blob.setRefCount(count);
+        blob.setLastReferencedAt(LocalDateTime.now());
+        try {
+            imageBlobDao.save(blob);
+        } catch (DataIntegrityViolationException e) {
+            // 并发插入同一内容，转为累加
+            imageBlobDao.addReference(hash, count, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * 释放 posterUrl 对内容的引用（引用归零的文件由清理任务回收）
+     *
+     * @param posterUrl poster_url 格式字符串
+     */
+    public void release(String posterUrl) {
+        if (posterUrl == null) {
+            return;
+        }
+        String[] parts = posterUrl.split(":", 3);
+        String hash = imagePathResolver.hashOf(parts.length < 3 ? posterUrl : parts[2]);
+        if (hash != null) {
+            imageBlobDao.addRefCount(hash, -1);
+        }
+    }
+
+    /**
+     * 计算文件 SHA-256
+     *
+     * @param file 文件
+     * @return 小写十六进制哈希
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
             }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-            // 返回统一格式：l:1:/年月日/书籍名.png
-            String posterUrl = "l:1:/" + dateDir + "/" + fileName;
-            log.info("图片保存成功，posterUrl: {}", posterUrl);
+    /**
+     * 刷盘目录项，保证重命名在断电后依然可见（部分平台不支持打开目录，忽略即可）
+     */
+    private void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("目录刷盘跳过: {}", e.getMessage());
+        }
+    }
 
-            return posterUrl;
-        } catch (Exception e) {
-            log.error("保存图片失败，书籍: {}", bookTitle, e);
-            throw new RuntimeException("保存图片失败: " + e.getMessage(), e);
+    /**
+     * 复用已有内容时刷新修改时间，回收任务和冷数据打包都按修改时间判断，刚被复用的文件不会被处理
+     */
+    private void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // 已打包，不需要刷新
+        } catch (IOException e) {
+            log.debug("刷新图片修改时间失败: {}", file);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", file, e);
         }
     }
 
@@ -85,7 +380,7 @@ public class ImageStorageService {
      * 示例：
      * - h:0:https://example.com/image.png (无鉴权HTTP，不应通过此方法访问)
      * - l:1:/20240115/三体.png (本地存储)
-     * - ali:1:/bucket/path/image.png (阿里云OSS，待实现)
+     * - s3:1:/cas/ab/cd/{sha256}.png (对象存储，路径即对象键)
      *
      * @param posterUrl poster_url 格式字符串
      * @return 图片输入流
@@ -101,18 +396,14 @@ public class ImageStorageService {
             }
 
             String protocol = parts[0];
-            String auth = parts[1];
             String path = parts[2];
 
             // 根据协议类型处理
             return switch (protocol) {
-                case "l" -> getLocalImageByPath(path);
-                case "h" -> getHttpImage(auth, path);
-                case "ali" -> getAliOssImage(auth, path);
-                case "qiniu" -> getQiniuImage(auth, path);
-                case "s3" -> getS3Image(auth, path);
-                case "f" -> getFtpImage(auth, path);
-                default -> throw new IllegalArgumentException("不支持的协议: " + protocol);
+                case LOCAL -> getLocalImageByPath(path);
+                // 地址来自请求参数，服务端代理任意 URL 有 SSRF 风险，HTTP 图片由客户端直接访问
+                case "h" -> throw new IllegalArgumentException("HTTP 图片不经服务端代理: " + path);
+                default -> getRemoteImage(protocol, path);
             };
 
         } catch (Exception e) {
@@ -122,77 +413,167 @@ public class ImageStorageService {
     }
 
     /**
-     * 读取本地图片
+     * 根据 posterUrl 获取本地图片文件（用于零拷贝输出和缓存校验）
      *
-     * @param path 本地路径（/年月日/书籍名.png）
-     * @return 图片输入流
+     * @param posterUrl poster_url 格式字符串
+     * @return 本地图片（远程图片为本地缓存文件），无法在本地输出或文件不存在返回 null
      */
-    private InputStream getLocalImageByPath(String path) {
+    public LocalImage getLocalImage(String posterUrl) {
+        String[] parts = posterUrl.split(":", 3);
+        if (parts.length < 3) {
+            return imagePathResolver.resolveImage(posterUrl);
+        }
+        if (LOCAL.equals(parts[0])) {
+            return imagePathResolver.resolveImage(parts[2]);
+        }
+        ImageObjectStore store = findObjectStore(parts[0]);
+        if (store == null || !remoteImageCache.isEnabled()) {
+            return null;
+        }
         try {
-            // 移除开头的斜杠
-            String relativePath = path.startsWith("/") ? path.substring(1) : path;
-
-            Path filePath = Paths.get(storagePath, relativePath);
-            File file = filePath.toFile();
+            Path file = remoteImageCache.get(store, objectKey(parts[2]));
+            return file == null ? null : new LocalImage(file, imagePathResolver.hashOf(parts[2]));
+        } catch (IOException e) {
+            log.error("读取远程图片失败，posterUrl: {}, 错误: {}", posterUrl, e.getMessage());
+            return null;
+        }
+    }
 
-            if (!file.exists()) {
-                log.warn("图片文件不存在: {}", relativePath);
-                return null;
-            }
+    /**
+     * 获取客户端直连的预签名地址（图片字节不经过本服务）
+     *
+     * @param posterUrl poster_url 格式字符串
+     * @return 预签名地址，本地图片或存储未开启预签名返回 null
+     */
+    public String getPresignedUrl(String posterUrl) {
+        String[] parts = posterUrl.split(":", 3);
+        if (parts.length < 3 || LOCAL.equals(parts[0])) {
+            return null;
+        }
+        ImageObjectStore store = findObjectStore(parts[0]);
+        return store == null ? null : store.presign(objectKey(parts[2]), Duration.ofSeconds(presignExpirySeconds));
+    }
 
-            return Files.newInputStream(filePath);
-        } catch (Exception e) {
-            log.error("读取本地图片失败，路径: {}", path, e);
-            throw new RuntimeException("读取本地图片失败: " + e.getMessage(), e);
+    /**
+     * 对象存储统计（各存储的读写统计和本地读穿缓存）
+     */
+    public Map<String, Object> remoteStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("storageType", storageType);
+        for (ImageObjectStore store : imageObjectStores) {
+            stats.put(store.getProtocol(), store.stats());
         }
+        stats.put("cache", remoteImageCache.stats());
+        return stats;
     }
 
     /**
-     * 读取 HTTP/HTTPS 图片（待实现）
+     * 从热点缓存获取图片内容（仅用于内容不可变的图片）
+     *
+     * @param key  缓存键（内容哈希或变体标识）
+     * @param file 图片文件
+     * @return 只读缓冲区，未缓存且未准入返回 null
      */
-    private InputStream getHttpImage(String auth, String path) {
-        throw new UnsupportedOperationException("HTTP/HTTPS 图片读取功能待实现");
+    public ByteBuffer getHotImage(String key, Path file) {
+        return hotImageCache.get(key, file);
     }
 
     /**
-     * 读取阿里云 OSS 图片（待实现）
+     * 热点缓存统计（命中率、常驻字节数等）
      */
-    private InputStream getAliOssImage(String auth, String path) {
-        throw new UnsupportedOperationException("阿里云 OSS 图片读取功能待实现");
+    public Map<String, Object> hotCacheStats() {
+        return hotImageCache.stats();
     }
 
     /**
-     * 读取七牛云图片（待实现）
+     * 按当前推荐书单预热热点缓存（首页海报）
      */
-    private InputStream getQiniuImage(String auth, String path) {
-        throw new UnsupportedOperationException("七牛云图片读取功能待实现");
+    @Scheduled(initialDelayString = "${app.image.hot-cache.warm-initial-delay-ms:30000}",
+            fixedDelayString = "${app.image.hot-cache.warm-interval-ms:600000}")
+    public void warmHotImages() {
+        try {
+            List<String> titles = userInterestDao.findTop5BookTitlesByInterested(true);
+            if (titles.isEmpty()) {
+                return;
+            }
+            int warmed = 0;
+            for (BookAnalyse analyse : bookAnalyseDao.findByTitleIn(titles)) {
+                if (analyse.getPosterUrl() == null || analyse.getPosterUrl().isEmpty()) {
+                    continue;
+                }
+                LocalImage image = getLocalImage(analyse.getPosterUrl());
+                // 已打包的图片本身就是内存映射读取，不需要预热
+                if (image != null && image.isImmutable() && !image.isPacked()) {
+                    hotImageCache.warm(image.getHash(), image.getFile());
+                    warmed++;
+                }
+            }
+            log.debug("热点图片缓存预热完成，推荐书籍: {}，预热: {}", titles.size(), warmed);
+        } catch (Exception e) {
+            log.warn("热点图片缓存预热失败: {}", e.getMessage());
+        }
     }
 
     /**
-     * 读取 AWS S3 图片（待实现）
+     * 读取本地图片
+     *
+     * @param path 本地路径（/cas/ab/cd/{sha256}.png 或旧版 /年月日/书籍名.png）
+     * @return 图片输入流
      */
-    private InputStream getS3Image(String auth, String path) {
-        throw new UnsupportedOperationException("AWS S3 图片读取功能待实现");
+    private InputStream getLocalImageByPath(String path) {
+        try {
+            LocalImage image = imagePathResolver.resolveImage(path);
+            if (image == null) {
+                log.warn("图片文件不存在: {}", path);
+                return null;
+            }
+
+            return image.openStream();
+        } catch (Exception e) {
+            log.error("读取本地图片失败，路径: {}", path, e);
+            throw new RuntimeException("读取本地图片失败: " + e.getMessage(), e);
+        }
     }
 
     /**
-     * 读取 FTP 图片（待实现）
+     * 读取对象存储图片：优先经本地读穿缓存，未开启缓存时直接读取
      */
-    private InputStream getFtpImage(String auth, String path) {
-        throw new UnsupportedOperationException("FTP 图片读取功能待实现");
+    private InputStream getRemoteImage(String protocol, String path) throws IOException {
+        ImageObjectStore store = objectStore(protocol);
+        String key = objectKey(path);
+        if (remoteImageCache.isEnabled()) {
+            Path file = remoteImageCache.get(store, key);
+            return file == null ? null : Files.newInputStream(file);
+        }
+        return store.open(key);
     }
 
     /**
-     * 清理文件名，移除特殊字符
+     * 获取协议对应的对象存储
      *
-     * @param fileName 原始文件名
-     * @return 清理后的文件名
-     */
-    private String sanitizeFileName(String fileName) {
-        // 移除或替换特殊字符
-        return fileName
-                .replaceAll("[\\\\/:*?\"<>|]", "_")  // 替换 Windows 不允许的字符
-                .replaceAll("\\s+", "_")              // 空格替换为下划线
-                .trim();
+     * @throws IllegalArgumentException 协议未配置存储
+     */
+    private ImageObjectStore objectStore(String protocol) {
+        ImageObjectStore store = findObjectStore(protocol);
+        if (store == null) {
+            throw new IllegalArgumentException("不支持的协议或存储未启用: " + protocol);
+        }
+        return store;
+    }
+
+    private ImageObjectStore findObjectStore(String protocol) {
+        for (ImageObjectStore store : imageObjectStores) {
+            if (store.getProtocol().equals(protocol)) {
+                return store;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * posterUrl 路径部分转为对象键（去掉开头的 /）
+     */
+    private static String objectKey(String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
     }
 }
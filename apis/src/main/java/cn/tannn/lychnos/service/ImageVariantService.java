@@ -0,0 +1,481 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.common.pojo.LocalImage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 图片尺寸变体（缩略图）服务
+ * <p>按需生成缩小后的 JPEG / PNG，存放在 {storagePath}/variants 下：</p>
+ * <ul>
+ *     <li>宽度向上对齐到白名单，请求参数不能无限制地生成新文件</li>
+ *     <li>同一变体并发请求只生成一次，同时生成的数量受信号量限制（缩放是 CPU 密集操作）</li>
+ *     <li>按总字节数上限做 LRU 淘汰，启动时按文件访问时间重建索引</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/6
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageVariantService {
+
+    /**
+     * 变体目录（位于存储根目录下）
+     */
+    private static final String VARIANT_DIR = "variants";
+
+    private final ImagePathResolver imagePathResolver;
+
+    /**
+     * 允许的宽度白名单（逗号分隔）
+     */
+    @Value("${app.image.variant.widths:320,640,960,1280}")
+    private String widthsConfig;
+
+    /**
+     * 变体缓存总字节数上限，默认 512MB
+     */
+    @Value("${app.image.variant.max-bytes:536870912}")
+    private long maxBytes;
+
+    /**
+     * JPEG 压缩质量（0-1）
+     */
+    @Value("${app.image.variant.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    /**
+     * 同时生成变体的最大数量
+     */
+    @Value("${app.image.variant.parallelism:2}")
+    private int parallelism;
+
+    /**
+     * 排序后的宽度白名单
+     */
+    private int[] widths;
+
+    /**
+     * 生成并发限制
+     */
+    private Semaphore permits;
+
+    /**
+     * LRU 索引：文件名 -> 大小（访问顺序）
+     */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * 当前缓存总字节数（受 index 锁保护）
+     */
+    private long totalBytes;
+
+    /**
+     * 命中后还未写回访问时间的条目：命中只记录在内存中，定时按 LRU 顺序批量写回文件访问时间
+     */
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 正在生成的变体，并发请求合并
+     */
+    private final Map<String, CompletableFuture<Path>> generating = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder generateMs = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        widths = Arrays.stream(widthsConfig.split(","))
+                .map(String::trim).filter(s -> !s.isEmpty())
+                .mapToInt(Integer::parseInt).filter(w -> w > 0)
+                .sorted().distinct().toArray();
+        permits = new Semaphore(Math.max(1, parallelism));
+        loadIndex();
+        log.info("图片变体缓存初始化完成，宽度白名单: {}, 已缓存: {} 个 / {} 字节, 上限: {} 字节",
+                Arrays.toString(widths), index.size(), totalBytes, maxBytes);
+    }
+
+    /**
+     * 宽度对齐到白名单（向上取最近值，超过最大值取最大值）
+     *
+     * @param width 请求宽度
+     * @return 对齐后的宽度，未配置白名单返回 null
+     */
+    public Integer snapWidth(int width) {
+        if (widths.length == 0) {
+            return null;
+        }
+        for (int candidate : widths) {
+            if (candidate >= width) {
+                return candidate;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    /**
+     * 获取图片变体，不存在时生成
+     *
+     * @param image  原图
+     * @param width  目标宽度（已对齐白名单）
+     * @param format 输出格式（jpeg / png）
+     * @return 变体文件（原图宽度小于目标宽度时不放大）
+     */
+    public Path getVariant(LocalImage image, int width, String format) throws IOException {
+        String name = variantName(image, width, format);
+        Path file = variantDir().resolve(name.substring(0, 2)).resolve(name);
+
+        boolean cached;
+        synchronized (index) {
+            cached = index.get(name) != null;
+        }
+        if (cached && Files.exists(file)) {
+            hits.increment();
+            touched.add(name);
+            return file;
+        }
+        misses.increment();
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> other = generating.putIfAbsent(name, mine);
+        if (other != null) {
+            return await(other);
+        }
+        try {
+            Path result = generate(image, file, width, format);
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            generating.remove(name, mine);
+        }
+    }
+
+    /**
+     * 变体缓存统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = generated.sum();
+        synchronized (index) {
+            stats.put("entries", index.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("generated", count);
+        stats.put("evictions", evictions.sum());
+        stats.put("avgGenerateMs", count == 0 ? 0 : generateMs.sum() / count);
+        return stats;
+    }
+
+    /**
+     * 删除某个内容哈希的全部变体（原图被回收时调用）
+     *
+     * @param hash 原图 SHA-256
+     */
+    public void removeVariants(String hash) {
+        Path dir = variantDir().resolve(hash.substring(0, 2));
+        synchronized (index) {
+            Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (entry.getKey().startsWith(hash + "_")) {
+                    deleteQuietly(dir.resolve(entry.getKey()));
+                    totalBytes -= entry.getValue();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成变体：缩放 -> 写入临时文件 -> 原子重命名 -> 加入 LRU 索引
+     */
+    private Path generate(LocalImage source, Path target, int width, String format) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("生成图片变体被中断", e);
+        }
+        long start = System.currentTimeMillis();
+        Path temp = null;
+        try {
+            BufferedImage original;
+            // 原图可能是单独文件，也可能在 pack 中（直接读映射切片）
+            try (InputStream in = source.openStream()) {
+                original = ImageIO.read(in);
+            }
+            if (original == null) {
+                throw new IOException("无法解析图片: " + source.getFile().getFileName());
+            }
+            BufferedImage scaled = resize(original, width, "jpeg".equals(format));
+
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), "variant-", ".part");
+            write(scaled, format, jpegQuality, false, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            long size = Files.size(target);
+            add(target.getFileName().toString(), size);
+            long duration = System.currentTimeMillis() - start;
+            generated.increment();
+            generateMs.add(duration);
+            log.debug("生成图片变体: {}, {} 字节, {}ms", target.getFileName(), size, duration);
+            return target;
+        } finally {
+            permits.release();
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * 逐级减半缩放到目标宽度（每步双线性插值，比一次性缩放更清晰）
+     * <p>每次调用使用独立的 BufferedImage / Graphics2D，多线程并发调用安全</p>
+     *
+     * @param source 原图
+     * @param width  目标宽度（不大于原图宽度）
+     * @param opaque 是否输出不透明图（JPEG 不支持透明通道）
+     */
+    static BufferedImage resize(BufferedImage source, int width, boolean opaque) {
+        int targetWidth = Math.min(width, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                if (opaque) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, currentWidth, currentHeight);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    /**
+     * 按格式写出：JPEG 使用指定质量，PNG 使用最高压缩级别；不写入任何元数据
+     *
+     * @param image       图片
+     * @param format      jpeg / png
+     * @param quality     JPEG 质量（0-1）
+     * @param progressive JPEG 是否渐进式
+     * @param file        目标文件
+     */
+    static void write(BufferedImage image, String format, float quality, boolean progressive, Path file)
+            throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的图片格式: " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionTypes() != null && param.getCompressionType() == null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality("jpeg".equals(format) ? quality : 0f);
+            }
+            if (progressive && param.canWriteProgressive()) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * 变体文件名：{内容键}_{宽度}.{格式}
+     * <p>内容寻址原图的内容键即其哈希；旧版路径用 路径+大小+修改时间 的哈希，原图被覆盖后自动失效</p>
+     */
+    private String variantName(LocalImage image, int width, String format) throws IOException {
+        String key = image.getHash();
+        if (key == null) {
+            BasicFileAttributes attributes = Files.readAttributes(image.getFile(), BasicFileAttributes.class);
+            key = sha256Hex(image.getFile().toAbsolutePath() + ":" + attributes.size() + ":"
+                    + attributes.lastModifiedTime().toMillis());
+        }
+        return key + "_" + width + "." + ("jpeg".equals(format) ? "jpg" : format);
+    }
+
+    /**
+     * 加入索引，超过上限时淘汰最久未访问的变体
+     */
+    private void add(String name, long size) {
+        synchronized (index) {
+            Long previous = index.put(name, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(name)) {
+                    continue;
+                }
+                deleteQuietly(variantDir().resolve(eldest.getKey().substring(0, 2)).resolve(eldest.getKey()));
+                totalBytes -= eldest.getValue();
+                iterator.remove();
+                touched.remove(eldest.getKey());
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 启动时扫描变体目录，按最后访问时间（不支持时为修改时间）重建 LRU 顺序
+     */
+    private void loadIndex() {
+        Path dir = variantDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Object[]> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir, 2)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".part")) {
+                    deleteQuietly(file);
+                    return;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    entries.add(new Object[]{name, attributes.size(), attributes.lastAccessTime().toMillis()});
+                } catch (IOException e) {
+                    log.debug("读取变体文件属性失败: {}", file);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("扫描图片变体目录失败: {}", e.getMessage());
+        }
+        entries.sort(Comparator.comparingLong(entry -> (Long) entry[2]));
+        for (Object[] entry : entries) {
+            add((String) entry[0], (Long) entry[1]);
+        }
+    }
+
+    /**
+     * 把命中记录写回文件访问时间，保证重启后 LRU 顺序依然有效（noatime 挂载时 atime 不会自动更新）
+     * <p>按内存 LRU 顺序逐个递增时间戳写回，相对顺序与内存一致；每个文件每个周期最多写一次</p>
+     */
+    @Scheduled(fixedDelayString = "${app.image.variant.access-flush-interval-ms:300000}")
+    public void flushAccessTimes() {
+        if (touched.isEmpty()) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        synchronized (index) {
+            for (String name : index.keySet()) {
+                if (touched.remove(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        long base = System.currentTimeMillis() - names.size();
+        for (int i = 0; i < names.size(); i++) {
+            Path file = variantDir().resolve(names.get(i).substring(0, 2)).resolve(names.get(i));
+            try {
+                Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                        .setTimes(null, FileTime.fromMillis(base + i), null);
+            } catch (IOException e) {
+                log.debug("更新变体访问时间失败: {}", file);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushAccessTimes();
+    }
+
+    private Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private Path variantDir() {
+        return imagePathResolver.root().resolve(VARIANT_DIR);
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除图片变体失败: {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.common.util.IpCidrTrie;
+import cn.tannn.lychnos.dao.IpBlockDao;
+import cn.tannn.lychnos.entity.IpBlock;
+import com.google.common.net.InetAddresses;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IP 黑名单服务
+ * <p>黑名单持久化在 tb_ip_block，内存中构建为 IPv4/IPv6 网段前缀树，由 IpBlockFilter 在所有过滤器和控制器之前查询：</p>
+ * <ul>
+ *     <li>攻击统计达到高频阈值的 IP 自动加入，带有效期；管理员可以添加网段（可永久）</li>
+ *     <li>名单变化时重建前缀树整体替换，查询无锁；过期的网段查询时直接忽略，定时清理</li>
+ *     <li>定时从数据库重新加载，集群其他节点添加的名单在一个周期内生效</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/14
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IpBlocklistService {
+
+    public static final String SOURCE_AUTO = "AUTO";
+    public static final String SOURCE_ADMIN = "ADMIN";
+
+    private final IpBlockDao ipBlockDao;
+
+    /**
+     * 是否启用黑名单拦截
+     */
+    @Value("${app.ip-block.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 是否自动拉黑高频攻击者
+     */
+    @Value("${app.ip-block.auto-block:true}")
+    private boolean autoBlock;
+
+    /**
+     * 自动拉黑的有效期（分钟）
+     */
+    @Value("${app.ip-block.auto-ttl-minutes:1440}")
+    private long autoTtlMinutes;
+
+    /**
+     * 当前名单：规范化网段 -> 过期时间（毫秒）
+     */
+    private final Map<String, Long> entries = new ConcurrentHashMap<>();
+
+    private volatile IpCidrTrie trie = IpCidrTrie.empty();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder autoBlocked = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * IP 是否被拉黑
+     *
+     * @param ip 客户端 IP
+     */
+    public boolean isBlocked(String ip) {
+        if (!enabled) {
+            return false;
+        }
+        boolean blocked = trie.contains(ip, System.currentTimeMillis());
+        if (blocked) {
+            rejected.increment();
+        }
+        return blocked;
+    }
+
+    /**
+     * 自动拉黑高频攻击者（回环、内网地址不处理，避免反向代理配置错误时拉黑整个站点）
+     *
+     * @param ip     攻击者 IP
+     * @param reason 原因
+     */
+    public void autoBlock(String ip, String reason) {
+        if (!enabled || !autoBlock || !isPublic(ip)) {
+            return;
+        }
+        try {
+            block(ip, SOURCE_AUTO, reason, Duration.ofMinutes(autoTtlMinutes));
+            autoBlocked.increment();
+        } catch (Exception e) {
+            log.warn("自动拉黑IP失败: {}, 错误: {}", ip, e.getMessage());
+        }
+    }
+
+    /**
+     * 拉黑网段（已存在时延长有效期）
+     *
+     * @param cidr   网段或单个 IP
+     * @param source 来源
+     * @param reason 原因
+     * @param ttl    有效期，null 表示永久
+     * @return 保存后的记录
+     * @throws IllegalArgumentException 网段格式非法
+     */
+    public synchronized IpBlock block(String cidr, String source, String reason, Duration ttl) {
+        String normalized = IpCidrTrie.normalize(cidr);
+        LocalDateTime expireTime = ttl == null ? null : LocalDateTime.now().plus(ttl);
+        IpBlock block = ipBlockDao.findByCidr(normalized).orElseGet(IpBlock::new);
+        boolean permanent = block.getId() != null && block.getExpireTime() == null;
+        block.setCidr(normalized);
+        block.setSource(block.getSource() == null || SOURCE_ADMIN.equals(source) ? source : block.getSource());
+        block.setReason(reason);
+        if (!permanent && (expireTime == null || block.getExpireTime() == null || expireTime.isAfter(block.getExpireTime()))) {
+            block.setExpireTime(expireTime);
+        }
+        IpBlock saved = ipBlockDao.save(block);
+        entries.put(normalized, expireAt(saved.getExpireTime()));
+        rebuild();
+        log.warn("IP已加入黑名单: {}, 来源: {}, 过期时间: {}, 原因: {}", normalized, saved.getSource(),
+                saved.getExpireTime() == null ? "永久" : saved.getExpireTime(), reason);
+        return saved;
+    }
+
+    /**
+     * 移出黑名单
+     *
+     * @param cidr 网段或单个 IP
+     * @return 是否存在
+     */
+    public synchronized boolean unblock(String cidr) {
+        String normalized = IpCidrTrie.normalize(cidr);
+        int deleted = ipBlockDao.deleteByCidr(normalized);
+        entries.remove(normalized);
+        rebuild();
+        log.info("IP已移出黑名单: {}", normalized);
+        return deleted > 0;
+    }
+
+    /**
+     * 黑名单列表
+     */
+    public List<IpBlock> list() {
+        return ipBlockDao.findAll();
+    }
+
+    /**
+     * 黑名单统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("autoBlock", autoBlock);
+        stats.put("entries", trie.size());
+        stats.put("rejected", rejected.sum());
+        stats.put("autoBlocked", autoBlocked.sum());
+        return stats;
+    }
+
+    /**
+     * 定时清理过期记录并从数据库重新加载（同步集群其他节点的变更）
+     */
+    @Scheduled(fixedDelayString = "${app.ip-block.reload-ms:30000}")
+    public void scheduledReload() {
+        try {
+            int deleted = ipBlockDao.deleteExpired(LocalDateTime.now());
+            if (deleted > 0) {
+                log.info("清理过期的IP黑名单: {} 条", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("清理过期的IP黑名单失败: {}", e.getMessage());
+        }
+        reload();
+    }
+
+    private synchronized void reload() {
+        try {
+            Map<String, Long> loaded = new HashMap<>();
+            for (IpBlock block : ipBlockDao.findAll()) {
+                try {
+                    loaded.put(IpCidrTrie.normalize(block.getCidr()), expireAt(block.getExpireTime()));
+                } catch (IllegalArgumentException e) {
+                    log.warn("忽略非法的IP黑名单记录: {}", block.getCidr());
+                }
+            }
+            entries.clear();
+            entries.putAll(loaded);
+            rebuild();
+        } catch (Exception e) {
+            log.error("加载IP黑名单失败", e);
+        }
+    }
+
+    private void rebuild() {
+        IpCidrTrie.Builder builder = IpCidrTrie.builder();
+        long now = System.currentTimeMillis();
+        entries.forEach((cidr, expireAt) -> {
+            if (expireAt > now) {
+                builder.add(cidr, expireAt);
+            }
+        });
+        trie = builder.build();
+    }
+
+    private static long expireAt(LocalDateTime expireTime) {
+        return expireTime == null ? IpCidrTrie.PERMANENT
+                : expireTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static boolean isPublic(String ip) {
+        if (ip == null || !InetAddresses.isInetAddress(ip)) {
+            return false;
+        }
+        InetAddress address = InetAddresses.forString(ip);
+        return !(address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()
+                || address.isAnyLocalAddress());
+    }
+}
@@ -0,0 +1,437 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
+import cn.tannn.lychnos.common.constant.RateLimitRule;
+import cn.tannn.lychnos.common.util.TokenBucketTable;
+import cn.tannn.lychnos.dao.RateLimitUsageDao;
+import cn.tannn.lychnos.entity.AIModel;
+import cn.tannn.lychnos.entity.RateLimitUsage;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AI 调用限流服务（按用户的令牌桶）
+ * <ul>
+ *     <li>接口类规则（书籍提取、书籍分析、AI 测试）在控制器入口检查</li>
+ *     <li>模型类规则按模型类型区分，使用他人提供的官方模型时使用更严格的规则，在实际调用 AI 前检查</li>
+ *     <li>请求线程中超限直接拒绝，响应头 Retry-After 给出等待秒数；批量分析等后台线程在最长等待时间内排队等待</li>
+ *     <li>集群模式：各节点定时把本节点的令牌消耗写入 tb_rate_limit_usage，并按版本号轮询扣除其他节点的消耗，
+ *     节点间的最大误差为一个同步间隔内的消耗</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/16
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RateLimitService {
+
+    /**
+     * 轮询时回看的版本数（自增版本号按分配顺序而非提交顺序可见），已应用的版本号记录在 appliedVersions 中避免重复扣除
+     */
+    private static final long LOOKBACK_VERSIONS = 64;
+
+    private final RateLimitUsageDao rateLimitUsageDao;
+
+    /**
+     * 是否启用限流
+     */
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 各规则的限额，格式：桶容量,每分钟补充的令牌数
+     */
+    @Value("${app.rate-limit.limits.extract:10,6}")
+    private String extractLimit;
+    @Value("${app.rate-limit.limits.analyze:5,2}")
+    private String analyzeLimit;
+    @Value("${app.rate-limit.limits.ai-test:10,10}")
+    private String aiTestLimit;
+    @Value("${app.rate-limit.limits.text:30,20}")
+    private String textLimit;
+    @Value("${app.rate-limit.limits.text-official:10,4}")
+    private String textOfficialLimit;
+    @Value("${app.rate-limit.limits.image:10,5}")
+    private String imageLimit;
+    @Value("${app.rate-limit.limits.image-official:3,1}")
+    private String imageOfficialLimit;
+
+    /**
+     * 后台线程（批量分析、预热）等待令牌的最长时间（毫秒）
+     */
+    @Value("${app.rate-limit.max-wait-ms:60000}")
+    private long maxWaitMs;
+
+    /**
+     * 是否启用集群同步
+     */
+    @Value("${app.rate-limit.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    /**
+     * 消耗记录保留分钟数
+     */
+    @Value("${app.rate-limit.cluster.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final Map<RateLimitRule, TokenBucketTable> tables = new EnumMap<>(RateLimitRule.class);
+    private final Map<RateLimitRule, LongAdder> allowed = new EnumMap<>(RateLimitRule.class);
+    private final Map<RateLimitRule, LongAdder> rejected = new EnumMap<>(RateLimitRule.class);
+
+    /**
+     * 本节点标识（集群模式下区分消耗记录的来源）
+     */
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+
+    /**
+     * 本节点尚未写入数据库的消耗：规则:用户ID -> 令牌数
+     */
+    private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 回看范围内已应用的版本号
+     */
+    private final Set<Long> appliedVersions = new HashSet<>();
+
+    /**
+     * 已同步的最大版本号
+     */
+    private volatile long syncedVersion;
+
+    private final LongAdder syncedPermits = new LongAdder();
+
+    /**
+     * 当前线程预留的模型令牌
+     */
+    private final ThreadLocal<Reservation> reservations = new ThreadLocal<>();
+
+    @PostConstruct
+    public void init() {
+        Map<RateLimitRule, String> limits = new EnumMap<>(RateLimitRule.class);
+        limits.put(RateLimitRule.EXTRACT, extractLimit);
+        limits.put(RateLimitRule.ANALYZE, analyzeLimit);
+        limits.put(RateLimitRule.AI_TEST, aiTestLimit);
+        limits.put(RateLimitRule.TEXT, textLimit);
+        limits.put(RateLimitRule.TEXT_OFFICIAL, textOfficialLimit);
+        limits.put(RateLimitRule.IMAGE, imageLimit);
+        limits.put(RateLimitRule.IMAGE_OFFICIAL, imageOfficialLimit);
+        long now = System.currentTimeMillis();
+        limits.forEach((rule, limit) -> {
+            String[] parts = limit.split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("限流规则格式错误（桶容量,每分钟补充数）: " + rule + "=" + limit);
+            }
+            tables.put(rule, new TokenBucketTable(Integer.parseInt(parts[0].trim()),
+                    Double.parseDouble(parts[1].trim()), now));
+            allowed.put(rule, new LongAdder());
+            rejected.put(rule, new LongAdder());
+        });
+        if (clusterEnabled) {
+            syncedVersion = rateLimitUsageDao.maxVersion();
+        }
+        log.info("AI 调用限流{}，规则: {}，集群同步: {}", enabled ? "已启用" : "未启用", limits, clusterEnabled);
+    }
+
+    /**
+     * 接口限流（请求线程调用），超限抛出异常并设置 Retry-After
+     *
+     * @param userId 用户ID
+     * @param rule   限流规则
+     */
+    public void acquire(Long userId, RateLimitRule rule) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        long waitMs = tryAcquire(userId, rule);
+        if (waitMs > 0) {
+            throw limited(userId, rule, waitMs);
+        }
+    }
+
+    /**
+     * 模型调用限流：请求线程中超限直接拒绝；后台线程在最长等待时间内等待令牌
+     * <p>当前线程已通过 {@link #reserveModels(Long, AIModel...)} 预留了对应规则的令牌时直接使用预留的令牌</p>
+     *
+     * @param userId 调用者
+     * @param model  实际使用的模型
+     */
+    public void acquireModel(Long userId, AIModel model) {
+        if (!enabled || userId == null || model == null) {
+            return;
+        }
+        RateLimitRule rule = ruleOf(userId, model);
+        Reservation reservation = reservations.get();
+        if (reservation != null && reservation.take(userId, rule)) {
+            return;
+        }
+        acquireRule(userId, rule);
+    }
+
+    /**
+     * 一次业务需要连续调用多个模型时（如书籍分析先调文本模型再调图片模型），在入口一次性预留各模型的令牌
+     * <p>任一规则超限时退还已取得的令牌并抛出限流异常，避免文本调用消耗了令牌后图片调用才被拒绝；
+     * 预留的令牌由当前线程后续的 {@link #acquireModel(Long, AIModel)} 使用，关闭时退还未使用的令牌</p>
+     *
+     * @param userId 调用者
+     * @param models 将要调用的模型，为 null 的跳过
+     * @return 预留，需在 try-with-resources 中使用
+     */
+    public Reservation reserveModels(Long userId, AIModel... models) {
+        Reservation reservation = new Reservation(userId, reservations.get());
+        if (!enabled || userId == null) {
+            reservations.set(reservation);
+            return reservation;
+        }
+        try {
+            for (AIModel model : models) {
+                if (model != null) {
+                    RateLimitRule rule = ruleOf(userId, model);
+                    acquireRule(userId, rule);
+                    reservation.rules.add(rule);
+                }
+            }
+        } catch (RuntimeException e) {
+            reservation.refund();
+            throw e;
+        }
+        reservations.set(reservation);
+        return reservation;
+    }
+
+    /**
+     * 模型令牌预留（线程内有效）
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final Long userId;
+        private final Reservation previous;
+        private final List<RateLimitRule> rules = new ArrayList<>(2);
+
+        private Reservation(Long userId, Reservation previous) {
+            this.userId = userId;
+            this.previous = previous;
+        }
+
+        private boolean take(Long caller, RateLimitRule rule) {
+            return Objects.equals(userId, caller) && rules.remove(rule);
+        }
+
+        /**
+         * 退还未使用的令牌（集群模式下其他节点已同步的消耗不回退，误差偏保守）
+         */
+        private void refund() {
+            long now = System.currentTimeMillis();
+            for (RateLimitRule rule : rules) {
+                tables.get(rule).refund(userId, 1, now);
+                allowed.get(rule).decrement();
+            }
+            rules.clear();
+        }
+
+        @Override
+        public void close() {
+            refund();
+            if (previous == null) {
+                reservations.remove();
+            } else {
+                reservations.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 定时清理已补满的令牌桶
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.evict-ms:60000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (TokenBucketTable table : tables.values()) {
+            evicted += table.evictIdle(now);
+        }
+        if (evicted > 0) {
+            log.debug("清理闲置令牌桶 {} 个", evicted);
+        }
+    }
+
+    /**
+     * 集群同步：写入本节点的消耗，扣除其他节点的消耗
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.cluster.interval-ms:2000}")
+    public synchronized void sync() {
+        if (!clusterEnabled) {
+            return;
+        }
+        try {
+            flush();
+            List<RateLimitUsage> usages = rateLimitUsageDao.findByVersionGreaterThanAndNodeIdNotOrderByVersionAsc(
+                    Math.max(0, syncedVersion - LOOKBACK_VERSIONS), nodeId);
+            long now = System.currentTimeMillis();
+            for (RateLimitUsage usage : usages) {
+                if (appliedVersions.add(usage.getVersion())) {
+                    TokenBucketTable table = tables.get(RateLimitRule.valueOf(usage.getRule()));
+                    table.debit(usage.getUserId(), usage.getPermits(), now);
+                    syncedPermits.add(usage.getPermits());
+                }
+                syncedVersion = Math.max(syncedVersion, usage.getVersion());
+            }
+            long floor = syncedVersion - LOOKBACK_VERSIONS;
+            appliedVersions.removeIf(version -> version <= floor);
+        } catch (Exception e) {
+            log.warn("同步限流令牌消耗失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清理过期的消耗记录
+     */
+    @Scheduled(cron = "${app.rate-limit.cluster.cleanup-cron:0 */10 * * * *}")
+    public void cleanup() {
+        if (!clusterEnabled) {
+            return;
+        }
+        try {
+            int deleted = rateLimitUsageDao.deleteByCreateTimeBefore(LocalDateTime.now().minusMinutes(retentionMinutes));
+            if (deleted > 0) {
+                log.info("清理过期的限流消耗记录: {} 条", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("清理限流消耗记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 限流统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> rules = new LinkedHashMap<>();
+        tables.forEach((rule, table) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("buckets", table.size());
+            item.put("allowed", allowed.get(rule).sum());
+            item.put("rejected", rejected.get(rule).sum());
+            rules.put(rule.name(), item);
+        });
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("rules", rules);
+        stats.put("cluster", clusterEnabled);
+        if (clusterEnabled) {
+            stats.put("nodeId", nodeId);
+            stats.put("syncedVersion", syncedVersion);
+            stats.put("syncedPermits", syncedPermits.sum());
+        }
+        return stats;
+    }
+
+    /**
+     * 模型对应的限流规则，使用他人提供的官方模型时规则更严格
+     */
+    private static RateLimitRule ruleOf(Long userId, AIModel model) {
+        boolean official = model.isOfficial() && !Objects.equals(model.getUserId(), userId);
+        return RateLimitRule.ofModel(model.getType(), official);
+    }
+
+    /**
+     * 按规则取一个令牌：请求线程中超限直接拒绝；后台线程在最长等待时间内等待令牌
+     */
+    private void acquireRule(Long userId, RateLimitRule rule) {
+        if (RequestContextHolder.getRequestAttributes() != null) {
+            acquire(userId, rule);
+            return;
+        }
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        long waitMs;
+        while ((waitMs = tryAcquire(userId, rule)) > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (waitMs > remaining) {
+                throw limited(userId, rule, waitMs);
+            }
+            try {
+                Thread.sleep(waitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw limited(userId, rule, waitMs);
+            }
+        }
+    }
+
+    /**
+     * 取一个令牌
+     *
+     * @return 0 表示成功，否则为需要等待的毫秒数
+     */
+    private long tryAcquire(Long userId, RateLimitRule rule) {
+        long waitMs = tables.get(rule).tryAcquire(userId, System.currentTimeMillis());
+        if (waitMs > 0) {
+            rejected.get(rule).increment();
+            return waitMs;
+        }
+        allowed.get(rule).increment();
+        if (clusterEnabled) {
+            pending.computeIfAbsent(rule.name() + ":" + userId, k -> new LongAdder()).increment();
+        }
+        return 0;
+    }
+
+    /**
+     * 写入本节点的消耗
+     */
+    private void flush() {
+        List<RateLimitUsage> usages = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        pending.forEach((key, adder) -> {
+            long permits = adder.sumThenReset();
+            if (permits == 0) {
+                pending.remove(key, adder);
+                return;
+            }
+            int split = key.indexOf(':');
+            RateLimitUsage usage = new RateLimitUsage();
+            usage.setNodeId(nodeId);
+            usage.setRule(key.substring(0, split));
+            usage.setUserId(Long.parseLong(key.substring(split + 1)));
+            usage.setPermits((int) permits);
+            usage.setCreateTime(now);
+            usages.add(usage);
+        });
+        if (!usages.isEmpty()) {
+            rateLimitUsageDao.saveAll(usages);
+        }
+    }
+
+    /**
+     * 构建限流异常，请求线程中同时设置 Retry-After
+     */
+    private BusinessException limited(Long userId, RateLimitRule rule, long waitMs) {
+        long seconds = Math.max(1, (waitMs + 999) / 1000);
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+            }
+        }
+        log.info("触发限流，userId: {}, rule: {}, retryAfter: {}s", userId, rule, seconds);
+        return new BusinessException(
+                BusinessErrorCode.RATE_LIMITED.getCode(),
+                BusinessErrorCode.RATE_LIMITED.formatMessage(rule.getDescription(), seconds)
+        );
+    }
+}
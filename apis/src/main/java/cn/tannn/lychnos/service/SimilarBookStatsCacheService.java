@@ -0,0 +1,131 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.common.constant.BookSourceType;
+import cn.tannn.lychnos.controller.vo.BookExtractVO;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 相似推荐书籍统计缓存服务
+ * <p>记录 AI 提取结果中的书籍及出现次数，作为书籍预热的候选来源，7天自动过期：</p>
+ * <ul>
+ *     <li>SIMILAR：AI 推荐的相似书籍</li>
+ *     <li>USER_INPUT：AI 从用户输入中识别出的书籍（规范化后的书名，不受用户输入写法影响）</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/4
+ */
+@Service
+@Slf4j
+public class SimilarBookStatsCacheService {
+
+    /**
+     * 相似推荐统计缓存
+     * Key: 书名
+     * Value: 作者 + 被推荐次数
+     * 有效期: 最后一次推荐后7天
+     */
+    private Cache<String, SimilarBook> similarCache;
+
+    /**
+     * 用户输入识别结果统计缓存（结构同上）
+     */
+    private Cache<String, SimilarBook> extractedCache;
+
+    /**
+     * 初始化缓存
+     */
+    @PostConstruct
+    public void init() {
+        log.info("初始化相似推荐统计缓存，数据保留时长: 7天");
+
+        similarCache = CacheBuilder.newBuilder()
+                .expireAfterAccess(7, TimeUnit.DAYS)
+                .maximumSize(5000)
+                .build();
+        extractedCache = CacheBuilder.newBuilder()
+                .expireAfterAccess(7, TimeUnit.DAYS)
+                .maximumSize(5000)
+                .build();
+    }
+
+    /**
+     * 记录 AI 提取结果中的相似推荐书籍和识别出的用户输入书籍
+     *
+     * @param books AI 提取结果
+     */
+    public void recordSuggestions(List<BookExtractVO> books) {
+        for (BookExtractVO book : books) {
+            Cache<String, SimilarBook> cache = book.getSourceType() == BookSourceType.SIMILAR ? similarCache
+                    : book.getSourceType() == BookSourceType.USER_INPUT ? extractedCache : null;
+            if (cache == null || book.getTitle() == null) {
+                continue;
+            }
+            String title = book.getTitle().trim();
+            if (title.isEmpty()) {
+                continue;
+            }
+            try {
+                cache.get(title, () -> new SimilarBook(book.getAuthor())).count.incrementAndGet();
+            } catch (ExecutionException e) {
+                log.debug("记录相似推荐失败: {}", title, e);
+            }
+        }
+    }
+
+    /**
+     * 获取被推荐次数最多的书籍
+     *
+     * @param minCount 最少推荐次数
+     * @param limit    返回数量
+     * @return 书籍列表（按推荐次数降序）
+     */
+    public List<BookExtractVO> getTopSuggestions(long minCount, int limit) {
+        return top(similarCache, BookSourceType.SIMILAR, minCount, limit);
+    }
+
+    /**
+     * 获取用户提取次数最多的书籍（AI 识别出的书名和作者）
+     *
+     * @param limit 返回数量
+     * @return 书籍列表（按提取次数降序）
+     */
+    public List<BookExtractVO> getTopExtracted(int limit) {
+        return top(extractedCache, BookSourceType.USER_INPUT, 1, limit);
+    }
+
+    private static List<BookExtractVO> top(Cache<String, SimilarBook> cache, BookSourceType sourceType,
+                                           long minCount, int limit) {
+        return cache.asMap().entrySet().stream()
+                .filter(entry -> entry.getValue().count.get() >= minCount)
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, SimilarBook> entry) -> entry.getValue().count.get()).reversed())
+                .limit(limit)
+                .map(entry -> new BookExtractVO(entry.getKey(), entry.getValue().author, false, sourceType))
+                .toList();
+    }
+
+    /**
+     * 相似推荐书籍
+     */
+    private static class SimilarBook {
+        private final String author;
+        private final AtomicLong count = new AtomicLong();
+
+        SimilarBook(String author) {
+            this.author = author;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
+import cn.tannn.lychnos.common.constant.UsageType;
+import cn.tannn.lychnos.dao.UsageRollupDailyDao;
+import cn.tannn.lychnos.dao.UsageRollupFlushDao;
+import cn.tannn.lychnos.dao.UsageRollupHourlyDao;
+import cn.tannn.lychnos.entity.UsageRollupDaily;
+import cn.tannn.lychnos.entity.UsageRollupHourly;
+import cn.tannn.lychnos.entity.UserAnalysisLog;
+import jakarta.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * AI 调用用量汇总（按 模型 + 用途 + 模型来源 统计调用次数、成功/失败次数、耗时分布）
+ * <ul>
+ *     <li>每次 AI 调用在内存中按分钟聚合，已结束的分钟定时合并后以增量累加到小时表和日表（insert ... on duplicate key update）</li>
+ *     <li>多节点各自写入增量，由数据库累加；停机前写入内存中的全部数据</li>
+ *     <li>每批增量（某一天的小时/日增量）与 tb_usage_rollup_flush 中的 节点 + 批次序号 记录在同一事务中写入，
+ *     写入失败重试时不会重复累加已提交的批次</li>
+ *     <li>进程异常退出会丢失最近一个写入间隔的数据，可按天从 tb_user_analysis_log 重建（仅限已结束的日期）；
+ *     重建与写入增量互斥，重建后到达的该天增量直接丢弃，不会叠加到重建结果上</li>
+ *     <li>管理端的统计只读汇总表，不扫描日志表</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/22
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UsageRollupService {
+
+    /**
+     * 耗时分布的上界（毫秒），最后一档为大于 60s
+     */
+    private static final long[] LATENCY_BOUNDS_MS = {1000, 5000, 15000, 30000, 60000};
+
+    /**
+     * 日志中没有模型来源时使用的值
+     */
+    private static final int UNKNOWN_SOURCE = -1;
+
+    /**
+     * 汇总查询的最大天数
+     */
+    private static final int MAX_QUERY_DAYS = 366;
+
+    /**
+     * 重建记录使用的节点标识（节点标识为 16 位十六进制，不会与之冲突）
+     */
+    private static final String REBUILD_NODE = "rebuild";
+
+    private final UsageRollupHourlyDao usageRollupHourlyDao;
+    private final UsageRollupDailyDao usageRollupDailyDao;
+    private final UsageRollupFlushDao usageRollupFlushDao;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.usage-rollup.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 节点写入记录保留天数
+     */
+    @Value("${app.usage-rollup.flush-retention-days:7}")
+    private long flushRetentionDays;
+
+    /**
+     * 本节点标识（区分各节点的批次序号）
+     */
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+
+    /**
+     * 分钟聚合：只通过 compute / remove 原子更新，写入时取走的分钟不会再被修改
+     */
+    private final ConcurrentHashMap<MinuteKey, Aggregate> minutes = new ConcurrentHashMap<>();
+
+    /**
+     * 已从分钟聚合中取出、等待写入的批次，按序号升序（写入失败时原样保留到下次重试，不再合并新数据，仅在 flush 中访问）
+     */
+    private final List<FlushBatch> pendingBatches = new ArrayList<>();
+
+    /**
+     * 本节点最后分配的批次序号
+     */
+    private long flushSeq;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushedMinutes = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    /**
+     * 记录一次 AI 调用（直接使用已有数据、没有模型的记录不计入）
+     */
+    public void record(UserAnalysisLog analysisLog) {
+        if (!enabled || analysisLog.getModelId() == null || analysisLog.getUsageType() == null
+            || Boolean.TRUE.equals(analysisLog.getUseExistingData())) {
+            return;
+        }
+        Dimension dimension = new Dimension(analysisLog.getModelId(), analysisLog.getUsageType(),
+                analysisLog.getModelSource() == null ? UNKNOWN_SOURCE : analysisLog.getModelSource());
+        MinuteKey key = new MinuteKey(LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES), dimension);
+        boolean success = !Boolean.FALSE.equals(analysisLog.getSuccess());
+        minutes.compute(key, (k, aggregate) -> {
+            Aggregate target = aggregate == null ? new Aggregate() : aggregate;
+            target.add(analysisLog.getModelName(), analysisLog.getModelVendor(), success, analysisLog.getLatencyMs());
+            return target;
+        });
+        recorded.increment();
+    }
+
+    /**
+     * 定时写入已结束的分钟
+     */
+    @Scheduled(fixedDelayString = "${app.usage-rollup.flush-ms:60000}")
+    public void flush() {
+        flush(false);
+    }
+
+    /**
+     * 停机前写入内存中的全部数据（包括当前分钟）
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush(true);
+    }
+
+    private synchronized void flush(boolean all) {
+        LocalDateTime currentMinute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        Map<LocalDate, FlushBatch> batches = new TreeMap<>();
+        for (MinuteKey key : new ArrayList<>(minutes.keySet())) {
+            if (!all && !key.minute.isBefore(currentMinute)) {
+                continue;
+            }
+            Aggregate aggregate = minutes.remove(key);
+            if (aggregate == null) {
+                continue;
+            }
+            LocalDateTime hour = key.minute.truncatedTo(ChronoUnit.HOURS);
+            FlushBatch batch = batches.computeIfAbsent(hour.toLocalDate(), day -> new FlushBatch(++flushSeq, day));
+            batch.hourly.computeIfAbsent(new BucketKey<>(hour, key.dimension), k -> new Aggregate()).merge(aggregate);
+            batch.daily.computeIfAbsent(new BucketKey<>(batch.day, key.dimension), k -> new Aggregate()).merge(aggregate);
+            flushedMinutes.increment();
+        }
+        pendingBatches.addAll(batches.values());
+
+        Iterator<FlushBatch> iterator = pendingBatches.iterator();
+        while (iterator.hasNext()) {
+            FlushBatch batch = iterator.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                iterator.remove();
+            } catch (Exception e) {
+                writeFailures.increment();
+                log.warn("写入 AI 调用汇总失败，下次重试: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中写入一批增量
+     * <p>先写入批次记录：已存在说明上次写入实际已提交（如提交后连接断开），不再重复累加；
+     * 再加共享锁检查该天是否已重建：重建写入记录时需等待本事务提交，已重建则丢弃本批增量</p>
+     */
+    private void write(FlushBatch batch) {
+        if (usageRollupFlushDao.insertIgnore(nodeId, batch.seq, batch.day) == 0) {
+            log.info("AI 调用汇总批次已写入过，跳过，日期: {}, 批次: {}", batch.day, batch.seq);
+            return;
+        }
+        if (usageRollupFlushDao.countForShare(REBUILD_NODE, batch.day.toEpochDay()) > 0) {
+            log.info("AI 调用汇总已从日志重建，丢弃该天的增量，日期: {}, 批次: {}", batch.day, batch.seq);
+            return;
+        }
+        accumulate(batch.hourly, usageRollupHourlyDao::accumulate);
+        accumulate(batch.daily, usageRollupDailyDao::accumulate);
+    }
+
+    private static <B> void accumulate(Map<BucketKey<B>, Aggregate> rows, Accumulator<B> accumulator) {
+        rows.forEach((key, a) -> accumulator.accumulate(key.bucket, key.dimension.modelId, a.modelName,
+                a.modelVendor, key.dimension.usageType.name(), key.dimension.modelSource,
+                a.calls, a.successes, a.failures, a.latencyCount, a.latencySumMs, a.latencyMaxMs,
+                a.histogram[0], a.histogram[1], a.histogram[2], a.histogram[3], a.histogram[4], a.histogram[5]));
+    }
+
+    /**
+     * 清理过期的节点写入记录（重建记录保留，用于丢弃迟到的增量）
+     */
+    @Scheduled(cron = "${app.usage-rollup.flush-cleanup-cron:0 30 3 * * *}")
+    public void cleanupFlushRecords() {
+        try {
+            int deleted = usageRollupFlushDao.deleteNodeRecordsBefore(REBUILD_NODE,
+                    LocalDateTime.now().minusDays(flushRetentionDays));
+            if (deleted > 0) {
+                log.info("清理过期的 AI 调用汇总写入记录: {} 条", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("清理 AI 调用汇总写入记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 某天按小时的汇总
+     */
+    public List<UsageRollupHourly> hourly(LocalDate day) {
+        return usageRollupHourlyDao.findByBucketTimeBetweenOrderByBucketTimeAscModelIdAsc(
+                day.atStartOfDay(), day.atTime(23, 0));
+    }
+
+    /**
+     * 日期范围内按天的汇总
+     */
+    public List<UsageRollupDaily> daily(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return usageRollupDailyDao.findByBucketDateBetweenOrderByBucketDateAscModelIdAsc(from, to);
+    }
+
+    /**
+     * 日期范围内按维度合计（如各厂商的失败率、各模型的平均耗时）
+     *
+     * @param groupBy model / vendor / usageType / modelSource
+     */
+    public List<Map<String, Object>> summary(LocalDate from, LocalDate to, String groupBy) {
+        checkRange(from, to);
+        Function<UsageRollupDaily, Object> classifier = switch (groupBy == null ? "model" : groupBy) {
+            case "model" -> UsageRollupDaily::getModelId;
+            case "vendor" -> row -> Objects.toString(row.getModelVendor(), "-");
+            case "usageType" -> UsageRollupDaily::getUsageType;
+            case "modelSource" -> UsageRollupDaily::getModelSource;
+            default -> throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(),
+                    "groupBy 只支持 model / vendor / usageType / modelSource");
+        };
+
+        Map<Object, Aggregate> groups = new LinkedHashMap<>();
+        for (UsageRollupDaily row : usageRollupDailyDao.findByBucketDateBetweenOrderByBucketDateAscModelIdAsc(from, to)) {
+            groups.computeIfAbsent(classifier.apply(row), k -> new Aggregate()).merge(row);
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        groups.forEach((group, a) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("group", group instanceof Long id ? id.toString() : group);
+            if ("model".equals(groupBy) || groupBy == null) {
+                item.put("modelName", a.modelName);
+                item.put("modelVendor", a.modelVendor);
+            }
+            item.put("calls", a.calls);
+            item.put("successes", a.successes);
+            item.put("failures", a.failures);
+            item.put("failureRate", a.calls == 0 ? 0 : Math.round(a.failures * 10000.0 / a.calls) / 10000.0);
+            item.put("avgLatencyMs", a.latencyCount == 0 ? 0 : a.latencySumMs / a.latencyCount);
+            item.put("maxLatencyMs", a.latencyMaxMs);
+            item.put("latencyHistogram", histogram(a));
+            result.add(item);
+        });
+        result.sort((x, y) -> Long.compare((long) y.get("calls"), (long) x.get("calls")));
+        return result;
+    }
+
+    /**
+     * 从用户分析日志重建某天的小时/日汇总（仅限已结束的日期，当天仍有节点在写入增量）
+     * <p>先写入该天的重建记录：正在写入该天增量的事务持有共享锁，写入重建记录需等其提交，之后的增量都会被丢弃，
+     * 因此删除和重建期间不会有增量叠加到重建结果上；各节点尚未写入的该天增量已包含在日志中</p>
+     *
+     * @return [小时汇总条数, 日汇总条数]
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int[] rebuild(LocalDate day) {
+        if (!day.isBefore(LocalDate.now())) {
+            throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(), "只能重建已结束日期的汇总");
+        }
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = start.plusDays(1);
+        usageRollupFlushDao.insertIgnore(REBUILD_NODE, day.toEpochDay(), day);
+        usageRollupHourlyDao.deleteByBucket(start, day.atTime(23, 0));
+        usageRollupDailyDao.deleteByBucket(day, day);
+        int hourlyRows = usageRollupHourlyDao.rebuildFromLogs(start, end);
+        int dailyRows = usageRollupDailyDao.rebuildFromLogs(start, end);
+        log.info("从日志重建 AI 调用汇总，日期: {}, 小时汇总: {} 条, 日汇总: {} 条", day, hourlyRows, dailyRows);
+        return new int[]{hourlyRows, dailyRows};
+    }
+
+    /**
+     * 本节点汇总状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("nodeId", nodeId);
+        stats.put("recorded", recorded.sum());
+        stats.put("pendingMinuteKeys", minutes.size());
+        stats.put("flushedMinutes", flushedMinutes.sum());
+        synchronized (this) {
+            stats.put("pendingBatches", pendingBatches.size());
+        }
+        stats.put("writeFailures", writeFailures.sum());
+        return stats;
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_QUERY_DAYS) {
+            throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(),
+                    "日期范围无效，最多查询 " + MAX_QUERY_DAYS + " 天");
+        }
+    }
+
+    private static Map<String, Long> histogram(Aggregate a) {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        histogram.put("le1s", a.histogram[0]);
+        histogram.put("le5s", a.histogram[1]);
+        histogram.put("le15s", a.histogram[2]);
+        histogram.put("le30s", a.histogram[3]);
+        histogram.put("le60s", a.histogram[4]);
+        histogram.put("gt60s", a.histogram[5]);
+        return histogram;
+    }
+
+    /**
+     * 汇总表的累加方法（小时表、日表各一个）
+     */
+    @FunctionalInterface
+    private interface Accumulator<B> {
+        int accumulate(B bucket, Long modelId, String modelName, String modelVendor, String usageType, int modelSource,
+                       long calls, long successes, long failures, long latencyCount, long latencySumMs, long latencyMaxMs,
+                       long le1s, long le5s, long le15s, long le30s, long le60s, long gt60s);
+    }
+
+    /**
+     * 一批增量：某一天的小时/日增量，序号在本节点内递增
+     */
+    private static final class FlushBatch {
+        private final long seq;
+        private final LocalDate day;
+        private final Map<BucketKey<LocalDateTime>, Aggregate> hourly = new HashMap<>();
+        private final Map<BucketKey<LocalDate>, Aggregate> daily = new HashMap<>();
+
+        private FlushBatch(long seq, LocalDate day) {
+            this.seq = seq;
+            this.day = day;
+        }
+    }
+
+    /**
+     * 汇总维度：模型 + 用途 + 模型来源（模型名称和厂商随模型变化，取最新值）
+     */
+    @EqualsAndHashCode
+    private static final class Dimension {
+        private final Long modelId;
+        private final UsageType usageType;
+        private final int modelSource;
+
+        private Dimension(Long modelId, UsageType usageType, int modelSource) {
+            this.modelId = modelId;
+            this.usageType = usageType;
+            this.modelSource = modelSource;
+        }
+    }
+
+    @EqualsAndHashCode
+    private static final class MinuteKey {
+        private final LocalDateTime minute;
+        private final Dimension dimension;
+
+        private MinuteKey(LocalDateTime minute, Dimension dimension) {
+            this.minute = minute;
+            this.dimension = dimension;
+        }
+    }
+
+    @EqualsAndHashCode
+    private static final class BucketKey<B> {
+        private final B bucket;
+        private final Dimension dimension;
+
+        private BucketKey(B bucket, Dimension dimension) {
+            this.bucket = bucket;
+            this.dimension = dimension;
+        }
+    }
+
+    /**
+     * 计数（分钟聚合在 ConcurrentHashMap.compute 中修改，其余只在单线程中使用）
+     */
+    private static final class Aggregate {
+        private String modelName;
+        private String modelVendor;
+        private long calls;
+        private long successes;
+        private long failures;
+        private long latencyCount;
+        private long latencySumMs;
+        private long latencyMaxMs;
+        private final long[] histogram = new long[LATENCY_BOUNDS_MS.length + 1];
+
+        private void add(String modelName, String modelVendor, boolean success, Long latencyMs) {
+            this.modelName = modelName;
+            this.modelVendor = modelVendor;
+            calls++;
+            if (success) {
+                successes++;
+            } else {
+                failures++;
+            }
+            if (latencyMs != null && latencyMs >= 0) {
+                latencyCount++;
+                latencySumMs += latencyMs;
+                latencyMaxMs = Math.max(latencyMaxMs, latencyMs);
+                int index = 0;
+                while (index < LATENCY_BOUNDS_MS.length && latencyMs > LATENCY_BOUNDS_MS[index]) {
+                    index++;
+                }
+                histogram[index]++;
+            }
+        }
+
+        private void merge(Aggregate other) {
+            if (other.modelName != null) {
+                modelName = other.modelName;
+                modelVendor = other.modelVendor;
+            }
+            calls += other.calls;
+            successes += other.successes;
+            failures += other.failures;
+            latencyCount += other.latencyCount;
+            latencySumMs += other.latencySumMs;
+            latencyMaxMs = Math.max(latencyMaxMs, other.latencyMaxMs);
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+
+        private void merge(UsageRollupDaily row) {
+            if (row.getModelName() != null) {
+                modelName = row.getModelName();
+                modelVendor = row.getModelVendor();
+            }
+            calls += row.getCalls();
+            successes += row.getSuccesses();
+            failures += row.getFailures();
+            latencyCount += row.getLatencyCount();
+            latencySumMs += row.getLatencySumMs();
+            latencyMaxMs = Math.max(latencyMaxMs, row.getLatencyMaxMs());
+            histogram[0] += row.getLatencyLe1s();
+            histogram[1] += row.getLatencyLe5s();
+            histogram[2] += row.getLatencyLe15s();
+            histogram[3] += row.getLatencyLe30s();
+            histogram[4] += row.getLatencyLe60s();
+            histogram[5] += row.getLatencyGt60s();
+        }
+    }
+}
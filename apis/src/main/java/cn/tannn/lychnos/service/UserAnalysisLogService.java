@@ -1,9 +1,12 @@
 package cn.tannn.lychnos.service;
 
+import cn.tannn.jdevelops.exception.built.BusinessException;
+import cn.tannn.lychnos.common.constant.BusinessErrorCode;
 import cn.tannn.lychnos.common.constant.ModelType;
 import cn.tannn.lychnos.common.constant.UsageType;
 import cn.tannn.lychnos.common.pojo.UserRequestInfo;
 import cn.tannn.lychnos.controller.dto.UserAnalysisLogQueryDTO;
+import cn.tannn.lychnos.controller.vo.UserAnalysisLogPageVO;
 import cn.tannn.lychnos.controller.vo.UserAnalysisLogVO;
 import cn.tannn.lychnos.dao.UserAnalysisLogDao;
 import cn.tannn.lychnos.entity.AIModel;
@@ -11,15 +14,20 @@ import cn.tannn.lychnos.entity.UserAnalysisLog;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 /**
  * 用户分析日志服务
+ * <p>日志交给 {@link UserAnalysisLogWriter} 异步批量写入，调用方不等待数据库；AI 调用同时计入 {@link UsageRollupService} 的用量汇总</p>
  *
  * @author <a href="https://t.tannn.cn/">tan</a>
  * @version V1.0
@@ -30,14 +38,27 @@ import java.util.List;
 @Slf4j
 public class UserAnalysisLogService {
 
+    /**
+     * 日志查询默认/最大每页条数
+     */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final String LOG_QUERY_SELECT = "SELECT id, create_time, user_name, call_ip, model_id, model_name, " +
+            "model_vendor, model_type, model_source, usage_type, book_title, book_analyse_id, success, error_message, " +
+            "use_existing_data, latency_ms, user_id FROM tb_user_analysis_log";
+
     private final UserAnalysisLogDao userAnalysisLogDao;
+    private final UserAnalysisLogWriter userAnalysisLogWriter;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final UsageRollupService usageRollupService;
 
     /**
      * 保存书籍提取日志
      */
-    @Async
     public void saveExtractLog(Long userId, UserRequestInfo userInfo, AIModel model,
-                               String bookTitle, Long bookAnalyseId, boolean success, String errorMessage) {
+                               String bookTitle, Long bookAnalyseId, boolean success, String errorMessage,
+                             Long latencyMs) {
         UserAnalysisLog log = new UserAnalysisLog();
         log.setUserId(userId);
         log.setUserName(userInfo != null ? userInfo.getUsername() : null);
@@ -48,6 +69,7 @@ public class UserAnalysisLogService {
         log.setSuccess(success);
         log.setErrorMessage(errorMessage);
         log.setUseExistingData(false);
+        log.setLatencyMs(latencyMs);
 
         if (model != null) {
             log.setModelId(model.getId());
@@ -57,15 +79,16 @@ public class UserAnalysisLogService {
             log.setModelSource(model.getShare());
         }
 
-        userAnalysisLogDao.save(log);
+        userAnalysisLogWriter.submit(log);
+        usageRollupService.record(log);
     }
 
     /**
      * 保存书籍解析日志
      */
-    @Async
     public void saveParseLog(Long userId, UserRequestInfo userInfo, AIModel model,
-                             String bookTitle, Long bookAnalyseId, boolean success, String errorMessage) {
+                             String bookTitle, Long bookAnalyseId, boolean success, String errorMessage,
+                             Long latencyMs) {
         UserAnalysisLog log = new UserAnalysisLog();
         log.setUserId(userId);
         log.setUserName(userInfo != null ? userInfo.getUsername() : null);
@@ -76,6 +99,7 @@ public class UserAnalysisLogService {
         log.setSuccess(success);
         log.setErrorMessage(errorMessage);
         log.setUseExistingData(false);
+        log.setLatencyMs(latencyMs);
 
         if (model != null) {
             log.setModelId(model.getId());
@@ -85,15 +109,16 @@ public class UserAnalysisLogService {
             log.setModelSource(model.getShare());
         }
 
-        userAnalysisLogDao.save(log);
+        userAnalysisLogWriter.submit(log);
+        usageRollupService.record(log);
     }
 
     /**
      * 保存书籍生图日志
      */
-    @Async
     public void saveImageLog(Long userId, UserRequestInfo userInfo, AIModel model,
-                             String bookTitle, Long bookAnalyseId, boolean success, String errorMessage) {
+                             String bookTitle, Long bookAnalyseId, boolean success, String errorMessage,
+                             Long latencyMs) {
         UserAnalysisLog log = new UserAnalysisLog();
         log.setUserId(userId);
         log.setUserName(userInfo != null ? userInfo.getUsername() : null);
@@ -104,6 +129,7 @@ public class UserAnalysisLogService {
         log.setSuccess(success);
         log.setErrorMessage(errorMessage);
         log.setUseExistingData(false);
+        log.setLatencyMs(latencyMs);
 
         if (model != null) {
             log.setModelId(model.getId());
@@ -113,13 +139,13 @@ public class UserAnalysisLogService {
             log.setModelSource(model.getShare());
         }
 
-        userAnalysisLogDao.save(log);
+        userAnalysisLogWriter.submit(log);
+        usageRollupService.record(log);
     }
 
     /**
      * 保存使用已有数据的日志（模型字段为空）
      */
-    @Async
     public void saveUseExistingDataLog(Long userId, UserRequestInfo userInfo,
                                        String bookTitle, Long bookAnalyseId) {
         UserAnalysisLog log = new UserAnalysisLog();
@@ -132,44 +158,105 @@ public class UserAnalysisLogService {
         log.setSuccess(true);
         log.setUseExistingData(true);
 
-        userAnalysisLogDao.save(log);
+        userAnalysisLogWriter.submit(log);
     }
 
     /**
      * 查询用户分析日志（管理员功能）
-     * 默认查询最近20条，最多返回200条
-     * 直接返回JPA Projection接口
-     * 支持模型来源筛选
+     * <ul>
+     *     <li>只拼接实际传入的条件，避免 (:x IS NULL OR col = :x) 让 MySQL 放弃索引</li>
+     *     <li>用户名精确匹配或前缀匹配（LIKE 'xx%'），可走 (user_name, create_time) 索引</li>
+     *     <li>按 (create_time, id) 倒序的游标分页，翻到多深都只扫描一页的数据</li>
+     * </ul>
      *
      * @param queryDTO 查询条件
-     * @return 日志VO列表
+     * @return 一页日志及下一页游标
      */
-    public List<UserAnalysisLogVO> queryLogs(UserAnalysisLogQueryDTO queryDTO) {
-        // 默认查询20条，最多200条
-        int limit = 20;
-        if (queryDTO.getStartTime() != null || queryDTO.getEndTime() != null
-            || StringUtils.isNotBlank(queryDTO.getUserName()) || queryDTO.getModelSource() != null) {
-            limit = 200;
+    public UserAnalysisLogPageVO queryLogs(UserAnalysisLogQueryDTO queryDTO) {
+        int size = queryDTO.getSize() == null || queryDTO.getSize() <= 0
+                ? DEFAULT_PAGE_SIZE : Math.min(queryDTO.getSize(), MAX_PAGE_SIZE);
+
+        StringBuilder sql = new StringBuilder(LOG_QUERY_SELECT).append(" WHERE 1 = 1");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        if (queryDTO.getStartTime() != null) {
+            sql.append(" AND create_time >= :startTime");
+            params.addValue("startTime", queryDTO.getStartTime());
+        }
+        if (queryDTO.getEndTime() != null) {
+            sql.append(" AND create_time <= :endTime");
+            params.addValue("endTime", queryDTO.getEndTime());
+        }
+        if (StringUtils.isNotBlank(queryDTO.getUserName())) {
+            String userName = queryDTO.getUserName().trim();
+            if (Boolean.TRUE.equals(queryDTO.getExactMatch())) {
+                sql.append(" AND user_name = :userName");
+                params.addValue("userName", userName);
+            } else {
+                sql.append(" AND user_name LIKE :userName");
+                params.addValue("userName", escapeLike(userName) + "%");
+            }
         }
-        Pageable pageable = PageRequest.of(0, limit);
-
-        // 使用通用查询方法
-        if (Boolean.TRUE.equals(queryDTO.getExactMatch())) {
-            // 精确匹配用户名
-            return userAnalysisLogDao.findByConditions(
-                    queryDTO.getStartTime(),
-                    queryDTO.getEndTime(),
-                    queryDTO.getUserName(),
-                    queryDTO.getModelSource(),
-                    pageable);
-        } else {
-            // 模糊匹配用户名
-            return userAnalysisLogDao.findByConditionsWithUserNameLike(
-                    queryDTO.getStartTime(),
-                    queryDTO.getEndTime(),
-                    queryDTO.getUserName(),
-                    queryDTO.getModelSource(),
-                    pageable);
+        if (queryDTO.getModelSource() != null) {
+            sql.append(" AND model_source = :modelSource");
+            params.addValue("modelSource", queryDTO.getModelSource());
+        }
+        if (StringUtils.isNotBlank(queryDTO.getCursor())) {
+            LogCursor cursor = LogCursor.decode(queryDTO.getCursor());
+            sql.append(" AND (create_time < :cursorTime OR (create_time = :cursorTime AND id < :cursorId))");
+            params.addValue("cursorTime", cursor.createTime);
+            params.addValue("cursorId", cursor.id);
+        }
+        // 多查一条判断是否还有下一页
+        sql.append(" ORDER BY create_time DESC, id DESC LIMIT :limit");
+        params.addValue("limit", size + 1);
+
+        List<UserAnalysisLogVO> rows = namedParameterJdbcTemplate.query(
+                sql.toString(), params, new BeanPropertyRowMapper<>(UserAnalysisLogVO.class));
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = new ArrayList<>(rows.subList(0, size));
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            UserAnalysisLogVO last = rows.get(rows.size() - 1);
+            nextCursor = new LogCursor(last.getCreateTime(), last.getId()).encode();
+        }
+        return new UserAnalysisLogPageVO(rows, nextCursor, hasMore);
+    }
+
+    /**
+     * 转义 LIKE 通配符（MySQL 默认转义符为反斜杠）
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 日志游标：最后一条记录的 (create_time, id)，Base64 编码后交给前端原样传回
+     */
+    private static final class LogCursor {
+        private final LocalDateTime createTime;
+        private final long id;
+
+        private LogCursor(LocalDateTime createTime, long id) {
+            this.createTime = createTime;
+            this.id = id;
+        }
+
+        private String encode() {
+            String raw = createTime + "_" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static LogCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('_');
+                return new LogCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new BusinessException(BusinessErrorCode.PARAM_ERROR.getCode(), "无效的分页游标");
+            }
         }
     }
 }
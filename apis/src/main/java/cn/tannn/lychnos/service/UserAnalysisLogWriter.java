@@ -0,0 +1,249 @@
+package cn.tannn.lychnos.service;
+
+import cn.tannn.lychnos.common.util.MpscRingBuffer;
+import cn.tannn.lychnos.dao.UserAnalysisLogDao;
+import cn.tannn.lychnos.entity.UserAnalysisLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 用户分析日志异步批量写入（write-behind）
+ * <ul>
+ *     <li>调用方把日志放入有界无锁环形队列后立即返回，不占用 Spring 默认的 @Async 线程池</li>
+ *     <li>单个写入线程每隔 flush-ms 或积压达到 batch-size 条时取出一批，在一个事务中 saveAll（JDBC 批量插入）</li>
+ *     <li>队列满时调用方最多等待 offer-timeout-ms，仍然写不进去则丢弃并计数</li>
+ *     <li>批量写入失败时按退避间隔重试，仍失败则逐条写入，只丢弃写不进去的那几条</li>
+ *     <li>应用关闭时停止写入线程，等进行中的提交结束后把队列中剩余的日志写完</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/20
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UserAnalysisLogWriter {
+
+    private final UserAnalysisLogDao userAnalysisLogDao;
+
+    /**
+     * 队列容量
+     */
+    @Value("${app.analysis-log.capacity:8192}")
+    private int capacity;
+
+    /**
+     * 每批最多写入的条数
+     */
+    @Value("${app.analysis-log.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 最长写入间隔（毫秒）
+     */
+    @Value("${app.analysis-log.flush-ms:1000}")
+    private long flushMs;
+
+    /**
+     * 队列满时调用方最多等待的时间（毫秒），0 表示直接丢弃
+     */
+    @Value("${app.analysis-log.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    /**
+     * 批量写入失败后的重试次数
+     */
+    @Value("${app.analysis-log.retry-times:2}")
+    private int retryTimes;
+
+    /**
+     * 重试退避间隔（毫秒），第 n 次重试等待 n 倍
+     */
+    @Value("${app.analysis-log.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    private MpscRingBuffer<UserAnalysisLog> buffer;
+    private Thread writer;
+    private volatile boolean running;
+
+    /**
+     * 正在提交的调用方数量：先计数再检查 running，关闭时等计数归零后再做最后一次取空，避免迟到的日志留在队列中
+     */
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final AtomicLong dropped = new AtomicLong();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        buffer = new MpscRingBuffer<>(capacity);
+        running = true;
+        writer = new Thread(this::run, "analysis-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("用户分析日志批量写入已启动，容量: {}, 批量: {}, 间隔: {}ms", buffer.capacity(), batchSize, flushMs);
+    }
+
+    /**
+     * 提交一条日志（不阻塞调用方，队列满时短暂等待后丢弃）
+     */
+    public void submit(UserAnalysisLog analysisLog) {
+        submitting.incrementAndGet();
+        try {
+            if (!running) {
+                // 已关闭：直接写入
+                write(List.of(analysisLog));
+                return;
+            }
+            enqueue(analysisLog);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    private void enqueue(UserAnalysisLog analysisLog) {
+        submitted.increment();
+        if (buffer.offer(analysisLog)) {
+            if (buffer.size() >= batchSize) {
+                LockSupport.unpark(writer);
+            }
+            return;
+        }
+
+        // 队列已满：唤醒写入线程并等待腾出空间
+        waited.increment();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        do {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            if (buffer.offer(analysisLog)) {
+                return;
+            }
+        } while (System.nanoTime() < deadline);
+
+        long total = dropped.incrementAndGet();
+        if (total == 1 || total % 1000 == 0) {
+            log.warn("用户分析日志队列已满，已丢弃 {} 条", total);
+        }
+    }
+
+    /**
+     * 写入线程：按间隔或积压量批量写入
+     */
+    private void run() {
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMs);
+        while (running) {
+            if (buffer.size() < batchSize) {
+                LockSupport.parkNanos(this, flushNanos);
+            }
+            drain();
+        }
+    }
+
+    /**
+     * 取空队列，每 batch-size 条一批
+     */
+    private void drain() {
+        List<UserAnalysisLog> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * 批量写入，失败时退避重试，仍失败则逐条写入
+     */
+    private void write(List<UserAnalysisLog> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                userAnalysisLogDao.saveAll(batch);
+                written.add(batch.size());
+                batches.increment();
+                return;
+            } catch (Exception e) {
+                if (attempt >= retryTimes) {
+                    log.warn("批量写入用户分析日志失败，改为逐条写入 {} 条: {}", batch.size(), e.getMessage());
+                    break;
+                }
+                retried.increment();
+                log.warn("批量写入用户分析日志失败，第 {} 次重试: {}", attempt + 1, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryBackoffMs * (attempt + 1)));
+            }
+        }
+        for (UserAnalysisLog row : batch) {
+            try {
+                userAnalysisLogDao.save(row);
+                written.increment();
+            } catch (Exception e) {
+                failed.increment();
+                log.error("写入用户分析日志失败，丢弃，userId: {}, usageType: {}, bookTitle: {}, 错误: {}",
+                        row.getUserId(), row.getUsageType(), row.getBookTitle(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 应用关闭时写完剩余日志
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            // 等待已通过 running 检查的调用方完成入队
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs + 1000);
+            while (submitting.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 写入线程退出后由当前线程收尾
+        if (writer.isAlive()) {
+            log.warn("用户分析日志写入线程未在超时内退出，队列中剩余 {} 条", buffer.size());
+        } else {
+            drain();
+        }
+        log.info("用户分析日志批量写入已停止，累计写入: {}, 丢弃: {}, 失败: {}",
+                written.sum(), dropped.get(), failed.sum());
+    }
+
+    /**
+     * 写入统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", buffer.capacity());
+        stats.put("pending", buffer.size());
+        stats.put("submitted", submitted.sum());
+        stats.put("written", written.sum());
+        stats.put("batches", batches.sum());
+        stats.put("waited", waited.sum());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.sum());
+        stats.put("retried", retried.sum());
+        return stats;
+    }
+}
@@ -198,22 +198,21 @@ public class UserInfoService extends J2ServiceImpl<UserInfoDao, UserInfo, Long>
         if (UserStatus.NORMAL.getCode().equals(currentStatus)) {
             // 封禁用户
             userInfo.setStatus(UserStatus.BANNED.getCode());
-            // 添加到封禁缓存
+        } else {
+            // 解封用户（其他状态兜底恢复正常）
+            userInfo.setStatus(UserStatus.NORMAL.getCode());
+        }
+        UserInfo saved = getJpaBasicsDao().save(userInfo);
+
+        // 状态落库后再更新封禁缓存并通知集群其他节点
+        if (UserStatus.BANNED.getCode().equals(saved.getStatus())) {
             bannedUserCacheService.addBannedUser(userId);
             log.info("用户已被封禁，userId: {}", userId);
-        } else if (UserStatus.BANNED.getCode().equals(currentStatus)) {
-            // 解封用户
-            userInfo.setStatus(UserStatus.NORMAL.getCode());
-            // 从封禁缓存中移除
-            bannedUserCacheService.removeBannedUser(userId);
-            log.info("用户已被解封，userId: {}", userId);
         } else {
-            userInfo.setStatus(UserStatus.NORMAL.getCode());
-            // 从封禁缓存中移除（兜底）
             bannedUserCacheService.removeBannedUser(userId);
+            log.info("用户已被解封，userId: {}", userId);
         }
-
-        return getJpaBasicsDao().save(userInfo);
+        return saved;
     }
 
     /**
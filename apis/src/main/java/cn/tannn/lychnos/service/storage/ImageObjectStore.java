@@ -0,0 +1,85 @@
+package cn.tannn.lychnos.service.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 图片对象存储接口
+ * 使用策略模式，为不同的远程存储（S3 / OSS / 七牛等）提供统一的读写接口
+ * <p>对象键即 posterUrl 去掉开头 / 的路径部分，如 cas/ab/cd/{sha256}.png</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/9
+ */
+public interface ImageObjectStore {
+
+    /**
+     * 获取协议标识（posterUrl 的协议部分，如 s3）
+     *
+     * @return 协议标识
+     */
+    String getProtocol();
+
+    /**
+     * 对象是否存在
+     *
+     * @param key 对象键
+     * @return 是否存在
+     */
+    boolean exists(String key) throws IOException;
+
+    /**
+     * 上传本地文件（大文件分片并行上传）
+     *
+     * @param key         对象键
+     * @param file        本地文件
+     * @param contentType 内容类型
+     */
+    void upload(String key, Path file, String contentType) throws IOException;
+
+    /**
+     * 打开对象内容
+     *
+     * @param key 对象键
+     * @return 输入流，对象不存在返回 null
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * 下载对象到本地文件（大对象按范围并行读取）
+     *
+     * @param key    对象键
+     * @param target 目标文件（已存在则覆盖）
+     * @return 字节数，对象不存在返回 -1
+     */
+    long download(String key, Path target) throws IOException;
+
+    /**
+     * 删除对象
+     *
+     * @param key 对象键
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 生成客户端直连的预签名下载地址
+     *
+     * @param key    对象键
+     * @param expiry 有效期
+     * @return 预签名地址，未开启或不支持返回 null
+     */
+    default String presign(String key, Duration expiry) {
+        return null;
+    }
+
+    /**
+     * 读写统计
+     *
+     * @return 统计信息
+     */
+    Map<String, Object> stats();
+}
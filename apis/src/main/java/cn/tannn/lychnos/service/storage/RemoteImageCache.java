@@ -0,0 +1,323 @@
+package cn.tannn.lychnos.service.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 远程图片本地读穿缓存
+ * <p>对象存储中的图片首次读取时下载到 {storagePath}/remote-cache/{协议}/{对象键}，之后按本地文件输出
+ * （零拷贝、Range、热点内存缓存均可复用）：</p>
+ * <ul>
+ *     <li>同一对象并发读取只下载一次</li>
+ *     <li>按总字节数上限做 LRU 淘汰，启动时按文件访问时间重建索引</li>
+ *     <li>对象键为内容哈希，内容不可变，缓存无需失效</li>
+ * </ul>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/9
+ */
+@Component
+@Slf4j
+public class RemoteImageCache {
+
+    /**
+     * 缓存目录（位于存储根目录下）
+     */
+    private static final String CACHE_DIR = "remote-cache";
+
+    private static final String TEMP_SUFFIX = ".part";
+
+    @Value("${app.image.storage-path}")
+    private String storagePath;
+
+    /**
+     * 是否启用本地缓存（关闭时每次直接读取对象存储）
+     */
+    @Value("${app.image.remote-cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 缓存总字节数上限，默认 1GB
+     */
+    @Value("${app.image.remote-cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    /**
+     * LRU 索引：相对路径 -> 大小（访问顺序）
+     */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * 当前缓存总字节数（受 index 锁保护）
+     */
+    private long totalBytes;
+
+    /**
+     * 命中后还未写回访问时间的条目：命中只记录在内存中，定时按 LRU 顺序批量写回文件访问时间
+     */
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 正在下载的对象，并发请求合并
+     */
+    private final Map<String, CompletableFuture<Path>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        loadIndex();
+        log.info("远程图片本地缓存初始化完成，已缓存: {} 个 / {} 字节, 上限: {} 字节", index.size(), totalBytes, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取对象的本地缓存文件，不存在时从对象存储下载
+     *
+     * @param store 对象存储
+     * @param key   对象键
+     * @return 本地文件，对象不存在返回 null
+     */
+    public Path get(ImageObjectStore store, String key) throws IOException {
+        String name = store.getProtocol() + "/" + key;
+        Path file = resolve(name);
+
+        boolean cached;
+        synchronized (index) {
+            cached = index.get(name) != null;
+        }
+        if (cached && Files.exists(file)) {
+            hits.increment();
+            touched.add(name);
+            return file;
+        }
+        misses.increment();
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> other = loading.putIfAbsent(name, mine);
+        if (other != null) {
+            return await(other);
+        }
+        Path temp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), "remote-", TEMP_SUFFIX);
+            long size = store.download(key, temp);
+            Path result = null;
+            if (size >= 0) {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                add(name, size);
+                result = file;
+            }
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(name, mine);
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 将刚上传的本地文件移入缓存（避免首次读取再下载一次）
+     *
+     * @param protocol 协议
+     * @param key      对象键
+     * @param source   本地文件（移动后不再存在）
+     */
+    public void put(String protocol, String key, Path source) throws IOException {
+        String name = protocol + "/" + key;
+        Path file = resolve(name);
+        Files.createDirectories(file.getParent());
+        long size = Files.size(source);
+        Files.move(source, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        add(name, size);
+    }
+
+    /**
+     * 移除缓存（对象被删除时调用）
+     *
+     * @param protocol 协议
+     * @param key      对象键
+     */
+    public void remove(String protocol, String key) {
+        String name = protocol + "/" + key;
+        synchronized (index) {
+            Long size = index.remove(name);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        deleteQuietly(resolve(name));
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (index) {
+            stats.put("entries", index.size());
+            stats.put("bytes", totalBytes);
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * 缓存文件路径（拒绝越出缓存目录的对象键）
+     */
+    private Path resolve(String name) {
+        Path dir = cacheDir().toAbsolutePath().normalize();
+        Path file = dir.resolve(name).normalize();
+        if (!file.startsWith(dir) || file.equals(dir)) {
+            throw new IllegalArgumentException("非法对象键: " + name);
+        }
+        return file;
+    }
+
+    /**
+     * 加入索引，超过上限时淘汰最久未访问的文件
+     */
+    private void add(String name, long size) {
+        synchronized (index) {
+            Long previous = index.put(name, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(name)) {
+                    continue;
+                }
+                deleteQuietly(resolve(eldest.getKey()));
+                totalBytes -= eldest.getValue();
+                iterator.remove();
+                touched.remove(eldest.getKey());
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 启动时扫描缓存目录，按最后访问时间重建 LRU 顺序
+     */
+    private void loadIndex() {
+        Path dir = cacheDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Object[]> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    deleteQuietly(file);
+                    return;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    String name = dir.relativize(file).toString().replace('\\', '/');
+                    entries.add(new Object[]{name, attributes.size(), attributes.lastAccessTime().toMillis()});
+                } catch (IOException e) {
+                    log.debug("读取缓存文件属性失败: {}", file);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("扫描远程图片缓存目录失败: {}", e.getMessage());
+        }
+        entries.sort(Comparator.comparingLong(entry -> (Long) entry[2]));
+        for (Object[] entry : entries) {
+            add((String) entry[0], (Long) entry[1]);
+        }
+    }
+
+    /**
+     * 把命中记录写回文件访问时间，保证重启后 LRU 顺序依然有效
+     * <p>按内存 LRU 顺序逐个递增时间戳写回，相对顺序与内存一致；每个文件每个周期最多写一次</p>
+     */
+    @Scheduled(fixedDelayString = "${app.image.remote-cache.access-flush-interval-ms:300000}")
+    public void flushAccessTimes() {
+        if (touched.isEmpty()) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        synchronized (index) {
+            for (String name : index.keySet()) {
+                if (touched.remove(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        long base = System.currentTimeMillis() - names.size();
+        for (int i = 0; i < names.size(); i++) {
+            Path file = resolve(names.get(i));
+            try {
+                Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                        .setTimes(null, FileTime.fromMillis(base + i), null);
+            } catch (IOException e) {
+                log.debug("更新缓存访问时间失败: {}", file);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushAccessTimes();
+    }
+
+    private Path await(CompletableFuture<Path> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private Path cacheDir() {
+        return Paths.get(storagePath, CACHE_DIR);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("删除缓存文件失败: {}", file);
+        }
+    }
+}
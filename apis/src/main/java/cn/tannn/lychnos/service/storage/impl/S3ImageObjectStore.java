@@ -0,0 +1,579 @@
+package cn.tannn.lychnos.service.storage.impl;
+
+import cn.tannn.lychnos.service.storage.ImageObjectStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * S3 兼容对象存储（AWS S3 / MinIO 等）
+ * <p>直接基于 JDK HttpClient 和 SigV4 签名实现，不引入 SDK：</p>
+ * <ul>
+ *     <li>小于分片大小的文件单次 PUT，否则分片上传，分片从文件区间流式读取，并行数受限</li>
+ *     <li>大对象下载时按分片大小拆成 Range 请求并行读取，按偏移直接写入目标文件</li>
+ *     <li>HttpClient 自带连接池，所有请求复用到存储端的连接</li>
+ *     <li>预签名地址按半个有效期对齐签名时间，同一窗口内地址不变，浏览器缓存可以命中</li>
+ * </ul>
+ * <p>本地调试可使用 MinIO：endpoint=http://localhost:9000，path-style=true</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/9
+ */
+@Component
+@ConditionalOnProperty(name = "app.image.s3.enabled", havingValue = "true")
+@Slf4j
+public class S3ImageObjectStore implements ImageObjectStore {
+
+    /**
+     * S3 分片上传的最小分片（最后一片除外）
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    /**
+     * SigV4 预签名最长有效期（7 天）
+     */
+    private static final long MAX_PRESIGN_SECONDS = 7 * 24 * 3600;
+
+    /**
+     * 预签名地址返回给浏览器的缓存头（对象键即内容哈希，内容不可变）
+     */
+    private static final String PRESIGN_CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    @Value("${app.image.s3.endpoint:http://localhost:9000}")
+    private String endpoint;
+
+    @Value("${app.image.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.image.s3.bucket:lychnos}")
+    private String bucket;
+
+    @Value("${app.image.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.image.s3.secret-key:}")
+    private String secretKey;
+
+    /**
+     * 路径风格访问（endpoint/bucket/key），MinIO 需要开启；关闭时使用 bucket.endpoint/key
+     */
+    @Value("${app.image.s3.path-style:true}")
+    private boolean pathStyle;
+
+    /**
+     * 分片大小，默认 8MB（不小于 5MB）
+     */
+    @Value("${app.image.s3.part-size:8388608}")
+    private long partSize;
+
+    /**
+     * 单个对象的分片并行数
+     */
+    @Value("${app.image.s3.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 连接超时（毫秒）
+     */
+    @Value("${app.image.s3.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    /**
+     * 单次请求超时（毫秒）
+     */
+    @Value("${app.image.s3.timeout-ms:60000}")
+    private long timeoutMs;
+
+    /**
+     * 是否返回预签名直连地址
+     */
+    @Value("${app.image.s3.presign-enabled:false}")
+    private boolean presignEnabled;
+
+    private S3Signer signer;
+    private HttpClient httpClient;
+    private ExecutorService ioExecutor;
+
+    /**
+     * 请求基础地址（不含路径）
+     */
+    private String baseUrl;
+
+    /**
+     * 签名使用的 Host（与 HttpClient 实际发送的一致）
+     */
+    private String host;
+
+    /**
+     * 对象路径前缀（路径风格时为 /bucket）
+     */
+    private String pathPrefix;
+
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder multipartUploads = new LongAdder();
+    private final LongAdder uploadedBytes = new LongAdder();
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder rangedGets = new LongAdder();
+    private final LongAdder downloadedBytes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        partSize = Math.max(MIN_PART_SIZE, partSize);
+        signer = new S3Signer(accessKey, secretKey, region);
+
+        URI uri = URI.create(endpoint);
+        String authority = uri.getHost();
+        if (uri.getPort() != -1 && !isDefaultPort(uri.getScheme(), uri.getPort())) {
+            authority += ":" + uri.getPort();
+        }
+        host = pathStyle ? authority : bucket + "." + authority;
+        pathPrefix = pathStyle ? "/" + bucket : "";
+        baseUrl = uri.getScheme() + "://" + host;
+
+        AtomicInteger counter = new AtomicInteger();
+        ioExecutor = Executors.newFixedThreadPool(Math.max(2, parallelism), r -> {
+            Thread thread = new Thread(r, "s3-io-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(ioExecutor)
+                .build();
+        log.info("S3 图片存储初始化完成，endpoint: {}, bucket: {}, 路径风格: {}, 分片: {} 字节",
+                endpoint, bucket, pathStyle, partSize);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ioExecutor.shutdownNow();
+    }
+
+    @Override
+    public String getProtocol() {
+        return "s3";
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return head(key) >= 0;
+    }
+
+    @Override
+    public void upload(String key, Path file, String contentType) throws IOException {
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+        }
+        try {
+            if (size <= partSize) {
+                HttpRequest request = request("PUT", key, Map.of(), HttpRequest.BodyPublishers.ofFile(file))
+                        .header("Content-Type", contentType).build();
+                HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+                check(response, "上传对象", key);
+            } else {
+                multipartUpload(key, file, size, contentType);
+                multipartUploads.increment();
+            }
+            uploads.increment();
+            uploadedBytes.add(size);
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        HttpResponse<InputStream> response = send(request("GET", key, Map.of(),
+                HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 404) {
+            response.body().close();
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            response.body().close();
+            failures.increment();
+            throw new IOException("读取对象失败: " + key + ", 状态码: " + response.statusCode());
+        }
+        downloads.increment();
+        return response.body();
+    }
+
+    @Override
+    public long download(String key, Path target) throws IOException {
+        long size = head(key);
+        if (size < 0) {
+            return -1;
+        }
+        try {
+            if (size <= partSize) {
+                HttpResponse<Path> response = send(request("GET", key, Map.of(),
+                        HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofFile(target));
+                if (response.statusCode() != 200) {
+                    throw new IOException("下载对象失败: " + key + ", 状态码: " + response.statusCode());
+                }
+            } else {
+                rangedDownload(key, target, size);
+            }
+            downloads.increment();
+            downloadedBytes.add(size);
+            return size;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send(request("DELETE", key, Map.of(),
+                HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 204 && response.statusCode() != 200 && response.statusCode() != 404) {
+            throw new IOException("删除对象失败: " + key + ", 状态码: " + response.statusCode());
+        }
+    }
+
+    @Override
+    public String presign(String key, Duration expiry) {
+        if (!presignEnabled) {
+            return null;
+        }
+        long expires = Math.min(Math.max(2, expiry.getSeconds()), MAX_PRESIGN_SECONDS);
+        // 签名时间向下对齐到半个有效期，同一窗口内地址不变，且至少还有半个有效期
+        long window = expires / 2;
+        Instant timestamp = Instant.ofEpochSecond(Instant.now().getEpochSecond() / window * window);
+        String path = S3Signer.encodePath(pathPrefix + "/" + key);
+        Map<String, String> query = new TreeMap<>();
+        query.put("response-cache-control", PRESIGN_CACHE_CONTROL);
+        return baseUrl + path + "?" + signer.presign(host, path, query, timestamp, expires);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("uploads", uploads.sum());
+        stats.put("multipartUploads", multipartUploads.sum());
+        stats.put("uploadedBytes", uploadedBytes.sum());
+        stats.put("downloads", downloads.sum());
+        stats.put("rangedGets", rangedGets.sum());
+        stats.put("downloadedBytes", downloadedBytes.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    /**
+     * 查询对象大小
+     *
+     * @return 字节数，不存在返回 -1
+     */
+    private long head(String key) throws IOException {
+        HttpResponse<Void> response = send(request("HEAD", key, Map.of(),
+                HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return -1;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("查询对象失败: " + key + ", 状态码: " + response.statusCode());
+        }
+        return response.headers().firstValueAsLong("Content-Length").orElse(0);
+    }
+
+    /**
+     * 分片上传：创建 -> 并行上传分片 -> 合并，失败时中止，避免残留未合并的分片
+     */
+    private void multipartUpload(String key, Path file, long size, String contentType) throws IOException {
+        HttpResponse<String> created = send(request("POST", key, Map.of("uploads", ""),
+                HttpRequest.BodyPublishers.noBody()).header("Content-Type", contentType).build(),
+                HttpResponse.BodyHandlers.ofString());
+        check(created, "创建分片上传", key);
+        Matcher matcher = UPLOAD_ID.matcher(created.body());
+        if (!matcher.find()) {
+            throw new IOException("创建分片上传失败，响应中没有 UploadId: " + key);
+        }
+        String uploadId = matcher.group(1);
+
+        try {
+            int partCount = (int) ((size + partSize - 1) / partSize);
+            String[] etags = new String[partCount];
+            Semaphore permits = new Semaphore(Math.max(1, parallelism));
+            List<CompletableFuture<?>> requests = new ArrayList<>(partCount);
+            List<CompletableFuture<Void>> futures = new ArrayList<>(partCount);
+            CompletableFuture<Void> failure = new CompletableFuture<>();
+            try {
+                for (int i = 0; i < partCount && !failure.isDone(); i++) {
+                    int part = i;
+                    long offset = part * partSize;
+                    long length = Math.min(partSize, size - offset);
+                    acquire(permits);
+                    // 等待许可期间可能已有分片失败，不再提交后续分片
+                    if (failure.isDone()) {
+                        permits.release();
+                        break;
+                    }
+                    HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.fromPublisher(
+                            HttpRequest.BodyPublishers.ofInputStream(() -> slice(file, offset, length)), length);
+                    HttpRequest request = request("PUT", key,
+                            Map.of("partNumber", String.valueOf(part + 1), "uploadId", uploadId), body).build();
+                    CompletableFuture<HttpResponse<String>> sent = httpClient.sendAsync(request,
+                            HttpResponse.BodyHandlers.ofString());
+                    requests.add(sent);
+                    futures.add(sent.thenAccept(response -> {
+                                if (response.statusCode() != 200) {
+                                    throw new CompletionException(new IOException(
+                                            "上传分片失败: " + key + "#" + (part + 1) + ", 状态码: " + response.statusCode()));
+                                }
+                                etags[part] = response.headers().firstValue("ETag")
+                                        .orElseThrow(() -> new CompletionException(new IOException("分片缺少 ETag")));
+                            })
+                            .whenComplete((result, error) -> {
+                                permits.release();
+                                if (error != null) {
+                                    failure.completeExceptionally(error);
+                                }
+                            }));
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.completeExceptionally(e);
+            }
+            // 中止前必须等进行中的分片全部结束，否则中止之后到达的分片会重新留下残留
+            awaitParts(requests, futures, failure);
+
+            StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < partCount; i++) {
+                xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags[i]).append("</ETag></Part>");
+            }
+            xml.append("</CompleteMultipartUpload>");
+            HttpResponse<String> completed = send(request("POST", key, Map.of("uploadId", uploadId),
+                    HttpRequest.BodyPublishers.ofString(xml.toString())).header("Content-Type", "application/xml").build(),
+                    HttpResponse.BodyHandlers.ofString());
+            // 合并失败时状态码也可能是 200，需要检查响应体
+            if (completed.statusCode() != 200 || completed.body().contains("<Error>")) {
+                throw new IOException("合并分片失败: " + key + ", 状态码: " + completed.statusCode());
+            }
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * 按 Range 并行下载，各分片按偏移写入同一文件
+     * <p>对象键为内容哈希，内容不可变，分片之间不需要 If-Match 校验</p>
+     */
+    private void rangedDownload(String key, Path target, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Semaphore permits = new Semaphore(Math.max(1, parallelism));
+            List<CompletableFuture<?>> requests = new ArrayList<>();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            CompletableFuture<Void> failure = new CompletableFuture<>();
+            try {
+                for (long offset = 0; offset < size && !failure.isDone(); offset += partSize) {
+                    long start = offset;
+                    long end = Math.min(size, offset + partSize) - 1;
+                    acquire(permits);
+                    if (failure.isDone()) {
+                        permits.release();
+                        break;
+                    }
+                    HttpRequest request = request("GET", key, Map.of(), HttpRequest.BodyPublishers.noBody())
+                            .header("Range", "bytes=" + start + "-" + end).build();
+                    rangedGets.increment();
+                    CompletableFuture<HttpResponse<byte[]>> sent = httpClient.sendAsync(request,
+                            HttpResponse.BodyHandlers.ofByteArray());
+                    requests.add(sent);
+                    futures.add(sent.thenAccept(response -> {
+                                if (response.statusCode() != 206 || response.body().length != end - start + 1) {
+                                    throw new CompletionException(new IOException(
+                                            "范围读取失败: " + key + " [" + start + "-" + end + "], 状态码: " + response.statusCode()));
+                                }
+                                if (failure.isDone()) {
+                                    return;
+                                }
+                                ByteBuffer buffer = ByteBuffer.wrap(response.body());
+                                try {
+                                    long position = start;
+                                    while (buffer.hasRemaining()) {
+                                        position += channel.write(buffer, position);
+                                    }
+                                } catch (IOException e) {
+                                    throw new CompletionException(e);
+                                }
+                            })
+                            .whenComplete((result, error) -> {
+                                permits.release();
+                                if (error != null) {
+                                    failure.completeExceptionally(error);
+                                }
+                            }));
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.completeExceptionally(e);
+            }
+            // 关闭通道前必须等所有分片回调结束，否则仍在写入的分片会因通道关闭而失败或写入已删除的文件
+            awaitParts(requests, futures, failure);
+        }
+    }
+
+    /**
+     * 等待已提交的分片全部结束
+     * <p>任一分片失败时取消其余请求，但仍要等回调全部退出后才返回，
+     * 保证调用方随后关闭文件通道或中止上传时不再有分片在使用它们</p>
+     *
+     * @param requests 原始请求，用于取消
+     * @param futures  分片处理结果
+     * @param failure  首个失败
+     */
+    private void awaitParts(List<CompletableFuture<?>> requests, List<CompletableFuture<Void>> futures,
+                            CompletableFuture<Void> failure) throws IOException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        try {
+            CompletableFuture.anyOf(all, failure).join();
+        } catch (CompletionException | CancellationException ignored) {
+            // 失败原因记录在 failure 中
+        }
+        if (failure.isDone()) {
+            requests.forEach(request -> request.cancel(true));
+        }
+        all.handle((result, error) -> null).join();
+        if (failure.isDone()) {
+            await(failure);
+        }
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            send(request("DELETE", key, Map.of("uploadId", uploadId), HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            log.warn("中止分片上传失败: {}, {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 构建已签名的请求
+     */
+    private HttpRequest.Builder request(String method, String key, Map<String, String> query,
+                                        HttpRequest.BodyPublisher body) {
+        String path = S3Signer.encodePath(pathPrefix + "/" + key);
+        String queryString = query.isEmpty() ? "" : "?" + S3Signer.canonicalQuery(query);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path + queryString))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .method(method, body);
+        signer.sign(method, host, path, query, Instant.now()).forEach(builder::header);
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("S3 请求被中断", e);
+        }
+    }
+
+    private void check(HttpResponse<String> response, String action, String key) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new IOException(action + "失败: " + key + ", 状态码: " + response.statusCode()
+                    + ", 响应: " + response.body());
+        }
+    }
+
+    private void await(CompletableFuture<?> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private void acquire(Semaphore permits) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("S3 请求被中断", e);
+        }
+    }
+
+    /**
+     * 文件区间输入流（分片上传时按需读取，不把整片读入内存）
+     */
+    private static InputStream slice(Path file, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ).position(offset);
+            return new FilterInputStream(Channels.newInputStream(channel)) {
+                private long remaining = length;
+
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int value = super.read();
+                    if (value >= 0) {
+                        remaining--;
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] bytes, int off, int len) throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int count = super.read(bytes, off, (int) Math.min(len, remaining));
+                    if (count > 0) {
+                        remaining -= count;
+                    }
+                    return count;
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isDefaultPort(String scheme, int port) {
+        return ("https".equalsIgnoreCase(scheme) && port == 443) || ("http".equalsIgnoreCase(scheme) && port == 80);
+    }
+}
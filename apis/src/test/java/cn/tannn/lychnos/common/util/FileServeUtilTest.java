@@ -0,0 +1,44 @@
+package cn.tannn.lychnos.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileServeUtilTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    void parsesClosedRange() {
+        assertArrayEquals(new long[]{0, 99}, FileServeUtil.parseRange("bytes=0-99", LENGTH));
+        assertArrayEquals(new long[]{500, 500}, FileServeUtil.parseRange("bytes=500-500", LENGTH));
+    }
+
+    @Test
+    void parsesOpenAndSuffixRange() {
+        assertArrayEquals(new long[]{900, 999}, FileServeUtil.parseRange("bytes=900-", LENGTH));
+        assertArrayEquals(new long[]{900, 999}, FileServeUtil.parseRange("bytes=-100", LENGTH));
+        // 后缀长度超过内容长度时返回完整内容
+        assertArrayEquals(new long[]{0, 999}, FileServeUtil.parseRange("bytes=-5000", LENGTH));
+    }
+
+    @Test
+    void clampsEndToContentLength() {
+        assertArrayEquals(new long[]{990, 999}, FileServeUtil.parseRange("bytes=990-5000", LENGTH));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() {
+        assertNull(FileServeUtil.parseRange("bytes=1000-1001", LENGTH));
+        assertNull(FileServeUtil.parseRange("bytes=100-99", LENGTH));
+        assertNull(FileServeUtil.parseRange("bytes=-0", LENGTH));
+    }
+
+    @Test
+    void ignoresUnsupportedRange() {
+        assertEquals(0, FileServeUtil.parseRange("bytes=0-1,5-6", LENGTH).length);
+        assertEquals(0, FileServeUtil.parseRange("items=0-1", LENGTH).length);
+        assertEquals(0, FileServeUtil.parseRange("bytes=abc", LENGTH).length);
+        assertEquals(0, FileServeUtil.parseRange("bytes=a-b", LENGTH).length);
+    }
+}
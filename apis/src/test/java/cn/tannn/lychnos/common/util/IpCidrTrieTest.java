@@ -0,0 +1,95 @@
+package cn.tannn.lychnos.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpCidrTrieTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    void matchesIpv4Network() {
+        IpCidrTrie trie = IpCidrTrie.builder()
+                .add("10.1.0.0/16", IpCidrTrie.PERMANENT)
+                .build();
+        assertTrue(trie.contains("10.1.0.1", NOW));
+        assertTrue(trie.contains("10.1.255.255", NOW));
+        assertFalse(trie.contains("10.2.0.1", NOW));
+        assertFalse(trie.contains("11.1.0.1", NOW));
+    }
+
+    @Test
+    void matchesSingleIpOnly() {
+        IpCidrTrie trie = IpCidrTrie.builder()
+                .add("192.168.1.10", IpCidrTrie.PERMANENT)
+                .build();
+        assertTrue(trie.contains("192.168.1.10", NOW));
+        assertFalse(trie.contains("192.168.1.11", NOW));
+    }
+
+    @Test
+    void matchesIpv6Network() {
+        IpCidrTrie trie = IpCidrTrie.builder()
+                .add("2001:db8::/32", IpCidrTrie.PERMANENT)
+                .build();
+        assertTrue(trie.contains("2001:db8::1", NOW));
+        assertTrue(trie.contains("2001:db8:ffff::1", NOW));
+        assertFalse(trie.contains("2001:db9::1", NOW));
+        // IPv4 与 IPv6 使用不同的根节点
+        assertFalse(trie.contains("32.1.13.184", NOW));
+    }
+
+    @Test
+    void zeroPrefixMatchesWholeFamily() {
+        IpCidrTrie trie = IpCidrTrie.builder()
+                .add("0.0.0.0/0", IpCidrTrie.PERMANENT)
+                .build();
+        assertTrue(trie.contains("8.8.8.8", NOW));
+        assertFalse(trie.contains("::1", NOW));
+    }
+
+    @Test
+    void ignoresExpiredNetworks() {
+        IpCidrTrie trie = IpCidrTrie.builder()
+                .add("1.2.3.0/24", NOW + 1000)
+                .add("1.2.0.0/16", NOW - 1)
+                .build();
+        assertTrue(trie.contains("1.2.3.4", NOW));
+        assertFalse(trie.contains("1.2.4.4", NOW));
+        assertFalse(trie.contains("1.2.3.4", NOW + 1000));
+    }
+
+    @Test
+    void keepsLatestExpiryForDuplicates() {
+        IpCidrTrie trie = IpCidrTrie.builder()
+                .add("1.2.3.0/24", NOW + 1000)
+                .add("1.2.3.0/24", NOW - 1)
+                .build();
+        assertEquals(1, trie.size());
+        assertTrue(trie.contains("1.2.3.4", NOW));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        IpCidrTrie trie = IpCidrTrie.builder().add("1.2.3.4", IpCidrTrie.PERMANENT).build();
+        assertFalse(trie.contains(null, NOW));
+        assertFalse(trie.contains("", NOW));
+        assertFalse(trie.contains("not-an-ip", NOW));
+        assertFalse(IpCidrTrie.empty().contains("1.2.3.4", NOW));
+
+        IpCidrTrie.Builder builder = IpCidrTrie.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.add("1.2.3.4/33", IpCidrTrie.PERMANENT));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("1.2.3/24", IpCidrTrie.PERMANENT));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("1.2.3.4/x", IpCidrTrie.PERMANENT));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(" ", IpCidrTrie.PERMANENT));
+    }
+
+    @Test
+    void normalizeClearsHostBits() {
+        assertEquals("1.2.3.0/24", IpCidrTrie.normalize("1.2.3.4/24"));
+        assertEquals("1.2.3.4/32", IpCidrTrie.normalize(" 1.2.3.4 "));
+        assertEquals("2001:db8::/32", IpCidrTrie.normalize("2001:db8:1::1/32"));
+        assertEquals("::1/128", IpCidrTrie.normalize("::1"));
+    }
+}
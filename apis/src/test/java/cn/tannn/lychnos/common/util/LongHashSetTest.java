@@ -0,0 +1,65 @@
+package cn.tannn.lychnos.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @Test
+    void addAndContains() {
+        LongHashSet set = new LongHashSet(4);
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.contains(42));
+        assertTrue(set.contains(-1));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertFalse(set.contains(43));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    void tracksZeroSeparately() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void growsBeyondExpectedSize() {
+        LongHashSet set = new LongHashSet(1);
+        long initialBytes = set.memoryBytes();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong();
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertEquals(expected.size(), set.size());
+        assertTrue(set.memoryBytes() > initialBytes);
+        for (long value : expected) {
+            assertTrue(set.contains(value));
+        }
+    }
+
+    @Test
+    void forEachVisitsEveryValueOnce() {
+        LongHashSet set = new LongHashSet();
+        for (long i = 0; i < 100; i++) {
+            set.add(i * 1_000_003L);
+        }
+        Set<Long> visited = new HashSet<>();
+        set.forEach(value -> assertTrue(visited.add(value)));
+        assertEquals(100, visited.size());
+        assertTrue(visited.contains(0L));
+    }
+}
@@ -0,0 +1,85 @@
+package cn.tannn.lychnos.common.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 恶意扫描路径匹配基准：前缀树一次遍历 vs 逐条 PathPattern 匹配（原先每条规则一个 MVC 映射）
+ * <p>运行：在 IDE 中执行 main 方法，或 mvn test-compile 后用 test classpath 启动</p>
+ *
+ * @author <a href="https://t.tannn.cn/">tan</a>
+ * @version V1.0
+ * @date 2026/2/15
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProbePathMatcherBenchmark {
+
+    /**
+     * 正常请求为主，夹杂少量扫描请求
+     */
+    @Param({"/api/book/list", "/assets/index-3f2a9c.js", "/sys-manage/logs/query", "/wp-admin/setup-config.php", "/.env"})
+    public String path;
+
+    private ProbePathMatcher matcher;
+    private List<PathPattern> patterns;
+
+    @Setup
+    public void setup() throws IOException {
+        ProbePathMatcher.Builder builder = ProbePathMatcher.builder();
+        patterns = new ArrayList<>();
+        PathPatternParser parser = new PathPatternParser();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource("probe-rules.txt").getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || !line.startsWith("GET ")) {
+                    continue;
+                }
+                String pattern = line.substring(4).trim();
+                builder.add(ProbePathMatcher.GET, pattern);
+                patterns.add(parser.parse(pattern));
+            }
+        }
+        matcher = builder.build();
+    }
+
+    @Benchmark
+    public boolean trie() {
+        return matcher.matches(ProbePathMatcher.GET, path);
+    }
+
+    @Benchmark
+    public boolean pathPatterns() {
+        PathContainer container = PathContainer.parsePath(path);
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(container)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProbePathMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,69 @@
+package cn.tannn.lychnos.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbePathMatcherTest {
+
+    private final ProbePathMatcher matcher = ProbePathMatcher.builder()
+            .add(ProbePathMatcher.ANY, "/.env")
+            .add(ProbePathMatcher.GET, "/wp-admin/**")
+            .add(ProbePathMatcher.ANY, "/*.bak")
+            .add(ProbePathMatcher.GET, "/config/spring-*.xml")
+            .add(ProbePathMatcher.POST, "/cgi-bin/login")
+            .build();
+
+    @Test
+    void matchesExactPath() {
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/.env"));
+        assertTrue(matcher.matches(ProbePathMatcher.POST, "/.env"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/.env/x"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/app/.env"));
+    }
+
+    @Test
+    void matchesAnyDepth() {
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/wp-admin"));
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/wp-admin/"));
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/wp-admin/a/b/c.php"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/wp-administrator"));
+    }
+
+    @Test
+    void matchesGlobInLastSegment() {
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/db.bak"));
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/.bak"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/dir/db.bak"));
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/config/spring-context.xml"));
+        assertTrue(matcher.matches(ProbePathMatcher.GET, "/config/spring-.xml"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/config/spring.xml"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/config/sub/spring-a.xml"));
+    }
+
+    @Test
+    void respectsMethodMask() {
+        assertFalse(matcher.matches(ProbePathMatcher.POST, "/wp-admin/index.php"));
+        assertTrue(matcher.matches(ProbePathMatcher.POST, "/cgi-bin/login"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/cgi-bin/login"));
+        assertFalse(matcher.matches(ProbePathMatcher.methodMask("PUT"), "/.env"));
+        assertEquals(ProbePathMatcher.GET, ProbePathMatcher.methodMask("HEAD"));
+    }
+
+    @Test
+    void ignoresInvalidPaths() {
+        assertFalse(matcher.matches(ProbePathMatcher.GET, null));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, ""));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, ".env"));
+        assertFalse(matcher.matches(ProbePathMatcher.GET, "/"));
+        assertEquals(5, matcher.size());
+    }
+
+    @Test
+    void rejectsUnsupportedRules() {
+        ProbePathMatcher.Builder builder = ProbePathMatcher.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.add(ProbePathMatcher.GET, "no-slash"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(ProbePathMatcher.GET, "/a*/b"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(ProbePathMatcher.GET, "/a*b*c"));
+    }
+}
@@ -0,0 +1,80 @@
+package cn.tannn.lychnos.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTableTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        // 容量 3，每分钟补充 60 个（每秒 1 个）
+        TokenBucketTable table = new TokenBucketTable(3, 60, START);
+        assertEquals(0, table.tryAcquire(1L, START));
+        assertEquals(0, table.tryAcquire(1L, START));
+        assertEquals(0, table.tryAcquire(1L, START));
+        long waitMs = table.tryAcquire(1L, START);
+        assertTrue(waitMs > 0 && waitMs <= 1000, "waitMs=" + waitMs);
+        // 不同 key 互不影响
+        assertEquals(0, table.tryAcquire(2L, START));
+    }
+
+    @Test
+    void refillsOverTime() {
+        TokenBucketTable table = new TokenBucketTable(1, 60, START);
+        assertEquals(0, table.tryAcquire(1L, START));
+        assertTrue(table.tryAcquire(1L, START + 500) > 0);
+        assertEquals(0, table.tryAcquire(1L, START + 1000));
+        // 补充不超过容量
+        assertEquals(0, table.tryAcquire(1L, START + 60_000));
+        assertTrue(table.tryAcquire(1L, START + 60_000) > 0);
+    }
+
+    @Test
+    void debitConsumesOtherNodesPermits() {
+        TokenBucketTable table = new TokenBucketTable(5, 60, START);
+        table.debit(1L, 4, START);
+        assertEquals(0, table.tryAcquire(1L, START));
+        assertTrue(table.tryAcquire(1L, START) > 0);
+        // 不足时扣到 0
+        table.debit(2L, 100, START);
+        assertTrue(table.tryAcquire(2L, START) > 0);
+    }
+
+    @Test
+    void refundIsCappedAtCapacity() {
+        TokenBucketTable table = new TokenBucketTable(2, 60, START);
+        assertEquals(0, table.tryAcquire(1L, START));
+        assertEquals(0, table.tryAcquire(1L, START));
+        table.refund(1L, 5, START);
+        assertEquals(0, table.tryAcquire(1L, START));
+        assertEquals(0, table.tryAcquire(1L, START));
+        assertTrue(table.tryAcquire(1L, START) > 0);
+        // 没有桶时退还无效果
+        table.refund(3L, 1, START);
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void evictsOnlyFullBuckets() {
+        TokenBucketTable table = new TokenBucketTable(2, 60, START);
+        table.tryAcquire(1L, START);
+        table.tryAcquire(2L, START);
+        table.tryAcquire(2L, START);
+        assertEquals(2, table.size());
+        // 1 秒后 key 1 已补满，key 2 还差 1 个
+        assertEquals(1, table.evictIdle(START + 1000));
+        assertEquals(1, table.size());
+        assertEquals(1, table.evictIdle(START + 2000));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void rejectsInvalidConfig() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketTable(0, 1, START));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketTable(4096, 1, START));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketTable(1, 0, START));
+    }
+}
@@ -0,0 +1,133 @@
+package cn.tannn.lychnos.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePackStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void findsPackedImagesByHash() throws IOException {
+        ImagePackStore store = store();
+        Map<String, byte[]> images = images("a", "bb", "ccc");
+        List<String> written = store.writePack(sources(images));
+
+        assertEquals(3, written.size());
+        for (Map.Entry<String, byte[]> image : images.entrySet()) {
+            ImagePackStore.PackEntry entry = store.find(image.getKey());
+            assertNotNull(entry);
+            assertEquals(1, entry.getPackId());
+            assertEquals(image.getValue().length, entry.getLength());
+            assertArrayEquals(image.getValue(), bytes(store.read(entry)));
+        }
+        assertFalse(store.contains(sha256("missing".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void mergesIndexesAcrossPacksAndReloads() throws IOException {
+        ImagePackStore store = store();
+        Map<String, byte[]> first = images("one", "two");
+        Map<String, byte[]> second = images("three", "four", "five");
+        store.writePack(sources(first));
+        store.writePack(sources(second));
+
+        assertEquals(1, store.find(first.keySet().iterator().next()).getPackId());
+        assertEquals(2, store.find(second.keySet().iterator().next()).getPackId());
+
+        // 重启后从索引文件恢复
+        ImagePackStore reloaded = store();
+        reloaded.init();
+        Map<String, Integer> entries = new HashMap<>();
+        reloaded.forEachEntry(entries::put);
+        assertEquals(5, entries.size());
+        assertEquals(5, reloaded.stats().get("entries"));
+        for (Map.Entry<String, byte[]> image : second.entrySet()) {
+            assertEquals(image.getValue().length, entries.get(image.getKey()));
+            assertArrayEquals(image.getValue(), bytes(reloaded.read(reloaded.find(image.getKey()))));
+        }
+    }
+
+    @Test
+    void skipsUnreadableSources() throws IOException {
+        ImagePackStore store = store();
+        Map<String, byte[]> images = images("kept");
+        Map<String, Path> sources = sources(images);
+        String missing = sha256("gone".getBytes(StandardCharsets.UTF_8));
+        sources.put(missing, root.resolve("gone.png"));
+
+        List<String> written = store.writePack(sources);
+        assertEquals(List.copyOf(images.keySet()), written);
+        assertFalse(store.contains(missing));
+        String kept = images.keySet().iterator().next();
+        assertArrayEquals(images.get(kept), bytes(store.read(store.find(kept))));
+    }
+
+    @Test
+    void dropsDataFileWithoutIndexOnInit() throws IOException {
+        ImagePackStore store = store();
+        Path orphan = store.dataFile(7);
+        Files.createDirectories(orphan.getParent());
+        Files.write(orphan, new byte[]{1, 2, 3});
+
+        store.init();
+        assertFalse(Files.exists(orphan));
+        assertEquals(0, store.stats().get("entries"));
+    }
+
+    private ImagePackStore store() {
+        ImagePackStore store = new ImagePackStore();
+        ReflectionTestUtils.setField(store, "storagePath", root.toString());
+        return store;
+    }
+
+    private Map<String, byte[]> images(String... contents) {
+        Map<String, byte[]> images = new LinkedHashMap<>();
+        for (String content : contents) {
+            byte[] data = content.getBytes(StandardCharsets.UTF_8);
+            images.put(sha256(data), data);
+        }
+        return images;
+    }
+
+    private Map<String, Path> sources(Map<String, byte[]> images) throws IOException {
+        Map<String, Path> sources = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> image : images.entrySet()) {
+            Path file = root.resolve(image.getKey() + ".png");
+            Files.write(file, image.getValue());
+            sources.put(image.getKey(), file);
+        }
+        return sources;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package cn.tannn.lychnos.service.storage.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用本地 HttpServer 模拟 S3 接口，验证分片上传（创建 -> 上传分片 -> 合并 / 失败中止）与分段下载
+ */
+class S3ImageObjectStoreTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+    private static final String UPLOAD_ID = "upload-1";
+    private static final Pattern PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber><ETag>([^<]+)</ETag>");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void uploadsLargeFileInPartsAndCompletes() throws Exception {
+        FakeS3 s3 = new FakeS3();
+        try {
+            byte[] content = content(PART_SIZE * 2 + 123);
+            Path file = Files.write(dir.resolve("large.bin"), content);
+
+            store(s3).upload("ab/cd.png", file, "image/png");
+
+            assertEquals("POST /lychnos/ab/cd.png?uploads=", s3.calls.get(0));
+            assertEquals(3, s3.parts.size());
+            assertEquals("POST /lychnos/ab/cd.png?uploadId=" + UPLOAD_ID, s3.calls.get(s3.calls.size() - 1));
+            assertArrayEquals(content, s3.objects.get("/lychnos/ab/cd.png"));
+            assertFalse(s3.calls.stream().anyMatch(call -> call.startsWith("DELETE")));
+            assertTrue(s3.authorized);
+        } finally {
+            s3.stop();
+        }
+    }
+
+    @Test
+    void abortsUploadWhenPartFails() throws Exception {
+        FakeS3 s3 = new FakeS3();
+        s3.failingPart = 2;
+        try {
+            Path file = Files.write(dir.resolve("large.bin"), content(PART_SIZE * 2 + 123));
+            S3ImageObjectStore store = store(s3);
+
+            IOException error = assertThrows(IOException.class, () -> store.upload("ab/cd.png", file, "image/png"));
+
+            assertTrue(error.getMessage().contains("#2"));
+            assertEquals("DELETE /lychnos/ab/cd.png?uploadId=" + UPLOAD_ID, s3.calls.get(s3.calls.size() - 1));
+            assertFalse(s3.calls.contains("POST /lychnos/ab/cd.png?uploadId=" + UPLOAD_ID));
+            assertFalse(s3.objects.containsKey("/lychnos/ab/cd.png"));
+            assertEquals(1L, store.stats().get("failures"));
+        } finally {
+            s3.stop();
+        }
+    }
+
+    @Test
+    void abortsUploadWhenCompleteReturnsError() throws Exception {
+        FakeS3 s3 = new FakeS3();
+        s3.completeError = true;
+        try {
+            Path file = Files.write(dir.resolve("large.bin"), content(PART_SIZE + 1));
+            S3ImageObjectStore store = store(s3);
+
+            assertThrows(IOException.class, () -> store.upload("ab/cd.png", file, "image/png"));
+
+            assertEquals("DELETE /lychnos/ab/cd.png?uploadId=" + UPLOAD_ID, s3.calls.get(s3.calls.size() - 1));
+        } finally {
+            s3.stop();
+        }
+    }
+
+    @Test
+    void downloadsLargeObjectWithRangedGets() throws Exception {
+        FakeS3 s3 = new FakeS3();
+        try {
+            byte[] content = content(PART_SIZE * 2 + 7);
+            s3.objects.put("/lychnos/ab/cd.png", content);
+            S3ImageObjectStore store = store(s3);
+            Path target = dir.resolve("download.bin");
+
+            assertEquals((long) content.length, store.download("ab/cd.png", target));
+
+            assertArrayEquals(content, Files.readAllBytes(target));
+            assertEquals(3L, store.stats().get("rangedGets"));
+            assertEquals(-1L, store.download("ab/missing.png", dir.resolve("missing.bin")));
+        } finally {
+            s3.stop();
+        }
+    }
+
+    private S3ImageObjectStore store(FakeS3 s3) {
+        S3ImageObjectStore store = new S3ImageObjectStore();
+        ReflectionTestUtils.setField(store, "endpoint", "http://127.0.0.1:" + s3.server.getAddress().getPort());
+        ReflectionTestUtils.setField(store, "region", "us-east-1");
+        ReflectionTestUtils.setField(store, "bucket", "lychnos");
+        ReflectionTestUtils.setField(store, "accessKey", "test");
+        ReflectionTestUtils.setField(store, "secretKey", "secret");
+        ReflectionTestUtils.setField(store, "pathStyle", true);
+        ReflectionTestUtils.setField(store, "partSize", (long) PART_SIZE);
+        ReflectionTestUtils.setField(store, "parallelism", 2);
+        ReflectionTestUtils.setField(store, "connectTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(store, "timeoutMs", 30000L);
+        store.init();
+        return store;
+    }
+
+    private static byte[] content(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * 最小化的 S3 模拟：只实现存储用到的几个接口，并记录请求顺序
+     */
+    private static class FakeS3 {
+
+        final HttpServer server;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        volatile int failingPart;
+        volatile boolean completeError;
+        volatile boolean authorized = true;
+
+        FakeS3() throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.setExecutor(executor);
+            server.createContext("/", this::handle);
+            server.start();
+        }
+
+        void stop() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                String method = exchange.getRequestMethod();
+                String path = exchange.getRequestURI().getRawPath();
+                String query = exchange.getRequestURI().getRawQuery();
+                Map<String, String> params = params(query);
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                String auth = exchange.getRequestHeaders().getFirst("Authorization");
+                authorized &= auth != null && auth.startsWith("AWS4-HMAC-SHA256 Credential=test/");
+                if (!params.containsKey("partNumber")) {
+                    calls.add(method + " " + path + (query == null ? "" : "?" + query));
+                }
+
+                if ("POST".equals(method) && params.containsKey("uploads")) {
+                    respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>" + UPLOAD_ID
+                            + "</UploadId></InitiateMultipartUploadResult>");
+                } else if ("PUT".equals(method) && params.containsKey("partNumber")) {
+                    int part = Integer.parseInt(params.get("partNumber"));
+                    if (part == failingPart) {
+                        respond(exchange, 500, "<Error><Code>InternalError</Code></Error>");
+                        return;
+                    }
+                    parts.put(part, body);
+                    exchange.getResponseHeaders().set("ETag", "\"etag-" + part + "\"");
+                    respond(exchange, 200, "");
+                } else if ("POST".equals(method) && params.containsKey("uploadId")) {
+                    if (completeError) {
+                        // S3 合并失败时可能返回 200 + Error 响应体
+                        respond(exchange, 200, "<Error><Code>InvalidPart</Code></Error>");
+                        return;
+                    }
+                    ByteArrayOutputStream merged = new ByteArrayOutputStream();
+                    Matcher matcher = PART.matcher(new String(body, StandardCharsets.UTF_8));
+                    while (matcher.find()) {
+                        int part = Integer.parseInt(matcher.group(1));
+                        assertEquals("\"etag-" + part + "\"", matcher.group(2));
+                        merged.write(parts.get(part));
+                    }
+                    objects.put(path, merged.toByteArray());
+                    respond(exchange, 200, "<CompleteMultipartUploadResult/>");
+                } else if ("DELETE".equals(method) && params.containsKey("uploadId")) {
+                    parts.clear();
+                    exchange.sendResponseHeaders(204, -1);
+                } else if ("HEAD".equals(method)) {
+                    byte[] object = objects.get(path);
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.sendResponseHeaders(200, -1);
+                } else if ("GET".equals(method)) {
+                    byte[] object = objects.get(path);
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    String[] bounds = range.substring("bytes=".length()).split("-");
+                    int start = Integer.parseInt(bounds[0]);
+                    int end = Integer.parseInt(bounds[1]);
+                    exchange.sendResponseHeaders(206, end - start + 1);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(object, start, end - start + 1);
+                    }
+                } else {
+                    respond(exchange, 400, "<Error><Code>NotImplemented</Code></Error>");
+                }
+            }
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        }
+
+        private static Map<String, String> params(String query) {
+            Map<String, String> params = new HashMap<>();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    int index = pair.indexOf('=');
+                    params.put(index < 0 ? pair : pair.substring(0, index), index < 0 ? "" : pair.substring(index + 1));
+                }
+            }
+            return params;
+        }
+    }
+}
@@ -100,6 +100,8 @@ export interface UserAnalysisLogQuery {
     userName?: string;
     exactMatch?: boolean;
     modelSource?: number;
+    cursor?: string;
+    size?: number;
 }
 
 // 用户分析日志
@@ -121,6 +123,13 @@ export interface UserAnalysisLog {
     modelVendor: string;
 }
 
+// 用户分析日志游标分页结果
+export interface UserAnalysisLogPage {
+    rows: UserAnalysisLog[];
+    nextCursor?: string;
+    hasMore: boolean;
+}
+
 // 用户分页请求参数
 export interface UserPageRequest {
     page?: {
@@ -211,7 +220,7 @@ export const adminApi = {
     log: {
         // 查询用户分析日志
         query: (params: UserAnalysisLogQuery) => {
-            return request.post<Result<UserAnalysisLog[]>>('/sys-manage/logs/query', params);
+            return request.post<Result<UserAnalysisLogPage>>('/sys-manage/logs/query', params);
         },
 
         // 获取攻击统计数据
@@ -245,11 +254,17 @@ export const adminApi = {
 export interface AttackRecord {
     ip: string;
     count: number;
+    lastMinute?: number;
+    last10Minutes?: number;
+    lastHour?: number;
 }
 
 // 攻击统计数据
 export interface AttackStats {
     totalIpCount: number;
     totalAttackCount: number;
+    lastHourCount?: number;
+    lastMinuteCount?: number;
+    last10MinutesCount?: number;
     topAttackers: AttackRecord[];
 }
@@ -19,11 +19,15 @@ export const bookApi = {
   },
 
   // 提取书籍信息（从用户输入中提取书名和作者）
-  extractBooks: (input: string) => {
+  // 重试同一次提取时传入相同的 idempotencyKey，后端会等待或直接返回首次请求的结果
+  extractBooks: (input: string, idempotencyKey?: string) => {
     return request.post<Result<BookExtract[]>>(
       '/book/extract',
       { input },
-      { timeout: 6000000 } // 10分钟超时
+      {
+        timeout: 6000000, // 10分钟超时
+        headers: idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : undefined,
+      }
     );
   },
 
@@ -33,11 +37,15 @@ export const bookApi = {
   },
 
   // 分析图书（需要较长时间：AI分析+图片生成）
-  analyzeBook: (bookInfo: { title: string; author?: string }) => {
+  // 重试同一次分析时传入相同的 idempotencyKey，后端会等待或直接返回首次请求的结果
+  analyzeBook: (bookInfo: { title: string; author?: string }, idempotencyKey?: string) => {
     return request.put<Result<BookAnalysis>>(
       '/book/analyze',
       bookInfo,
-      { timeout: 6000000 } // 10分钟超时
+      {
+        timeout: 6000000, // 10分钟超时
+        headers: idempotencyKey ? { 'Idempotency-Key': idempotencyKey } : undefined,
+      }
     );
   },
 
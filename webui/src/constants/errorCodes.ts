@@ -28,6 +28,16 @@ export const BOOK_ANALYSIS_NOT_FOUND = 1004;
  */
 export const USER_BANNED = 1006;
 
+/**
+ * 1008: 官方模型当日额度已用完（引导用户配置自己的模型）
+ */
+export const OFFICIAL_BUDGET_EXHAUSTED = 1008;
+
+/**
+ * 1009: 同一个 Idempotency-Key 被用于不同的请求内容
+ */
+export const IDEMPOTENCY_KEY_REUSED = 1009;
+
 /**
  * 错误码类型定义
  */
@@ -36,4 +46,6 @@ export type BusinessErrorCode =
   | typeof MODEL_NOT_CONFIGURED
   | typeof BOOK_NOT_IN_RECOMMENDATION
   | typeof BOOK_ANALYSIS_NOT_FOUND
-  | typeof USER_BANNED;
+  | typeof USER_BANNED
+  | typeof OFFICIAL_BUDGET_EXHAUSTED
+  | typeof IDEMPOTENCY_KEY_REUSED;
@@ -94,7 +94,7 @@ function AdminAttackStatsPage() {
 
                 {/* 统计概览 */}
                 {stats && (
-                    <div className="grid grid-cols-1 md:grid-cols-2 gap-4 mb-6">
+                    <div className="grid grid-cols-1 md:grid-cols-3 gap-4 mb-6">
                         <div className="bg-white rounded-lg shadow p-6">
                             <div className="text-sm text-gray-600 mb-1">总攻击IP数</div>
                             <div className="text-3xl font-bold text-gray-900">{stats.totalIpCount}</div>
@@ -103,6 +103,10 @@ function AdminAttackStatsPage() {
                             <div className="text-sm text-gray-600 mb-1">总攻击次数</div>
                             <div className="text-3xl font-bold text-red-600">{stats.totalAttackCount}</div>
                         </div>
+                        <div className="bg-white rounded-lg shadow p-6">
+                            <div className="text-sm text-gray-600 mb-1">近1小时攻击次数</div>
+                            <div className="text-3xl font-bold text-orange-600">{stats.lastHourCount ?? 0}</div>
+                        </div>
                     </div>
                 )}
 
@@ -8,6 +8,7 @@ const AdminLogPage: React.FC = () => {
     const navigate = useNavigate();
     const [logs, setLogs] = useState<UserAnalysisLog[]>([]);
     const [loading, setLoading] = useState(false);
+    const [nextCursor, setNextCursor] = useState<string | undefined>(undefined);
 
     // 获取默认时间范围：昨天到今天
     const getDefaultTimeRange = () => {
@@ -38,29 +39,45 @@ const AdminLogPage: React.FC = () => {
         modelSource: undefined as number | undefined,
     });
 
-    // 加载日志
-    const loadLogs = async () => {
+    // 首页查询实际使用的条件，加载更多时沿用，游标只对生成它的查询条件有效
+    const [activeParams, setActiveParams] = useState<any>({});
+
+    // 按当前表单构建查询条件
+    const buildParams = () => {
+        const params: any = {};
+        if (queryParams.startTime) {
+            params.startTime = queryParams.startTime;
+        }
+        if (queryParams.endTime) {
+            params.endTime = queryParams.endTime;
+        }
+        if (queryParams.userName) {
+            params.userName = queryParams.userName;
+            params.exactMatch = queryParams.exactMatch;
+        }
+        if (queryParams.modelSource !== undefined) {
+            params.modelSource = queryParams.modelSource;
+        }
+        return params;
+    };
+
+    // 加载日志（传入游标时使用首页的查询条件追加下一页，否则按当前表单重新查询）
+    const loadLogs = async (cursor?: string) => {
         setLoading(true);
         try {
-            const params: any = {};
-            if (queryParams.startTime) {
-                params.startTime = queryParams.startTime;
-            }
-            if (queryParams.endTime) {
-                params.endTime = queryParams.endTime;
-            }
-            if (queryParams.userName) {
-                params.userName = queryParams.userName;
-                params.exactMatch = queryParams.exactMatch;
-            }
-            if (queryParams.modelSource !== undefined) {
-                params.modelSource = queryParams.modelSource;
+            const params: any = cursor ? {...activeParams, cursor} : buildParams();
+            if (!cursor) {
+                setActiveParams(params);
             }
 
             const response = await adminApi.log.query(params);
             if (response.success) {
-                setLogs(response.data || []);
-                toast.success(`查询成功，共 ${response.data?.length || 0} 条记录`);
+                const rows = response.data?.rows || [];
+                setLogs(prev => cursor ? [...prev, ...rows] : rows);
+                setNextCursor(response.data?.hasMore ? response.data.nextCursor : undefined);
+                if (!cursor) {
+                    toast.success(`查询成功，共 ${rows.length} 条记录${response.data?.hasMore ? '（还有更多）' : ''}`);
+                }
             }
         } catch (error: any) {
             console.error('查询日志失败:', error);
@@ -174,7 +191,7 @@ const AdminLogPage: React.FC = () => {
                                     type="text"
                                     value={queryParams.userName}
                                     onChange={(e) => setQueryParams({...queryParams, userName: e.target.value})}
-                                    placeholder="输入用户名"
+                                    placeholder="输入用户名（默认按前缀匹配）"
                                     className="w-full px-3 py-2 border border-gray-300 rounded-lg focus:outline-none focus:ring-2 focus:ring-blue-500"
                                 />
                             </div>
@@ -207,7 +224,7 @@ const AdminLogPage: React.FC = () => {
                         </div>
                         <div className="flex gap-3">
                             <button
-                                onClick={loadLogs}
+                                onClick={() => loadLogs()}
                                 disabled={loading}
                                 className="px-4 py-2 bg-blue-600 text-white rounded-lg hover:bg-blue-700 transition flex items-center gap-2 disabled:opacity-50"
                             >
@@ -336,6 +353,17 @@ const AdminLogPage: React.FC = () => {
                                     </tbody>
                                 </table>
                             )}
+                            {nextCursor && (
+                                <div className="py-4 flex justify-center">
+                                    <button
+                                        onClick={() => loadLogs(nextCursor)}
+                                        disabled={loading}
+                                        className="px-4 py-2 border border-gray-300 text-gray-700 rounded-lg hover:bg-gray-50 transition disabled:opacity-50"
+                                    >
+                                        {loading ? '加载中...' : '加载更多'}
+                                    </button>
+                                </div>
+                            )}
                         </div>
                     </div>
                 </div>
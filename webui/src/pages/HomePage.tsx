@@ -10,6 +10,7 @@ import ImagePreview from '../components/ImagePreview';
 import {getImageUrl} from '../utils/imageUrl';
 import {BOOK_ALREADY_ANALYZED} from '../constants/errorCodes';
 import {getThemeColor} from '../utils/themeColor';
+import {generateIdempotencyKey} from '../utils/random';
 
 // 装饰主题类型
 type DecorationTheme = 'daily' | 'christmas' | 'spring-festival';
@@ -163,7 +164,8 @@ const HomePage: React.FC = () => {
       }
 
       // 3. 已登录用户 - 输入框输入：先提取书籍信息
-      const extractResponse = await bookApi.extractBooks(title);
+      // 每次提取生成一个幂等键，请求层重试时沿用
+      const extractResponse = await bookApi.extractBooks(title, generateIdempotencyKey());
 
       if (extractResponse.success && extractResponse.data && extractResponse.data.length > 0) {
         const books = extractResponse.data;
@@ -188,10 +190,11 @@ const HomePage: React.FC = () => {
     setExtractedBooks([]);
 
     try {
+      // 每次分析生成一个幂等键，请求层重试时沿用，避免重复扣费和重复生成海报
       const response = await bookApi.analyzeBook({
         title: book.title,
         author: book.author
-      });
+      }, generateIdempotencyKey());
 
       if (response.success) {
         setResult(response.data);
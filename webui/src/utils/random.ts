@@ -5,3 +5,18 @@
 export const generateRandomString = (length: number = 10): string => {
     return Math.random().toString(36).substring(2, 2 + length);
 };
+
+/**
+ * 生成幂等请求的 Idempotency-Key（每次用户操作生成一个，该操作的重试沿用同一个）
+ * 非安全上下文（HTTP 访问）没有 crypto.randomUUID，退回 crypto.getRandomValues 按 UUID v4 格式生成
+ */
+export const generateIdempotencyKey = (): string => {
+    if (typeof crypto.randomUUID === 'function') {
+        return crypto.randomUUID();
+    }
+    const bytes = crypto.getRandomValues(new Uint8Array(16));
+    bytes[6] = (bytes[6] & 0x0f) | 0x40;
+    bytes[8] = (bytes[8] & 0x3f) | 0x80;
+    const hex = Array.from(bytes, b => b.toString(16).padStart(2, '0')).join('');
+    return `${hex.slice(0, 8)}-${hex.slice(8, 12)}-${hex.slice(12, 16)}-${hex.slice(16, 20)}-${hex.slice(20)}`;
+};
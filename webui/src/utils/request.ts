@@ -1,7 +1,7 @@
-import axios, {AxiosError, type AxiosInstance, type AxiosRequestConfig} from 'axios';
+import axios, {AxiosError, type AxiosInstance, type AxiosRequestConfig, type InternalAxiosRequestConfig} from 'axios';
 import {AuthErrorCode, type Result} from '../models';
 import {toast} from '../components/ToastContainer';
-import {BOOK_ALREADY_ANALYZED, MODEL_NOT_CONFIGURED, USER_BANNED} from '../constants/errorCodes';
+import {BOOK_ALREADY_ANALYZED, MODEL_NOT_CONFIGURED, OFFICIAL_BUDGET_EXHAUSTED, USER_BANNED} from '../constants/errorCodes';
 
 // 创建axios实例
 const instance: AxiosInstance = axios.create({
@@ -26,6 +26,32 @@ instance.interceptors.request.use(
   }
 );
 
+// 携带 Idempotency-Key 的请求在网络错误、超时或网关错误时自动重试
+// 重试沿用原请求的配置（同一个 key），后端会等待或直接返回首次请求的结果，不会重复执行
+const IDEMPOTENT_MAX_RETRIES = 2;
+const IDEMPOTENT_RETRY_DELAY_MS = 1000;
+const IDEMPOTENT_RETRY_STATUS = [502, 503, 504];
+
+type RetryableConfig = InternalAxiosRequestConfig & { retryCount?: number };
+
+function shouldRetry(error: AxiosError): boolean {
+  const config = error.config as RetryableConfig | undefined;
+  if (!config || axios.isCancel(error) || !config.headers?.['Idempotency-Key']) {
+    return false;
+  }
+  if ((config.retryCount ?? 0) >= IDEMPOTENT_MAX_RETRIES) {
+    return false;
+  }
+  return !error.response || IDEMPOTENT_RETRY_STATUS.includes(error.response.status);
+}
+
+async function retryRequest(error: AxiosError) {
+  const config = error.config as RetryableConfig;
+  config.retryCount = (config.retryCount ?? 0) + 1;
+  await new Promise(resolve => setTimeout(resolve, IDEMPOTENT_RETRY_DELAY_MS * config.retryCount!));
+  return instance(config);
+}
+
 // 响应拦截器 - 统一处理Result包裹的响应
 instance.interceptors.response.use(
   (response) => {
@@ -40,6 +66,9 @@ instance.interceptors.response.use(
     return response;
   },
   (error: AxiosError<Result>) => {
+    if (shouldRetry(error)) {
+      return retryRequest(error);
+    }
     if (error.response) {
       const { status, data } = error.response;
 
@@ -133,8 +162,8 @@ function handleBusinessError(data: Result) {
     return;
   }
 
-  // 特殊处理错误码 - 用户未配置 AI 模型
-  if (data.code === MODEL_NOT_CONFIGURED) {
+  // 特殊处理错误码 - 用户未配置 AI 模型 / 官方模型当日额度已用完
+  if (data.code === MODEL_NOT_CONFIGURED || data.code === OFFICIAL_BUDGET_EXHAUSTED) {
     toast.error(data.message || '未配置 AI 模型，即将跳转到设置页面');
     // 延迟跳转，让用户看到提示信息
     setTimeout(() => {
@@ -1,6 +1,47 @@
-import {defineConfig, loadEnv} from 'vite'
+import {defineConfig, loadEnv, type Plugin} from 'vite'
 import react from '@vitejs/plugin-react'
 import {viteMockServe} from 'vite-plugin-mock'
+import {readdirSync, readFileSync, writeFileSync} from 'node:fs'
+import {join, resolve} from 'node:path'
+import {brotliCompressSync, constants, gzipSync} from 'node:zlib'
+
+// 构建后为文本资源生成 .br / .gz 同名文件，后端按 Accept-Encoding 直接返回，不再实时压缩
+const precompress = (): Plugin => {
+  const compressible = /\.(js|mjs|css|html|svg|json|txt|xml|map)$/
+  let outDir = 'dist'
+  return {
+    name: 'lychnos-precompress',
+    apply: 'build',
+    configResolved(config) {
+      outDir = resolve(config.root, config.build.outDir)
+    },
+    closeBundle() {
+      const walk = (dir: string) => {
+        for (const entry of readdirSync(dir, {withFileTypes: true})) {
+          const file = join(dir, entry.name)
+          if (entry.isDirectory()) {
+            walk(file)
+            continue
+          }
+          if (!compressible.test(entry.name)) continue
+          const content = readFileSync(file)
+          // 太小的文件压缩收益不抵额外请求头
+          if (content.length < 1024) continue
+          const br = brotliCompressSync(content, {
+            params: {
+              [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY,
+              [constants.BROTLI_PARAM_SIZE_HINT]: content.length,
+            },
+          })
+          if (br.length < content.length) writeFileSync(file + '.br', br)
+          const gz = gzipSync(content, {level: 9})
+          if (gz.length < content.length) writeFileSync(file + '.gz', gz)
+        }
+      }
+      walk(outDir)
+    },
+  }
+}
 
 // https://vite.dev/config/
 export default defineConfig(({mode}) => {
@@ -23,6 +64,7 @@ export default defineConfig(({mode}) => {
         enable: isMock, // 是否启用mock
         watchFiles: true, // 监听文件变化
       }),
+      precompress(),
     ],
     server: {
       port: 3000,